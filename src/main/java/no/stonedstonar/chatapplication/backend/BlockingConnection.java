@@ -0,0 +1,218 @@
+package no.stonedstonar.chatapplication.backend;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireCodec;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents one client connection in the blocking transport. The connection stays open until the client closes it.
+ * One thread reads the requests and another writes the frames that are put in the write queue,
+ * so the threads that answer requests or push updates never wait on the network.
+ * Plain requests are handled by the reading thread one at a time so the responses come back in the same order.
+ * Requests in a request envelope are given to the workers, since their answers carry the id of the request.
+ * The responses are encoded in the order they are put in the write queue, since the wire format can keep state between frames.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class BlockingConnection implements ClientConnection {
+
+    private final Socket socket;
+
+    private final ExecutorService workers;
+
+    private final ServerRequestHandler serverRequestHandler;
+
+    private final BlockingQueue<ByteBuffer> writeQueue;
+
+    private final WireCodec wireCodec;
+
+    private final Logger logger;
+
+    private Thread writeThread;
+
+    private volatile boolean closed;
+
+    private volatile String loggedInUsername;
+
+    /**
+      * Makes an instance of the BlockingConnection class.
+      * @param socket the socket of the client.
+      * @param workers the executor that handles the requests in request envelopes.
+      * @param serverRequestHandler the handler that makes the responses.
+      */
+    public BlockingConnection(Socket socket, ExecutorService workers, ServerRequestHandler serverRequestHandler){
+        checkIfObjectIsNull(socket, "socket");
+        checkIfObjectIsNull(workers, "workers");
+        checkIfObjectIsNull(serverRequestHandler, "server request handler");
+        this.socket = socket;
+        this.workers = workers;
+        this.serverRequestHandler = serverRequestHandler;
+        writeQueue = new LinkedBlockingQueue<>();
+        wireCodec = new WireCodec();
+        logger = Logger.getLogger(getClass().toString());
+        closed = false;
+    }
+
+    /**
+     * Starts the thread that reads the requests and the thread that writes the frames.
+     * @throws IOException gets thrown if the streams of the socket could not be opened.
+     */
+    public void start() throws IOException {
+        InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+        OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+        String name = "connection-" + socket.getRemoteSocketAddress();
+        writeThread = new Thread(() -> writeFrames(outputStream), name + "-writer");
+        writeThread.setDaemon(true);
+        writeThread.start();
+        Thread readThread = new Thread(() -> readRequests(inputStream), name + "-reader");
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Reads requests until the client closes the connection.
+     * @param inputStream the stream the requests are read from.
+     */
+    private void readRequests(InputStream inputStream){
+        try {
+            while (!closed){
+                Object request = wireCodec.readFrame(inputStream);
+                if (request instanceof RequestEnvelope){
+                    workers.submit(() -> handleRequest(request));
+                }else {
+                    handleRequest(request);
+                }
+            }
+        }catch (IOException | InvalidResponseException | RejectedExecutionException exception){
+            logger.log(Level.FINE, "A client connection stopped. " + exception.getClass() + " message: " + exception.getMessage());
+        }
+        close();
+    }
+
+    /**
+     * Makes the response to a request and puts it in the write queue.
+     * @param request the request that was read.
+     */
+    private void handleRequest(Object request){
+        try {
+            Object response = serverRequestHandler.handleRequest(request, this);
+            if (response != null){
+                sendObject(response);
+            }
+        }catch (IOException | InvalidResponseException | RuntimeException exception){
+            String message = "A request could not be handled and the connection is closed. " + exception.getClass() + " message: " + exception.getMessage();
+            logger.log(Level.FINE, message);
+            close();
+        }
+    }
+
+    /**
+     * Writes the frames in the write queue until the connection is closed.
+     * @param outputStream the stream the frames should be written to.
+     */
+    private void writeFrames(OutputStream outputStream){
+        try {
+            while (!closed){
+                ByteBuffer frame = writeQueue.take();
+                while (frame != null){
+                    outputStream.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+                    frame = writeQueue.poll();
+                }
+                outputStream.flush();
+            }
+        }catch (IOException | InterruptedException exception){
+            logger.log(Level.FINE, "A client connection stopped writing. " + exception.getClass() + " message: " + exception.getMessage());
+        }
+        close();
+    }
+
+    /**
+     * Encodes an object in the wire format of this connection and puts it in the write queue.
+     * @param object the object you want to send.
+     * @throws IOException gets thrown if the connection is closed or the object could not be encoded.
+     */
+    private void sendObject(Object object) throws IOException {
+        if (closed){
+            throw new IOException("The connection is closed.");
+        }
+        synchronized (writeQueue){
+            writeQueue.add(wireCodec.encodeFrame(object));
+        }
+    }
+
+    @Override
+    public void sendFrame(ByteBuffer frame) throws IOException {
+        if (closed){
+            throw new IOException("The connection is closed.");
+        }
+        writeQueue.add(frame.duplicate());
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void setLoggedInUsername(String username) {
+        loggedInUsername = username;
+    }
+
+    @Override
+    public String getLoggedInUsername() {
+        return loggedInUsername;
+    }
+
+    @Override
+    public void setWireFormat(WireFormat wireFormat) {
+        wireCodec.setWireFormat(wireFormat);
+    }
+
+    @Override
+    public WireFormat getWireFormat() {
+        return wireCodec.getWireFormat();
+    }
+
+    /**
+     * Closes the connection and stops the updates that are pushed over it.
+     */
+    public synchronized void close(){
+        if (!closed){
+            closed = true;
+            if (loggedInUsername != null){
+                serverRequestHandler.unsubscribe(loggedInUsername, this);
+            }
+            writeQueue.clear();
+            if (writeThread != null){
+                writeThread.interrupt();
+            }
+            try {
+                socket.close();
+            }catch (IOException exception){
+                logger.log(Level.WARNING, "A client connection cannot be closed.");
+            }
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package no.stonedstonar.chatapplication.backend;
+
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a client connection that stays open for as long as the client wants it.
+ * The server can push frames to it at any time, and it remembers which user has logged in over it and the wire format it uses.
+ * Every transport has its own way of getting the frames out, but none of them may block the thread that pushes.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public interface ClientConnection {
+
+    /**
+     * Puts a frame in line to be sent to the client. Can be called from any thread.
+     * @param frame the frame to send. It is not changed, so the same frame can be given to many connections.
+     * @throws IOException gets thrown if the connection is closed.
+     */
+    void sendFrame(ByteBuffer frame) throws IOException;
+
+    /**
+     * Checks if the connection is closed.
+     * @return <code>true</code> if the connection is closed.
+     *         <code>false</code> if the connection is still open.
+     */
+    boolean isClosed();
+
+    /**
+     * Sets the user that has logged in over this connection.
+     * @param username the username of the user.
+     */
+    void setLoggedInUsername(String username);
+
+    /**
+     * Gets the user that has logged in over this connection.
+     * @return the username of the user, or <code>null</code> if no one has logged in.
+     */
+    String getLoggedInUsername();
+
+    /**
+     * Sets the format the frames to this client should be written in from now on.
+     * @param wireFormat the wire format.
+     */
+    void setWireFormat(WireFormat wireFormat);
+
+    /**
+     * Gets the format the frames to this client are written in.
+     * @return the wire format.
+     */
+    WireFormat getWireFormat();
+}
@@ -0,0 +1,65 @@
+package no.stonedstonar.chatapplication.backend;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Represents a fixed set of read write locks that the conversations of the server are spread over.
+ * Each conversation number always gets the same lock, so requests for different conversations can run at the same time
+ * while requests for the same conversation still take turns. Reading requests can share a lock, changing requests cannot.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ConversationLocks {
+
+    private final ReadWriteLock[] locks;
+
+    private final int mask;
+
+    /**
+      * Makes an instance of the ConversationLocks class.
+      * @param amountOfLocks the least amount of locks the conversations should be spread over. Gets rounded up to a power of two.
+      */
+    public ConversationLocks(int amountOfLocks){
+        checkIfIntIsAboveZero(amountOfLocks, "amount of locks");
+        int size = Integer.highestOneBit(amountOfLocks);
+        if (size < amountOfLocks){
+            size = size << 1;
+        }
+        locks = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++){
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Gets the lock that guards the conversation with this number.
+     * @param conversationNumber the number of the conversation.
+     * @return the lock of that conversation.
+     */
+    public ReadWriteLock getLock(long conversationNumber){
+        long hash = conversationNumber * 0x9E3779B97F4A7C15L;
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+        return locks[index];
+    }
+
+    /**
+     * Gets the amount of locks the conversations are spread over.
+     * @return the amount of locks.
+     */
+    public int getAmountOfLocks(){
+        return locks.length;
+    }
+
+    /**
+     * Checks if an int is above zero.
+     * @param number the number to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfIntIsAboveZero(int number, String prefix){
+        if (number <= 0){
+            throw new IllegalArgumentException("Expected the " + prefix + " to be larger than zero.");
+        }
+    }
+}
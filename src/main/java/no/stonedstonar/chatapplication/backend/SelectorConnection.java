@@ -0,0 +1,363 @@
+package no.stonedstonar.chatapplication.backend;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.network.frame.FrameCodec;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireCodec;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents one client connection in the selector transport.
+ * Holds the bytes that have been read until a whole frame is there, and the frames that are waiting to be written.
+ * The frames are decoded by the event loop in the order they are read and encoded in the order they are put in the write queue,
+ * since the wire format can keep state between the frames of one connection.
+ * Plain requests of one connection are handled one at a time so the responses come back in the same order.
+ * Requests in a request envelope let the next request start right away, since their answers carry the id of the request.
+ * A connection only takes so much from its client. It stops reading while too many of its requests are being handled,
+ * and it is closed if the frames that wait to be written get too large, so a slow or hostile client cannot fill the heap of the server.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SelectorConnection implements ClientConnection {
+
+    private static final int START_BUFFER_SIZE = 4096;
+
+    private static final int MAX_REQUESTS_IN_FLIGHT = 32;
+
+    private static final long MAX_QUEUED_BYTES = 16L * 1024 * 1024;
+
+    private final SocketChannel socketChannel;
+
+    private final SelectionKey selectionKey;
+
+    private final SelectorTransport.EventLoop eventLoop;
+
+    private final ExecutorService workers;
+
+    private final ServerRequestHandler serverRequestHandler;
+
+    private final Deque<ByteBuffer> writeQueue;
+
+    private final Deque<Object> waitingRequests;
+
+    private final WireCodec wireCodec;
+
+    private final Logger logger;
+
+    private ByteBuffer readBuffer;
+
+    private boolean handlingRequest;
+
+    private int requestsInFlight;
+
+    private boolean readingPaused;
+
+    private long queuedBytes;
+
+    private volatile boolean closed;
+
+    private volatile String loggedInUsername;
+
+    /**
+      * Makes an instance of the SelectorConnection class.
+      * @param socketChannel the channel of the connection.
+      * @param selectionKey the key the channel has in the selector.
+      * @param eventLoop the event loop that owns this connection.
+      * @param workers the executor that handles the requests.
+      * @param serverRequestHandler the handler that makes the responses.
+      */
+    SelectorConnection(SocketChannel socketChannel, SelectionKey selectionKey, SelectorTransport.EventLoop eventLoop, ExecutorService workers, ServerRequestHandler serverRequestHandler){
+        this.socketChannel = socketChannel;
+        this.selectionKey = selectionKey;
+        this.eventLoop = eventLoop;
+        this.workers = workers;
+        this.serverRequestHandler = serverRequestHandler;
+        writeQueue = new ArrayDeque<>();
+        waitingRequests = new ArrayDeque<>();
+        wireCodec = new WireCodec();
+        readBuffer = ByteBuffer.allocate(START_BUFFER_SIZE);
+        logger = Logger.getLogger(getClass().toString());
+        handlingRequest = false;
+        requestsInFlight = 0;
+        readingPaused = false;
+        queuedBytes = 0;
+        closed = false;
+    }
+
+    /**
+     * Reads what the channel has and hands every whole frame to the workers.
+     * Stops reading when the connection has as many requests in flight as it can take, and goes on when a request is done.
+     * Is only called by the event loop.
+     * @throws IOException gets thrown if the channel is closed or a frame is invalid.
+     */
+    void read() throws IOException {
+        int bytesRead = socketChannel.read(readBuffer);
+        if (bytesRead == -1){
+            close();
+            return;
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= FrameCodec.HEADER_SIZE){
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length <= 0 || length > FrameCodec.MAX_FRAME_SIZE){
+                throw new IOException("The frame length " + length + " is not valid.");
+            }
+            if (readBuffer.remaining() < FrameCodec.HEADER_SIZE + length){
+                break;
+            }
+            readBuffer.position(readBuffer.position() + FrameCodec.HEADER_SIZE);
+            byte[] payload = new byte[length];
+            readBuffer.get(payload);
+            addRequest(decodeRequest(payload));
+        }
+        readBuffer.compact();
+        growReadBufferIfNeeded();
+        pauseReadingIfBusy();
+    }
+
+    /**
+     * Turns off read interest if the connection has too many requests in flight. Is only called by the event loop.
+     */
+    private synchronized void pauseReadingIfBusy(){
+        if (requestsInFlight >= MAX_REQUESTS_IN_FLIGHT && !readingPaused){
+            readingPaused = true;
+            updateInterest();
+        }
+    }
+
+    /**
+     * Decodes the payload of a frame.
+     * @param payload the payload.
+     * @return the request the payload holds.
+     * @throws IOException gets thrown if the payload is not valid.
+     */
+    private Object decodeRequest(byte[] payload) throws IOException {
+        try {
+            return wireCodec.decodeObject(payload);
+        }catch (InvalidResponseException exception){
+            throw new IOException(exception.getMessage());
+        }
+    }
+
+    /**
+     * Makes the read buffer larger if it is full and the frame that is being read does not fit in it,
+     * and makes it small again when a large frame has been read, so an idle connection does not keep a large buffer.
+     * The buffer is only made twice as large each time, so the length a frame says it has only costs heap as the bytes of the frame come in.
+     */
+    private void growReadBufferIfNeeded(){
+        int needed = START_BUFFER_SIZE;
+        if (readBuffer.position() >= FrameCodec.HEADER_SIZE){
+            needed = Math.max(needed, FrameCodec.HEADER_SIZE + readBuffer.getInt(0));
+        }
+        int capacity = readBuffer.capacity();
+        if (needed > capacity && !readBuffer.hasRemaining()){
+            capacity = (int) Math.min(needed, 2L * capacity);
+        }else if (capacity > START_BUFFER_SIZE && needed == START_BUFFER_SIZE && readBuffer.position() <= START_BUFFER_SIZE){
+            capacity = START_BUFFER_SIZE;
+        }
+        if (capacity != readBuffer.capacity()){
+            ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+            readBuffer.flip();
+            newBuffer.put(readBuffer);
+            readBuffer = newBuffer;
+        }
+    }
+
+    /**
+     * Adds a request that has been read and starts handling it if no other request is being handled.
+     * @param request the request.
+     */
+    private synchronized void addRequest(Object request){
+        requestsInFlight += 1;
+        waitingRequests.add(request);
+        if (!handlingRequest){
+            handleNextRequest();
+        }
+    }
+
+    /**
+     * Gives the next waiting request to the workers.
+     */
+    private synchronized void handleNextRequest(){
+        Object request = waitingRequests.poll();
+        handlingRequest = request != null;
+        if (request != null){
+            try {
+                workers.submit(() -> handleRequest(request));
+            }catch (RejectedExecutionException exception){
+                close();
+            }
+        }
+    }
+
+    /**
+     * Makes the response to a request and puts it in the write queue.
+     * Is run by a worker thread.
+     * @param request the request.
+     */
+    private void handleRequest(Object request){
+        try {
+            boolean inOrder = !(request instanceof RequestEnvelope);
+            if (!inOrder){
+                handleNextRequest();
+            }
+            Object response = serverRequestHandler.handleRequest(request, this);
+            if (response != null){
+                sendObject(response);
+            }
+            if (inOrder){
+                handleNextRequest();
+            }
+        }catch (IOException | InvalidResponseException | RuntimeException exception){
+            String message = "A request could not be handled and the connection is closed. " + exception.getClass() + " message: " + exception.getMessage();
+            logger.log(Level.FINE, message);
+            close();
+        }finally {
+            requestDone();
+        }
+    }
+
+    /**
+     * Counts a request as done, and asks the event loop to read again if reading was paused.
+     */
+    private synchronized void requestDone(){
+        requestsInFlight -= 1;
+        if (readingPaused && requestsInFlight < MAX_REQUESTS_IN_FLIGHT){
+            readingPaused = false;
+            eventLoop.requestInterestUpdate(this);
+        }
+    }
+
+    /**
+     * Puts an object in the write queue of this connection and tells the event loop about it.
+     * Can be called from any thread.
+     * @param object the object you want to send.
+     * @throws IOException gets thrown if the object could not be encoded, or if the connection is closed since its client does not read.
+     */
+    public void sendObject(Object object) throws IOException {
+        if (closed){
+            throw new IOException("The connection is closed.");
+        }
+        synchronized (writeQueue){
+            addFrame(wireCodec.encodeFrame(object));
+        }
+        eventLoop.requestInterestUpdate(this);
+    }
+
+    @Override
+    public void sendFrame(ByteBuffer frame) throws IOException {
+        if (closed){
+            throw new IOException("The connection is closed.");
+        }
+        synchronized (writeQueue){
+            addFrame(frame.duplicate());
+        }
+        eventLoop.requestInterestUpdate(this);
+    }
+
+    /**
+     * Adds a frame to the write queue. A frame is always taken when the queue is empty, so one large answer can still be sent.
+     * If the client has not read the frames before it and they are too large together, the connection is closed,
+     * since the client is too slow to follow and gets what it missed with a sync when it connects again.
+     * The lock of the write queue must be held.
+     * @param frame the frame to add.
+     * @throws IOException gets thrown if the connection is closed since the queue is full.
+     */
+    private void addFrame(ByteBuffer frame) throws IOException {
+        if (!writeQueue.isEmpty() && queuedBytes + frame.remaining() > MAX_QUEUED_BYTES){
+            logger.log(Level.FINE, "A client does not read its frames and the connection is closed with " + queuedBytes + " bytes waiting.");
+            close();
+            throw new IOException("The client does not read the frames that are sent to it.");
+        }
+        queuedBytes += frame.remaining();
+        writeQueue.add(frame);
+    }
+
+    /**
+     * Sets the interest of this connection from its state. Reads when it is not paused and writes when frames are waiting.
+     * Is only called by the event loop.
+     */
+    synchronized void updateInterest(){
+        if (selectionKey.isValid()){
+            int interestOps = readingPaused ? 0 : SelectionKey.OP_READ;
+            synchronized (writeQueue){
+                if (!writeQueue.isEmpty()){
+                    interestOps |= SelectionKey.OP_WRITE;
+                }
+            }
+            selectionKey.interestOps(interestOps);
+        }
+    }
+
+    /**
+     * Writes as many of the waiting frames as the channel takes.
+     * Is only called by the event loop.
+     * @throws IOException gets thrown if the channel is closed.
+     */
+    void write() throws IOException {
+        synchronized (writeQueue){
+            ByteBuffer frame = writeQueue.peek();
+            while (frame != null){
+                queuedBytes -= socketChannel.write(frame);
+                if (frame.hasRemaining()){
+                    return;
+                }
+                writeQueue.poll();
+                frame = writeQueue.peek();
+            }
+            selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public boolean isClosed(){
+        return closed;
+    }
+
+    @Override
+    public void setLoggedInUsername(String username) {
+        loggedInUsername = username;
+    }
+
+    @Override
+    public String getLoggedInUsername() {
+        return loggedInUsername;
+    }
+
+    @Override
+    public void setWireFormat(WireFormat wireFormat) {
+        wireCodec.setWireFormat(wireFormat);
+    }
+
+    @Override
+    public WireFormat getWireFormat() {
+        return wireCodec.getWireFormat();
+    }
+
+    /**
+     * Closes the connection and stops the updates that are pushed over it.
+     */
+    public void close(){
+        closed = true;
+        if (loggedInUsername != null){
+            serverRequestHandler.unsubscribe(loggedInUsername, this);
+        }
+        selectionKey.cancel();
+        try {
+            socketChannel.close();
+        }catch (IOException exception){
+            logger.log(Level.WARNING, "A client connection cannot be closed.");
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package no.stonedstonar.chatapplication.backend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a non-blocking transport for the server that uses a server socket channel and selectors.
+ * One thread accepts new connections and hands them out to a few event loops. The event loops read
+ * and write the channels, and only hands a request to the workers when a whole frame has arrived.
+ * That way a connection that is open and idle does not hold on to a thread.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SelectorTransport {
+
+    private final ServerSocketChannel serverSocketChannel;
+
+    private final Selector acceptSelector;
+
+    private final EventLoop[] eventLoops;
+
+    private final ExecutorService workers;
+
+    private final ServerRequestHandler serverRequestHandler;
+
+    private final Logger logger;
+
+    private volatile boolean run;
+
+    private int nextEventLoop;
+
+    /**
+      * Makes an instance of the SelectorTransport class.
+      * @param portNumber the port the server should listen on.
+      * @param amountOfEventLoops the amount of threads that should read and write the connections.
+      * @param workers the executor that handles the requests.
+      * @param serverRequestHandler the handler that makes the responses.
+      * @throws IOException gets thrown if the server socket channel could not be opened.
+      */
+    public SelectorTransport(int portNumber, int amountOfEventLoops, ExecutorService workers, ServerRequestHandler serverRequestHandler) throws IOException {
+        checkIfIntIsAboveZero(portNumber, "port number");
+        checkIfIntIsAboveZero(amountOfEventLoops, "amount of event loops");
+        checkIfObjectIsNull(workers, "workers");
+        checkIfObjectIsNull(serverRequestHandler, "server request handler");
+        logger = Logger.getLogger(getClass().toString());
+        this.workers = workers;
+        this.serverRequestHandler = serverRequestHandler;
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(portNumber), 1024);
+        serverSocketChannel.configureBlocking(false);
+        acceptSelector = Selector.open();
+        serverSocketChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        eventLoops = new EventLoop[amountOfEventLoops];
+        for (int i = 0; i < amountOfEventLoops; i++){
+            eventLoops[i] = new EventLoop(Selector.open());
+        }
+        nextEventLoop = 0;
+    }
+
+    /**
+     * Starts the event loops and accepts new connections on the calling thread until the transport is stopped.
+     */
+    public void run(){
+        run = true;
+        for (int i = 0; i < eventLoops.length; i++){
+            Thread thread = new Thread(eventLoops[i], "selector-event-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            while (run){
+                acceptSelector.select();
+                Iterator<SelectionKey> it = acceptSelector.selectedKeys().iterator();
+                while (it.hasNext()){
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid() && key.isAcceptable()){
+                        acceptConnections();
+                    }
+                }
+            }
+        }catch (IOException | ClosedSelectorException exception){
+            if (run){
+                String message = "The selector transport has crashed and gotten the following exception class: " + exception.getClass() + " and message: " + exception.getMessage();
+                logEvent(Level.SEVERE, message);
+            }
+        }
+    }
+
+    /**
+     * Accepts all the connections that are waiting and gives them to an event loop.
+     * @throws IOException gets thrown if the server socket channel fails.
+     */
+    private void acceptConnections() throws IOException {
+        SocketChannel socketChannel = serverSocketChannel.accept();
+        while (socketChannel != null){
+            socketChannel.configureBlocking(false);
+            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            eventLoops[nextEventLoop].addChannel(socketChannel);
+            nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            socketChannel = serverSocketChannel.accept();
+        }
+    }
+
+    /**
+     * Stops the transport and closes all the selectors.
+     */
+    public void stop(){
+        run = false;
+        try {
+            acceptSelector.close();
+            serverSocketChannel.close();
+        }catch (IOException exception){
+            logEvent(Level.WARNING, "The server socket channel could not be closed.");
+        }
+        for (EventLoop eventLoop : eventLoops){
+            eventLoop.stop();
+        }
+    }
+
+    /**
+     * Logs an error or event in this transport.
+     * @param level the level the message should have.
+     * @param message the message.
+     */
+    private void logEvent(Level level, String message){
+        logger.log(level, message);
+    }
+
+    /**
+     * Checks if an int is above 0.
+     * @param number the number you want to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfIntIsAboveZero(int number, String prefix){
+        if (number <= 0){
+            throw new IllegalArgumentException("The " + prefix + " must be above 0.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+
+    /**
+     * Represents one selector thread that reads and writes a share of the connections.
+     */
+    class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<SocketChannel> newChannels;
+
+        private final Queue<SelectorConnection> connectionsToUpdate;
+
+        /**
+         * Makes an instance of the EventLoop class.
+         * @param selector the selector this event loop uses.
+         */
+        private EventLoop(Selector selector){
+            this.selector = selector;
+            newChannels = new ConcurrentLinkedQueue<>();
+            connectionsToUpdate = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Hands a new channel to this event loop.
+         * @param socketChannel the channel of the new connection.
+         */
+        private void addChannel(SocketChannel socketChannel){
+            newChannels.add(socketChannel);
+            selector.wakeup();
+        }
+
+        /**
+         * Tells the event loop that a connection has frames that are waiting to be written, or that it can read again.
+         * @param selectorConnection the connection whose interest has changed.
+         */
+        void requestInterestUpdate(SelectorConnection selectorConnection){
+            connectionsToUpdate.add(selectorConnection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (run){
+                    selector.select();
+                    registerNewChannels();
+                    updateInterests();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()){
+                        SelectionKey key = it.next();
+                        it.remove();
+                        handleKey(key);
+                    }
+                }
+            }catch (IOException | ClosedSelectorException exception){
+                if (run){
+                    String message = "An event loop has crashed and gotten the following exception class: " + exception.getClass() + " and message: " + exception.getMessage();
+                    logEvent(Level.SEVERE, message);
+                }
+            }
+        }
+
+        /**
+         * Registers all the channels that have been handed to this event loop.
+         */
+        private void registerNewChannels(){
+            SocketChannel socketChannel = newChannels.poll();
+            while (socketChannel != null){
+                try {
+                    SelectionKey key = socketChannel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new SelectorConnection(socketChannel, key, this, workers, serverRequestHandler));
+                }catch (ClosedChannelException exception){
+                    logEvent(Level.FINE, "A client closed the connection before it was registered.");
+                }
+                socketChannel = newChannels.poll();
+            }
+        }
+
+        /**
+         * Updates the interest of all the connections that have asked for it.
+         */
+        private void updateInterests(){
+            SelectorConnection selectorConnection = connectionsToUpdate.poll();
+            while (selectorConnection != null){
+                try {
+                    selectorConnection.updateInterest();
+                }catch (CancelledKeyException exception){
+                    selectorConnection.close();
+                }
+                selectorConnection = connectionsToUpdate.poll();
+            }
+        }
+
+        /**
+         * Handles a key that is ready for reading or writing.
+         * @param key the key that is ready.
+         */
+        private void handleKey(SelectionKey key){
+            SelectorConnection selectorConnection = (SelectorConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()){
+                    selectorConnection.read();
+                }
+                if (key.isValid() && key.isWritable()){
+                    selectorConnection.write();
+                }
+            }catch (IOException | CancelledKeyException exception){
+                selectorConnection.close();
+            }
+        }
+
+        /**
+         * Stops the event loop and closes all of its connections.
+         */
+        private void stop(){
+            try {
+                selector.keys().forEach(key -> {
+                    if (key.attachment() instanceof SelectorConnection selectorConnection){
+                        selectorConnection.close();
+                    }
+                });
+                selector.close();
+            }catch (IOException | ClosedSelectorException exception){
+                logEvent(Level.WARNING, "An event loop could not be closed.");
+            }
+        }
+    }
+}
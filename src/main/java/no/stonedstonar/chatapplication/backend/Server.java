@@ -1,47 +1,23 @@
 package no.stonedstonar.chatapplication.backend;
 
 import javafx.application.Platform;
-import no.stonedstonar.chatapplication.model.conversation.Conversation;
-import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
-import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
-import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
-import no.stonedstonar.chatapplication.model.conversationregister.personal.NormalPersonalConversationRegister;
+import no.stonedstonar.chatapplication.backend.wal.ServerStateLog;
+import no.stonedstonar.chatapplication.backend.wal.WriteAheadLog;
 import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
-import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
-import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
-import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotGetConversationException;
-import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
-import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
-import no.stonedstonar.chatapplication.model.exception.member.CouldNotGetMemberException;
-import no.stonedstonar.chatapplication.model.exception.member.CouldNotRemoveMemberException;
-import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
-import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
-import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
-import no.stonedstonar.chatapplication.model.exception.user.CouldNotAddUserException;
-import no.stonedstonar.chatapplication.model.exception.user.CouldNotLoginToUserException;
-import no.stonedstonar.chatapplication.model.member.Member;
-import no.stonedstonar.chatapplication.model.message.Message;
-import no.stonedstonar.chatapplication.model.user.EndUser;
-import no.stonedstonar.chatapplication.model.user.User;
+import no.stonedstonar.chatapplication.model.messagelog.MappedServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.messagelog.MessageLogCache;
+import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLogFactory;
 import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
-import no.stonedstonar.chatapplication.network.requests.*;
-import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
-import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
-import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
-import no.stonedstonar.chatapplication.network.transport.LoginTransport;
-import no.stonedstonar.chatapplication.network.transport.MemberTransport;
-import no.stonedstonar.chatapplication.network.transport.MessageTransport;
-import no.stonedstonar.chatapplication.network.transport.PersonalConversationTransport;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.*;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,12 +28,42 @@ import java.util.logging.Logger;
  */
 public class Server{
 
+    private static final int PORT_NUMBER = 1380;
+
+    private static final String STATE_LOG_PROPERTY = "chatapplication.wal";
+
+    private static final String COMMIT_DELAY_PROPERTY = "chatapplication.wal.commitMicros";
+
+    private static final String FORCE_TO_DISK_PROPERTY = "chatapplication.wal.fsync";
+
+    private static final String SNAPSHOT_MINUTES_PROPERTY = "chatapplication.snapshot.minutes";
+
+    private static final String MESSAGES_PROPERTY = "chatapplication.messages";
+
+    private static final String LOADED_DAYS_PROPERTY = "chatapplication.messages.loadedDays";
+
+    private static final String MAPPED_MEGABYTES_PROPERTY = "chatapplication.messages.mappedMegabytes";
+
     private ServerSocket welcomeSocket;
 
+    private SelectorTransport selectorTransport;
+
+    private final TransportMode transportMode;
+
     private volatile NormalUserRegister normalUserRegister;
 
     private volatile NormalConversationRegister normalConversationRegister;
 
+    private final ServerRequestHandler serverRequestHandler;
+
+    private final ServerStateLog serverStateLog;
+
+    private long lastReplayedRecord;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    private MessageLogCache messageLogCache;
+
     private volatile Logger logger;
 
     private boolean run;
@@ -65,428 +71,225 @@ public class Server{
     private ExecutorService executors;
 
     public static void main(String[] args) {
-        Server server = new Server();
+        TransportMode transportMode = TransportMode.SELECTOR;
+        if (args.length > 0){
+            transportMode = TransportMode.valueOf(args[0].toUpperCase());
+        }
+        Server server = new Server(transportMode);
         server.run();
     }
 
     /**
-      * Makes an instance of the Server class.
+      * Makes an instance of the Server class that uses blocking threads for each connection.
       */
     public Server(){
+        this(TransportMode.BLOCKING);
+    }
+
+    /**
+     * Makes an instance of the Server class. The state of the server is read back from the state log before the server is used.
+     * The state log is kept in the folder <code>server-state</code> unless the system property <code>chatapplication.wal</code> is set,
+     * and an empty value turns the state log off. <code>chatapplication.wal.commitMicros</code> sets how long the log waits to gather
+     * changes before they are written, and <code>chatapplication.wal.fsync</code> set to <code>false</code> stops it from forcing them to the disk.
+     * A snapshot of the state is written every ten minutes, or as often as <code>chatapplication.snapshot.minutes</code> says, where zero turns it off.
+     * The messages of each day are kept in memory-mapped files in the folder <code>server-messages</code>, or the folder
+     * <code>chatapplication.messages</code> says, and an empty value keeps them on the heap instead.
+     * The days that have not been used for a while are unloaded when more than 16 384 days are loaded, or as many as
+     * <code>chatapplication.messages.loadedDays</code> says, where zero keeps every day loaded. They are also unloaded when the loaded days
+     * have mapped more than 4 096 megabytes together, or as many as <code>chatapplication.messages.mappedMegabytes</code> says.
+     * @param transportMode the way the server should handle the connections.
+     * @throws IllegalStateException gets thrown if the state log could not be opened or the state could not be read back from it.
+     */
+    public Server(TransportMode transportMode){
+        checkIfObjectIsNull(transportMode, "transport mode");
         logger = Logger.getLogger(getClass().toString());
         normalUserRegister = new NormalUserRegister();
-        normalConversationRegister = new NormalConversationRegister();
+        normalConversationRegister = new NormalConversationRegister(makeMessageLogFactory());
+        serverStateLog = openStateLog();
+        serverRequestHandler = new ServerRequestHandler(normalUserRegister, normalConversationRegister, serverStateLog);
+        startSnapshots();
+        this.transportMode = transportMode;
         run = true;
         executors = Executors.newFixedThreadPool(12);
         try {
-            welcomeSocket = new ServerSocket(1380);
+            if (transportMode == TransportMode.SELECTOR){
+                int eventLoops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                selectorTransport = new SelectorTransport(PORT_NUMBER, eventLoops, executors, serverRequestHandler);
+            }else {
+                welcomeSocket = new ServerSocket(PORT_NUMBER);
+            }
         }catch (IOException exception){
             logEvent(Level.SEVERE, "Could not open the server socket. Please restart the server.");
         }
     }
 
     /**
-     * Adds all the test data needed.
+     * Makes the factory that decides where the messages of the conversations are kept.
+     * @return the message log factory. Keeps the messages on the heap if the folder is turned off or could not be used.
      */
-    private void addTestData(){
-        try {
-            ServerTestData.makeTestDataForServer(normalConversationRegister, normalUserRegister);
-        }catch (Exception exception){
-            String message = "The test data could not be added " + exception.getClass() + " exception message: " + exception.getMessage();
-            logEvent(Level.SEVERE, message);
-        }
-    }
-
-    /**
-     * Makes the server run and accept incoming communication.
-     */
-    public void run(){
-        addTestData();
-        try {
-            while (run){
-                Socket client = welcomeSocket.accept();
-                logEvent(Level.FINE, "Message received from a new client.");
-                executors.submit(()->{
-                    try {
-                        handleConnection(client);
-                    }catch (IOException | InvalidResponseException exception){
-                        if (!client.isClosed()){
-                            try {
-                                client.close();
-                            } catch (IOException e) {
-                                logEvent(Level.SEVERE, "A client connection cannot be closed.");
-                            }
-                        }
-                    }
-                });
+    private ServerMessageLogFactory makeMessageLogFactory(){
+        String path = System.getProperty(MESSAGES_PROPERTY, "server-messages");
+        ServerMessageLogFactory messageLogFactory = new NormalServerMessageLogFactory();
+        if (!path.isBlank()){
+            try {
+                int loadedDays = Integer.parseInt(System.getProperty(LOADED_DAYS_PROPERTY, "16384"));
+                long mappedMegabytes = Long.parseLong(System.getProperty(MAPPED_MEGABYTES_PROPERTY, "4096"));
+                messageLogCache = loadedDays > 0 ? new MessageLogCache(loadedDays, mappedMegabytes << 20) : null;
+                messageLogFactory = new MappedServerMessageLogFactory(Path.of(path), messageLogCache);
+            }catch (IOException | IllegalArgumentException exception){
+                logEvent(Level.SEVERE, "Could not use the folder " + path + " for the messages, so they are kept on the heap. " + exception.getMessage());
             }
-        }catch (IOException exception){
-            String message = "The server has crashed and gotten the following exception class: " + exception.getClass() + " and message: " + exception.getMessage();
-            logEvent(Level.SEVERE, message);
         }
+        return messageLogFactory;
     }
 
     /**
-     * Stops the server
-     */
-    public synchronized void stopServer(){
-        Platform.runLater(()->{
-            run = false;
-            executors.shutdown();
-            while (!executors.isTerminated()){
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-
-                }
-            }
-            logEvent(Level.FINE, "Server is shutting down.");
-        });
-    }
-
-    /**
-     * Handles the connection of a client.
-     * @param socket the socket that this connection is about.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
-     * @throws InvalidResponseException gets thrown if the class cannot be found.
-     */
-    private synchronized void handleConnection(Socket socket) throws IOException, InvalidResponseException {
-        do{
-            Object object = getObject(socket);
-            if(object instanceof MessageRequest messageRequest){
-                handleIncomingMessage(messageRequest, socket);
-            }else if (object instanceof UserRequest userRequest){
-                handleUserInteraction(userRequest, socket);
-            }else if (object instanceof ConversationRequest conversationRequest){
-                handleConversationInteraction(conversationRequest, socket);
-            }else if (object instanceof MembersRequest membersRequest){
-                handleMembersRequest(membersRequest, socket);
-            }else if (object instanceof SetKeepAliveRequest setKeepAliveRequest) {
-                socket.setKeepAlive(setKeepAliveRequest.isKeepAlive());
-            }else {
-                throw new InvalidResponseException("NONE IS A VALID OBJECT");
-            }
-        }while ((socket.getKeepAlive()) && (!socket.isClosed()));
-    }
-
-    /**
-     * Handles a message when it comes in.
-     * @param messageRequest the message transport the message comes in.
-     * @param socket the socket that gets the sends.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
+     * Opens the state log, loads the newest snapshot and does the changes in the log after it again on the registers.
+     * The server is not started if the state could not be read back, since the registers may only hold a part of it.
+     * @return the state log. Keeps nothing if the log is turned off.
+     * @throws IllegalStateException gets thrown if the state log could not be opened or the state could not be read back from it.
      */
-    private synchronized void handleIncomingMessage(MessageRequest messageRequest, Socket socket) throws IOException {
+    private ServerStateLog openStateLog(){
+        String path = System.getProperty(STATE_LOG_PROPERTY, "server-state");
+        if (path.isBlank()){
+            return new ServerStateLog();
+        }
+        WriteAheadLog writeAheadLog = null;
         try {
-            if (messageRequest.isCheckForMessages()){
-                checkForNewMessages(messageRequest, socket);
-            }else {
-                List<Message> addMessages = messageRequest.getMessageTransportList().stream().filter(MessageTransport::isAddMessage).map(MessageTransport::getMessage).toList();
-                List<Message> removeMessages = messageRequest.getMessageTransportList().stream().filter(mess -> !mess.isAddMessage()).map(MessageTransport::getMessage).toList();
-                ServerConversation conversation = normalConversationRegister.getConversationByNumber(messageRequest.getConversationNumber());
-                if (!addMessages.isEmpty()){
-                    addNewMessages(addMessages, conversation);
-                }
-                if (!removeMessages.isEmpty()){
-                    removeMessages(removeMessages, conversation);
+            long commitDelay = Long.parseLong(System.getProperty(COMMIT_DELAY_PROPERTY, "0"));
+            boolean forceToDisk = Boolean.parseBoolean(System.getProperty(FORCE_TO_DISK_PROPERTY, "true"));
+            writeAheadLog = new WriteAheadLog(Path.of(path), commitDelay, forceToDisk);
+            ServerStateLog stateLog = new ServerStateLog(writeAheadLog);
+            long start = System.nanoTime();
+            lastReplayedRecord = stateLog.replay(normalUserRegister, normalConversationRegister);
+            logEvent(Level.INFO, "Read the state up to change " + lastReplayedRecord + " from " + path + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return stateLog;
+        }catch (IOException | RuntimeException exception){
+            if (writeAheadLog != null){
+                try {
+                    writeAheadLog.close();
+                }catch (IOException closeException){
+                    exception.addSuppressed(closeException);
                 }
-                sendObject(messageRequest, socket);
             }
-        } catch (UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMessageLogException | CouldNotAddMessageException | CouldNotRemoveMessageException exception) {
-            String message = "Something went wrong in adding " + messageRequest.getMessageTransportList().size() + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
-            logEvent(Level.WARNING, message);
-            sendObject(exception, socket);
+            String message = "Could not read the state back from " + path + ", so the server is not started. " + exception.getMessage();
+            logEvent(Level.SEVERE, message);
+            throw new IllegalStateException(message, exception);
         }
     }
 
     /**
-     * Adds new messages to the conversations they match.
-     * @param messages the message request.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be located.
-     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of that conversation.
-     * @throws CouldNotAddMessageException gets thrown if the messages is already in the conversation.
-     * @throws CouldNotGetMessageLogException gets thrown if the message log for that date could not be located.
-     */
-    private synchronized void addNewMessages(List<Message> messages, ServerConversation conversation) throws IOException, CouldNotGetConversationException, UsernameNotPartOfConversationException, CouldNotAddMessageException, CouldNotGetMessageLogException {
-        conversation.addAllMessagesWithSameDate(messages);
-    }
-
-    /**
-     * Removes all the messages if every single one is in the conversation-
-     * @param messageList the message list you want to remove.
-     * @param conversation the conversation these messages are in.
-     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of that conversation.
-     * @throws CouldNotRemoveMessageException gets thrown if one or more of the messages are not in the conversation.
-     * @throws CouldNotGetMessageLogException  gets thrown if the date of these messages don't have a message log.
-     */
-    private synchronized void removeMessages(List<Message> messageList, ServerConversation conversation) throws UsernameNotPartOfConversationException, CouldNotRemoveMessageException, CouldNotGetMessageLogException {
-        conversation.removeAllMessagesWithSameDate(messageList);
-    }
-
-    /**
-     * Checks if a conversation has new messages compared to the conversation request.
-     * @param messageRequest the request that wants messages for a conversation.
-     * @param socket socket that the communication is happening over.
-     * @throws CouldNotGetMessageLogException gets thrown if the conversation could not be found.
-     * @throws IOException gets thrown if something goes wrong with the communication.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
-     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of the conversation.
+     * Starts writing a snapshot of the state at a fixed rate, if the state log keeps the changes.
      */
-    private synchronized void checkForNewMessages(MessageRequest messageRequest, Socket socket) throws IOException, CouldNotGetConversationException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
-        ServerConversation conversation = normalConversationRegister.getConversationByNumber(messageRequest.getConversationNumber());
-        List<Message> newMessages = conversation.checkForNewMessagesOnDate(messageRequest.getCheckMessageDate(),messageRequest.getLastMessage(), messageRequest.getUsername());
-        List<MessageTransport> messageTransportList = new ArrayList<>();
-        newMessages.forEach(message -> messageTransportList.add(new MessageTransport(message, true)));
-        MessageRequest responseRequest = new MessageRequestBuilder().addMessageTransportList(messageTransportList).build();
-        sendObject(responseRequest, socket);
+    private void startSnapshots(){
+        long minutes = Long.parseLong(System.getProperty(SNAPSHOT_MINUTES_PROPERTY, "10"));
+        if (minutes > 0 && serverStateLog.checkIfChangesAreKept()){
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshot, minutes, minutes, TimeUnit.MINUTES);
+        }
     }
 
     /**
-     * Handles the interaction that comes with the user part of this server.
-     * @param userRequest the user request that was received.
-     * @param socket the socket this user request is from.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
+     * Writes a snapshot of the state while the server keeps serving.
      */
-    private synchronized void handleUserInteraction(UserRequest userRequest, Socket socket) throws IOException{
+    private void writeSnapshot(){
         try {
-            if (userRequest.isLogin()){
-                User endUser = normalUserRegister.login(userRequest.getUsername(), userRequest.getPassword());
-                NormalPersonalConversationRegister personalConversationRegister = normalConversationRegister.getAllConversationsUserHasAndMakePersonalRegister(userRequest.getUsername());
-                LoginTransport loginTransport = new LoginTransport(endUser, personalConversationRegister);
-                sendObject(loginTransport, socket);
-            }else if (userRequest.isNewUser()){
-                EndUser endUser = new EndUser(userRequest.getUsername(), userRequest.getPassword());
-                normalUserRegister.addUser(endUser);
-                sendObject(true, socket);
-            } else if (userRequest.isCheckUsername()){
-                sendObject(normalUserRegister.checkIfUsernameIsTaken(userRequest.getUsername()), socket);
+            long start = System.nanoTime();
+            long startRecord = serverRequestHandler.writeSnapshot();
+            logEvent(Level.INFO, "Wrote a snapshot of the state up to change " + startRecord + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            if (messageLogCache != null){
+                logEvent(Level.INFO, "Message log cache: " + messageLogCache);
             }
-        }catch (CouldNotLoginToUserException | IllegalArgumentException | CouldNotAddUserException exception){
-            String message = "Something went wrong in the " + userRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
-            logEvent(Level.WARNING, message);
-            sendObject(exception, socket);
+        }catch (IOException | RuntimeException exception){
+            logEvent(Level.WARNING, "Could not write a snapshot of the state. " + exception.getMessage());
         }
     }
 
     /**
-     * Handles the conversation request objects.
-     * @param conversationRequest the conversation request to handle.
-     * @param socket the socket the communication is happening over.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
+     * Adds all the test data needed. Is only done when the state log had no changes in it.
      */
-    private synchronized void handleConversationInteraction(ConversationRequest conversationRequest, Socket socket) throws IOException {
+    private void addTestData(){
+        if (lastReplayedRecord > 0){
+            return;
+        }
         try {
-            if (conversationRequest.isNewConversation()){
-                makeNewConversation(conversationRequest, socket);
-            }else if (conversationRequest.isCheckForNewConversation()){
-                handleCheckForNewConversations(conversationRequest, socket);
-            }else if (!conversationRequest.getNameOfConversation().isEmpty()){
-                changeNameOfConversation(conversationRequest, socket);
-            }else if (conversationRequest.isCheckForNewConversationNames()){
-                checkAllConversationsForNewNames(conversationRequest, socket);
-            }
-        }catch (CouldNotAddMemberException | CouldNotAddConversationException | CouldNotGetConversationException exception) {
-            String message = "Something went wrong in the " + conversationRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
-            logEvent(Level.WARNING, message);
-            sendObject(exception, socket);
+            ServerTestData.makeTestDataForServer(normalConversationRegister, normalUserRegister, serverStateLog);
+        }catch (Exception exception){
+            String message = "The test data could not be added " + exception.getClass() + " exception message: " + exception.getMessage();
+            logEvent(Level.SEVERE, message);
         }
     }
 
     /**
-     * Checks if all the conversations has new names.
-     * @param conversationRequest the conversation request.
-     * @param socket the socket.
-     * @throws IOException gets thrown if the socket closes before the task is done.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be located.
+     * Makes the server run and accept incoming communication.
      */
-    private void checkAllConversationsForNewNames(ConversationRequest conversationRequest, Socket socket) throws IOException, CouldNotGetConversationException {
-        Map<Long, String> conversationNamesToCheck = conversationRequest.getNewConversationNamesMap();
-        Map<Long, String> newConversationNames = new HashMap<>();
-        Iterator<Long> it = conversationNamesToCheck.keySet().iterator();
-        while (it.hasNext()){
-            long conversationNumber = it.next();
-            ServerConversation serverConversation = normalConversationRegister.getConversationByNumber(conversationNumber);
-            String nameOfConversation = serverConversation.getConversationName();
-            if(!nameOfConversation.equals(conversationNamesToCheck.get(conversationNumber))){
-                newConversationNames.put(conversationNumber, nameOfConversation);
-            }
+    public void run(){
+        addTestData();
+        if (transportMode == TransportMode.SELECTOR){
+            selectorTransport.run();
+        }else {
+            runBlocking();
         }
-        ConversationRequest response = new ConversationRequestBuilder().addConversationNamesMap(newConversationNames).build();
-        sendObject(response, socket);
-    }
-
-
-    /**
-     * Changes the name of the conversation to a new value.
-     * @param conversationRequest the conversation request to handle.
-     * @param socket the socket.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
-     * @throws IOException gets thrown if the socket closes before the object could be sent.
-     */
-    private synchronized void changeNameOfConversation(ConversationRequest conversationRequest, Socket socket) throws CouldNotGetConversationException, IOException {
-        String newName = conversationRequest.getNameOfConversation();
-        ServerConversation serverConversation = normalConversationRegister.getConversationByNumber(conversationRequest.getConversationNumberList().get(0));
-        serverConversation.setConversationName(newName);
-        sendObject(conversationRequest, socket);
     }
 
     /**
-     * Checks for new conversations by a user.
-     * @param conversationRequest the conversation request that wants to check for new messages.
-     * @param socket the socket this communication is happening over.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
+     * Accepts the incoming connections and gives each of them a thread that reads and a thread that writes.
      */
-    private synchronized void handleCheckForNewConversations(ConversationRequest conversationRequest, Socket socket) throws IOException {
-        List<Long> conversationNumbers = conversationRequest.getConversationNumberList();
-        String username = conversationRequest.getUsername();
-        List<ServerConversation> list = normalConversationRegister.getAllConversationsOfUsername(username);
-        List<ObservableConversation> observableConversations = new ArrayList<>();
-        if (conversationNumbers.size() < list.size()){
-            List<Long> notMatchingNumbers = list.stream().map(Conversation::getConversationNumber).filter(number -> {
-                boolean valid = false;
-                if (!conversationNumbers.contains(number)){
-                    valid = true;
+    private void runBlocking(){
+        try {
+            while (run){
+                Socket client = welcomeSocket.accept();
+                logEvent(Level.FINE, "Message received from a new client.");
+                try {
+                    new BlockingConnection(client, executors, serverRequestHandler).start();
+                }catch (IOException exception){
+                    logEvent(Level.WARNING, "A client connection could not be started. " + exception.getMessage());
+                    client.close();
                 }
-                return valid;
-            }).toList();
-            notMatchingNumbers.forEach(number -> {
-                observableConversations.add(new NormalObservableConversation(list.stream().filter(convo -> convo.getConversationNumber() == number).findFirst().get(), username));
-            });
+            }
+        }catch (IOException exception){
+            String message = "The server has crashed and gotten the following exception class: " + exception.getClass() + " and message: " + exception.getMessage();
+            logEvent(Level.SEVERE, message);
         }
-        PersonalConversationTransport personalConversationTransport = new PersonalConversationTransport(observableConversations);
-        sendObject(personalConversationTransport, socket);
     }
 
     /**
-     * Makes a new conversation based on the request.
-     * @param conversationRequest the request for making a new conversation.
-     * @param socket the socket this conversation is being made over.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
-     * @throws CouldNotAddConversationException gets thrown if the conversation could not be added.
-     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     * Stops the server
      */
-    private synchronized void makeNewConversation(ConversationRequest conversationRequest, Socket socket) throws IOException, CouldNotAddMemberException, CouldNotAddConversationException {
-        List<Member> usernames = conversationRequest.getMemberList();
-        String nameOfMessageLog = conversationRequest.getNameOfConversation();
-        ServerConversation conversation = normalConversationRegister.addNewConversationWithUsernames(usernames, nameOfMessageLog);
-        String username = usernames.get(0).getUsername();
-        ObservableConversation observableConversation = new NormalObservableConversation(conversation, username);
-        sendObject(observableConversation, socket);
-    }
+    public synchronized void stopServer(){
+        Platform.runLater(()->{
+            run = false;
+            if (selectorTransport != null){
+                selectorTransport.stop();
+            }
+            executors.shutdown();
+            while (!executors.isTerminated()){
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
 
-    /**
-     * Handles incoming members request.
-     * Handles incoming members request.
-     * @param membersRequest the member request that was sent form the client side.
-     * @param socket the socket that sent this request.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
-     */
-    private synchronized void handleMembersRequest(MembersRequest membersRequest, Socket socket) throws IOException {
-        try {
-            if (membersRequest.isCheckForNewMembers()){
-                checkForNewAndRemovedMembers(membersRequest, socket);
-            }else {
-                ServerConversation serverConversation = normalConversationRegister.getConversationByNumber(membersRequest.getConversationNumber());
-                String username = membersRequest.getUsername();
-                List<Member> membersToAdd = membersRequest.getMembers().stream().filter(MemberTransport::isAddMember).map(MemberTransport::getMember).toList();
-                List<Member> membersToRemove = membersRequest.getMembers().stream().filter(mem -> !mem.isAddMember()).map(MemberTransport::getMember).toList();
-                if (!membersToAdd.isEmpty()){
-                    addNewMembersToConversation(membersToAdd, serverConversation, username);
                 }
-                if (!membersToRemove.isEmpty()){
-                    removeMembers(membersToRemove, serverConversation, username);
+            }
+            if (snapshotScheduler != null){
+                snapshotScheduler.shutdown();
+                try {
+                    snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+                    writeSnapshot();
+                }catch (InterruptedException exception){
+                    Thread.currentThread().interrupt();
                 }
-                sendObject(membersRequest, socket);
             }
-        }catch (CouldNotAddMemberException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotGetConversationException | UsernameNotPartOfConversationException exception){
-            String message = "Something went wrong in the " + membersRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
-            logEvent(Level.WARNING, message);
-            sendObject(exception, socket);
-        }
-    }
-
-    /**
-     * Checks if there are any new members in a conversation.
-     * @param membersRequest the conversation you want to check.
-     * @param socket the socket this conversation request came from.
-     * @throws IOException gets thrown if the socket closes or cannot finish its task.
-     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
-     */
-    private synchronized void checkForNewAndRemovedMembers(MembersRequest membersRequest, Socket socket) throws IOException, UsernameNotPartOfConversationException, CouldNotGetConversationException {
-        long lastMember = membersRequest.getLastMember();
-        long conversationNumber = membersRequest.getConversationNumber();
-        long lastDeletedMember = membersRequest.getLastDeletedMember();
-        String username = membersRequest.getUsername();
-        ServerConversation serverConversation = normalConversationRegister.getConversationByNumber(conversationNumber);
-        List<Member> newMembers = serverConversation.getMembers().checkForNewUsers(lastMember, username);
-        List<Member> removedMembers = serverConversation.getMembers().checkForDeletedMembers(lastDeletedMember, username);
-        List<MemberTransport> memberTransportList = new ArrayList<>();
-        removedMembers.forEach(mem -> memberTransportList.add(new MemberTransport(mem, false)));
-        newMembers.forEach(mem -> memberTransportList.add(new MemberTransport(mem, true)));
-        MembersRequest response = new MembersRequestBuilder().addMemberTransports(memberTransportList).addConversationNumber(conversationNumber).build();
-        sendObject(response, socket);
-    }
-
-    /**
-     * Adds new members to conversation if they are not in the conversation.
-     * @param members the list with the new members.
-     * @param conversation the conversation these members are going to be added to.
-     * @param username the username of the end user who wants to add new members.
-     * @throws CouldNotGetConversationException gets thrown if the conversation could not be located.
-     * @throws CouldNotAddMemberException gets thrown if one person in the request is already in the conversation.
-     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
-     */
-    private synchronized void addNewMembersToConversation(List<Member> members, ServerConversation conversation, String username) throws CouldNotGetConversationException, CouldNotAddMemberException, UsernameNotPartOfConversationException {
-        conversation.getMembers().addAllMembers(members, username);
-    }
-
-    /**
-     * Removes all members if they are in the conversation.
-     * @param members the list with the members to remove.
-     * @param conversation the conversation these members are going to be removed from.
-     * @param username the username of the end user who wants to remove members.
-     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
-     * @throws CouldNotGetMemberException gets thrown if a member could not be located.
-     * @throws CouldNotRemoveMemberException gets thrown if one or more members are missing form this object.
-     */
-    private synchronized void removeMembers(List<Member> members, ServerConversation conversation, String username) throws UsernameNotPartOfConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException {
-        conversation.getMembers().removeAllMembers(members, username);
-    }
-
-    /**
-     * Sends an object through the socket.
-     * @param object the object you want to send.
-     * @param socket the socket the object should go through.
-     */
-    private synchronized void sendObject(Object object, Socket socket) throws IOException {
-        try {
-            OutputStream outputStream = socket.getOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeObject(object);
-        }catch (IOException exception){
-            String message = "Object could not be sent. " + object.getClass();
-            logEvent(Level.WARNING, message);
-            throw exception;
-        }
-    }
-
-    /**
-     * Gets the message that is sent through the socket.
-     * @param socket the socket that this message is coming through.
-     * @return the message this socket contains.
-     * @throws IOException gets thrown if the object could not be received.
-     * @throws InvalidResponseException gets thrown if the class could not be found for that object.
-     */
-    private synchronized Object getObject(Socket socket) throws IOException, InvalidResponseException {
-        try {
-            ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());
-            Object object = objectInputStream.readObject();
-            checkIfObjectIsNull(object, "object");
-            return object;
-        }catch (ClassNotFoundException exception){
-            throw new InvalidResponseException("The class of the response was invalid.");
-        }
+            try {
+                serverStateLog.close();
+            }catch (IOException exception){
+                logEvent(Level.WARNING, "The state log could not be closed. " + exception.getMessage());
+            }
+            logEvent(Level.FINE, "Server is shutting down.");
+        });
     }
 
     /**
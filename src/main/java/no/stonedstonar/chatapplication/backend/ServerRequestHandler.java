@@ -0,0 +1,1002 @@
+package no.stonedstonar.chatapplication.backend;
+
+import no.stonedstonar.chatapplication.backend.wal.ServerStateLog;
+import no.stonedstonar.chatapplication.backend.wal.SnapshotWriter;
+import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.personal.NormalPersonalConversationRegister;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
+import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotGetConversationException;
+import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotRemoveConversationException;
+import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
+import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
+import no.stonedstonar.chatapplication.model.exception.member.CouldNotGetMemberException;
+import no.stonedstonar.chatapplication.model.exception.member.CouldNotRemoveMemberException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
+import no.stonedstonar.chatapplication.model.exception.user.CouldNotAddUserException;
+import no.stonedstonar.chatapplication.model.exception.user.CouldNotLoginToUserException;
+import no.stonedstonar.chatapplication.model.exception.user.CouldNotRemoveUserException;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.ServerMemberRegister;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.user.User;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+import no.stonedstonar.chatapplication.network.requests.*;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+import no.stonedstonar.chatapplication.network.transport.LoginTransport;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import no.stonedstonar.chatapplication.network.transport.PersonalConversationTransport;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the logic that turns a request from a client into the response the server sends back.
+ * The handler does not know about sockets, so the same logic can be used by every transport the server has.
+ * Requests are not handled one at a time. Each conversation is guarded by one of the locks in {@link ConversationLocks},
+ * so requests for different conversations run in parallel and checks on the same conversation can share its lock.
+ * The conversation register has its own lock that is only held while looking up or adding to it.
+ * The register lock can be held while taking a conversation lock, but never the other way around.
+ * The user register is safe to use from many threads, so it has no lock.
+ * Every change is written to the state log of the server while its lock is held, and the client is only answered when the change is written.
+ * A change that could not be written is undone, or is not done at all, so the server never holds a change the log does not have.
+ * The pushes about a change are held until it is written, and are dropped if the change is undone.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ServerRequestHandler {
+
+    /**
+     * The amount of the newest messages of each conversation that is sent when a user logs in or gets a new conversation.
+     */
+    static final int PAGE_SIZE = 50;
+
+    /**
+     * The most messages one page of history can have.
+     */
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final NormalUserRegister normalUserRegister;
+
+    private final NormalConversationRegister normalConversationRegister;
+
+    private final ConversationLocks conversationLocks;
+
+    private final ReadWriteLock conversationRegisterLock;
+
+    private final SubscriptionHub subscriptionHub;
+
+    private final ServerStateLog serverStateLog;
+
+    private final Logger logger;
+
+    /**
+      * Makes an instance of the ServerRequestHandler class that does not keep the changes anywhere.
+      * @param normalUserRegister the user register of the server.
+      * @param normalConversationRegister the conversation register of the server.
+      */
+    public ServerRequestHandler(NormalUserRegister normalUserRegister, NormalConversationRegister normalConversationRegister){
+        this(normalUserRegister, normalConversationRegister, new ServerStateLog());
+    }
+
+    /**
+      * Makes an instance of the ServerRequestHandler class that logs every change before it is answered.
+      * @param normalUserRegister the user register of the server.
+      * @param normalConversationRegister the conversation register of the server.
+      * @param serverStateLog the log the changes are written to.
+      */
+    public ServerRequestHandler(NormalUserRegister normalUserRegister, NormalConversationRegister normalConversationRegister, ServerStateLog serverStateLog){
+        checkIfObjectIsNull(normalUserRegister, "user register");
+        checkIfObjectIsNull(normalConversationRegister, "conversation register");
+        checkIfObjectIsNull(serverStateLog, "server state log");
+        this.serverStateLog = serverStateLog;
+        this.normalUserRegister = normalUserRegister;
+        this.normalConversationRegister = normalConversationRegister;
+        conversationLocks = new ConversationLocks(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+        conversationRegisterLock = new ReentrantReadWriteLock();
+        subscriptionHub = new SubscriptionHub();
+        normalConversationRegister.registerObserver(subscriptionHub);
+        logger = Logger.getLogger(getClass().toString());
+    }
+
+    /**
+     * Gets the locks the conversations of this handler are spread over.
+     * @return the conversation locks.
+     */
+    public ConversationLocks getConversationLocks(){
+        return conversationLocks;
+    }
+
+    /**
+     * Handles a request that came over a connection that stays open.
+     * A request in a request envelope is answered with a response envelope that has the same id, so the client can have
+     * many requests out at the same time and match the answers in any order. A successful login is remembered by the connection,
+     * and a connection can only subscribe to the updates of the user that has logged in over it.
+     * A wire format request makes the connection write in the format the client wants most, since the server knows them all.
+     * @param object the request that was received.
+     * @param clientConnection the connection the request came over.
+     * @return the response to the request. Is <code>null</code> if the request does not have a response.
+     * @throws InvalidResponseException gets thrown if the object is not a valid request.
+     */
+    public Object handleRequest(Object object, ClientConnection clientConnection) throws InvalidResponseException {
+        checkIfObjectIsNull(clientConnection, "client connection");
+        Object response;
+        if (object instanceof RequestEnvelope requestEnvelope){
+            Object innerResponse = handleConnectionRequest(requestEnvelope.getRequest(), clientConnection);
+            response = new ResponseEnvelope(requestEnvelope.getRequestId(), innerResponse);
+        }else {
+            response = handleConnectionRequest(object, clientConnection);
+        }
+        return response;
+    }
+
+    /**
+     * Handles a request that is not wrapped in an envelope and keeps track of who has logged in over the connection.
+     * @param object the request that was received.
+     * @param clientConnection the connection the request came over.
+     * @return the response to the request.
+     * @throws InvalidResponseException gets thrown if the object is not a valid request.
+     */
+    private Object handleConnectionRequest(Object object, ClientConnection clientConnection) throws InvalidResponseException {
+        Object response;
+        if (object instanceof SubscribeRequest subscribeRequest){
+            response = subscribe(subscribeRequest, clientConnection);
+        }else if (object instanceof WireFormatRequest wireFormatRequest){
+            WireFormat wireFormat = wireFormatRequest.getWireFormats().get(0);
+            clientConnection.setWireFormat(wireFormat);
+            response = new WireFormatRequest(Collections.singletonList(wireFormat));
+        }else {
+            response = handleRequest(object);
+            if (object instanceof UserRequest userRequest && userRequest.isLogin() && response instanceof LoginTransport){
+                clientConnection.setLoggedInUsername(userRequest.getUsername());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Makes a connection get the updates of the user that has logged in over it.
+     * @param subscribeRequest the request that wants the updates.
+     * @param clientConnection the connection the updates should be pushed to.
+     * @return the same request if the connection now gets the updates, or the exception that explains why it does not.
+     */
+    private Object subscribe(SubscribeRequest subscribeRequest, ClientConnection clientConnection){
+        Object response;
+        String username = subscribeRequest.getUsername();
+        if (username.equals(clientConnection.getLoggedInUsername())){
+            subscriptionHub.subscribe(username, clientConnection);
+            response = subscribeRequest;
+        }else {
+            logEvent(Level.WARNING, "A connection tried to subscribe to the updates of " + username + " without logging in as that user.");
+            response = new CouldNotLoginToUserException("The connection must be logged in as " + username + " to get the updates of that user.");
+        }
+        return response;
+    }
+
+    /**
+     * Removes a connection from the connections that get updates.
+     * @param username the username the connection was subscribed as.
+     * @param clientConnection the connection to remove.
+     */
+    public void unsubscribe(String username, ClientConnection clientConnection){
+        subscriptionHub.unsubscribe(username, clientConnection);
+    }
+
+    /**
+     * Writes a snapshot of the users and conversations to the folder of the state log, so the changes before it do not have to be replayed at the next start.
+     * The server keeps serving while the snapshot is written. The register is only locked while the list of conversations is read,
+     * and each conversation is only locked for reading while it is encoded.
+     * Does nothing if the state log does not keep the changes.
+     * @return the number of the last change in the log that came before the snapshot, or zero if no snapshot was written.
+     * @throws IOException gets thrown if the snapshot could not be written.
+     */
+    public long writeSnapshot() throws IOException {
+        if (!serverStateLog.checkIfChangesAreKept()){
+            return 0;
+        }
+        try (SnapshotWriter snapshotWriter = serverStateLog.startSnapshot()){
+            snapshotWriter.writeUsers(normalUserRegister.getAllUsers());
+            List<ServerConversation> conversations;
+            Lock registerLock = conversationRegisterLock.readLock();
+            registerLock.lock();
+            try {
+                conversations = normalConversationRegister.getAllConversations();
+                snapshotWriter.writeConversationList(conversations.size());
+            }finally {
+                registerLock.unlock();
+            }
+            for (ServerConversation conversation : conversations){
+                byte[] encodedConversation;
+                Lock lock = conversationLocks.getLock(conversation.getConversationNumber()).readLock();
+                lock.lock();
+                try {
+                    encodedConversation = snapshotWriter.encodeConversation(conversation);
+                }finally {
+                    lock.unlock();
+                }
+                snapshotWriter.writeConversation(encodedConversation);
+            }
+            return snapshotWriter.finish();
+        }
+    }
+
+    /**
+     * Handles a request and makes the response that should be sent back to the client.
+     * @param object the request that was received.
+     * @return the response to the request. Is <code>null</code> if the request does not have a response.
+     * @throws InvalidResponseException gets thrown if the object is not a valid request.
+     */
+    public Object handleRequest(Object object) throws InvalidResponseException {
+        Object response;
+        if(object instanceof MessageRequest messageRequest){
+            response = handleIncomingMessage(messageRequest);
+        }else if (object instanceof UserRequest userRequest){
+            response = handleUserInteraction(userRequest);
+        }else if (object instanceof ConversationRequest conversationRequest){
+            response = handleConversationInteraction(conversationRequest);
+        }else if (object instanceof MembersRequest membersRequest){
+            response = handleMembersRequest(membersRequest);
+        }else if (object instanceof SyncRequest syncRequest){
+            response = handleSyncRequest(syncRequest);
+        }else if (object instanceof HistoryRequest historyRequest){
+            response = handleHistoryRequest(historyRequest);
+        }else {
+            throw new InvalidResponseException("NONE IS A VALID OBJECT");
+        }
+        return response;
+    }
+
+    /**
+     * Handles a message when it comes in. The new messages are only pushed to the other members when they are written to the state log,
+     * and the sender only gets an answer when they are written. The pushes are put in the line of the conversation while its lock is held,
+     * so the members get the messages in the order of their numbers even if two senders are done writing in the other order.
+     * @param messageRequest the message transport the message comes in.
+     * @return the response to the request.
+     */
+    private Object handleIncomingMessage(MessageRequest messageRequest) {
+        try {
+            if (messageRequest.isCheckForMessages()){
+                return checkForNewMessages(messageRequest);
+            }else {
+                List<Message> addMessages = messageRequest.getMessageTransportList().stream().filter(MessageTransport::isAddMessage).map(MessageTransport::getMessage).toList();
+                List<Message> removeMessages = messageRequest.getMessageTransportList().stream().filter(mess -> !mess.isAddMessage()).map(MessageTransport::getMessage).toList();
+                ServerConversation conversation = getConversation(messageRequest.getConversationNumber());
+                long recordNumber = 0;
+                Lock lock = conversationLocks.getLock(conversation.getConversationNumber()).writeLock();
+                SubscriptionHub.PushTicket pushTicket = null;
+                boolean durable = false;
+                subscriptionHub.holdPushes();
+                try {
+                    lock.lock();
+                    try {
+                        if (!addMessages.isEmpty()){
+                            recordNumber = addNewMessages(addMessages, conversation);
+                        }
+                        if (!removeMessages.isEmpty()){
+                            recordNumber = removeMessages(removeMessages, conversation);
+                        }
+                    }finally {
+                        pushTicket = subscriptionHub.queueHeldPushes(conversation.getConversationNumber());
+                        lock.unlock();
+                    }
+                    serverStateLog.awaitDurable(recordNumber);
+                    durable = true;
+                }finally {
+                    subscriptionHub.finishQueuedPushes(pushTicket, durable);
+                }
+                return messageRequest;
+            }
+        } catch (UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMessageLogException | CouldNotAddMessageException | CouldNotRemoveMessageException | IOException exception) {
+            String message = "Something went wrong in adding " + messageRequest.getMessageTransportList().size() + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
+            logEvent(Level.WARNING, message);
+            return exception;
+        }
+    }
+
+    /**
+     * Adds new messages to the conversations they match and writes them to the state log. Messages the user has sent before are not added again.
+     * The messages are taken out of the conversation again if they could not be written to the log, so the conversation never holds messages the log does not have.
+     * @param messages the message request.
+     * @param conversation the conversation the messages are going into.
+     * @return the number of the record in the state log, or zero if no messages were added.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of that conversation.
+     * @throws CouldNotAddMessageException gets thrown if the messages is already in the conversation.
+     * @throws CouldNotGetMessageLogException gets thrown if the message log for that date could not be located.
+     * @throws IOException gets thrown if the messages could not be written to the state log.
+     */
+    private long addNewMessages(List<Message> messages, ServerConversation conversation) throws UsernameNotPartOfConversationException, CouldNotAddMessageException, CouldNotGetMessageLogException, IOException {
+        List<Message> addedMessages = conversation.addSentMessages(messages);
+        try {
+            return serverStateLog.logMessagesChanged(conversation.getConversationNumber(), addedMessages, true);
+        }catch (IOException exception){
+            try {
+                conversation.removeAllMessagesWithSameDate(addedMessages);
+            }catch (CouldNotRemoveMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException removeException){
+                logEvent(Level.SEVERE, "The messages of conversation " + conversation.getConversationNumber() + " could not be written to the state log or taken out again. " + removeException.getMessage());
+            }
+            throw new IOException("The messages could not be written to the state log and were not added. " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Removes all the messages if every single one is in the conversation. The removal is written to the state log before the messages are removed,
+     * since a removed message cannot be put back if the log fails. A removal that cannot be done is not written.
+     * @param messageList the message list you want to remove.
+     * @param conversation the conversation these messages are in.
+     * @return the number of the record in the state log, or zero if nothing was written.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of that conversation.
+     * @throws CouldNotRemoveMessageException gets thrown if one or more of the messages are not in the conversation.
+     * @throws CouldNotGetMessageLogException  gets thrown if the date of these messages don't have a message log.
+     * @throws IOException gets thrown if the removal could not be written to the state log.
+     */
+    private long removeMessages(List<Message> messageList, ServerConversation conversation) throws UsernameNotPartOfConversationException, CouldNotRemoveMessageException, CouldNotGetMessageLogException, IOException {
+        LocalDate date = messageList.get(0).getDate();
+        long recordNumber = 0;
+        if (messageList.stream().allMatch(message -> message.getDate().isEqual(date))){
+            List<ServerMessageLog> messageLogs = conversation.getMessageLogsBetweenDates(date, date, messageList.get(0).getFromUsername());
+            if (!messageLogs.isEmpty() && messageLogs.get(0).checkIfAllMessagesAreInMessageLog(messageList)){
+                recordNumber = serverStateLog.logMessagesChanged(conversation.getConversationNumber(), messageList, false);
+            }
+        }
+        conversation.removeAllMessagesWithSameDate(messageList);
+        return recordNumber;
+    }
+
+    /**
+     * Checks if a conversation has new messages compared to the conversation request.
+     * @param messageRequest the request that wants messages for a conversation.
+     * @return the message request with all the new messages.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of the conversation.
+     */
+    private MessageRequest checkForNewMessages(MessageRequest messageRequest) throws CouldNotGetConversationException, UsernameNotPartOfConversationException {
+        ServerConversation conversation = getConversation(messageRequest.getConversationNumber());
+        List<MessageTransport> messageTransportList = new ArrayList<>();
+        Lock lock = conversationLocks.getLock(conversation.getConversationNumber()).readLock();
+        lock.lock();
+        try {
+            List<Message> newMessages = conversation.getMessagesAfter(messageRequest.getLastMessage(), Integer.MAX_VALUE, messageRequest.getUsername());
+            newMessages.forEach(message -> messageTransportList.add(new MessageTransport(message, true)));
+        }finally {
+            lock.unlock();
+        }
+        return new MessageRequestBuilder().addMessageTransportList(messageTransportList).build();
+    }
+
+    /**
+     * Finds everything that has changed in the conversations of a user since the cursors the client sent.
+     * Each conversation is read while holding its read lock, so the changes of one conversation are never half done.
+     * A conversation that could not be found or that the user is no longer a part of is skipped.
+     * @param syncRequest the request with the cursors of the client.
+     * @return a sync request with the conversations that have changed and the conversations the client does not have,
+     *         or the exception that explains why the request is not valid.
+     */
+    private Object handleSyncRequest(SyncRequest syncRequest){
+        String username = syncRequest.getUsername();
+        if (username.isEmpty()){
+            logEvent(Level.WARNING, "Got a sync request without a username.");
+            return new IllegalArgumentException("The sync request must have a username.");
+        }
+        List<ConversationChangesTransport> conversationChanges = new ArrayList<>();
+        List<Long> conversationNumbers = new ArrayList<>();
+        for (ConversationCursorTransport conversationCursor : syncRequest.getConversationCursors()){
+            long conversationNumber = conversationCursor.getConversationNumber();
+            conversationNumbers.add(conversationNumber);
+            try {
+                ConversationChangesTransport changes = checkConversationForChanges(getConversation(conversationNumber), conversationCursor, Integer.MAX_VALUE, username);
+                if (changes.hasChanges()){
+                    conversationChanges.add(changes);
+                }
+            }catch (CouldNotGetConversationException | UsernameNotPartOfConversationException | IllegalArgumentException exception){
+                logEvent(Level.WARNING, "The conversation " + conversationNumber + " could not be synced for " + username + " with the exception " + exception.getMessage() + " and class " + exception.getClass());
+            }
+        }
+        List<ObservableConversation> newConversations = makeObservableConversationsOfUsername(username, conversationNumbers);
+        return new SyncRequestBuilder().addConversationChanges(conversationChanges).addNewConversations(newConversations).build();
+    }
+
+    /**
+     * Finds one page of the messages of a conversation that are older than the cursor the client sent.
+     * One more message than the limit is read, so the answer can tell if there are even older messages without another round trip.
+     * @param historyRequest the request with the cursor of the client.
+     * @return a history request with the page, or the exception that explains why the request is not valid.
+     */
+    private Object handleHistoryRequest(HistoryRequest historyRequest){
+        String username = historyRequest.getUsername();
+        LocalDate date = historyRequest.getBeforeDate();
+        if (username.isEmpty() || date == null){
+            logEvent(Level.WARNING, "Got a history request without a username or a cursor.");
+            return new IllegalArgumentException("The history request must have a username and a cursor.");
+        }
+        int limit = historyRequest.getLimit() > 0 ? Math.min(historyRequest.getLimit(), MAX_PAGE_SIZE) : PAGE_SIZE;
+        try {
+            ServerConversation conversation = getConversation(historyRequest.getConversationNumber());
+            List<Message> olderMessages;
+            Lock lock = conversationLocks.getLock(conversation.getConversationNumber()).readLock();
+            lock.lock();
+            try {
+                olderMessages = conversation.getMessagesBefore(date, historyRequest.getBeforeMessageNumber(), limit + 1, username);
+            }finally {
+                lock.unlock();
+            }
+            boolean hasOlderMessages = olderMessages.size() > limit;
+            List<Message> page = hasOlderMessages ? new ArrayList<>(olderMessages.subList(1, olderMessages.size())) : olderMessages;
+            return new HistoryRequestBuilder().addConversationNumber(conversation.getConversationNumber()).addCursor(date, historyRequest.getBeforeMessageNumber())
+                .addLimit(limit).addMessages(page).setOlderMessages(hasOlderMessages).build();
+        }catch (CouldNotGetConversationException | UsernameNotPartOfConversationException | IllegalArgumentException exception){
+            logEvent(Level.WARNING, "The history of the conversation " + historyRequest.getConversationNumber() + " could not be read for " + username + " with the exception " + exception.getMessage() + " and class " + exception.getClass());
+            return exception;
+        }
+    }
+
+    /**
+     * Finds the new messages, the changed members and the new name of a conversation compared to a cursor.
+     * The messages are numbered for the whole conversation, so the new messages of every day are found with the one number of the cursor.
+     * @param serverConversation the conversation to check.
+     * @param conversationCursor the cursor the client has for the conversation.
+     * @param limit the most new messages the changes can have.
+     * @param username the username of the user that wants the changes.
+     * @return the changes of the conversation, or <code>null</code> if there are more new messages than the limit.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the conversation.
+     */
+    private ConversationChangesTransport checkConversationForChanges(ServerConversation serverConversation, ConversationCursorTransport conversationCursor, int limit, String username) throws UsernameNotPartOfConversationException {
+        Lock lock = conversationLocks.getLock(serverConversation.getConversationNumber()).readLock();
+        lock.lock();
+        try {
+            List<Message> newMessages = serverConversation.getMessagesAfter(conversationCursor.getLastMessage(), limit == Integer.MAX_VALUE ? limit : limit + 1, username);
+            return newMessages.size() > limit ? null : makeConversationChanges(serverConversation, conversationCursor, newMessages, username);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the changes of a conversation from its new messages and the members and name it has compared to a cursor.
+     * If some of the members that were removed after the cursor are forgotten, all the members are sent instead of the members that have changed.
+     * The read lock of the conversation must be held.
+     * @param serverConversation the conversation.
+     * @param conversationCursor the cursor the client has for the conversation.
+     * @param newMessages the messages the client does not have.
+     * @param username the username of the user that wants the changes.
+     * @return the changes of the conversation.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the conversation.
+     */
+    private ConversationChangesTransport makeConversationChanges(ServerConversation serverConversation, ConversationCursorTransport conversationCursor, List<Message> newMessages, String username) throws UsernameNotPartOfConversationException {
+        List<MessageTransport> messageTransports = new ArrayList<>();
+        newMessages.forEach(message -> messageTransports.add(new MessageTransport(message, true)));
+        ServerMemberRegister memberRegister = serverConversation.getMembers();
+        String conversationName = serverConversation.getConversationName();
+        String newName = conversationName.equals(conversationCursor.getConversationName()) ? "" : conversationName;
+        if (!memberRegister.checkIfDeletedMembersAreRemembered(conversationCursor.getLastDeletedMember())){
+            checkIfUserIsMember(memberRegister, username, serverConversation.getConversationNumber());
+            return new ConversationChangesTransport(serverConversation.getConversationNumber(), messageTransports, makeTransportsOfAllMembers(memberRegister), newName,
+                memberRegister.getLastMemberNumber(), memberRegister.getLastDeletedMember());
+        }
+        List<Member> newMembers = memberRegister.checkForNewUsers(conversationCursor.getLastMember(), username);
+        List<Member> removedMembers = memberRegister.checkForDeletedMembers(conversationCursor.getLastDeletedMember(), username);
+        List<MemberTransport> memberTransports = new ArrayList<>();
+        removedMembers.forEach(member -> memberTransports.add(new MemberTransport(member, false)));
+        newMembers.forEach(member -> memberTransports.add(new MemberTransport(member, true)));
+        return new ConversationChangesTransport(serverConversation.getConversationNumber(), messageTransports, memberTransports, newName);
+    }
+
+    /**
+     * Makes a transport that adds each of the members a register has, for the clients that must read all the members again.
+     * @param memberRegister the register of the conversation.
+     * @return a list with one transport for each member.
+     */
+    private List<MemberTransport> makeTransportsOfAllMembers(ServerMemberRegister memberRegister){
+        List<MemberTransport> memberTransports = new ArrayList<>();
+        memberRegister.getIterator().forEachRemaining(member -> memberTransports.add(new MemberTransport(member, true)));
+        return memberTransports;
+    }
+
+    /**
+     * Handles the interaction that comes with the user part of this server.
+     * @param userRequest the user request that was received.
+     * @return the response to the request.
+     */
+    private Object handleUserInteraction(UserRequest userRequest) {
+        try {
+            Object response = null;
+            if (userRequest.isLogin()){
+                User endUser = login(userRequest.getUsername(), userRequest.getPassword());
+                response = makeLoginTransport(endUser, userRequest);
+            }else if (userRequest.isNewUser()){
+                addNewUser(new EndUser(userRequest.getUsername(), userRequest.getPassword()));
+                response = true;
+            } else if (userRequest.isCheckUsername()){
+                response = checkIfUsernameIsTaken(userRequest.getUsername());
+            }
+            return response;
+        }catch (CouldNotLoginToUserException | IllegalArgumentException | CouldNotAddUserException | CouldNotAddConversationException | IOException exception){
+            String message = "Something went wrong in the " + userRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
+            logEvent(Level.WARNING, message);
+            return exception;
+        }
+    }
+
+    /**
+     * Makes the answer to a login. The conversations the client has from before only get what has changed since their cursors,
+     * while the conversations the client does not have, or that have changed too much to be worth patching, are sent with their newest page.
+     * A cursor for a conversation that is gone or that the user is no longer a part of gets no changes, so the client drops the conversation.
+     * @param endUser the user that logged in.
+     * @param userRequest the login request with the cursors of the client.
+     * @return the login transport.
+     * @throws CouldNotAddConversationException gets thrown if a conversation could not be added to the personal register.
+     */
+    private LoginTransport makeLoginTransport(User endUser, UserRequest userRequest) throws CouldNotAddConversationException {
+        String username = userRequest.getUsername();
+        List<ConversationChangesTransport> conversationChanges = new ArrayList<>();
+        List<Long> conversationNumbers = new ArrayList<>();
+        for (ConversationCursorTransport conversationCursor : userRequest.getConversationCursors()){
+            long conversationNumber = conversationCursor.getConversationNumber();
+            try {
+                ConversationChangesTransport changes = checkConversationForChanges(getConversation(conversationNumber), conversationCursor, MAX_PAGE_SIZE, username);
+                if (changes != null){
+                    conversationChanges.add(changes);
+                    conversationNumbers.add(conversationNumber);
+                }
+            }catch (CouldNotGetConversationException | UsernameNotPartOfConversationException | IllegalArgumentException exception){
+                logEvent(Level.INFO, "The conversation " + conversationNumber + " that " + username + " had from before is not sent with the exception " + exception.getMessage());
+            }
+        }
+        NormalPersonalConversationRegister personalConversationRegister = new NormalPersonalConversationRegister(new ArrayList<>(), username);
+        for (ObservableConversation observableConversation : makeObservableConversationsOfUsername(username, conversationNumbers)){
+            personalConversationRegister.addConversation(observableConversation);
+        }
+        return new LoginTransport(endUser, personalConversationRegister, conversationChanges);
+    }
+
+    /**
+     * Logs in to the user with this username.
+     * @param username the username of the user.
+     * @param password the password of the user.
+     * @return the user that was logged in to.
+     * @throws CouldNotLoginToUserException gets thrown if the username or password is wrong.
+     */
+    private User login(String username, String password) throws CouldNotLoginToUserException {
+        return normalUserRegister.login(username, password);
+    }
+
+    /**
+     * Adds a new user to the user register and writes it to the state log. The user is taken out again if it could not be written.
+     * @param user the new user.
+     * @throws CouldNotAddUserException gets thrown if the username is taken.
+     * @throws IOException gets thrown if the user could not be written to the state log.
+     */
+    private void addNewUser(User user) throws CouldNotAddUserException, IOException {
+        addUser(user);
+        long recordNumber;
+        try {
+            recordNumber = serverStateLog.logUserAdded(user.getUsername(), user.getPassword());
+        }catch (IOException exception){
+            try {
+                normalUserRegister.removeUser(user);
+            }catch (CouldNotRemoveUserException removeException){
+                logEvent(Level.SEVERE, "The user " + user.getUsername() + " could not be written to the state log or taken out again. " + removeException.getMessage());
+            }
+            throw new IOException("The user could not be written to the state log and was not added. " + exception.getMessage(), exception);
+        }
+        serverStateLog.awaitDurable(recordNumber);
+    }
+
+    /**
+     * Adds a new user to the user register.
+     * @param user the user to add.
+     * @throws CouldNotAddUserException gets thrown if the user could not be added.
+     */
+    private void addUser(User user) throws CouldNotAddUserException {
+        normalUserRegister.addUser(user);
+    }
+
+    /**
+     * Checks if a username is taken.
+     * @param username the username to check.
+     * @return <code>true</code> if the username is taken.
+     *         <code>false</code> if the username is not taken.
+     */
+    private boolean checkIfUsernameIsTaken(String username){
+        return normalUserRegister.checkIfUsernameIsTaken(username);
+    }
+
+    /**
+     * Handles the conversation request objects.
+     * @param conversationRequest the conversation request to handle.
+     * @return the response to the request.
+     */
+    private Object handleConversationInteraction(ConversationRequest conversationRequest) {
+        try {
+            Object response = null;
+            if (conversationRequest.isNewConversation()){
+                response = makeNewConversation(conversationRequest);
+            }else if (conversationRequest.isCheckForNewConversation()){
+                response = handleCheckForNewConversations(conversationRequest);
+            }else if (!conversationRequest.getNameOfConversation().isEmpty()){
+                response = changeNameOfConversation(conversationRequest);
+            }else if (conversationRequest.isCheckForNewConversationNames()){
+                response = checkAllConversationsForNewNames(conversationRequest);
+            }
+            return response;
+        }catch (CouldNotAddMemberException | CouldNotAddConversationException | CouldNotGetConversationException | IOException exception) {
+            String message = "Something went wrong in the " + conversationRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
+            logEvent(Level.WARNING, message);
+            return exception;
+        }
+    }
+
+    /**
+     * Checks if all the conversations has new names.
+     * @param conversationRequest the conversation request.
+     * @return a conversation request with all the names that have changed.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be located.
+     */
+    private ConversationRequest checkAllConversationsForNewNames(ConversationRequest conversationRequest) throws CouldNotGetConversationException {
+        Map<Long, String> conversationNamesToCheck = conversationRequest.getNewConversationNamesMap();
+        Map<Long, String> newConversationNames = new HashMap<>();
+        Iterator<Long> it = conversationNamesToCheck.keySet().iterator();
+        while (it.hasNext()){
+            long conversationNumber = it.next();
+            ServerConversation serverConversation = getConversation(conversationNumber);
+            String nameOfConversation;
+            Lock lock = conversationLocks.getLock(conversationNumber).readLock();
+            lock.lock();
+            try {
+                nameOfConversation = serverConversation.getConversationName();
+            }finally {
+                lock.unlock();
+            }
+            if(!nameOfConversation.equals(conversationNamesToCheck.get(conversationNumber))){
+                newConversationNames.put(conversationNumber, nameOfConversation);
+            }
+        }
+        return new ConversationRequestBuilder().addConversationNamesMap(newConversationNames).build();
+    }
+
+
+    /**
+     * Changes the name of the conversation to a new value. The new name is written to the state log before it is set,
+     * since a conversation without a name cannot be given its empty name back. A name that is not empty can always be set.
+     * @param conversationRequest the conversation request to handle.
+     * @return the conversation request that was handled.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
+     * @throws IOException gets thrown if the new name could not be written to the state log.
+     */
+    private ConversationRequest changeNameOfConversation(ConversationRequest conversationRequest) throws CouldNotGetConversationException, IOException {
+        String newName = conversationRequest.getNameOfConversation();
+        ServerConversation serverConversation = getConversation(conversationRequest.getConversationNumberList().get(0));
+        long conversationNumber = serverConversation.getConversationNumber();
+        long recordNumber;
+        Lock lock = conversationLocks.getLock(conversationNumber).writeLock();
+        SubscriptionHub.PushTicket pushTicket = null;
+        boolean durable = false;
+        subscriptionHub.holdPushes();
+        try {
+            lock.lock();
+            try {
+                recordNumber = serverStateLog.logConversationName(conversationNumber, newName);
+                serverConversation.setConversationName(newName);
+            }finally {
+                pushTicket = subscriptionHub.queueHeldPushes(conversationNumber);
+                lock.unlock();
+            }
+            serverStateLog.awaitDurable(recordNumber);
+            durable = true;
+        }finally {
+            subscriptionHub.finishQueuedPushes(pushTicket, durable);
+        }
+        return conversationRequest;
+    }
+
+    /**
+     * Checks for new conversations by a user.
+     * @param conversationRequest the conversation request that wants to check for new messages.
+     * @return a transport with all the conversations the user does not have.
+     */
+    private PersonalConversationTransport handleCheckForNewConversations(ConversationRequest conversationRequest) {
+        List<Long> conversationNumbers = conversationRequest.getConversationNumberList();
+        String username = conversationRequest.getUsername();
+        List<ObservableConversation> observableConversations = makeObservableConversationsOfUsername(username, conversationNumbers);
+        return new PersonalConversationTransport(observableConversations);
+    }
+
+    /**
+     * Makes a copy of every conversation the username is a part of as seen by that user.
+     * The conversations are found through the username index of the register, so only the conversations of the user are looked at.
+     * Each conversation is copied with only its newest page of messages while holding its read lock, so the copies never see a half done change
+     * and the size of the copies does not grow with the history of the conversations.
+     * @param username the username of the user.
+     * @param conversationNumbersToSkip the numbers of the conversations the user already has.
+     * @return a list with the conversations of the user that was not skipped.
+     */
+    private List<ObservableConversation> makeObservableConversationsOfUsername(String username, Collection<Long> conversationNumbersToSkip){
+        Set<Long> numbersToSkip = new HashSet<>(conversationNumbersToSkip);
+        List<ServerConversation> conversations;
+        Lock registerLock = conversationRegisterLock.readLock();
+        registerLock.lock();
+        try {
+            conversations = normalConversationRegister.getAllConversationsOfUsername(username);
+        }finally {
+            registerLock.unlock();
+        }
+        List<ObservableConversation> observableConversations = new ArrayList<>();
+        for (ServerConversation conversation : conversations){
+            long conversationNumber = conversation.getConversationNumber();
+            if (!numbersToSkip.contains(conversationNumber)){
+                Lock lock = conversationLocks.getLock(conversationNumber).readLock();
+                lock.lock();
+                try {
+                    if (conversation.getMembers().checkIfUsernameIsMember(username)){
+                        observableConversations.add(new NormalObservableConversation(conversation, username, PAGE_SIZE));
+                    }
+                }finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return observableConversations;
+    }
+
+    /**
+     * Makes a new conversation based on the request. The conversation is taken out again if it could not be written to the state log,
+     * so its number is given to the next conversation like it will be when the log is read back.
+     * @param conversationRequest the request for making a new conversation.
+     * @return the new conversation as seen by the user that made it.
+     * @throws CouldNotAddConversationException gets thrown if the conversation could not be added.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     * @throws IOException gets thrown if the new conversation could not be written to the state log.
+     */
+    private ObservableConversation makeNewConversation(ConversationRequest conversationRequest) throws CouldNotAddMemberException, CouldNotAddConversationException, IOException {
+        List<Member> usernames = conversationRequest.getMemberList();
+        String nameOfMessageLog = conversationRequest.getNameOfConversation();
+        ServerConversation conversation = null;
+        long recordNumber;
+        Lock registerLock = conversationRegisterLock.writeLock();
+        SubscriptionHub.PushTicket pushTicket = null;
+        boolean durable = false;
+        subscriptionHub.holdPushes();
+        try {
+            registerLock.lock();
+            try {
+                conversation = normalConversationRegister.addNewConversationWithUsernames(usernames, nameOfMessageLog);
+                try {
+                    recordNumber = serverStateLog.logConversationMade(conversation, usernames);
+                }catch (IOException exception){
+                    try {
+                        normalConversationRegister.removeNewestConversation(conversation);
+                    }catch (CouldNotRemoveConversationException removeException){
+                        logEvent(Level.SEVERE, "The conversation " + conversation.getConversationNumber() + " could not be written to the state log or taken out again. " + removeException.getMessage());
+                    }
+                    throw new IOException("The conversation could not be written to the state log and was not made. " + exception.getMessage(), exception);
+                }
+            }finally {
+                if (conversation != null){
+                    pushTicket = subscriptionHub.queueHeldPushes(conversation.getConversationNumber());
+                }
+                registerLock.unlock();
+            }
+            serverStateLog.awaitDurable(recordNumber);
+            durable = true;
+        }finally {
+            subscriptionHub.finishQueuedPushes(pushTicket, durable);
+        }
+        String username = usernames.get(0).getUsername();
+        Lock lock = conversationLocks.getLock(conversation.getConversationNumber()).readLock();
+        lock.lock();
+        try {
+            return new NormalObservableConversation(conversation, username, PAGE_SIZE);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Handles incoming members request.
+     * @param membersRequest the member request that was sent form the client side.
+     * @return the response to the request.
+     */
+    private Object handleMembersRequest(MembersRequest membersRequest) {
+        try {
+            if (membersRequest.isCheckForNewMembers()){
+                return checkForNewAndRemovedMembers(membersRequest);
+            }else {
+                ServerConversation serverConversation = getConversation(membersRequest.getConversationNumber());
+                String username = membersRequest.getUsername();
+                List<Member> membersToAdd = membersRequest.getMembers().stream().filter(MemberTransport::isAddMember).map(MemberTransport::getMember).toList();
+                List<Member> membersToRemove = membersRequest.getMembers().stream().filter(mem -> !mem.isAddMember()).map(MemberTransport::getMember).toList();
+                long conversationNumber = serverConversation.getConversationNumber();
+                long recordNumber = 0;
+                Lock lock = conversationLocks.getLock(conversationNumber).writeLock();
+                SubscriptionHub.PushTicket pushTicket = null;
+                boolean durable = false;
+                subscriptionHub.holdPushes();
+                try {
+                    lock.lock();
+                    try {
+                        if (!membersToAdd.isEmpty()){
+                            checkIfMembersCanBeChanged(membersToAdd, serverConversation, username, true);
+                            recordNumber = serverStateLog.logMembersChanged(conversationNumber, username, membersToAdd, true);
+                            addNewMembersToConversation(membersToAdd, serverConversation, username);
+                        }
+                        if (!membersToRemove.isEmpty()){
+                            checkIfMembersCanBeChanged(membersToRemove, serverConversation, username, false);
+                            recordNumber = serverStateLog.logMembersChanged(conversationNumber, username, membersToRemove, false);
+                            removeMembers(membersToRemove, serverConversation, username);
+                        }
+                    }finally {
+                        pushTicket = subscriptionHub.queueHeldPushes(conversationNumber);
+                        lock.unlock();
+                    }
+                    serverStateLog.awaitDurable(recordNumber);
+                    durable = true;
+                }finally {
+                    subscriptionHub.finishQueuedPushes(pushTicket, durable);
+                }
+                return membersRequest;
+            }
+        }catch (CouldNotAddMemberException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotGetConversationException | UsernameNotPartOfConversationException | IOException exception){
+            String message = "Something went wrong in the " + membersRequest + " with the exception " + exception.getMessage() + " and class " + exception.getClass();
+            logEvent(Level.WARNING, message);
+            return exception;
+        }
+    }
+
+    /**
+     * Checks if there are any new members in a conversation.
+     * If some of the members that were removed after the last deleted member of the request are forgotten,
+     * the answer holds all the members and the numbers of the last added and removed member instead.
+     * @param membersRequest the conversation you want to check.
+     * @return a members request with all the new and removed members, or with all the members.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
+     */
+    private MembersRequest checkForNewAndRemovedMembers(MembersRequest membersRequest) throws UsernameNotPartOfConversationException, CouldNotGetConversationException {
+        long lastMember = membersRequest.getLastMember();
+        long conversationNumber = membersRequest.getConversationNumber();
+        long lastDeletedMember = membersRequest.getLastDeletedMember();
+        String username = membersRequest.getUsername();
+        ServerConversation serverConversation = getConversation(conversationNumber);
+        List<Member> newMembers;
+        List<Member> removedMembers;
+        ServerMemberRegister memberRegister = serverConversation.getMembers();
+        Lock lock = conversationLocks.getLock(conversationNumber).readLock();
+        lock.lock();
+        try {
+            if (!memberRegister.checkIfDeletedMembersAreRemembered(lastDeletedMember)){
+                checkIfUserIsMember(memberRegister, username, conversationNumber);
+                return new MembersRequestBuilder().setAllMembers(true).addMemberTransports(makeTransportsOfAllMembers(memberRegister)).addConversationNumber(conversationNumber)
+                    .addLastMember(memberRegister.getLastMemberNumber()).setLastDeletedMember(memberRegister.getLastDeletedMember()).build();
+            }
+            newMembers = memberRegister.checkForNewUsers(lastMember, username);
+            removedMembers = memberRegister.checkForDeletedMembers(lastDeletedMember, username);
+        }finally {
+            lock.unlock();
+        }
+        List<MemberTransport> memberTransportList = new ArrayList<>();
+        removedMembers.forEach(mem -> memberTransportList.add(new MemberTransport(mem, false)));
+        newMembers.forEach(mem -> memberTransportList.add(new MemberTransport(mem, true)));
+        return new MembersRequestBuilder().addMemberTransports(memberTransportList).addConversationNumber(conversationNumber).build();
+    }
+
+    /**
+     * Checks if a user is a member of a conversation.
+     * @param memberRegister the register of the conversation.
+     * @param username the username of the user.
+     * @param conversationNumber the number of the conversation.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a member of the conversation.
+     */
+    private void checkIfUserIsMember(ServerMemberRegister memberRegister, String username, long conversationNumber) throws UsernameNotPartOfConversationException {
+        if (!memberRegister.checkIfUsernameIsMember(username)){
+            throw new UsernameNotPartOfConversationException("The user by the username \"" + username + "\" is not a part of the conversation " + conversationNumber + ".");
+        }
+    }
+
+    /**
+     * Checks if members can be added to or removed from a conversation before the change is written to the state log.
+     * A member change cannot be undone without leaving a mark in the members register, so it is written first and only done when it is written,
+     * and it is only written if it is known that it can be done. The conversation lock must be held, so nothing changes between the check and the change.
+     * @param members the members to add or remove.
+     * @param conversation the conversation.
+     * @param username the username of the end user who wants to change the members.
+     * @param add <code>true</code> if the members are added.
+     *            <code>false</code> if the members are removed.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     * @throws CouldNotAddMemberException gets thrown if one of the new members is already in the conversation.
+     * @throws CouldNotRemoveMemberException gets thrown if one of the members is not in the conversation or is in the list twice.
+     */
+    private void checkIfMembersCanBeChanged(List<Member> members, ServerConversation conversation, String username, boolean add) throws UsernameNotPartOfConversationException, CouldNotAddMemberException, CouldNotRemoveMemberException {
+        ServerMemberRegister memberRegister = conversation.getMembers();
+        checkIfUserIsMember(memberRegister, username, conversation.getConversationNumber());
+        List<String> usernames = members.stream().map(Member::getUsername).toList();
+        if (add && usernames.stream().anyMatch(memberRegister::checkIfUsernameIsMember)){
+            throw new CouldNotAddMemberException("One person in the list is a member.");
+        }else if (!add && (!usernames.stream().allMatch(memberRegister::checkIfUsernameIsMember) || usernames.stream().distinct().count() != usernames.size())){
+            throw new CouldNotRemoveMemberException("The members in the list could not be removed since one or more of them is not a part of the conversation or is in the list twice.");
+        }
+    }
+
+    /**
+     * Adds new members to conversation if they are not in the conversation.
+     * @param members the list with the new members.
+     * @param conversation the conversation these members are going to be added to.
+     * @param username the username of the end user who wants to add new members.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be located.
+     * @throws CouldNotAddMemberException gets thrown if one person in the request is already in the conversation.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     */
+    private void addNewMembersToConversation(List<Member> members, ServerConversation conversation, String username) throws CouldNotGetConversationException, CouldNotAddMemberException, UsernameNotPartOfConversationException {
+        conversation.getMembers().addAllMembers(members, username);
+    }
+
+    /**
+     * Removes all members if they are in the conversation.
+     * @param members the list with the members to remove.
+     * @param conversation the conversation these members are going to be removed from.
+     * @param username the username of the end user who wants to remove members.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be located.
+     * @throws CouldNotRemoveMemberException gets thrown if one or more members are missing form this object.
+     */
+    private void removeMembers(List<Member> members, ServerConversation conversation, String username) throws UsernameNotPartOfConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException {
+        conversation.getMembers().removeAllMembers(members, username);
+    }
+
+    /**
+     * Gets a conversation from the conversation register. The register lock is only held during the lookup.
+     * @param conversationNumber the number of the conversation.
+     * @return the conversation with that number.
+     * @throws CouldNotGetConversationException gets thrown if the conversation could not be found.
+     */
+    private ServerConversation getConversation(long conversationNumber) throws CouldNotGetConversationException {
+        Lock lock = conversationRegisterLock.readLock();
+        lock.lock();
+        try {
+            return normalConversationRegister.getConversationByNumber(conversationNumber);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs an error or event in this handler.
+     * @param level the level the message should have.
+     * @param message the message.
+     */
+    private void logEvent(Level level, String message ){
+        logger.log(level, message);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
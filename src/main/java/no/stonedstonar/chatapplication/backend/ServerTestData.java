@@ -1,5 +1,6 @@
 package no.stonedstonar.chatapplication.backend;
 
+import no.stonedstonar.chatapplication.backend.wal.ServerStateLog;
 import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
 import no.stonedstonar.chatapplication.model.conversationregister.server.ServerConversationRegister;
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
@@ -10,10 +11,12 @@ import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMes
 import no.stonedstonar.chatapplication.model.exception.user.CouldNotAddUserException;
 import no.stonedstonar.chatapplication.model.member.ConversationMember;
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
 import no.stonedstonar.chatapplication.model.message.TextMessage;
 import no.stonedstonar.chatapplication.model.user.EndUser;
 import no.stonedstonar.chatapplication.model.userregister.UserRegister;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,26 +39,65 @@ public class ServerTestData {
      * @throws CouldNotAddUserException gets thrown if the test user could not be added.
      */
     public static void makeTestDataForServer(ServerConversationRegister serverConversationRegister, UserRegister userRegister) throws CouldNotAddConversationException, CouldNotAddMemberException, UsernameNotPartOfConversationException, CouldNotAddMessageException, CouldNotGetMessageLogException, CouldNotAddUserException {
-        EndUser endUser = new EndUser("bjarne22", "passr");
-        EndUser endUser1 = new EndUser("fjell", "passord");
-        EndUser endUser3 = new EndUser("bass", "thepass");
-        userRegister.addUser(endUser);
-        userRegister.addUser(endUser1);
-        userRegister.addUser(endUser3);
+        try {
+            makeTestDataForServer(serverConversationRegister, userRegister, new ServerStateLog());
+        }catch (IOException exception){
+            throw new IllegalStateException("A state log that keeps nothing cannot fail.", exception);
+        }
+    }
+
+    /**
+     * Makes test data, fills a conversation register and user register with the data and writes every change to a state log.
+     * @param serverConversationRegister the servers conversation register to fill.
+     * @param userRegister the user register to fill with test data.
+     * @param serverStateLog the state log the test data is written to.
+     * @throws CouldNotAddConversationException gets thrown if the conversation could not be added.
+     * @throws CouldNotAddMemberException gets thrown if the member could not be added.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of this conversation.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws CouldNotGetMessageLogException gets thrown if a message log could not be added.
+     * @throws CouldNotAddUserException gets thrown if the test user could not be added.
+     * @throws IOException gets thrown if the test data could not be written to the state log.
+     */
+    public static void makeTestDataForServer(ServerConversationRegister serverConversationRegister, UserRegister userRegister, ServerStateLog serverStateLog) throws CouldNotAddConversationException, CouldNotAddMemberException, UsernameNotPartOfConversationException, CouldNotAddMessageException, CouldNotGetMessageLogException, CouldNotAddUserException, IOException {
+        addTestUser("bjarne22", "passr", userRegister, serverStateLog);
+        addTestUser("fjell", "passord", userRegister, serverStateLog);
+        addTestUser("bass", "thepass", userRegister, serverStateLog);
         List<Member> twoMembers = new ArrayList<>();
-        twoMembers.add(new ConversationMember(endUser.getUsername()));
-        twoMembers.add(new ConversationMember(endUser1.getUsername()));
+        twoMembers.add(new ConversationMember("bjarne22"));
+        twoMembers.add(new ConversationMember("fjell"));
         List<Member> threeMembers = new ArrayList<>();
-        threeMembers.add(new ConversationMember(endUser.getUsername()));
-        threeMembers.add(new ConversationMember(endUser1.getUsername()));
-        threeMembers.add(new ConversationMember(endUser3.getUsername()));
-        serverConversationRegister.addNewConversationWithUsernames(threeMembers, "");
-        serverConversationRegister.addNewConversationWithUsernames(twoMembers, "");
-        List<ServerConversation> normalMessageLogs = serverConversationRegister.getAllConversationsOfUsername("bjarne22");
-        normalMessageLogs.get(0).addNewMessage(new TextMessage("Haha", "bjarne22"));
-        normalMessageLogs.get(0).addNewMessage(new TextMessage("Nope", "fjell"));
-        normalMessageLogs.get(0).addNewMessage(new TextMessage("So funny bjarne", "bass"));
+        threeMembers.add(new ConversationMember("bjarne22"));
+        threeMembers.add(new ConversationMember("fjell"));
+        threeMembers.add(new ConversationMember("bass"));
+        ServerConversation firstConversation = serverConversationRegister.addNewConversationWithUsernames(threeMembers, "");
+        serverStateLog.logConversationMade(firstConversation, threeMembers);
+        ServerConversation secondConversation = serverConversationRegister.addNewConversationWithUsernames(twoMembers, "");
+        serverStateLog.logConversationMade(secondConversation, twoMembers);
+        List<Message> messages = new ArrayList<>();
+        messages.add(new TextMessage("Haha", "bjarne22"));
+        messages.add(new TextMessage("Nope", "fjell"));
+        messages.add(new TextMessage("So funny bjarne", "bass"));
+        for (Message message : messages){
+            firstConversation.addNewMessage(message);
+        }
+        serverStateLog.awaitDurable(serverStateLog.logMessagesChanged(firstConversation.getConversationNumber(), messages, true));
+    }
+
+    /**
+     * Adds a test user to the user register and the state log.
+     * @param username the username of the user.
+     * @param password the password of the user.
+     * @param userRegister the user register.
+     * @param serverStateLog the state log.
+     * @throws CouldNotAddUserException gets thrown if the user could not be added.
+     * @throws IOException gets thrown if the user could not be written to the state log.
+     */
+    private static void addTestUser(String username, String password, UserRegister userRegister, ServerStateLog serverStateLog) throws CouldNotAddUserException, IOException {
+        userRegister.addUser(new EndUser(username, password));
+        serverStateLog.logUserAdded(username, password);
     }
+
     
     /**
      * Checks if an object is null.
@@ -0,0 +1,382 @@
+package no.stonedstonar.chatapplication.backend;
+
+import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversationObserver;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireCodec;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import no.stonedstonar.chatapplication.network.transport.PersonalConversationTransport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the place that knows which users are listening for updates and over which connections.
+ * Observes every conversation on the server and pushes each change to the members of that conversation
+ * as the same objects the client gets back when it checks for updates itself.
+ * Each push is wrapped in a response envelope with the push id and encoded once for each wire format,
+ * and the same frame is given to every connection with that format.
+ * A thread can hold its pushes until the changes they are about are written, so no one is told about a change that could still be lost.
+ * The held pushes are put in a line for their conversation while the lock of the conversation is held, and each line is sent in order,
+ * so the members get the changes of a conversation in the same order as they were done even if a later change is written first.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SubscriptionHub implements ServerConversationObserver {
+
+    private final Map<String, CopyOnWriteArrayList<ClientConnection>> subscriberMap;
+
+    private final Logger logger;
+
+    private final ThreadLocal<List<Runnable>> heldPushes;
+
+    private final Map<Long, PushLine> pushLines;
+
+    /**
+      * Makes an instance of the SubscriptionHub class.
+      */
+    public SubscriptionHub(){
+        subscriberMap = new ConcurrentHashMap<>();
+        heldPushes = new ThreadLocal<>();
+        pushLines = new ConcurrentHashMap<>();
+        logger = Logger.getLogger(getClass().toString());
+    }
+
+    /**
+     * Adds a connection that wants the updates of a user. A connection that is already added is not added twice.
+     * @param username the username of the user.
+     * @param clientConnection the connection the updates should be pushed to.
+     */
+    public void subscribe(String username, ClientConnection clientConnection){
+        checkString(username, "username");
+        checkIfObjectIsNull(clientConnection, "client connection");
+        subscriberMap.computeIfAbsent(username, name -> new CopyOnWriteArrayList<>()).addIfAbsent(clientConnection);
+    }
+
+    /**
+     * Removes a connection so it does not get any more updates.
+     * @param username the username of the user the connection belongs to.
+     * @param clientConnection the connection to remove.
+     */
+    public void unsubscribe(String username, ClientConnection clientConnection){
+        checkString(username, "username");
+        checkIfObjectIsNull(clientConnection, "client connection");
+        subscriberMap.computeIfPresent(username, (name, connections) -> {
+            connections.remove(clientConnection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    /**
+     * Checks if a user has any connections that are listening for updates.
+     * @param username the username of the user.
+     * @return <code>true</code> if the user has a connection that listens.
+     *         <code>false</code> if the user has no connections that listen.
+     */
+    public boolean checkIfUsernameIsSubscribed(String username){
+        checkString(username, "username");
+        return subscriberMap.containsKey(username);
+    }
+
+    /**
+     * Holds all the pushes the current thread makes until they are released or dropped.
+     */
+    public void holdPushes(){
+        heldPushes.set(new ArrayList<>());
+    }
+
+    /**
+     * Puts the pushes the current thread has held at the end of the line of a conversation, and stops holding pushes.
+     * Must be called while the lock of the conversation is held, so the line has the same order as the changes.
+     * The pushes are not sent before the ticket is finished, and never before the pushes that are in front of them in the line.
+     * @param conversationNumber the number of the conversation the pushes are about.
+     * @return the ticket that must be finished when it is known if the changes are kept.
+     */
+    public PushTicket queueHeldPushes(long conversationNumber){
+        List<Runnable> pushes = heldPushes.get();
+        heldPushes.remove();
+        PushLine pushLine = pushLines.computeIfAbsent(conversationNumber, number -> new PushLine());
+        return pushLine.add(pushes != null ? pushes : new ArrayList<>());
+    }
+
+    /**
+     * Finishes a ticket and sends the pushes of the line that are finished and have no unfinished ticket in front of them.
+     * Stops holding pushes for the current thread, so it can be called in a finally block.
+     * @param pushTicket the ticket to finish. Is <code>null</code> if the pushes were never queued.
+     * @param send <code>true</code> if the changes are kept and the pushes should be sent.
+     *             <code>false</code> if the changes were undone and the pushes should be dropped.
+     */
+    public void finishQueuedPushes(PushTicket pushTicket, boolean send){
+        heldPushes.remove();
+        if (pushTicket != null){
+            pushTicket.pushLine.finish(pushTicket, send);
+        }
+    }
+
+    @Override
+    public void updateNewMessage(ServerConversation serverConversation, Message message) {
+        if (!subscriberMap.isEmpty()){
+            List<MessageTransport> messageTransportList = new ArrayList<>();
+            messageTransportList.add(new MessageTransport(message, true));
+            Object push = new MessageRequestBuilder().addMessageTransportList(messageTransportList).addConversationNumber(serverConversation.getConversationNumber()).build();
+            pushToUsernames(serverConversation.getMembers().getNameOfAllMembers(), push);
+        }
+    }
+
+    @Override
+    public void updateMember(ServerConversation serverConversation, Member member, boolean removed) {
+        if (!subscriberMap.isEmpty()){
+            String username = member.getUsername();
+            List<String> usernames = new ArrayList<>(serverConversation.getMembers().getNameOfAllMembers());
+            if (removed){
+                usernames.add(username);
+            }else {
+                usernames.remove(username);
+                pushNewConversation(serverConversation, username);
+            }
+            List<MemberTransport> memberTransportList = new ArrayList<>();
+            memberTransportList.add(new MemberTransport(member, !removed));
+            Object push = new MembersRequestBuilder().addMemberTransports(memberTransportList).addConversationNumber(serverConversation.getConversationNumber()).build();
+            pushToUsernames(usernames, push);
+        }
+    }
+
+    @Override
+    public void updateConversationName(ServerConversation serverConversation) {
+        if (!subscriberMap.isEmpty()){
+            Map<Long, String> newNames = new HashMap<>();
+            newNames.put(serverConversation.getConversationNumber(), serverConversation.getConversationName());
+            Object push = new ConversationRequestBuilder().addConversationNamesMap(newNames).build();
+            pushToUsernames(serverConversation.getMembers().getNameOfAllMembers(), push);
+        }
+    }
+
+    @Override
+    public void updateNewConversation(ServerConversation serverConversation) {
+        if (!subscriberMap.isEmpty()){
+            serverConversation.getMembers().getNameOfAllMembers().forEach(username -> pushNewConversation(serverConversation, username));
+        }
+    }
+
+    /**
+     * Pushes a conversation as seen by one user to that user. Is used when the user becomes a part of the conversation.
+     * @param serverConversation the conversation the user is now a part of.
+     * @param username the username of the user.
+     */
+    private void pushNewConversation(ServerConversation serverConversation, String username){
+        if (checkIfUsernameIsSubscribed(username)){
+            List<ObservableConversation> observableConversations = new ArrayList<>();
+            observableConversations.add(new NormalObservableConversation(serverConversation, username, ServerRequestHandler.PAGE_SIZE));
+            pushToUsernames(Collections.singletonList(username), new PersonalConversationTransport(observableConversations));
+        }
+    }
+
+    /**
+     * Pushes an object to all the connections of the users, or holds it if the current thread holds its pushes.
+     * @param usernames the usernames of the users that should get the object.
+     * @param push the object to push.
+     */
+    private void pushToUsernames(Collection<String> usernames, Object push){
+        List<Runnable> pushes = heldPushes.get();
+        if (pushes != null){
+            List<String> heldUsernames = new ArrayList<>(usernames);
+            pushes.add(() -> sendToUsernames(heldUsernames, push));
+        }else {
+            sendToUsernames(usernames, push);
+        }
+    }
+
+    /**
+     * Sends an object to all the connections of the users at once. The object is only encoded if someone is listening.
+     * @param usernames the usernames of the users that should get the object.
+     * @param push the object to send.
+     */
+    private void sendToUsernames(Collection<String> usernames, Object push){
+        Map<WireFormat, ByteBuffer> frames = new EnumMap<>(WireFormat.class);
+        for (String username : usernames){
+            List<ClientConnection> connections = subscriberMap.get(username);
+            if (connections != null){
+                for (ClientConnection connection : connections){
+                    WireFormat wireFormat = connection.getWireFormat();
+                    ByteBuffer frame = frames.get(wireFormat);
+                    try {
+                        if (frame == null){
+                            frame = WireCodec.encodeSharedFrame(new ResponseEnvelope(ResponseEnvelope.PUSH_ID, push), wireFormat);
+                            frames.put(wireFormat, frame);
+                        }
+                    }catch (IOException exception){
+                        logEvent(Level.WARNING, "The push " + push.getClass() + " could not be encoded. " + exception.getMessage());
+                        return;
+                    }
+                    pushFrame(username, connection, frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a frame to a connection and removes the connection if it is closed.
+     * @param username the username the connection belongs to.
+     * @param clientConnection the connection.
+     * @param frame the frame to push.
+     */
+    private void pushFrame(String username, ClientConnection clientConnection, ByteBuffer frame){
+        if (clientConnection.isClosed()){
+            unsubscribe(username, clientConnection);
+        }else {
+            try {
+                clientConnection.sendFrame(frame);
+            }catch (IOException exception){
+                logEvent(Level.FINE, "A connection of " + username + " is closed and is removed.");
+                unsubscribe(username, clientConnection);
+            }
+        }
+    }
+
+    /**
+     * Represents the place of some held pushes in the line of their conversation.
+     */
+    public static class PushTicket {
+
+        private final PushLine pushLine;
+
+        private final List<Runnable> pushes;
+
+        private boolean finished;
+
+        /**
+          * Makes an instance of the PushTicket class.
+          * @param pushLine the line the ticket is in.
+          * @param pushes the pushes of the ticket.
+          */
+        private PushTicket(PushLine pushLine, List<Runnable> pushes){
+            this.pushLine = pushLine;
+            this.pushes = pushes;
+            finished = false;
+        }
+    }
+
+    /**
+     * Represents the pushes of one conversation that are waiting to be sent, in the order the changes were done.
+     * Only one thread sends from a line at a time. A thread that finishes a ticket while another thread is sending
+     * leaves its pushes to that thread, which looks at the line again before it stops.
+     */
+    private static class PushLine {
+
+        private final Deque<PushTicket> tickets;
+
+        private final ReentrantLock sendLock;
+
+        /**
+          * Makes an instance of the PushLine class.
+          */
+        public PushLine(){
+            tickets = new ArrayDeque<>();
+            sendLock = new ReentrantLock();
+        }
+
+        /**
+         * Adds pushes at the end of the line.
+         * @param pushes the pushes.
+         * @return the ticket of the pushes.
+         */
+        public synchronized PushTicket add(List<Runnable> pushes){
+            PushTicket pushTicket = new PushTicket(this, pushes);
+            tickets.add(pushTicket);
+            return pushTicket;
+        }
+
+        /**
+         * Finishes a ticket and sends the finished pushes at the start of the line.
+         * @param pushTicket the ticket.
+         * @param send <code>true</code> if the pushes of the ticket should be sent.
+         */
+        public void finish(PushTicket pushTicket, boolean send){
+            synchronized (this){
+                if (!send){
+                    pushTicket.pushes.clear();
+                }
+                pushTicket.finished = true;
+            }
+            do {
+                if (!sendLock.tryLock()){
+                    return;
+                }
+                try {
+                    PushTicket finishedTicket = pollFinishedTicket();
+                    while (finishedTicket != null){
+                        finishedTicket.pushes.forEach(Runnable::run);
+                        finishedTicket = pollFinishedTicket();
+                    }
+                }finally {
+                    sendLock.unlock();
+                }
+            }while (checkIfFirstTicketIsFinished());
+        }
+
+        /**
+         * Takes the first ticket out of the line if it is finished.
+         * @return the first ticket, or <code>null</code> if the line is empty or the first ticket is not finished.
+         */
+        private synchronized PushTicket pollFinishedTicket(){
+            return checkIfFirstTicketIsFinished() ? tickets.poll() : null;
+        }
+
+        /**
+         * Checks if the first ticket in the line is finished.
+         * @return <code>true</code> if the first ticket can be sent.
+         *         <code>false</code> if the line is empty or the first ticket is not finished.
+         */
+        private synchronized boolean checkIfFirstTicketIsFinished(){
+            PushTicket firstTicket = tickets.peek();
+            return firstTicket != null && firstTicket.finished;
+        }
+    }
+
+    /**
+     * Logs an error or event in this hub.
+     * @param level the level the message should have.
+     * @param message the message.
+     */
+    private void logEvent(Level level, String message){
+        logger.log(level, message);
+    }
+
+    /**
+     * Checks if a string is of a valid format or not.
+     * @param stringToCheck the string you want to check.
+     * @param errorPrefix the error the exception should have if the string is invalid.
+     */
+    private void checkString(String stringToCheck, String errorPrefix){
+        checkIfObjectIsNull(stringToCheck, errorPrefix);
+        if (stringToCheck.isEmpty()){
+            throw new IllegalArgumentException("The " + errorPrefix + " cannot be empty.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package no.stonedstonar.chatapplication.backend;
+
+/**
+ * Represents the different ways the server can handle the connections of the clients.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public enum TransportMode {
+
+    /**
+     * Every connection gets its own thread from the pool while it is open.
+     */
+    BLOCKING,
+
+    /**
+     * All the connections are multiplexed on a few selector threads and the requests are handed to workers.
+     */
+    SELECTOR
+}
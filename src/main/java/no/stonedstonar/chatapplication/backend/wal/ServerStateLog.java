@@ -0,0 +1,338 @@
+package no.stonedstonar.chatapplication.backend.wal;
+
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.ServerConversationRegister;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.userregister.UserRegister;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the log of every change to the state of the server, so the state can be made again after a restart.
+ * Each change is written as a small binary record in a {@link WriteAheadLog}: users that are added, conversations that are made,
+ * new names, members that are added or removed and messages that are added or removed.
+ * A change is logged while the conversation is still locked, so the records of a conversation are in the same order as its changes.
+ * A change that can be undone is logged after it is done in memory and undone if the record could not be added, and a change that cannot be undone
+ * is only done after its record is added. The one that made the change then waits for the record to be written before it answers the client.
+ * <p>
+ * Messages are logged with the number and time the server gave them, so a replayed message ends up in the same day and gets the same number.
+ * <p>
+ * So that the whole log does not have to be replayed at every start, a {@link SnapshotWriter} can write the state to a snapshot while
+ * the server keeps serving. A replay loads the newest snapshot and then only does the changes in the log that the snapshot does not have.
+ * A state log that is made without a write-ahead log keeps nothing, and every method returns at once.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ServerStateLog implements Closeable {
+
+    private static final byte USER_ADDED = 1;
+
+    private static final byte CONVERSATION_MADE = 2;
+
+    private static final byte CONVERSATION_NAME = 3;
+
+    private static final byte MEMBERS_ADDED = 4;
+
+    private static final byte MEMBERS_REMOVED = 5;
+
+    private static final byte MESSAGES_ADDED = 6;
+
+    private static final byte MESSAGES_REMOVED = 7;
+
+    private final WriteAheadLog writeAheadLog;
+
+    /**
+      * Makes an instance of the ServerStateLog class that keeps nothing.
+      */
+    public ServerStateLog(){
+        writeAheadLog = null;
+    }
+
+    /**
+      * Makes an instance of the ServerStateLog class that writes the changes to a write-ahead log.
+      * @param writeAheadLog the write-ahead log to write the changes to.
+      */
+    public ServerStateLog(WriteAheadLog writeAheadLog){
+        checkIfObjectIsNull(writeAheadLog, "write-ahead log");
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * Logs that a user was added.
+     * @param username the username of the user.
+     * @param password the password of the user.
+     * @return the number of the record.
+     * @throws IOException gets thrown if the record could not be added to the log.
+     */
+    public long logUserAdded(String username, String password) throws IOException {
+        if (writeAheadLog == null){
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(USER_ADDED);
+        output.writeUTF(username);
+        output.writeUTF(password);
+        return writeAheadLog.append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs that a conversation was made.
+     * @param serverConversation the new conversation.
+     * @param members the members the conversation was made with, in the order they were given.
+     * @return the number of the record.
+     * @throws IOException gets thrown if the record could not be added to the log.
+     */
+    public long logConversationMade(ServerConversation serverConversation, List<Member> members) throws IOException {
+        if (writeAheadLog == null){
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(CONVERSATION_MADE);
+        output.writeLong(serverConversation.getConversationNumber());
+        output.writeUTF(serverConversation.getConversationName());
+        StateCodec.writeUsernames(output, members);
+        return writeAheadLog.append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs that a conversation got a new name.
+     * @param conversationNumber the number of the conversation.
+     * @param conversationName the new name.
+     * @return the number of the record.
+     * @throws IOException gets thrown if the record could not be added to the log.
+     */
+    public long logConversationName(long conversationNumber, String conversationName) throws IOException {
+        if (writeAheadLog == null){
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(CONVERSATION_NAME);
+        output.writeLong(conversationNumber);
+        output.writeUTF(conversationName);
+        return writeAheadLog.append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs that members were added to or removed from a conversation.
+     * @param conversationNumber the number of the conversation.
+     * @param username the username of the member that made the change.
+     * @param members the members that were added or removed.
+     * @param added <code>true</code> if the members were added.
+     *              <code>false</code> if the members were removed.
+     * @return the number of the record.
+     * @throws IOException gets thrown if the record could not be added to the log.
+     */
+    public long logMembersChanged(long conversationNumber, String username, List<Member> members, boolean added) throws IOException {
+        if (writeAheadLog == null){
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(added ? MEMBERS_ADDED : MEMBERS_REMOVED);
+        output.writeLong(conversationNumber);
+        output.writeUTF(username);
+        StateCodec.writeUsernames(output, members);
+        return writeAheadLog.append(bytes.toByteArray());
+    }
+
+    /**
+     * Logs that messages with the same date were added to or removed from a conversation.
+     * @param conversationNumber the number of the conversation.
+     * @param messages the messages that were added or removed.
+     * @param added <code>true</code> if the messages were added.
+     *              <code>false</code> if the messages were removed.
+     * @return the number of the record.
+     * @throws IOException gets thrown if a message is not a text message or the record could not be added to the log.
+     */
+    public long logMessagesChanged(long conversationNumber, List<Message> messages, boolean added) throws IOException {
+        if (writeAheadLog == null || messages.isEmpty()){
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(added ? MESSAGES_ADDED : MESSAGES_REMOVED);
+        output.writeLong(conversationNumber);
+        output.writeInt(messages.size());
+        for (Message message : messages){
+            StateCodec.writeMessage(output, message);
+        }
+        return writeAheadLog.append(bytes.toByteArray());
+    }
+
+    /**
+     * Waits until a record and all the records before it are written.
+     * @param recordNumber the number of the record. Zero or below returns at once.
+     * @throws IOException gets thrown if the record could not be written.
+     */
+    public void awaitDurable(long recordNumber) throws IOException {
+        if (writeAheadLog != null && recordNumber > 0){
+            writeAheadLog.awaitDurable(recordNumber);
+        }
+    }
+
+    /**
+     * Checks if the state log keeps the changes, or if it is a log that keeps nothing.
+     * @return <code>true</code> if the changes are written to a write-ahead log.
+     *         <code>false</code> if the changes are not kept.
+     */
+    public boolean checkIfChangesAreKept(){
+        return writeAheadLog != null;
+    }
+
+    /**
+     * Starts a snapshot of the state in the folder of the log. The snapshot must be finished or closed by the one that started it.
+     * @return the snapshot that is being written.
+     * @throws IOException gets thrown if the snapshot could not be started.
+     */
+    public SnapshotWriter startSnapshot() throws IOException {
+        if (writeAheadLog == null){
+            throw new IllegalStateException("A state log that keeps nothing cannot write a snapshot.");
+        }
+        return new SnapshotWriter(writeAheadLog.getDirectory(), writeAheadLog);
+    }
+
+    /**
+     * Loads the newest snapshot into empty registers and does the changes in the log after it again.
+     * Every change in the log was done on the server before it was written, so a change that can no longer be done,
+     * or that gives a conversation or message another number than it got the first time, means the state cannot be trusted.
+     * The replay then stops with an exception instead of going on with the wrong state.
+     * @param userRegister the user register to add the users to.
+     * @param conversationRegister the conversation register to add the conversations to.
+     * @return the number of the last change that was read back, or zero if there was nothing to read.
+     * @throws IOException gets thrown if the snapshot or the log could not be read, or if a change could not be done the same way again.
+     */
+    public long replay(UserRegister userRegister, ServerConversationRegister conversationRegister) throws IOException {
+        checkIfObjectIsNull(userRegister, "user register");
+        checkIfObjectIsNull(conversationRegister, "conversation register");
+        if (writeAheadLog == null){
+            return 0;
+        }
+        StateSnapshot stateSnapshot = StateSnapshot.loadNewest(writeAheadLog.getDirectory(), userRegister, conversationRegister);
+        long recordNumber = stateSnapshot.getStartRecord();
+        for (byte[] record : writeAheadLog.readRecords(recordNumber)){
+            recordNumber += 1;
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            byte kind = input.readByte();
+            try {
+                replayRecord(kind, input, recordNumber, stateSnapshot, userRegister, conversationRegister);
+            }catch (IOException exception){
+                throw exception;
+            }catch (Exception exception){
+                throw new IOException("Could not replay record " + recordNumber + " of kind " + kind + " with the exception " + exception.getMessage() + " and class " + exception.getClass(), exception);
+            }
+        }
+        return recordNumber;
+    }
+
+    /**
+     * Does the change of one record again, unless the change is already in the snapshot.
+     * @param kind the kind of record.
+     * @param input the rest of the record.
+     * @param recordNumber the number of the record.
+     * @param stateSnapshot the snapshot that was loaded.
+     * @param userRegister the user register.
+     * @param conversationRegister the conversation register.
+     * @throws Exception gets thrown if the record is not valid or the change could not be done.
+     */
+    private void replayRecord(byte kind, DataInputStream input, long recordNumber, StateSnapshot stateSnapshot, UserRegister userRegister, ServerConversationRegister conversationRegister) throws Exception {
+        if (kind == USER_ADDED){
+            String username = input.readUTF();
+            String password = input.readUTF();
+            if (!userRegister.checkIfUsernameIsTaken(username)){
+                userRegister.addUser(new EndUser(username, password));
+            }
+        }else if (kind == CONVERSATION_MADE){
+            long conversationNumber = input.readLong();
+            String conversationName = input.readUTF();
+            List<Member> members = StateCodec.readMembers(input);
+            if (!stateSnapshot.checkIfConversationIsMade(recordNumber)){
+                ServerConversation serverConversation = conversationRegister.addNewConversationWithUsernames(members, conversationName);
+                if (serverConversation.getConversationNumber() != conversationNumber){
+                    throw new IOException("The conversation " + conversationNumber + " got the number " + serverConversation.getConversationNumber() + " when record " + recordNumber + " was replayed.");
+                }
+            }
+        }else {
+            long conversationNumber = input.readLong();
+            if (!stateSnapshot.checkIfChangeIsIncluded(conversationNumber, recordNumber)){
+                replayConversationChange(kind, input, conversationRegister.getConversationByNumber(conversationNumber));
+            }
+        }
+    }
+
+    /**
+     * Does a change to a conversation again.
+     * @param kind the kind of record.
+     * @param input the rest of the record, after the conversation number.
+     * @param serverConversation the conversation that is changed.
+     * @throws Exception gets thrown if the record is not valid or the change could not be done.
+     */
+    private void replayConversationChange(byte kind, DataInputStream input, ServerConversation serverConversation) throws Exception {
+        switch (kind){
+            case CONVERSATION_NAME -> serverConversation.setConversationName(input.readUTF());
+            case MEMBERS_ADDED, MEMBERS_REMOVED -> {
+                String username = input.readUTF();
+                List<Member> members = StateCodec.readMembers(input);
+                if (kind == MEMBERS_ADDED){
+                    serverConversation.getMembers().addAllMembers(members, username);
+                }else {
+                    serverConversation.getMembers().removeAllMembers(members, username);
+                }
+            }
+            case MESSAGES_ADDED, MESSAGES_REMOVED -> {
+                int amount = input.readInt();
+                List<Message> messages = new ArrayList<>(amount);
+                List<Long> messageNumbers = new ArrayList<>(amount);
+                for (int i = 0; i < amount; i++){
+                    Message message = StateCodec.readMessage(input);
+                    messageNumbers.add(message.getMessageNumber());
+                    messages.add(message);
+                }
+                if (kind == MESSAGES_ADDED){
+                    serverConversation.addAllMessagesWithSameDate(messages);
+                    for (int i = 0; i < amount; i++){
+                        if (messages.get(i).getMessageNumber() != messageNumbers.get(i)){
+                            throw new IOException("A message in conversation " + serverConversation.getConversationNumber() + " got the number " + messages.get(i).getMessageNumber() + " instead of " + messageNumbers.get(i) + " when it was replayed.");
+                        }
+                    }
+                }else {
+                    serverConversation.removeAllMessagesWithSameDate(messages);
+                }
+            }
+            default -> throw new IOException("The record kind " + kind + " is not valid.");
+        }
+    }
+
+    /**
+     * Writes the records that are added and closes the write-ahead log.
+     * @throws IOException gets thrown if the log could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writeAheadLog != null){
+            writeAheadLog.close();
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
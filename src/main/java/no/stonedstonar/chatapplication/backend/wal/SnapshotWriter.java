@@ -0,0 +1,254 @@
+package no.stonedstonar.chatapplication.backend.wal;
+
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.ServerMemberRegister;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.messagelog.MappedServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
+import no.stonedstonar.chatapplication.model.user.User;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Represents a snapshot of the users and conversations of the server that is being written, while the server keeps serving.
+ * <p>
+ * The snapshot is not taken at one moment. Instead each part remembers how far the state log had come when that part was read:
+ * the users and the list of conversations are read after the snapshot starts, and each conversation is read while it is locked
+ * and remembers the number of the last record at that time. When the snapshot is loaded, only the records that came after
+ * a part was read are replayed on top of it. For that to hold, a conversation must be locked when it is encoded and the register
+ * must be locked when the list of conversations is written, by the same locks the changes are logged under.
+ * <p>
+ * A message log that keeps its messages in a mapped file is only written as the length and checksum of the records in the file,
+ * since the file is only written to at the end. The other message logs are written with their messages. The mapped files
+ * are forced to the disk before the snapshot is put in place.
+ * <p>
+ * The snapshot is written to a temporary file that is renamed when it is whole, so there is always one whole snapshot to load.
+ * When it is renamed, the older snapshots and the segments of the state log that only have older records are deleted.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SnapshotWriter implements Closeable {
+
+    private static final int USERS_PER_RECORD = 4096;
+
+    private final Path directory;
+
+    private final WriteAheadLog writeAheadLog;
+
+    private final long startRecord;
+
+    private final Path temporaryFile;
+
+    private final FileChannel fileChannel;
+
+    private final DataOutputStream output;
+
+    private long highestRecord;
+
+    private int conversationsWritten;
+
+    private final List<MappedServerMessageLog> keptMessageLogs;
+
+    private boolean finished;
+
+    /**
+      * Makes an instance of the SnapshotWriter class and starts the snapshot.
+      * @param directory the folder of the state log.
+      * @param writeAheadLog the write-ahead log of the state log.
+      * @throws IOException gets thrown if the snapshot file could not be made.
+      */
+    SnapshotWriter(Path directory, WriteAheadLog writeAheadLog) throws IOException {
+        this.directory = directory;
+        this.writeAheadLog = writeAheadLog;
+        startRecord = writeAheadLog.getLastRecord();
+        highestRecord = startRecord;
+        keptMessageLogs = new ArrayList<>();
+        temporaryFile = StateSnapshot.getTemporaryPath(directory, startRecord);
+        fileChannel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(fileChannel), 1 << 16));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeByte(StateSnapshot.HEADER);
+        header.writeInt(StateSnapshot.VERSION);
+        header.writeLong(startRecord);
+        StateCodec.writeRecord(output, bytes.toByteArray());
+    }
+
+    /**
+     * Gets the number of the last record of the state log that came before the snapshot started.
+     * @return the number of the record.
+     */
+    public long getStartRecord(){
+        return startRecord;
+    }
+
+    /**
+     * Writes all the users. Users that are added while they are written might be in the snapshot, and are then skipped when the log is replayed.
+     * @param users the users of the server.
+     * @throws IOException gets thrown if the users could not be written.
+     */
+    public void writeUsers(List<User> users) throws IOException {
+        checkIfObjectIsNull(users, "users");
+        for (int from = 0; from < users.size(); from += USERS_PER_RECORD){
+            List<User> part = users.subList(from, Math.min(users.size(), from + USERS_PER_RECORD));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream userOutput = new DataOutputStream(bytes);
+            userOutput.writeByte(StateSnapshot.USERS);
+            userOutput.writeInt(part.size());
+            for (User user : part){
+                StateCodec.writeUser(userOutput, user);
+            }
+            StateCodec.writeRecord(output, bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Writes how many conversations the snapshot has and remembers how far the log had come.
+     * Must be called while no conversations can be made, and before any conversation is written.
+     * @param amountOfConversations the amount of conversations that will be written.
+     * @throws IOException gets thrown if the list could not be written.
+     */
+    public void writeConversationList(int amountOfConversations) throws IOException {
+        long listRecord = writeAheadLog.getLastRecord();
+        highestRecord = Math.max(highestRecord, listRecord);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream list = new DataOutputStream(bytes);
+        list.writeByte(StateSnapshot.CONVERSATION_LIST);
+        list.writeLong(listRecord);
+        list.writeInt(amountOfConversations);
+        StateCodec.writeRecord(output, bytes.toByteArray());
+    }
+
+    /**
+     * Encodes a conversation with its members and messages, and remembers how far the log had come.
+     * The messages of a mapped message log are not read, only the length and checksum of its records.
+     * Must be called while the conversation cannot be changed. The bytes are written with {@link #writeConversation(byte[])}
+     * after the conversation is unlocked again.
+     * @param serverConversation the conversation.
+     * @return the bytes of the conversation.
+     * @throws IOException gets thrown if the conversation could not be encoded.
+     */
+    public byte[] encodeConversation(ServerConversation serverConversation) throws IOException {
+        checkIfObjectIsNull(serverConversation, "conversation");
+        long conversationRecord = writeAheadLog.getLastRecord();
+        highestRecord = Math.max(highestRecord, conversationRecord);
+        ServerMemberRegister members = serverConversation.getMembers();
+        List<Member> memberList = new ArrayList<>();
+        Iterator<Member> it = members.getIterator();
+        while (it.hasNext()){
+            memberList.add(it.next());
+        }
+        List<ServerMessageLog> messageLogs = serverConversation.getMessageLogList();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        DataOutputStream encodedOutput = new DataOutputStream(encoded);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream conversation = new DataOutputStream(bytes);
+        conversation.writeByte(StateSnapshot.CONVERSATION);
+        conversation.writeLong(conversationRecord);
+        conversation.writeLong(serverConversation.getConversationNumber());
+        conversation.writeInt(messageLogs.size());
+        conversation.writeUTF(serverConversation.getConversationName());
+        conversation.writeLong(serverConversation.getDateMade().toEpochDay());
+        conversation.writeLong(members.getLastMemberNumber());
+        conversation.writeLong(members.getLastDeletedMember());
+        StateCodec.writeNumberedMembers(conversation, memberList);
+        StateCodec.writeNumberedMembers(conversation, members.getRememberedDeletedMembers());
+        StateCodec.writeRecord(encodedOutput, bytes.toByteArray());
+        for (ServerMessageLog messageLog : messageLogs){
+            bytes.reset();
+            conversation.writeByte(StateSnapshot.MESSAGE_LOG);
+            conversation.writeLong(messageLog.getDateMade().toEpochDay());
+            conversation.writeLong(messageLog.getLastMessageNumber());
+            if (messageLog instanceof MappedServerMessageLog mappedMessageLog && mappedMessageLog.getRecordsLength() > 0){
+                conversation.writeLong(mappedMessageLog.getRecordsLength());
+                conversation.writeInt(mappedMessageLog.checksumRecords());
+                keptMessageLogs.add(mappedMessageLog);
+            }else {
+                List<Message> messages = messageLog.getMessages();
+                conversation.writeLong(0);
+                conversation.writeInt(0);
+                conversation.writeInt(messages.size());
+                for (Message message : messages){
+                    StateCodec.writeMessage(conversation, message);
+                }
+            }
+            StateCodec.writeRecord(encodedOutput, bytes.toByteArray());
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Writes a conversation that was encoded with {@link #encodeConversation(ServerConversation)}.
+     * @param encodedConversation the bytes of the conversation.
+     * @throws IOException gets thrown if the conversation could not be written.
+     */
+    public void writeConversation(byte[] encodedConversation) throws IOException {
+        checkIfObjectIsNull(encodedConversation, "encoded conversation");
+        output.write(encodedConversation);
+        conversationsWritten += 1;
+    }
+
+    /**
+     * Writes the end of the snapshot, forces it and the mapped message files it remembers to the disk and puts it in place of the older snapshots.
+     * Waits for the records the snapshot has seen to be written first, so the log never ends before a snapshot that is kept.
+     * The segments of the log that only have records from before the snapshot are then deleted.
+     * @return the number of the last record that came before the snapshot started.
+     * @throws IOException gets thrown if the snapshot could not be written or put in place.
+     */
+    public long finish() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream end = new DataOutputStream(bytes);
+        end.writeByte(StateSnapshot.END);
+        end.writeInt(conversationsWritten);
+        StateCodec.writeRecord(output, bytes.toByteArray());
+        output.flush();
+        fileChannel.force(true);
+        output.close();
+        for (MappedServerMessageLog messageLog : keptMessageLogs){
+            messageLog.forceRecords();
+        }
+        writeAheadLog.awaitDurable(highestRecord);
+        Files.move(temporaryFile, StateSnapshot.getSnapshotPath(directory, startRecord), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+        StateSnapshot.deleteSnapshotsBefore(directory, startRecord);
+        writeAheadLog.deleteRecordsUpTo(startRecord);
+        return startRecord;
+    }
+
+    /**
+     * Stops the snapshot. A snapshot that is not finished is deleted.
+     * @throws IOException gets thrown if the temporary file could not be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished){
+            output.close();
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package no.stonedstonar.chatapplication.backend.wal;
+
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.user.User;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Represents the binary layout that the state log and the snapshots share.
+ * Both are written as records that start with the length of the record and a CRC32C checksum of its bytes,
+ * so a record that was only partly written or has been damaged is found when it is read.
+ * Members and messages are written the same way in both, so a snapshot and the log after it always agree.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+final class StateCodec {
+
+    /**
+     * The amount of bytes the length and checksum in front of a record uses.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+      * Makes an instance of the StateCodec class.
+      */
+    private StateCodec(){
+
+    }
+
+    /**
+     * Computes the checksum of the bytes of a record.
+     * @param record the bytes of the record.
+     * @return the checksum.
+     */
+    static int checksum(byte[] record){
+        CRC32C checksum = new CRC32C();
+        checksum.update(record);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Writes a record with its length and checksum in front of it.
+     * @param output the output to write to.
+     * @param record the bytes of the record.
+     * @throws IOException gets thrown if the record could not be written.
+     */
+    static void writeRecord(DataOutputStream output, byte[] record) throws IOException {
+        output.writeInt(record.length);
+        output.writeInt(checksum(record));
+        output.write(record);
+    }
+
+    /**
+     * Reads a record that was written with {@link #writeRecord(DataOutputStream, byte[])}.
+     * @param input the input to read from.
+     * @return the bytes of the record.
+     * @throws IOException gets thrown if the record is not whole or its checksum is wrong.
+     */
+    static byte[] readRecord(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        int expectedChecksum = input.readInt();
+        if (length < 0){
+            throw new IOException("The length " + length + " of the record is not valid.");
+        }
+        byte[] record = new byte[length];
+        try {
+            input.readFully(record);
+        }catch (EOFException exception){
+            throw new IOException("The record of " + length + " bytes ended too early.", exception);
+        }
+        if (checksum(record) != expectedChecksum){
+            throw new IOException("The checksum of the record of " + length + " bytes is wrong.");
+        }
+        return record;
+    }
+
+    /**
+     * Writes a user with its username and password.
+     * @param output the output to write to.
+     * @param user the user.
+     * @throws IOException gets thrown if the user could not be written.
+     */
+    static void writeUser(DataOutputStream output, User user) throws IOException {
+        output.writeUTF(user.getUsername());
+        output.writeUTF(user.getPassword());
+    }
+
+    /**
+     * Reads a user that was written with {@link #writeUser(DataOutputStream, User)}.
+     * @param input the input to read from.
+     * @return the user.
+     * @throws IOException gets thrown if the user could not be read.
+     */
+    static User readUser(DataInputStream input) throws IOException {
+        return new EndUser(input.readUTF(), input.readUTF());
+    }
+
+    /**
+     * Writes the usernames of members.
+     * @param output the output to write to.
+     * @param members the members.
+     * @throws IOException gets thrown if the usernames could not be written.
+     */
+    static void writeUsernames(DataOutputStream output, List<Member> members) throws IOException {
+        output.writeInt(members.size());
+        for (Member member : members){
+            output.writeUTF(member.getUsername());
+        }
+    }
+
+    /**
+     * Reads usernames and makes a member of each of them.
+     * @param input the input to read from.
+     * @return a list with the members.
+     * @throws IOException gets thrown if the usernames could not be read.
+     */
+    static List<Member> readMembers(DataInputStream input) throws IOException {
+        int amount = input.readInt();
+        List<Member> members = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++){
+            members.add(new ConversationMember(input.readUTF()));
+        }
+        return members;
+    }
+
+    /**
+     * Writes members with their member numbers.
+     * @param output the output to write to.
+     * @param members the members.
+     * @throws IOException gets thrown if the members could not be written.
+     */
+    static void writeNumberedMembers(DataOutputStream output, List<Member> members) throws IOException {
+        output.writeInt(members.size());
+        for (Member member : members){
+            output.writeUTF(member.getUsername());
+            output.writeLong(member.getMemberNumber());
+        }
+    }
+
+    /**
+     * Reads members that were written with their member numbers.
+     * @param input the input to read from.
+     * @return a list with the members.
+     * @throws IOException gets thrown if the members could not be read.
+     */
+    static List<Member> readNumberedMembers(DataInputStream input) throws IOException {
+        int amount = input.readInt();
+        List<Member> members = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++){
+            members.add(new ConversationMember(input.readUTF(), input.readLong()));
+        }
+        return members;
+    }
+
+    /**
+     * Writes a text message with the number and time the server gave it.
+     * @param output the output to write to.
+     * @param message the message.
+     * @throws IOException gets thrown if the message is not a text message or could not be written.
+     */
+    static void writeMessage(DataOutputStream output, Message message) throws IOException {
+        if (!(message instanceof TextMessage textMessage)){
+            throw new IOException("Only text messages can be written to the state log, not " + message.getClass());
+        }
+        output.writeUTF(textMessage.getMessage());
+        output.writeUTF(textMessage.getFromUsername());
+        output.writeLong(textMessage.getSentFromUserDate().toEpochDay());
+        output.writeLong(textMessage.getSentFromUserTime().toNanoOfDay());
+        boolean received = textMessage.getReceivedByServerDate() != null;
+        output.writeBoolean(received);
+        if (received){
+            output.writeLong(textMessage.getReceivedByServerDate().toEpochDay());
+            output.writeLong(textMessage.getReceivedByServerTime().toNanoOfDay());
+        }
+        output.writeLong(textMessage.getMessageNumber());
+        output.writeBoolean(textMessage.getMessageKey() != null);
+        if (textMessage.getMessageKey() != null){
+            output.writeUTF(textMessage.getMessageKey());
+        }
+    }
+
+    /**
+     * Reads a text message.
+     * @param input the input to read from.
+     * @return the message.
+     * @throws IOException gets thrown if the message could not be read.
+     */
+    static Message readMessage(DataInputStream input) throws IOException {
+        String contents = input.readUTF();
+        String fromUsername = input.readUTF();
+        LocalDate sentDate = LocalDate.ofEpochDay(input.readLong());
+        LocalTime sentTime = LocalTime.ofNanoOfDay(input.readLong());
+        LocalDate receivedDate = null;
+        LocalTime receivedTime = null;
+        if (input.readBoolean()){
+            receivedDate = LocalDate.ofEpochDay(input.readLong());
+            receivedTime = LocalTime.ofNanoOfDay(input.readLong());
+        }
+        long messageNumber = input.readLong();
+        String messageKey = input.readBoolean() ? input.readUTF() : null;
+        return new TextMessage(contents, fromUsername, sentDate, sentTime, receivedDate, receivedTime, messageNumber, messageKey);
+    }
+}
@@ -0,0 +1,364 @@
+package no.stonedstonar.chatapplication.backend.wal;
+
+import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.ServerConversationRegister;
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.NormalMembersRegister;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.userregister.UserRegister;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Represents a snapshot that has been loaded into the registers, and knows which records of the state log came after each part of it.
+ * <p>
+ * The file is read from the start to the end by one thread, while the conversations are decoded by a pool of threads.
+ * The conversations are added to the register in the order they are in the file, by the thread that reads it.
+ * A snapshot with a part that is missing or damaged is not loaded at all.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+final class StateSnapshot {
+
+    static final byte HEADER = 1;
+
+    static final byte USERS = 2;
+
+    static final byte CONVERSATION_LIST = 3;
+
+    static final byte CONVERSATION = 4;
+
+    static final byte MESSAGE_LOG = 5;
+
+    static final byte END = 6;
+
+    static final int VERSION = 4;
+
+    private static final int OLDEST_VERSION = 3;
+
+    private static final String SNAPSHOT_ENDING = ".snapshot";
+
+    private static final String TEMPORARY_ENDING = ".snapshot.tmp";
+
+    private static final int MAX_PENDING_CONVERSATIONS = 1024;
+
+    private final long startRecord;
+
+    private long conversationListRecord;
+
+    private final Map<Long, Long> conversationRecords;
+
+    /**
+      * Makes an instance of the StateSnapshot class.
+      * @param startRecord the number of the last record that came before the snapshot started.
+      */
+    private StateSnapshot(long startRecord){
+        this.startRecord = startRecord;
+        conversationRecords = new HashMap<>();
+    }
+
+    /**
+     * Gets a snapshot that has nothing in it, for when there is no snapshot to load.
+     * @return a snapshot where every record of the log comes after it.
+     */
+    static StateSnapshot makeEmptySnapshot(){
+        return new StateSnapshot(0);
+    }
+
+    /**
+     * Gets the number of the last record that came before the snapshot started. Every record after it must be replayed or skipped.
+     * @return the number of the record.
+     */
+    long getStartRecord(){
+        return startRecord;
+    }
+
+    /**
+     * Checks if the conversation a conversation record made is in the snapshot.
+     * @param recordNumber the number of the record that made the conversation.
+     * @return <code>true</code> if the conversation is in the snapshot.
+     *         <code>false</code> if it was made after the snapshot read the list of conversations.
+     */
+    boolean checkIfConversationIsMade(long recordNumber){
+        return recordNumber <= conversationListRecord;
+    }
+
+    /**
+     * Checks if the change of a record is in the snapshot of a conversation.
+     * @param conversationNumber the number of the conversation the record changes.
+     * @param recordNumber the number of the record.
+     * @return <code>true</code> if the change is in the snapshot.
+     *         <code>false</code> if the change came after the conversation was read, or the conversation is not in the snapshot.
+     */
+    boolean checkIfChangeIsIncluded(long conversationNumber, long recordNumber){
+        return recordNumber <= conversationRecords.getOrDefault(conversationNumber, 0L);
+    }
+
+    /**
+     * Loads the newest snapshot in a folder into the registers. The registers must be empty.
+     * @param directory the folder of the state log.
+     * @param userRegister the user register to add the users to.
+     * @param conversationRegister the conversation register to add the conversations to.
+     * @return the loaded snapshot, or an empty snapshot if there is none.
+     * @throws IOException gets thrown if the snapshot could not be read or is damaged.
+     */
+    static StateSnapshot loadNewest(Path directory, UserRegister userRegister, ServerConversationRegister conversationRegister) throws IOException {
+        List<Long> snapshots = listSnapshots(directory);
+        StateSnapshot stateSnapshot = makeEmptySnapshot();
+        if (!snapshots.isEmpty()){
+            Path path = getSnapshotPath(directory, snapshots.get(snapshots.size() - 1));
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))){
+                stateSnapshot = load(input, userRegister, conversationRegister);
+            }catch (IOException exception){
+                throw new IOException("The snapshot " + path + " could not be loaded. " + exception.getMessage(), exception);
+            }
+        }
+        return stateSnapshot;
+    }
+
+    /**
+     * Reads a snapshot and adds its users and conversations to the registers.
+     * @param input the input to read from.
+     * @param userRegister the user register.
+     * @param conversationRegister the conversation register.
+     * @return the loaded snapshot.
+     * @throws IOException gets thrown if the snapshot could not be read or is damaged.
+     */
+    private static StateSnapshot load(DataInputStream input, UserRegister userRegister, ServerConversationRegister conversationRegister) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(StateCodec.readRecord(input));
+        byte headerKind = header.get();
+        int version = header.getInt();
+        if (headerKind != HEADER || version < OLDEST_VERSION || version > VERSION){
+            throw new IOException("The snapshot does not start with a header this version can read.");
+        }
+        StateSnapshot stateSnapshot = new StateSnapshot(header.getLong());
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService decoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<ServerConversation>> pendingConversations = new ArrayDeque<>();
+        try {
+            int conversationsRead = 0;
+            boolean ended = false;
+            while (!ended){
+                byte[] record = StateCodec.readRecord(input);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                switch (buffer.get()){
+                    case USERS -> addUsers(record, userRegister);
+                    case CONVERSATION_LIST -> stateSnapshot.conversationListRecord = buffer.getLong();
+                    case CONVERSATION -> {
+                        long conversationRecord = buffer.getLong();
+                        long conversationNumber = buffer.getLong();
+                        stateSnapshot.conversationRecords.put(conversationNumber, conversationRecord);
+                        int amountOfLogs = buffer.getInt();
+                        List<byte[]> messageLogs = new ArrayList<>(amountOfLogs);
+                        for (int i = 0; i < amountOfLogs; i++){
+                            messageLogs.add(StateCodec.readRecord(input));
+                        }
+                        pendingConversations.add(decoders.submit(() -> decodeConversation(record, messageLogs, conversationRegister.getMessageLogFactory(), version)));
+                        conversationsRead += 1;
+                        while (pendingConversations.size() > MAX_PENDING_CONVERSATIONS){
+                            conversationRegister.addExistingConversation(waitForConversation(pendingConversations.poll()));
+                        }
+                    }
+                    case END -> {
+                        if (buffer.getInt() != conversationsRead){
+                            throw new IOException("The snapshot has " + conversationsRead + " conversations but should have had more.");
+                        }
+                        ended = true;
+                    }
+                    default -> throw new IOException("The snapshot has a part of a kind that is not valid.");
+                }
+            }
+            while (!pendingConversations.isEmpty()){
+                conversationRegister.addExistingConversation(waitForConversation(pendingConversations.poll()));
+            }
+        }catch (Exception exception){
+            pendingConversations.forEach(future -> future.cancel(true));
+            if (exception instanceof IOException ioException){
+                throw ioException;
+            }
+            throw new IOException("The snapshot could not be added to the registers. " + exception.getMessage(), exception);
+        }finally {
+            decoders.shutdownNow();
+        }
+        return stateSnapshot;
+    }
+
+    /**
+     * Waits for a conversation to be decoded.
+     * @param future the conversation that is being decoded.
+     * @return the conversation.
+     * @throws IOException gets thrown if the conversation could not be decoded, or the thread was interrupted.
+     */
+    private static ServerConversation waitForConversation(Future<ServerConversation> future) throws IOException {
+        try {
+            return future.get();
+        }catch (InterruptedException exception){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Was interrupted while the snapshot was loaded.");
+        }catch (ExecutionException exception){
+            throw new IOException("A conversation in the snapshot could not be decoded. " + exception.getCause().getMessage(), exception.getCause());
+        }
+    }
+
+    /**
+     * Reads and adds a part of the users.
+     * @param record the record with the users.
+     * @param userRegister the user register.
+     * @throws Exception gets thrown if the users could not be read or added.
+     */
+    private static void addUsers(byte[] record, UserRegister userRegister) throws Exception {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        int amount = input.readInt();
+        for (int i = 0; i < amount; i++){
+            userRegister.addUser(StateCodec.readUser(input));
+        }
+    }
+
+    /**
+     * Decodes a conversation with its members and message logs. A message log that still has the file the snapshot saw is opened as it is,
+     * and only the other logs are made again from their messages. Since version 4 the messages of a file are not in the snapshot,
+     * so a file that is missing or has changed cannot be made again.
+     * @param record the conversation record.
+     * @param messageLogRecords the records of the message logs of the conversation.
+     * @param messageLogFactory the factory that makes the message logs.
+     * @param version the version of the snapshot.
+     * @return the conversation.
+     * @throws IOException gets thrown if the conversation could not be decoded or its message logs could not be made.
+     */
+    private static ServerConversation decodeConversation(byte[] record, List<byte[]> messageLogRecords, ServerMessageLogFactory messageLogFactory, int version) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        input.readByte();
+        input.readLong();
+        long conversationNumber = input.readLong();
+        input.readInt();
+        String conversationName = input.readUTF();
+        LocalDate dateMade = LocalDate.ofEpochDay(input.readLong());
+        long lastMember = input.readLong();
+        long lastDeletedMember = input.readLong();
+        List<Member> members = StateCodec.readNumberedMembers(input);
+        List<Member> deletedMembers = StateCodec.readNumberedMembers(input);
+        List<ServerMessageLog> messageLogs = new ArrayList<>(messageLogRecords.size());
+        for (byte[] messageLogRecord : messageLogRecords){
+            DataInputStream logInput = new DataInputStream(new ByteArrayInputStream(messageLogRecord));
+            if (logInput.readByte() != MESSAGE_LOG){
+                throw new IOException("Expected a message log of the conversation " + conversationNumber + ".");
+            }
+            LocalDate date = LocalDate.ofEpochDay(logInput.readLong());
+            long lastMessageNumber = logInput.readLong();
+            long recordsLength = logInput.readLong();
+            int checksum = logInput.readInt();
+            ServerMessageLog messageLog = recordsLength > 0 ? messageLogFactory.openKeptMessageLog(conversationNumber, date, lastMessageNumber, recordsLength, checksum) : null;
+            if (messageLog == null && recordsLength > 0 && version > OLDEST_VERSION){
+                throw new IOException("The message file of " + date + " in the conversation " + conversationNumber + " is missing or has changed since the snapshot, and the snapshot does not have its messages.");
+            }
+            if (messageLog == null){
+                int amount = logInput.readInt();
+                List<Message> messages = new ArrayList<>(amount);
+                for (int i = 0; i < amount; i++){
+                    messages.add(StateCodec.readMessage(logInput));
+                }
+                try {
+                    messageLog = messageLogFactory.makeMessageLog(conversationNumber, date, messages, lastMessageNumber);
+                }catch (CouldNotAddMessageLogException exception){
+                    throw new IOException(exception.getMessage(), exception);
+                }
+            }
+            messageLogs.add(messageLog);
+        }
+        NormalMembersRegister membersRegister = new NormalMembersRegister(members, deletedMembers, lastMember, lastDeletedMember);
+        return new NormalServerConversation(conversationNumber, membersRegister, dateMade, conversationName, messageLogs, messageLogFactory);
+    }
+
+    /**
+     * Gets the path of a snapshot.
+     * @param directory the folder of the state log.
+     * @param startRecord the number of the last record that came before the snapshot started.
+     * @return the path of the snapshot.
+     */
+    static Path getSnapshotPath(Path directory, long startRecord){
+        return directory.resolve(String.format("%020d", startRecord) + SNAPSHOT_ENDING);
+    }
+
+    /**
+     * Gets the path a snapshot is written to before it is whole.
+     * @param directory the folder of the state log.
+     * @param startRecord the number of the last record that came before the snapshot started.
+     * @return the path of the temporary file.
+     */
+    static Path getTemporaryPath(Path directory, long startRecord){
+        return directory.resolve(String.format("%020d", startRecord) + TEMPORARY_ENDING);
+    }
+
+    /**
+     * Deletes the snapshots that started before a record, and temporary files that were left behind.
+     * @param directory the folder of the state log.
+     * @param startRecord the number of the record the newest snapshot started at.
+     * @throws IOException gets thrown if a snapshot could not be deleted.
+     */
+    static void deleteSnapshotsBefore(Path directory, long startRecord) throws IOException {
+        for (long snapshot : listFiles(directory, SNAPSHOT_ENDING)){
+            if (snapshot < startRecord){
+                Files.deleteIfExists(getSnapshotPath(directory, snapshot));
+            }
+        }
+        for (long temporaryFile : listFiles(directory, TEMPORARY_ENDING)){
+            if (temporaryFile < startRecord){
+                Files.deleteIfExists(getTemporaryPath(directory, temporaryFile));
+            }
+        }
+    }
+
+    /**
+     * Gets the numbers the snapshots in a folder started at, from the oldest to the newest.
+     * @param directory the folder of the state log.
+     * @return a list with the numbers.
+     * @throws IOException gets thrown if the folder could not be read.
+     */
+    private static List<Long> listSnapshots(Path directory) throws IOException {
+        return listFiles(directory, SNAPSHOT_ENDING);
+    }
+
+    /**
+     * Gets the numbers of the files in a folder that have an ending, from the lowest to the highest.
+     * @param directory the folder.
+     * @param ending the ending of the files.
+     * @return a list with the numbers.
+     * @throws IOException gets thrown if the folder could not be read.
+     */
+    private static List<Long> listFiles(Path directory, String ending) throws IOException {
+        try (Stream<Path> files = Files.list(directory)){
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(ending))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - ending.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
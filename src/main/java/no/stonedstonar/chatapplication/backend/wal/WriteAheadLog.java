@@ -0,0 +1,465 @@
+package no.stonedstonar.chatapplication.backend.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Represents a log that records are only added to, so they can be read back in the same order after a restart.
+ * Each record is written as its length, a CRC32C checksum of its bytes and the bytes themselves.
+ * <p>
+ * The log is a folder of segment files. Every record has a number that goes up by one for each record and is kept across restarts,
+ * and each segment is named after the number of its first record. When a segment gets too large a new one is started,
+ * so the segments with records that are no longer needed can be deleted as a whole.
+ * When the log is opened, a record at the end of the last segment that was only partly written or has a wrong checksum is cut away,
+ * since it was never confirmed to anyone.
+ * <p>
+ * Records are not written by the thread that adds them. They are put in a buffer, and one committer thread writes everything in the
+ * buffer with one write and one <code>fsync</code>. A thread that needs its record to be on the disk waits for the number of its record,
+ * so many threads that add records at the same time share the cost of one <code>fsync</code>. The committer can wait a little
+ * before each commit to gather larger batches, and forcing to the disk can be turned off when only a crash of the program should be survived.
+ * <p>
+ * The log is safe to use from many threads.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = StateCodec.HEADER_SIZE;
+
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_ENDING = ".wal";
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    private final long commitDelayNanos;
+
+    private final boolean forceToDisk;
+
+    private final Thread committer;
+
+    private final Logger logger;
+
+    private FileChannel fileChannel;
+
+    private ByteBuffer pendingBuffer;
+
+    private ByteBuffer writingBuffer;
+
+    private long lastAddedRecord;
+
+    private long lastDurableRecord;
+
+    private IOException failure;
+
+    private boolean closed;
+
+    /**
+      * Makes an instance of the WriteAheadLog class with segments of 64 MB.
+      * @param directory the folder of the log. The folder is made if it does not exist.
+      * @param commitDelayMicros how many microseconds the committer waits for more records before it writes a batch. Can be zero.
+      * @param forceToDisk <code>true</code> if each batch should be forced to the disk before it counts as written.
+      *                    <code>false</code> if a batch counts as written when the operating system has it.
+      * @throws IOException gets thrown if the log could not be opened or read.
+      */
+    public WriteAheadLog(Path directory, long commitDelayMicros, boolean forceToDisk) throws IOException {
+        this(directory, commitDelayMicros, forceToDisk, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+      * Makes an instance of the WriteAheadLog class and opens the last segment. A torn record at the end of it is cut away.
+      * @param directory the folder of the log. The folder is made if it does not exist.
+      * @param commitDelayMicros how many microseconds the committer waits for more records before it writes a batch. Can be zero.
+      * @param forceToDisk <code>true</code> if each batch should be forced to the disk before it counts as written.
+      *                    <code>false</code> if a batch counts as written when the operating system has it.
+      * @param segmentSize the size in bytes a segment can grow to before a new segment is started.
+      * @throws IOException gets thrown if the log could not be opened or read.
+      */
+    public WriteAheadLog(Path directory, long commitDelayMicros, boolean forceToDisk, long segmentSize) throws IOException {
+        checkIfObjectIsNull(directory, "directory");
+        if (commitDelayMicros < 0){
+            throw new IllegalArgumentException("The commit delay cannot be negative.");
+        }
+        if (segmentSize <= 0){
+            throw new IllegalArgumentException("The segment size must be above zero.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitDelayNanos = commitDelayMicros * 1000;
+        this.forceToDisk = forceToDisk;
+        logger = Logger.getLogger(getClass().toString());
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments();
+        long firstRecordInSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        Path segment = getSegmentPath(firstRecordInSegment);
+        fileChannel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validEnd = 0;
+        long recordsInSegment = 0;
+        byte[] record = readRecordAt(fileChannel, validEnd);
+        while (record != null){
+            validEnd += HEADER_SIZE + record.length;
+            recordsInSegment += 1;
+            record = readRecordAt(fileChannel, validEnd);
+        }
+        if (validEnd < fileChannel.size()){
+            logger.log(Level.WARNING, "Cut away " + (fileChannel.size() - validEnd) + " bytes at the end of " + segment + " that were not a whole record.");
+            fileChannel.truncate(validEnd);
+            fileChannel.force(true);
+        }
+        fileChannel.position(validEnd);
+        lastAddedRecord = firstRecordInSegment + recordsInSegment - 1;
+        lastDurableRecord = lastAddedRecord;
+        pendingBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        writingBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        committer = new Thread(this::runCommitter, "write-ahead-log-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Gets the folder the log is kept in.
+     * @return the folder of the log.
+     */
+    public Path getDirectory(){
+        return directory;
+    }
+
+    /**
+     * Reads all the records in the log, in the order they were added.
+     * @return a list with the bytes of each record. The first record has the number 1.
+     * @throws IOException gets thrown if the log could not be read, or the first records have been deleted.
+     */
+    public List<byte[]> readRecords() throws IOException {
+        return readRecords(0);
+    }
+
+    /**
+     * Reads the records that come after a record, in the order they were added. Segments that only have older records are not read.
+     * Should be done before any records are added, since records that are not written yet are not read.
+     * @param afterRecord the number of the last record that should not be read.
+     * @return a list with the bytes of each record. The first record in the list has the number <code>afterRecord + 1</code>.
+     * @throws IOException gets thrown if the log could not be read, or some of the records after the record have been deleted.
+     */
+    public List<byte[]> readRecords(long afterRecord) throws IOException {
+        List<Long> segments = listSegments();
+        List<byte[]> records = new ArrayList<>();
+        if (!segments.isEmpty() && segments.get(0) > afterRecord + 1){
+            throw new IOException("The log in " + directory + " starts at record " + segments.get(0) + ", so the records after " + afterRecord + " are not all there.");
+        }
+        for (int i = 0; i < segments.size(); i++){
+            long firstRecordInSegment = segments.get(i);
+            boolean hasNewerRecords = i == segments.size() - 1 || segments.get(i + 1) > afterRecord + 1;
+            if (hasNewerRecords){
+                readSegment(firstRecordInSegment, afterRecord, records);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Adds a record to the log. The record is written by the committer, so it is not on the disk when this method returns.
+     * @param record the bytes of the record.
+     * @return the number of the record, which can be given to {@link #awaitDurable(long)}.
+     * @throws IOException gets thrown if the log is closed or a write has failed before.
+     */
+    public synchronized long append(byte[] record) throws IOException {
+        checkIfObjectIsNull(record, "record");
+        if (record.length > MAX_RECORD_SIZE){
+            throw new IllegalArgumentException("The record cannot be larger than " + MAX_RECORD_SIZE + " bytes.");
+        }
+        checkIfLogCanBeUsed();
+        if (pendingBuffer.remaining() < HEADER_SIZE + record.length){
+            ByteBuffer largerBuffer = ByteBuffer.allocate(Math.max(pendingBuffer.capacity() * 2, pendingBuffer.position() + HEADER_SIZE + record.length));
+            pendingBuffer.flip();
+            largerBuffer.put(pendingBuffer);
+            pendingBuffer = largerBuffer;
+        }
+        pendingBuffer.putInt(record.length);
+        pendingBuffer.putInt(StateCodec.checksum(record));
+        pendingBuffer.put(record);
+        lastAddedRecord += 1;
+        notifyAll();
+        return lastAddedRecord;
+    }
+
+    /**
+     * Waits until a record and all the records before it are written.
+     * @param recordNumber the number of the record. Zero or below returns at once.
+     * @throws IOException gets thrown if the records could not be written, or the thread was interrupted while waiting.
+     */
+    public synchronized void awaitDurable(long recordNumber) throws IOException {
+        while (lastDurableRecord < recordNumber && failure == null && !(closed && !committer.isAlive())){
+            try {
+                wait();
+            }catch (InterruptedException exception){
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Was interrupted while waiting for record " + recordNumber + " to be written.");
+            }
+        }
+        if (lastDurableRecord < recordNumber){
+            throw new IOException("The record " + recordNumber + " could not be written to " + directory + ".", failure);
+        }
+    }
+
+    /**
+     * Gets the number of the last record that is added. The record might not be written yet.
+     * @return the number of the last added record, or zero if no record has been added.
+     */
+    public synchronized long getLastRecord(){
+        return lastAddedRecord;
+    }
+
+    /**
+     * Gets the number of the last record that is written.
+     * @return the number of the last written record.
+     */
+    public synchronized long getLastDurableRecord(){
+        return lastDurableRecord;
+    }
+
+    /**
+     * Deletes the segments that only have records up to a record. The segment that is written to is never deleted.
+     * @param recordNumber the number of the last record that is no longer needed.
+     * @return the amount of segments that were deleted.
+     * @throws IOException gets thrown if a segment could not be deleted.
+     */
+    public int deleteRecordsUpTo(long recordNumber) throws IOException {
+        List<Long> segments = listSegments();
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= recordNumber + 1; i++){
+            Files.deleteIfExists(getSegmentPath(segments.get(i)));
+            deleted += 1;
+        }
+        return deleted;
+    }
+
+    /**
+     * Writes the records that are added, stops the committer and closes the file.
+     * @throws IOException gets thrown if the last records could not be written or the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this){
+            if (closed){
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        }catch (InterruptedException exception){
+            Thread.currentThread().interrupt();
+        }
+        fileChannel.close();
+        synchronized (this){
+            if (failure != null){
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Writes the added records in batches until the log is closed. Starts a new segment when the segment gets too large.
+     */
+    private void runCommitter(){
+        try {
+            while (waitForRecords()){
+                if (commitDelayNanos > 0){
+                    LockSupport.parkNanos(commitDelayNanos);
+                }
+                long lastRecordInBatch;
+                synchronized (this){
+                    ByteBuffer buffer = pendingBuffer;
+                    pendingBuffer = writingBuffer;
+                    writingBuffer = buffer;
+                    lastRecordInBatch = lastAddedRecord;
+                }
+                writingBuffer.flip();
+                while (writingBuffer.hasRemaining()){
+                    fileChannel.write(writingBuffer);
+                }
+                if (forceToDisk){
+                    fileChannel.force(false);
+                }
+                writingBuffer.clear();
+                if (fileChannel.position() >= segmentSize){
+                    startNewSegment(lastRecordInBatch + 1);
+                }
+                synchronized (this){
+                    lastDurableRecord = lastRecordInBatch;
+                    notifyAll();
+                }
+            }
+        }catch (IOException exception){
+            logger.log(Level.SEVERE, "Could not write to " + directory + ", so no more changes can be kept. " + exception.getMessage());
+            synchronized (this){
+                failure = exception;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Closes the segment that is written to and starts a new one.
+     * @param firstRecordInSegment the number of the first record that goes in the new segment.
+     * @throws IOException gets thrown if the new segment could not be made.
+     */
+    private void startNewSegment(long firstRecordInSegment) throws IOException {
+        FileChannel newChannel = FileChannel.open(getSegmentPath(firstRecordInSegment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel oldChannel = fileChannel;
+        fileChannel = newChannel;
+        oldChannel.close();
+    }
+
+    /**
+     * Waits until there are records to write or the log is closed.
+     * @return <code>true</code> if there are records to write.
+     *         <code>false</code> if the log is closed and every record is written.
+     */
+    private synchronized boolean waitForRecords(){
+        while (pendingBuffer.position() == 0 && !closed){
+            try {
+                wait();
+            }catch (InterruptedException exception){
+                closed = true;
+            }
+        }
+        return pendingBuffer.position() > 0;
+    }
+
+    /**
+     * Checks if records can still be added, and throws an exception if not.
+     * @throws IOException gets thrown if the log is closed or a write has failed.
+     */
+    private void checkIfLogCanBeUsed() throws IOException {
+        if (failure != null){
+            throw new IOException("An earlier write to " + directory + " failed, so no more records can be added.", failure);
+        }
+        if (closed){
+            throw new IOException("The log " + directory + " is closed.");
+        }
+    }
+
+    /**
+     * Gets the numbers of the first records of all the segments, from the oldest to the newest segment.
+     * @return a list with the numbers.
+     * @throws IOException gets thrown if the folder could not be read.
+     */
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)){
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_ENDING))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_ENDING.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Gets the path of a segment.
+     * @param firstRecordInSegment the number of the first record in the segment.
+     * @return the path of the segment.
+     */
+    private Path getSegmentPath(long firstRecordInSegment){
+        return directory.resolve(String.format("%020d", firstRecordInSegment) + SEGMENT_ENDING);
+    }
+
+    /**
+     * Reads the records of a segment that come after a record.
+     * @param firstRecordInSegment the number of the first record in the segment.
+     * @param afterRecord the number of the last record that should not be read.
+     * @param records the list the records are added to.
+     * @throws IOException gets thrown if the segment could not be read.
+     */
+    private void readSegment(long firstRecordInSegment, long afterRecord, List<byte[]> records) throws IOException {
+        try (FileChannel segment = FileChannel.open(getSegmentPath(firstRecordInSegment), StandardOpenOption.READ)){
+            long position = 0;
+            long recordNumber = firstRecordInSegment;
+            byte[] record = readRecordAt(segment, position);
+            while (record != null){
+                if (recordNumber > afterRecord){
+                    records.add(record);
+                }
+                position += HEADER_SIZE + record.length;
+                recordNumber += 1;
+                record = readRecordAt(segment, position);
+            }
+        }
+    }
+
+    /**
+     * Reads the record that starts at a position in a segment.
+     * @param channel the segment to read from.
+     * @param position the position of the header of the record.
+     * @return the bytes of the record, or <code>null</code> if there is no whole record with a right checksum at the position.
+     * @throws IOException gets thrown if the file could not be read.
+     */
+    private byte[] readRecordAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(channel, header, position)){
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        int expectedChecksum = header.getInt();
+        if (length < 0 || length > MAX_RECORD_SIZE){
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (!readFully(channel, body, position + HEADER_SIZE)){
+            return null;
+        }
+        return StateCodec.checksum(body.array()) == expectedChecksum ? body.array() : null;
+    }
+
+    /**
+     * Fills a buffer with the bytes of a file from a position.
+     * @param channel the file to read from.
+     * @param buffer the buffer to fill.
+     * @param position the position to read from.
+     * @return <code>true</code> if the buffer was filled.
+     *         <code>false</code> if the file ended before the buffer was full.
+     * @throws IOException gets thrown if the file could not be read.
+     */
+    private boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long readPosition = position;
+        while (buffer.hasRemaining()){
+            int read = channel.read(buffer, readPosition);
+            if (read < 0){
+                return false;
+            }
+            readPosition += read;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package no.stonedstonar.chatapplication.frontend;
 
 import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.personal.NormalPersonalConversationRegister;
 import no.stonedstonar.chatapplication.model.conversationregister.personal.PersonalConversationRegister;
 import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
@@ -22,31 +23,49 @@ import no.stonedstonar.chatapplication.model.message.TextMessage;
 import no.stonedstonar.chatapplication.model.user.User;
 import no.stonedstonar.chatapplication.network.requests.*;
 import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
 import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
 import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
 import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
 import no.stonedstonar.chatapplication.network.transport.LoginTransport;
 import no.stonedstonar.chatapplication.network.transport.MemberTransport;
 import no.stonedstonar.chatapplication.network.transport.MessageTransport;
 import no.stonedstonar.chatapplication.network.transport.PersonalConversationTransport;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * A class that represents the logic that the chat client should hold.
+ * All the requests go over one connection to the server that is kept open while the user is logged in.
+ * The requests that the user makes from the window can also be sent with the methods that end with <code>Async</code>.
+ * They run on the client's own I/O threads and give back a future at once, so the thread that calls them never waits for the server.
+ * The messages that are sent that way go through a {@link MessageOutbox}, which sends the messages that are written close together
+ * in one request and keeps the messages that could not be sent until the server can be reached again.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
 public class ChatClient {
 
+    private static final long MIN_RECONNECT_DELAY = 500;
+
+    private static final long MAX_RECONNECT_DELAY = 30000;
+
     private User endUser;
 
     private volatile PersonalConversationRegister personalConversationRegister;
@@ -57,29 +76,71 @@ public class ChatClient {
 
     private final int portNumber;
 
-    private long conversationFocus;
+    private volatile long conversationFocus;
 
-    private boolean runBackgroundThread;
+    private volatile boolean runBackgroundThread;
 
-    private boolean threadStopped;
+    private volatile boolean threadStopped;
 
     private final String invalidResponse;
 
     private Thread checkingThread;
 
+    private ServerConnection serverConnection;
+
+    private volatile ServerConnection loggedInConnection;
+
+    private final BlockingQueue<Object> pushedUpdates;
+
+    private final ExecutorService ioExecutor;
+
+    private volatile long requestTimeout;
+
+    private final Path clientDirectory;
+
+    private volatile MessageOutbox messageOutbox;
+
+    private ConversationCache conversationCache;
+
     /**
-      * Makes an instance of the ChatClient class.
+      * Makes an instance of the ChatClient class that keeps its files in the folder <code>.chatapplication</code> in the home folder of the user.
       */
     public ChatClient(){
+        this(Path.of(System.getProperty("user.home"), ".chatapplication"));
+    }
+
+    /**
+      * Makes an instance of the ChatClient class.
+      * @param clientDirectory the folder the client keeps its files in, like the messages that are not sent yet and the conversations of the last login.
+      */
+    public ChatClient(Path clientDirectory){
+        checkIfObjectIsNull(clientDirectory, "client directory");
+        this.clientDirectory = clientDirectory;
         logger = Logger.getLogger(getClass().toString());
         host = "localhost";
         portNumber = 1380;
         conversationFocus = 0;
         invalidResponse = "The response from the server was invalid format.";
+        pushedUpdates = new LinkedBlockingQueue<>();
+        requestTimeout = 10000;
+        ioExecutor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "chat-client-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets how long the asynchronous requests can wait for the server before they fail with a TimeoutException.
+     * @param requestTimeout the timeout in milliseconds.
+     */
+    public void setRequestTimeout(long requestTimeout){
+        checkIfLongIsNegative(requestTimeout, "request timeout");
+        this.requestTimeout = requestTimeout;
     }
 
     /**
-     * Logs the user out and clears all the data.
+     * Logs the user out, closes the connection to the server and clears all the data.
      */
     public void logOutOfUser(){
         stopBackgroundThread();
@@ -90,8 +151,12 @@ public class ChatClient {
                 logWaringError(e);
             }
         }
+        closeServerConnection();
+        closeMessageOutbox();
+        saveConversationCache();
         conversationFocus = 0;
         endUser = null;
+        conversationCache = null;
         personalConversationRegister = null;
     }
 
@@ -113,48 +178,32 @@ public class ChatClient {
     }
 
     /**
-     * Sets the run boolean to false and interrupts the thread.
+     * Sets the run boolean to false so the thread stops.
      */
     public void stopBackgroundThread(){
         runBackgroundThread = false;
     }
 
     /**
-     * Starts the message listening thread.
+     * Starts the thread that keeps the conversations up to date.
+     * The thread subscribes to the updates of the user over the connection and the server pushes every change as soon as it happens.
+     * If the subscription cannot be made or the connection is lost, the thread asks the server for updates for a while and then subscribes again.
+     * The time it waits is doubled for each try that fails, up to half a minute, and goes back to half a second when a subscription is made.
+     * Errors while listening or asking are logged, so the thread keeps going until it is stopped.
      */
     public void startBackgroundThread(){
         runBackgroundThread = true;
         threadStopped = false;
         checkingThread = new Thread(() -> {
-            try {
-                int count = 0;
-                long currentMessageLogForThread = conversationFocus;
-                ObservableConversation observableConversation = null;
-                if (currentMessageLogForThread > 0){
-                     observableConversation = getConversationByNumber(currentMessageLogForThread);
+            long reconnectDelay = MIN_RECONNECT_DELAY;
+            while (runBackgroundThread){
+                if (listenForUpdates()){
+                    reconnectDelay = MIN_RECONNECT_DELAY;
+                }
+                if (runBackgroundThread){
+                    pollForUpdates(reconnectDelay);
+                    reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
                 }
-                do {
-                    if (currentMessageLogForThread != this.conversationFocus){
-                        currentMessageLogForThread = this.conversationFocus;
-                        observableConversation = getConversationByNumber(currentMessageLogForThread);
-                    }
-                    if (count == 4){
-                        checkForNewMessages();
-                        checkForNewMembers();
-                        checkForNewConversations();
-                        checkConversationsForNewNames();
-                        count = 0;
-                    }else {
-                        if (currentMessageLogForThread != 0 && observableConversation != null){
-                            checkIFCurrentConversationHasNewMessages(observableConversation);
-                        }
-                        count += 1;
-                    }
-                    Thread.sleep(1500);
-                } while(runBackgroundThread);
-            }catch (CouldNotAddMessageException | IOException | InvalidResponseException | CouldNotGetMessageLogException | InterruptedException | UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException exception) {
-                logWaringError(exception);
-                stopBackgroundThread();
             }
             threadStopped = true;
         });
@@ -162,10 +211,217 @@ public class ChatClient {
     }
 
     /**
-     * Stops all the threads.
+     * Subscribes to the updates of the user and applies every update the server pushes until the thread is stopped or the connection is lost.
+     * A connection that was made after the login is logged in again first, since the server only pushes to connections that are logged in.
+     * All the conversations are checked once after the subscription is made, so nothing that happened before it is missed.
+     * An update that could not be applied is logged and the thread keeps listening.
+     * @return <code>true</code> if the subscription was made.
+     *         <code>false</code> if the subscription could not be made.
+     */
+    private boolean listenForUpdates(){
+        ServerConnection connection = null;
+        boolean subscribed = false;
+        try {
+            connection = getServerConnection();
+            if (connection != loggedInConnection){
+                logInAgain(connection);
+            }
+            pushedUpdates.clear();
+            connection.setPushListener(pushedUpdates::add);
+            Object object = connection.sendRequestAndWait(new SubscribeRequest(getUsername()));
+            if (object instanceof SubscribeRequest){
+                subscribed = true;
+                MessageOutbox outbox = messageOutbox;
+                if (outbox != null){
+                    outbox.retryNow();
+                }
+                checkForUpdatesAndLogErrors();
+                while (runBackgroundThread && !connection.isClosed()){
+                    Object update = pushedUpdates.poll(500, TimeUnit.MILLISECONDS);
+                    if (update != null){
+                        ObservableConversation conversationWithGap = applyUpdate(update);
+                        if (conversationWithGap != null){
+                            checkConversationAfterGap(conversationWithGap);
+                        }
+                    }
+                }
+            }else if (object instanceof Exception exception){
+                logWaringError(exception);
+            }
+        }catch (IOException | InvalidResponseException | CouldNotLoginToUserException exception){
+            if (runBackgroundThread){
+                logWaringError(exception);
+            }
+        }catch (InterruptedException exception){
+            Thread.currentThread().interrupt();
+            stopBackgroundThread();
+        }finally {
+            if (connection != null){
+                connection.setPushListener(update -> {});
+            }
+        }
+        return subscribed;
+    }
+
+    /**
+     * Logs in again over a connection that was made after the login, so the connection can subscribe to the updates.
+     * The cursors of the conversations are sent with it so the answer is small. The changes in the answer are not used,
+     * since all the conversations are checked when the subscription is made.
+     * @param connection the new connection.
+     * @throws IOException gets thrown if the connection is lost.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     * @throws CouldNotLoginToUserException gets thrown if the server does not let the user log in.
+     */
+    private void logInAgain(ServerConnection connection) throws IOException, InvalidResponseException, CouldNotLoginToUserException {
+        List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+        getPersonalConversationRegister().getIterator().forEachRemaining(conversation -> conversationCursors.add(makeConversationCursor(conversation)));
+        UserRequest userRequest = new UserRequestBuilder().setLogin(true).setUsername(getUsername()).setPassword(endUser.getPassword()).addConversationCursors(conversationCursors).build();
+        Object object = connection.sendRequestAndWait(userRequest);
+        if (object instanceof LoginTransport){
+            loggedInConnection = connection;
+        }else if (object instanceof CouldNotLoginToUserException exception){
+            throw exception;
+        }else {
+            throw new InvalidResponseException(invalidResponse);
+        }
+    }
+
+    /**
+     * Checks all the conversations for updates. A change that could not be applied is logged, so it does not stop the thread.
+     * @throws IOException gets thrown if the connection is lost.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     */
+    private void checkForUpdatesAndLogErrors() throws IOException, InvalidResponseException {
+        try {
+            checkForUpdates();
+        }catch (CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException | IllegalArgumentException exception){
+            logWaringError(exception);
+        }
+    }
+
+    /**
+     * Asks for the messages a conversation is missing before the messages that were pushed. A message that could not be added is logged,
+     * so it does not stop the thread.
+     * @param observableConversation the conversation that is missing messages.
+     * @throws IOException gets thrown if the connection is lost.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     */
+    private void checkConversationAfterGap(ObservableConversation observableConversation) throws IOException, InvalidResponseException {
+        try {
+            checkConversationForNewMessages(observableConversation);
+        }catch (CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | IllegalArgumentException exception){
+            logWaringError(exception);
+        }
+    }
+
+    /**
+     * Asks the server for updates every 1.5 seconds for a while, or until the thread is stopped.
+     * The conversation in focus is checked for new messages each time and everything else every fifth time, and the first time.
+     * A check that fails is logged, so the thread keeps going. If the server cannot be reached the thread only waits for the rest of the time.
+     * @param duration how long to ask for updates in milliseconds.
+     */
+    private void pollForUpdates(long duration){
+        long deadline = System.currentTimeMillis() + duration;
+        int count = 0;
+        boolean reachable = true;
+        try {
+            while (runBackgroundThread && System.currentTimeMillis() < deadline){
+                try {
+                    if (reachable && count == 0){
+                        checkForUpdates();
+                    }else if (reachable && conversationFocus > 0){
+                        checkIFCurrentConversationHasNewMessages(getConversationByNumber(conversationFocus));
+                    }
+                }catch (IOException exception){
+                    logWaringError(exception);
+                    reachable = false;
+                }catch (CouldNotAddMessageException | InvalidResponseException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException | IllegalArgumentException exception){
+                    logWaringError(exception);
+                }
+                count = (count + 1) % 5;
+                Thread.sleep(Math.max(0, Math.min(1500, deadline - System.currentTimeMillis())));
+            }
+        }catch (InterruptedException exception){
+            Thread.currentThread().interrupt();
+            stopBackgroundThread();
+        }
+    }
+
+    /**
+     * Checks all the conversations for new messages, members and names, and checks for new conversations in one round trip.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws IOException gets thrown if the socket failed to be made.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     * @throws CouldNotGetMessageLogException gets thrown if the server can't find a message log.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of a conversation.
+     * @throws CouldNotGetConversationException gets thrown if a conversation could not be found.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be found.
+     * @throws CouldNotRemoveMemberException gets thrown if a member could not be removed.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     * @throws CouldNotAddConversationException gets thrown if a conversation could not be added.
+     */
+    private void checkForUpdates() throws CouldNotAddMessageException, IOException, InvalidResponseException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException, CouldNotGetConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException, CouldNotAddConversationException {
+        syncConversations();
+    }
+
+    /**
+     * Applies an update the server has pushed. An update that was already applied by a check is skipped.
+     * Pushed messages are only added if the first of them comes right after the newest message the conversation has.
+     * If it does not, a message between them is missing, and the conversation is given back so the missing messages can be asked for,
+     * instead of moving the cursor past them.
+     * An update that cannot be applied is logged, so one bad update does not stop the subscription.
+     * @param update the object the server pushed.
+     * @return the conversation that is missing messages before the pushed ones, or <code>null</code> if nothing is missing.
+     */
+    private synchronized ObservableConversation applyUpdate(Object update){
+        ObservableConversation conversationWithGap = null;
+        try {
+            if (update instanceof MessageRequest messageRequest){
+                ObservableConversation observableConversation = getConversationByNumber(messageRequest.getConversationNumber());
+                List<Message> messages = messageRequest.getMessageTransportList().stream().filter(MessageTransport::isAddMessage).map(MessageTransport::getMessage).toList();
+                if (checkIfMessagesFollowCursor(observableConversation, messages)){
+                    addNewMessages(observableConversation, messages);
+                }else {
+                    conversationWithGap = observableConversation;
+                }
+            }else if (update instanceof MembersRequest membersRequest){
+                ObservableConversation observableConversation = getConversationByNumber(membersRequest.getConversationNumber());
+                updateMembers(observableConversation, membersRequest.getMembers());
+            }else if (update instanceof ConversationRequest conversationRequest){
+                updateConversationNames(conversationRequest.getNewConversationNamesMap());
+            }else if (update instanceof PersonalConversationTransport personalConversationTransport){
+                addNewConversations(personalConversationTransport.getPersonalConversationList());
+            }else {
+                throw new InvalidResponseException(invalidResponse);
+            }
+        }catch (CouldNotGetConversationException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException | InvalidResponseException | IllegalArgumentException exception){
+            logWaringError(exception);
+        }
+        return conversationWithGap;
+    }
+
+    /**
+     * Checks if pushed messages can be added without skipping any message. The messages are fine if they are all known already,
+     * or if the first new message has the number right after the newest message of the conversation.
+     * @param observableConversation the conversation the messages are for.
+     * @param messages the pushed messages, with the lowest number first.
+     * @return <code>true</code> if no message is missing before the pushed ones.
+     *         <code>false</code> if the conversation should ask for the messages after its cursor.
+     */
+    private boolean checkIfMessagesFollowCursor(ObservableConversation observableConversation, List<Message> messages){
+        long lastMessageNumber = observableConversation.getLastMessageNumber();
+        return messages.stream().mapToLong(Message::getMessageNumber).filter(number -> number > lastMessageNumber).min().orElse(lastMessageNumber + 1) == lastMessageNumber + 1;
+    }
+
+    /**
+     * Stops all the threads and closes the connection to the server.
      */
     public void stopAllThreads(){
         runBackgroundThread = false;
+        ioExecutor.shutdownNow();
+        closeServerConnection();
+        closeMessageOutbox();
+        saveConversationCache();
     }
 
     /**
@@ -197,8 +453,7 @@ public class ChatClient {
      * @throws CouldNotGetMessageLogException gets thrown if the conversation for that date could not be found.
      */
     private void checkIFCurrentConversationHasNewMessages(ObservableConversation observableConversation) throws UsernameNotPartOfConversationException, IOException, CouldNotAddMessageException, InvalidResponseException, CouldNotGetMessageLogException {
-        Socket socket = new Socket(host, portNumber);
-        checkConversationForNewMessages(observableConversation, socket);
+        checkConversationForNewMessages(observableConversation);
     }
 
     /**
@@ -253,14 +508,13 @@ public class ChatClient {
         checkIfObjectIsNull(nameOfConversation, "name of conversation");
         List<Member> members = new ArrayList<>();
         usernames.forEach(name -> members.add(new ConversationMember(name)));
-        try (Socket socket = new Socket("localhost", 1380)){
+        try {
             ConversationRequestBuilder conversationRequestBuilder = new ConversationRequestBuilder().setNewConversation(true).addMembers(members);
             if (!nameOfConversation.isEmpty()){
                 conversationRequestBuilder.addConversationName(nameOfConversation);
             }
             ConversationRequest conversationRequest = conversationRequestBuilder.build();
-            sendObject(conversationRequest, socket);
-            Object object = getObject(socket);
+            Object object = sendRequest(conversationRequest);
             if (!(object instanceof ObservableConversation)){
                 if (object instanceof CouldNotAddMessageLogException exception){
                     throw exception;
@@ -277,7 +531,7 @@ public class ChatClient {
     }
 
     /**
-     * Sends a message to a person if this client is logged in.
+     * Sends a message to a person if this client is logged in. The message is sent at once and not through the outbox.
      * @param messageContents the contents of the message.
      * @param observableConversation the conversation that holds the conversation number.
      * @throws CouldNotGetMessageLogException gets thrown if the server could not get the conversation.
@@ -287,28 +541,85 @@ public class ChatClient {
     public void sendMessage(String messageContents, ObservableConversation observableConversation) throws IOException, CouldNotAddMessageException, CouldNotGetMessageLogException, InvalidResponseException {
         checkString(messageContents, "message");
         checkIfObjectIsNull(observableConversation, "observable conversation");
-        try (Socket socket = new Socket(host, portNumber)){
-            TextMessage textMessage = new TextMessage(messageContents, endUser.getUsername());
-            List<MessageTransport> messageTransportList = new ArrayList<>();
-            messageTransportList.add(new MessageTransport(textMessage, true));
-            MessageRequest messageRequest = new MessageRequestBuilder().addMessageTransportList(messageTransportList).addConversationNumber(observableConversation.getConversationNumber()).build();
-            sendObject(messageRequest, socket);
-            Object object = getObject(socket);
-            if (!(object instanceof  MessageRequest)){
-                if (object instanceof CouldNotAddMessageException exception){
-                    throw exception;
-                }else if (object instanceof CouldNotGetMessageLogException exception){
-                    throw exception;
-                }else {
-                    throw new InvalidResponseException(invalidResponse);
-                }
-            }
+        try {
+            List<Message> messages = new ArrayList<>();
+            messages.add(new TextMessage(messageContents, endUser.getUsername()));
+            sendMessages(observableConversation.getConversationNumber(), messages);
         } catch (IOException | CouldNotAddMessageException | InvalidResponseException | CouldNotGetMessageLogException exception){
             logWaringError(exception);
             throw exception;
         }
     }
 
+    /**
+     * Sends many messages to a conversation in one request.
+     * @param conversationNumber the number of the conversation.
+     * @param messages the messages to send, with the oldest first.
+     * @throws IOException gets thrown if something fails in the socket, or if the server could not store the messages.
+     * @throws CouldNotAddMessageException gets thrown if the server could not add the messages.
+     * @throws CouldNotGetMessageLogException gets thrown if the server could not get the conversation.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     */
+    private void sendMessages(long conversationNumber, List<Message> messages) throws IOException, CouldNotAddMessageException, CouldNotGetMessageLogException, InvalidResponseException {
+        List<MessageTransport> messageTransportList = new ArrayList<>();
+        messages.forEach(message -> messageTransportList.add(new MessageTransport(message, true)));
+        MessageRequest messageRequest = new MessageRequestBuilder().addMessageTransportList(messageTransportList).addConversationNumber(conversationNumber).build();
+        Object object = sendRequest(messageRequest);
+        if (!(object instanceof  MessageRequest)){
+            if (object instanceof CouldNotAddMessageException exception){
+                throw exception;
+            }else if (object instanceof CouldNotGetMessageLogException exception){
+                throw exception;
+            }else if (object instanceof IOException exception){
+                throw exception;
+            }else {
+                throw new InvalidResponseException(invalidResponse);
+            }
+        }
+    }
+
+    /**
+     * Opens the outbox of the user that is logged in. The messages that were not sent the last time the user was logged in are sent again.
+     * @throws IOException gets thrown if the file of the outbox could not be read.
+     */
+    private synchronized void openMessageOutbox() throws IOException {
+        closeMessageOutbox();
+        messageOutbox = new MessageOutbox(clientDirectory.resolve(getUsername() + ".outbox"), this::sendMessages);
+    }
+
+    /**
+     * Closes the outbox if there is one. The messages that are not sent are kept in its file.
+     */
+    private synchronized void closeMessageOutbox(){
+        if (messageOutbox != null){
+            messageOutbox.close();
+            messageOutbox = null;
+        }
+    }
+
+    /**
+     * Writes the conversations of the user that is logged in to the cache, so the next login only needs what has changed since.
+     * A cache that could not be written is only logged, since the next login then gets the conversations from the server.
+     */
+    private synchronized void saveConversationCache(){
+        if (conversationCache != null && personalConversationRegister != null){
+            try {
+                conversationCache.writeConversations(personalConversationRegister.getIterator());
+            }catch (IOException exception){
+                logWaringError(exception);
+            }
+        }
+    }
+
+    /**
+     * Gets how many messages the outbox has that are not sent yet.
+     * @return the number of unsent messages.
+     */
+    public int getUnsentMessagesCount(){
+        MessageOutbox outbox = messageOutbox;
+        return outbox != null ? outbox.getUnsentMessagesCount() : 0;
+    }
+
     /**
      * Gets the conversation that matches that long number.
      * @param messageLogNumber the number that conversation has.
@@ -320,7 +631,8 @@ public class ChatClient {
     }
 
     /**
-     * Logs the client in as a user.
+     * Logs the client in as a user. The conversations from the last login of the user are read from the cache and their cursors are sent with the login,
+     * so the server only answers with what has changed since. The conversations that are not in the cache are sent in full.
      * @param username the username of the user.
      * @param password the password that the user has.
      * @throws IOException gets thrown if the socket failed to be made.
@@ -330,13 +642,17 @@ public class ChatClient {
     public void loginToUser(String username, String password) throws IOException, CouldNotLoginToUserException, InvalidResponseException {
         checkString(username, "username ");
         checkString(password, "password");
-        try (Socket socket = new Socket(host, portNumber)){
-            UserRequest userRequest = new UserRequestBuilder().setLogin(true).setUsername(username).setPassword(password).build();
-            sendObject(userRequest, socket);
-            Object object = getObject(socket);
+        try {
+            ConversationCache cache = new ConversationCache(clientDirectory.resolve(username + ".cache"));
+            List<ObservableConversation> cachedConversations = cache.readConversations();
+            List<ConversationCursorTransport> conversationCursors = cachedConversations.stream().map(this::makeConversationCursor).toList();
+            UserRequest userRequest = new UserRequestBuilder().setLogin(true).setUsername(username).setPassword(password).addConversationCursors(conversationCursors).build();
+            ServerConnection connection = getServerConnection();
+            Object object = connection.sendRequestAndWait(userRequest);
             if (object instanceof LoginTransport loginTransport){
-                this.endUser = loginTransport.getUser();
-                personalConversationRegister = loginTransport.getPersonalConversationRegister();
+                loggedInConnection = connection;
+                applyLogin(loginTransport, cachedConversations, cache);
+                openMessageOutbox();
             }else if (object instanceof CouldNotLoginToUserException exception){
                 throw exception;
             }else if (object instanceof IllegalArgumentException exception){
@@ -349,6 +665,46 @@ public class ChatClient {
         }
     }
 
+    /**
+     * Makes the personal conversation register from the answer to a login. The cached conversations the server sent changes for are patched and kept,
+     * and the rest of the cached conversations are dropped. A cached conversation the changes could not be applied to is also dropped,
+     * and is sent in full by the sync the client does when it starts to listen for updates.
+     * @param loginTransport the answer from the server.
+     * @param cachedConversations the conversations that were read from the cache.
+     * @param cache the cache of the user.
+     */
+    private synchronized void applyLogin(LoginTransport loginTransport, List<ObservableConversation> cachedConversations, ConversationCache cache){
+        this.endUser = loginTransport.getUser();
+        this.conversationCache = cache;
+        NormalPersonalConversationRegister conversationRegister = loginTransport.getPersonalConversationRegister();
+        if (!cachedConversations.isEmpty()){
+            Map<Long, ObservableConversation> conversationMap = new HashMap<>();
+            cachedConversations.forEach(conversation -> conversationMap.put(conversation.getConversationNumber(), conversation));
+            conversationRegister = new NormalPersonalConversationRegister(new ArrayList<>(), getUsername());
+            for (ConversationChangesTransport conversationChanges : loginTransport.getConversationChanges()){
+                ObservableConversation observableConversation = conversationMap.get(conversationChanges.getConversationNumber());
+                try {
+                    if (observableConversation != null){
+                        applyConversationChanges(observableConversation, conversationChanges);
+                        conversationRegister.addConversation(observableConversation);
+                    }
+                }catch (CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException | IllegalArgumentException exception){
+                    logWaringError(exception);
+                }
+            }
+            Iterator<ObservableConversation> it = loginTransport.getPersonalConversationRegister().getIterator();
+            while (it.hasNext()){
+                ObservableConversation observableConversation = it.next();
+                try {
+                    conversationRegister.addConversation(observableConversation);
+                }catch (CouldNotAddConversationException exception){
+                    logWaringError(exception);
+                }
+            }
+        }
+        personalConversationRegister = conversationRegister;
+    }
+
     /**
      * Makes it possible to edit the conversation.
      * @param namesToAdd a list with all the names to add.
@@ -366,15 +722,11 @@ public class ChatClient {
         checkIfObjectIsNull(namesToAdd, "names to add");
         checkIfObjectIsNull(namesToRemove, "names to remove");
         checkIfObjectIsNull(observableConversation, "personal conversation");
-        try (Socket socket = new Socket(host, portNumber)){
-            SetKeepAliveRequest setKeepAliveRequest = new SetKeepAliveRequest(true);
-            sendObject(setKeepAliveRequest, socket);
+        try {
             if ((!conversationName.isEmpty()) && (!conversationName.equals(observableConversation.getConversationName()))){
-                editConversationName(observableConversation, conversationName, socket);
+                editConversationName(observableConversation, conversationName);
             }
-            addOrRemoveMembers(observableConversation, namesToAdd, namesToRemove, socket);
-            SetKeepAliveRequest setStopAlive = new SetKeepAliveRequest(false);
-            sendObject(setStopAlive, socket);
+            addOrRemoveMembers(observableConversation, namesToAdd, namesToRemove);
         }catch (Exception object){
             logWaringError(object);
             if (object instanceof CouldNotAddMemberException exception){
@@ -395,15 +747,13 @@ public class ChatClient {
      * Makes it possible to edit a conversations name.
      * @param observableConversation the observable conversation to be edited.
      * @param newName the new name of the conversation.
-     * @param socket the socket this communication should happen over.
      * @throws Exception gets thrown if something goes wrong
      */
-    private void editConversationName(ObservableConversation observableConversation, String newName, Socket socket) throws Exception {
+    private void editConversationName(ObservableConversation observableConversation, String newName) throws Exception {
         List<Long> conversationNumberList = new ArrayList<>();
         conversationNumberList.add(observableConversation.getConversationNumber());
         ConversationRequest conversationRequest = new ConversationRequestBuilder().addConversationName(newName).addUsername(endUser.getUsername()).addConversationNumberList(conversationNumberList).build();
-        sendObject(conversationRequest, socket);
-        Object object = getObject(socket);
+        Object object = sendRequest(conversationRequest);
         if (object instanceof ConversationRequest){
             observableConversation.setConversationName(newName);
         }else if (object instanceof Exception exception){
@@ -421,7 +771,7 @@ public class ChatClient {
      * @param removeNames  the names to remove as a list.
      * @throws Exception gets thrown if the response from the server is an exception or the socket closed unexpected.
      */
-    private void addOrRemoveMembers(ObservableConversation observableConversation, List<String> addNames, List<String> removeNames, Socket socket) throws Exception {
+    private void addOrRemoveMembers(ObservableConversation observableConversation, List<String> addNames, List<String> removeNames) throws Exception {
         if ((!addNames.isEmpty()) || (!removeNames.isEmpty())){
             List<MemberTransport> memberTransportList = new ArrayList<>();
             if (!addNames.isEmpty()){
@@ -431,8 +781,7 @@ public class ChatClient {
                 removeNames.forEach(name -> memberTransportList.add(new MemberTransport(new ConversationMember(name), false)));
             }
             MembersRequest membersRequest = new MembersRequestBuilder().addMemberTransports(memberTransportList).addConversationNumber(observableConversation.getConversationNumber()).addUsername(getUsername()).build();
-            sendObject(membersRequest, socket);
-            Object object = getObject(socket);
+            Object object = sendRequest(membersRequest);
             if (!(object instanceof MembersRequest)){
                 if (object instanceof Exception exception){
                     throw exception;
@@ -444,71 +793,223 @@ public class ChatClient {
     }
 
     /**
-     * Checks all the conversations for new messages.
-     * @throws IOException gets thrown if the socket failed to be made.
+     * Checks for new messages and adds them if need be.
+     * @param observableConversation the conversation you want to check.
+     * @throws IOException gets thrown if the connection to the server is lost.
      * @throws InvalidResponseException gets thrown if the class could not be found for that object or the response is a different object than expected.
-     * @throws CouldNotAddMessageException gets thrown if the text message could not be added.
+     * @throws CouldNotAddMessageException gets thrown if the text message could not be added to the local message log.
      * @throws CouldNotGetMessageLogException gets thrown if the server can't find the conversation.
      * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the specified conversation.
      */
-    private void checkForNewMessages() throws CouldNotAddMessageException, IOException, InvalidResponseException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
-        Iterator<ObservableConversation> it = getPersonalConversationRegister().getIterator();
-        if (it.hasNext()){
-            try (Socket socket = new Socket(host, portNumber)){
-                socket.setKeepAlive(true);
-                SetKeepAliveRequest setKeepAliveRequest = new SetKeepAliveRequest(true);
-                sendObject(setKeepAliveRequest, socket);
-                while(it.hasNext()) {
-                    ObservableConversation log = it.next();
-                    checkConversationForNewMessages(log, socket);
-                }
-                SetKeepAliveRequest notKeepAlive = new SetKeepAliveRequest(false);
-                sendObject(notKeepAlive, socket);
-            } catch (IOException | InvalidResponseException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException exception) {
-                logWaringError(exception);
-                throw exception;
-            }
+    public void checkConversationForNewMessages(ObservableConversation observableConversation) throws IOException, CouldNotAddMessageException, CouldNotGetMessageLogException, InvalidResponseException, UsernameNotPartOfConversationException {
+        checkIfObjectIsNull(observableConversation, "observable conversation");
+        try {
+            Object object = sendRequest(makeCheckForNewMessagesRequest(observableConversation));
+            handleCheckForNewMessagesResponse(observableConversation, object);
+        } catch (CouldNotGetMessageLogException | IllegalArgumentException | CouldNotAddMessageException | IOException | InvalidResponseException | UsernameNotPartOfConversationException exception) {
+            logWaringError(exception);
+            throw exception;
         }
     }
 
     /**
-     * Checks for new messages and adds them if need be.
+     * Makes the request that asks for the messages that are newer than the last message the conversation has, no matter which day they are from.
      * @param observableConversation the conversation you want to check.
-     * @param socket the socket the communication happens over.
-     * @throws IOException gets thrown if the socket failed to be made.
-     * @throws InvalidResponseException gets thrown if the class could not be found for that object or the response is a different object than expected.
+     * @return the request to send.
+     */
+    private MessageRequest makeCheckForNewMessagesRequest(ObservableConversation observableConversation){
+        long lastMessageNumber = observableConversation.getLastMessageNumber();
+        long conversationNumber = observableConversation.getConversationNumber();
+        return new MessageRequestBuilder().addLastMessage(lastMessageNumber).setUsername(getUsername()).addConversationNumber(conversationNumber).setCheckForMessages(true).build();
+    }
+
+    /**
+     * Adds the new messages the server answered with to the conversation.
+     * @param observableConversation the conversation that was checked.
+     * @param object the response from the server.
+     * @throws InvalidResponseException gets thrown if the response is a different object than expected.
      * @throws CouldNotAddMessageException gets thrown if the text message could not be added to the local message log.
      * @throws CouldNotGetMessageLogException gets thrown if the server can't find the conversation.
      * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the specified conversation.
      */
-    public synchronized void checkConversationForNewMessages(ObservableConversation observableConversation, Socket socket) throws IOException, CouldNotAddMessageException, CouldNotGetMessageLogException, InvalidResponseException, UsernameNotPartOfConversationException {
+    private synchronized void handleCheckForNewMessagesResponse(ObservableConversation observableConversation, Object object) throws InvalidResponseException, CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
+        if (object instanceof MessageRequest response) {
+            List<Message> textMessageList = response.getMessageTransportList().stream().map(MessageTransport::getMessage).toList();
+            addNewMessages(observableConversation, textMessageList);
+        } else if (object instanceof CouldNotGetMessageLogException exception) {
+            throw exception;
+        } else if (object instanceof IllegalArgumentException exception) {
+            throw exception;
+        } else {
+            throw new InvalidResponseException(invalidResponse);
+        }
+    }
+
+    /**
+     * Adds the messages the conversation does not have yet. A message is new if its number is higher than
+     * the newest message of the conversation. The new messages can be from more than one day, and are added one day at a time.
+     * @param observableConversation the conversation the messages belong to.
+     * @param messages the messages from the server, with the lowest number first.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws CouldNotGetMessageLogException gets thrown if the message log could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of this conversation.
+     */
+    private void addNewMessages(ObservableConversation observableConversation, List<Message> messages) throws CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
+        long lastMessageNumber = observableConversation.getLastMessageNumber();
+        Map<LocalDate, List<Message>> messagesByDate = new LinkedHashMap<>();
+        for (Message message : messages){
+            if (message.getMessageNumber() > lastMessageNumber){
+                messagesByDate.computeIfAbsent(message.getDate(), date -> new ArrayList<>()).add(message);
+            }
+        }
+        for (List<Message> newMessages : messagesByDate.values()){
+            observableConversation.addAllMessagesWithSameDate(newMessages);
+        }
+    }
+
+    /**
+     * Loads the page of messages that comes before the oldest message the conversation has. The conversation only gets
+     * the newest page of messages when the user logs in, so the rest of the history is loaded one page at a time when it is needed.
+     * @param observableConversation the conversation you want older messages for.
+     * @param limit the most messages the page should have.
+     * @return a list with the older messages that was added, with the oldest message first. Is empty if there are no older messages.
+     * @throws IOException gets thrown if the connection to the server is lost.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the conversation.
+     * @throws CouldNotGetConversationException gets thrown if the server could not find the conversation.
+     */
+    public List<Message> loadOlderMessages(ObservableConversation observableConversation, int limit) throws IOException, InvalidResponseException, UsernameNotPartOfConversationException, CouldNotGetConversationException {
+        checkIfObjectIsNull(observableConversation, "observable conversation");
         try {
-            LocalDate localDate = LocalDate.now();
-            long lastMessageNumber = observableConversation.getMessageLogForDate(localDate, endUser.getUsername()).getLastMessageNumber();
-            long conversationNumber = observableConversation.getConversationNumber();
-            ArrayList<String> name = new ArrayList<>();
-            name.add(endUser.getUsername());
-            MessageRequest messageRequest = new MessageRequestBuilder().addLastMessage(lastMessageNumber).addDate(LocalDate.now()).setUsername(getUsername()).addConversationNumber(conversationNumber).setCheckForMessages(true).build();
-            sendObject(messageRequest, socket);
-            Object object = getObject(socket);
-            if (object instanceof MessageRequest response) {
-                List<Message> textMessageList = response.getMessageTransportList().stream().map(MessageTransport::getMessage).toList();
-                if (!textMessageList.isEmpty()) {
-                    observableConversation.addAllMessagesWithSameDate(textMessageList);
+            List<Message> olderMessages = new ArrayList<>();
+            if (observableConversation.hasOlderMessages()){
+                List<Message> messages = observableConversation.getAllMessagesOfConversationAsList();
+                HistoryRequestBuilder historyRequestBuilder = new HistoryRequestBuilder().setUsername(getUsername()).addConversationNumber(observableConversation.getConversationNumber()).addLimit(limit);
+                if (messages.isEmpty()){
+                    historyRequestBuilder.addCursor(LocalDate.now(), Long.MAX_VALUE);
+                }else {
+                    historyRequestBuilder.addCursor(messages.get(0).getDate(), messages.get(0).getMessageNumber());
                 }
-            } else if (object instanceof CouldNotGetMessageLogException exception) {
-                throw exception;
-            } else if (object instanceof IllegalArgumentException exception) {
+                Object object = sendRequest(historyRequestBuilder.build());
+                if (object instanceof HistoryRequest response){
+                    olderMessages = response.getMessages();
+                    addOlderMessages(observableConversation, olderMessages, response.hasOlderMessages());
+                }else if (object instanceof UsernameNotPartOfConversationException exception){
+                    throw exception;
+                }else if (object instanceof CouldNotGetConversationException exception){
+                    throw exception;
+                }else if (object instanceof IllegalArgumentException exception){
+                    throw exception;
+                }else {
+                    throw new InvalidResponseException(invalidResponse);
+                }
+            }
+            return olderMessages;
+        }catch (IOException | InvalidResponseException | IllegalArgumentException | UsernameNotPartOfConversationException | CouldNotGetConversationException exception){
+            logWaringError(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Adds a page of older messages to a conversation.
+     * @param observableConversation the conversation the messages belong to.
+     * @param olderMessages the older messages, with the oldest message first.
+     * @param hasOlderMessages <code>true</code> if the server has even older messages.
+     */
+    private synchronized void addOlderMessages(ObservableConversation observableConversation, List<Message> olderMessages, boolean hasOlderMessages){
+        observableConversation.addOlderMessages(olderMessages, hasOlderMessages);
+    }
+
+    /**
+     * Brings all the conversations up to date with one request. The server gets a cursor for every conversation and
+     * answers with only the conversations that have changed and the conversations the user does not have yet.
+     * @throws IOException gets thrown if the connection to the server is lost.
+     * @throws InvalidResponseException gets thrown if the response from the server is invalid.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws CouldNotGetMessageLogException gets thrown if a message log could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of a conversation.
+     * @throws CouldNotGetConversationException gets thrown if a conversation could not be found.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be found.
+     * @throws CouldNotRemoveMemberException gets thrown if a member could not be removed.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     * @throws CouldNotAddConversationException gets thrown if a conversation could not be added.
+     */
+    public void syncConversations() throws IOException, InvalidResponseException, CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException, CouldNotGetConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException, CouldNotAddConversationException {
+        try {
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+            Iterator<ObservableConversation> it = getPersonalConversationRegister().getIterator();
+            while (it.hasNext()){
+                conversationCursors.add(makeConversationCursor(it.next()));
+            }
+            SyncRequest syncRequest = new SyncRequestBuilder().setUsername(getUsername()).addConversationCursors(conversationCursors).build();
+            Object object = sendRequest(syncRequest);
+            if (object instanceof SyncRequest response){
+                applySync(response);
+            }else if (object instanceof IllegalArgumentException exception){
                 throw exception;
-            } else {
+            }else {
                 throw new InvalidResponseException(invalidResponse);
             }
-        } catch (CouldNotGetMessageLogException | IllegalArgumentException | CouldNotAddMessageException | IOException | InvalidResponseException | UsernameNotPartOfConversationException exception) {
+        }catch (IOException | InvalidResponseException | IllegalArgumentException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException | CouldNotGetConversationException | CouldNotGetMemberException | CouldNotRemoveMemberException | CouldNotAddMemberException | CouldNotAddConversationException exception){
             logWaringError(exception);
             throw exception;
         }
     }
 
+    /**
+     * Makes the cursor that tells the server how far this client has come in a conversation. Is used both for a sync and for the conversations a login is sent with.
+     * @param observableConversation the conversation.
+     * @return the cursor of the conversation.
+     */
+    private ConversationCursorTransport makeConversationCursor(ObservableConversation observableConversation){
+        MemberRegister memberRegister = observableConversation.getMembers();
+        return new ConversationCursorTransport(observableConversation.getConversationNumber(), observableConversation.getLastMessageNumber(), memberRegister.getLastMemberNumber(), memberRegister.getLastDeletedMember(), observableConversation.getConversationName());
+    }
+
+    /**
+     * Applies the changes the server answered a sync with.
+     * @param syncRequest the answer from the server.
+     * @throws CouldNotGetConversationException gets thrown if a conversation could not be found.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws CouldNotGetMessageLogException gets thrown if a message log could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of a conversation.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be found.
+     * @throws CouldNotRemoveMemberException gets thrown if a member could not be removed.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     * @throws CouldNotAddConversationException gets thrown if a conversation could not be added.
+     */
+    private synchronized void applySync(SyncRequest syncRequest) throws CouldNotGetConversationException, CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException, CouldNotAddConversationException {
+        for (ConversationChangesTransport conversationChanges : syncRequest.getConversationChanges()){
+            applyConversationChanges(getConversationByNumber(conversationChanges.getConversationNumber()), conversationChanges);
+        }
+        addNewConversations(syncRequest.getNewConversations());
+    }
+
+    /**
+     * Applies the changes of one conversation.
+     * @param observableConversation the conversation the changes are for.
+     * @param conversationChanges the changes from the server.
+     * @throws CouldNotAddMessageException gets thrown if a message could not be added.
+     * @throws CouldNotGetMessageLogException gets thrown if a message log could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of the conversation.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be found.
+     * @throws CouldNotRemoveMemberException gets thrown if a member could not be removed.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     */
+    private void applyConversationChanges(ObservableConversation observableConversation, ConversationChangesTransport conversationChanges) throws CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException {
+        if (conversationChanges.isAllMembers()){
+            replaceMembers(observableConversation, conversationChanges.getMemberTransportList(), conversationChanges.getLastMember(), conversationChanges.getLastDeletedMember());
+        }else {
+            updateMembers(observableConversation, conversationChanges.getMemberTransportList());
+        }
+        addNewMessages(observableConversation, conversationChanges.getMessageTransportList().stream().map(MessageTransport::getMessage).toList());
+        String newName = conversationChanges.getNewConversationName();
+        if (!newName.isEmpty() && !newName.equals(observableConversation.getConversationName())){
+            observableConversation.setConversationName(newName);
+        }
+    }
+
     /**
      * Checks if there are any new conversations on the server.
      * @throws IOException gets thrown if the socket failed to be made.
@@ -516,19 +1017,14 @@ public class ChatClient {
      * @throws CouldNotAddConversationException gets thrown if the conversation could not be added.
      */
     public void checkForNewConversations() throws IOException, InvalidResponseException, CouldNotAddConversationException {
-        try (Socket socket = new Socket(host, portNumber)){
+        try {
             List<String> usernames = new ArrayList<>();
             List<Long> conversationNumbers = getPersonalConversationRegister().getAllConversationNumbers();
             usernames.add(endUser.getUsername());
             ConversationRequest conversationRequest = new ConversationRequestBuilder().setCheckForNewConversations(true).addUsername(getUsername()).addConversationNumberList(conversationNumbers).build();
-            sendObject(conversationRequest, socket);
-            Object object = getObject(socket);
+            Object object = sendRequest(conversationRequest);
             if(object instanceof PersonalConversationTransport personalConversationTransport){
-                Iterator<ObservableConversation> it = personalConversationTransport.getPersonalConversationList().iterator();
-                while (it.hasNext()){
-                    ObservableConversation observableConversation = it.next();
-                    getPersonalConversationRegister().addConversation(observableConversation);
-                }
+                addNewConversations(personalConversationTransport.getPersonalConversationList());
             }else if (object instanceof IllegalArgumentException exception){
                 throw exception;
             }
@@ -538,6 +1034,22 @@ public class ChatClient {
         }
     }
 
+    /**
+     * Adds the conversations that are not in the personal conversation register yet.
+     * @param observableConversations the conversations from the server.
+     * @throws CouldNotAddConversationException gets thrown if a conversation could not be added.
+     */
+    private void addNewConversations(List<ObservableConversation> observableConversations) throws CouldNotAddConversationException {
+        List<Long> conversationNumbers = getPersonalConversationRegister().getAllConversationNumbers();
+        Iterator<ObservableConversation> it = observableConversations.iterator();
+        while (it.hasNext()){
+            ObservableConversation observableConversation = it.next();
+            if (!conversationNumbers.contains(observableConversation.getConversationNumber())){
+                getPersonalConversationRegister().addConversation(observableConversation);
+            }
+        }
+    }
+
     /**
      * Checks if the username is taken on the sersver.
      * @param username the username of the person you want to check.
@@ -548,10 +1060,9 @@ public class ChatClient {
      */
     public boolean checkUsername(String username) throws IOException, InvalidResponseException{
         checkString(username, "username");
-        try (Socket socket = new Socket(host, portNumber)){
+        try {
             UserRequest userRequest = new UserRequestBuilder().setUsername(username).setCheckUsername(true).build();
-            sendObject(userRequest, socket);
-            Object object = getObject(socket);
+            Object object = sendRequest(userRequest);
             if (object instanceof Boolean valid){
                 return valid;
             }else if (object instanceof IllegalArgumentException exception){
@@ -573,12 +1084,11 @@ public class ChatClient {
      * @throws InvalidResponseException gets thrown if the class could not be found for that object or the response is a different object than expected.
      */
     public void makeNewUser(String username, String password) throws IOException, CouldNotAddUserException, InvalidResponseException {
-        try (Socket socket = new Socket(host, 1380)){
+        try {
             checkString(username, "username");
             checkString(password, "password");
             UserRequest userRequest = new UserRequestBuilder().setNewUser(true).setUsername(username).setPassword(password).build();
-            sendObject(userRequest, socket);
-            Object object = getObject(socket);
+            Object object = sendRequest(userRequest);
             if (!(object instanceof Boolean)){
                 if (object instanceof IllegalArgumentException exception){
                     throw exception;
@@ -603,27 +1113,14 @@ public class ChatClient {
     public void checkConversationsForNewNames() throws CouldNotGetConversationException, IOException, InvalidResponseException {
         Iterator<ObservableConversation> it = getPersonalConversationRegister().getIterator();
         if (it.hasNext()){
-            try (Socket socket = new Socket(host, portNumber)){
+            try {
 
                 Map<Long, String> namesOfConversations = new HashMap<>();
                 it.forEachRemaining(convo -> namesOfConversations.put(convo.getConversationNumber(), convo.getConversationName()));
                 ConversationRequest conversationRequest = new ConversationRequestBuilder().addConversationNamesMap(namesOfConversations).addUsername(getUsername()).setCheckForConversationNames(true).build();
-                sendObject(conversationRequest,socket);
-                Object object = getObject(socket);
+                Object object = sendRequest(conversationRequest);
                 if(object instanceof ConversationRequest response){
-                    Map<Long, String> newNames = response.getNewConversationNamesMap();
-                    if (!newNames.isEmpty()){
-                        Set<Long> keySet = newNames.keySet();
-                        Iterator<Long> keyIt = keySet.iterator();
-                        while(keyIt.hasNext()){
-                            long key = keyIt.next();
-                            ObservableConversation observableConversation = getConversationByNumber(key);
-                            String newName = newNames.get(key);
-                            if (!newName.equals(observableConversation.getConversationName())){
-                                observableConversation.setConversationName(newName);
-                            }
-                        }
-                    }
+                    updateConversationNames(response.getNewConversationNamesMap());
                 }else if(object instanceof CouldNotGetConversationException exception){
                     throw exception;
                 }else {
@@ -639,32 +1136,153 @@ public class ChatClient {
 
 
     /**
-     * Sends a object through the socket.
-     * @param object the object you want to send.
-     * @param socket the socket the object should go through.
-     * @throws IOException gets thrown if the object could not be sent.
+     * Gives the conversations the names they have on the server.
+     * @param newNames a map with the conversation numbers as keys and the names as values.
+     * @throws CouldNotGetConversationException gets thrown if a conversation could not be located.
      */
-    private synchronized void sendObject(Object object, Socket socket) throws IOException {
-        OutputStream outputStream = socket.getOutputStream();
-        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-        objectOutputStream.writeObject(object);
+    private void updateConversationNames(Map<Long, String> newNames) throws CouldNotGetConversationException {
+        Iterator<Long> keyIt = newNames.keySet().iterator();
+        while(keyIt.hasNext()){
+            long key = keyIt.next();
+            ObservableConversation observableConversation = getConversationByNumber(key);
+            String newName = newNames.get(key);
+            if (!newName.equals(observableConversation.getConversationName())){
+                observableConversation.setConversationName(newName);
+            }
+        }
+    }
+
+    /**
+     * Logs the client in as a user without blocking the thread that calls it.
+     * @param username the username of the user.
+     * @param password the password that the user has.
+     * @return a future that is done when the user is logged in. Fails with the same exceptions as {@link #loginToUser(String, String)},
+     *         or with a TimeoutException if the server does not answer in time.
+     */
+    public CompletableFuture<Void> loginToUserAsync(String username, String password){
+        return runAsync(() -> {
+            loginToUser(username, password);
+            return null;
+        });
     }
 
     /**
-     * Gets the message that is sent through the socket.
-     * @param socket the socket that this message is coming through.
-     * @return the message this socket contains.
-     * @throws IOException gets thrown if the object could not be received.
-     * @throws InvalidResponseException gets thrown if the class could not be found for that object.
+     * Puts a message in the outbox without blocking the thread that calls it. The outbox sends the messages that are written
+     * within a short window together, and keeps trying if the server cannot be reached, so the future does not time out.
+     * @param messageContents the contents of the message.
+     * @param observableConversation the conversation that holds the conversation number.
+     * @return a future that is done when the server has the message. Fails with a CouldNotAddMessageException or CouldNotGetMessageLogException
+     *         if the server does not want the message, or with an IOException if the message could not be put in the outbox.
      */
-    private synchronized Object getObject(Socket socket) throws IOException, InvalidResponseException {
+    public CompletableFuture<Void> sendMessageAsync(String messageContents, ObservableConversation observableConversation){
         try {
-            ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());
-            Object object = objectInputStream.readObject();
-            checkIfObjectIsNull(object, "object");
-            return object;
-        }catch (ClassNotFoundException exception){
-            throw new InvalidResponseException("The class of the response was invalid.");
+            checkString(messageContents, "message");
+            checkIfObjectIsNull(observableConversation, "observable conversation");
+            MessageOutbox outbox = messageOutbox;
+            checkIfObjectIsNull(outbox, "outbox");
+            return outbox.addMessage(observableConversation.getConversationNumber(), new TextMessage(messageContents, getUsername()));
+        }catch (IllegalArgumentException | IOException exception){
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Makes a new conversation without blocking the thread that calls it.
+     * @param usernames the names of all the members of the new conversation.
+     * @param nameOfConversation the name that the conversation should have.
+     * @return a future that is done when the conversation is made. Fails with the same exceptions as {@link #makeNewConversation(List, String)},
+     *         or with a TimeoutException if the server does not answer in time.
+     */
+    public CompletableFuture<Void> makeNewConversationAsync(List<String> usernames, String nameOfConversation){
+        return runAsync(() -> {
+            makeNewConversation(usernames, nameOfConversation);
+            return null;
+        });
+    }
+
+    /**
+     * Edits a conversation without blocking the thread that calls it.
+     * @param namesToAdd a list with all the names to add.
+     * @param namesToRemove a list with all the names to remove.
+     * @param conversationName the new conversation name.
+     * @param observableConversation the observable conversation to edit.
+     * @return a future that is done when the conversation is edited. Fails with the same exceptions as {@link #editConversation(List, List, String, ObservableConversation)},
+     *         or with a TimeoutException if the server does not answer in time.
+     */
+    public CompletableFuture<Void> editConversationAsync(List<String> namesToAdd, List<String> namesToRemove, String conversationName, ObservableConversation observableConversation){
+        return runAsync(() -> {
+            editConversation(namesToAdd, namesToRemove, conversationName, observableConversation);
+            return null;
+        });
+    }
+
+    /**
+     * Loads the page of messages that comes before the oldest message of a conversation without blocking the thread that calls it.
+     * @param observableConversation the conversation you want older messages for.
+     * @param limit the most messages the page should have.
+     * @return a future with the older messages that was added. Fails with the same exceptions as {@link #loadOlderMessages(ObservableConversation, int)},
+     *         or with a TimeoutException if the server does not answer in time.
+     */
+    public CompletableFuture<List<Message>> loadOlderMessagesAsync(ObservableConversation observableConversation, int limit){
+        return runAsync(() -> loadOlderMessages(observableConversation, limit));
+    }
+
+    /**
+     * Runs a request on the I/O threads of the client. The future fails with a TimeoutException if the request takes longer than the
+     * request timeout. If the future is cancelled or times out the thread that waits for the server is interrupted, so it is free for the next request.
+     * An answer that comes after that is thrown away.
+     * @param request the request that should be run.
+     * @param <T> the type of the result.
+     * @return a future with the result of the request.
+     */
+    private <T> CompletableFuture<T> runAsync(Callable<T> request){
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = ioExecutor.submit(() -> {
+            try {
+                result.complete(request.call());
+            }catch (Exception exception){
+                result.completeExceptionally(exception);
+            }
+        });
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null){
+                task.cancel(true);
+            }
+        });
+        return result.orTimeout(requestTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request over the connection to the server and waits for the answer.
+     * @param request the request you want to send.
+     * @return the response of the server.
+     * @throws IOException gets thrown if the connection to the server is lost.
+     * @throws InvalidResponseException gets thrown if the thread is interrupted while it waits.
+     */
+    private Object sendRequest(Object request) throws IOException, InvalidResponseException {
+        return getServerConnection().sendRequestAndWait(request);
+    }
+
+    /**
+     * Gets the connection to the server. Makes a new connection if there is none or the last one is lost.
+     * A new connection is not logged in, so the updates are not pushed over it before the user subscribes again.
+     * @return the connection to the server.
+     * @throws IOException gets thrown if the connection could not be made.
+     */
+    private synchronized ServerConnection getServerConnection() throws IOException {
+        if (serverConnection == null || serverConnection.isClosed()){
+            serverConnection = new ServerConnection(host, portNumber);
+        }
+        return serverConnection;
+    }
+
+    /**
+     * Closes the connection to the server if there is one.
+     */
+    private synchronized void closeServerConnection(){
+        if (serverConnection != null){
+            serverConnection.close();
+            serverConnection = null;
         }
     }
 
@@ -698,23 +1316,13 @@ public class ChatClient {
      * @throws CouldNotAddMemberException gets thrown if a member could not be added.
      */
     private synchronized void checkConversationForNewOrDeletedMembers(ObservableConversation observableConversation) throws UsernameNotPartOfConversationException, CouldNotGetConversationException, IOException, InvalidResponseException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException {
-        try (Socket socket = new Socket(host, portNumber)){
+        try {
             MembersRequest membersRequest = new MembersRequestBuilder().setCheckForNewMembers(true).addConversationNumber(observableConversation.getConversationNumber()).addUsername(getUsername()).addLastMember(observableConversation.getMembers().getLastMemberNumber()).setLastDeletedMember(observableConversation.getMembers().getLastDeletedMember()).build();
-            sendObject(membersRequest, socket);
-            Object object = getObject(socket);
-            if (object instanceof MembersRequest response){
-                List<MemberTransport> membersTransport = response.getMembers();
-                if (!membersTransport.isEmpty()){
-                    List<Member> membersToRemove = membersTransport.stream().filter(member -> !member.isAddMember()).map(MemberTransport::getMember).toList();
-                    List<Member> membersToAdd = membersTransport.stream().filter(MemberTransport::isAddMember).map(MemberTransport::getMember).toList();
-                    MemberRegister memberRegister = observableConversation.getMembers();
-                    if (!membersToRemove.isEmpty()){
-                        memberRegister.removeAllMembers(membersToRemove, getUsername());
-                    }
-                    if (!membersToAdd.isEmpty()){
-                        memberRegister.addAllMembers(membersToAdd, getUsername());
-                    }
-                }
+            Object object = sendRequest(membersRequest);
+            if (object instanceof MembersRequest response && response.isAllMembers()){
+                replaceMembers(observableConversation, response.getMembers(), response.getLastMember(), response.getLastDeletedMember());
+            }else if (object instanceof MembersRequest response){
+                updateMembers(observableConversation, response.getMembers());
             }else if (object instanceof UsernameNotPartOfConversationException exception){
                 throw exception;
             }else if (object instanceof CouldNotGetConversationException exception){
@@ -730,6 +1338,44 @@ public class ChatClient {
         }
     }
 
+    /**
+     * Adds and removes the members the server says have changed. A member is only added if its number is higher
+     * than the last member of the conversation, and only removed if it is still a member.
+     * @param observableConversation the conversation the members are a part of.
+     * @param membersTransport the members that have been added or removed.
+     * @throws UsernameNotPartOfConversationException gets thrown if this user is not a part of that conversation.
+     * @throws CouldNotGetMemberException gets thrown if a member could not be found.
+     * @throws CouldNotRemoveMemberException gets thrown if a member could not be removed.
+     * @throws CouldNotAddMemberException gets thrown if a member could not be added.
+     */
+    private void updateMembers(ObservableConversation observableConversation, List<MemberTransport> membersTransport) throws UsernameNotPartOfConversationException, CouldNotGetMemberException, CouldNotRemoveMemberException, CouldNotAddMemberException {
+        if (!membersTransport.isEmpty()){
+            MemberRegister memberRegister = observableConversation.getMembers();
+            long lastMemberNumber = memberRegister.getLastMemberNumber();
+            List<Member> membersToRemove = membersTransport.stream().filter(member -> !member.isAddMember()).map(MemberTransport::getMember).filter(member -> memberRegister.checkIfUsernameIsMember(member.getUsername())).toList();
+            List<Member> membersToAdd = membersTransport.stream().filter(MemberTransport::isAddMember).map(MemberTransport::getMember).filter(member -> member.getMemberNumber() > lastMemberNumber).toList();
+            if (!membersToRemove.isEmpty()){
+                memberRegister.removeAllMembers(membersToRemove, getUsername());
+            }
+            if (!membersToAdd.isEmpty()){
+                memberRegister.addAllMembers(membersToAdd, getUsername());
+            }
+        }
+    }
+
+    /**
+     * Replaces the members of a conversation with all the members the server has. Is used when the server has forgotten
+     * some of the members that were removed since the last deleted member of the conversation, so the removals cannot be sent one by one.
+     * @param observableConversation the conversation the members are a part of.
+     * @param membersTransport all the members of the conversation.
+     * @param lastMember the number of the last member that was added on the server.
+     * @param lastDeletedMember the number of the last member that was removed on the server.
+     */
+    private void replaceMembers(ObservableConversation observableConversation, List<MemberTransport> membersTransport, long lastMember, long lastDeletedMember){
+        List<Member> members = membersTransport.stream().map(MemberTransport::getMember).toList();
+        observableConversation.getMembers().replaceAllMembers(members, lastMember, lastDeletedMember);
+    }
+
     /**
      * Checks if the list is empty or null.
      * @param list the list you want to check.
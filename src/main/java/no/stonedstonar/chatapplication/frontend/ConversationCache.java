@@ -0,0 +1,250 @@
+package no.stonedstonar.chatapplication.frontend;
+
+import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.MemberRegister;
+import no.stonedstonar.chatapplication.model.membersregister.NormalMembersRegister;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.messagelog.PersonalMessageLog;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the conversations of a user that the client keeps on disk between logins.
+ * The conversations are written with their messages, members, names and the number of their newest message,
+ * so the next login only has to ask the server for what has changed since.
+ * The conversations are not written with java serialization, since they hold the observers of the user interface.
+ * A file that could not be read is treated like an empty cache, since the server can always send the conversations again.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ConversationCache {
+
+    private static final int VERSION = 2;
+
+    private final Path file;
+
+    private final Logger logger;
+
+    /**
+      * Makes an instance of the ConversationCache class.
+      * @param file the file the conversations are kept in.
+      */
+    public ConversationCache(Path file){
+        checkIfObjectIsNull(file, "file");
+        this.file = file;
+        logger = Logger.getLogger(getClass().toString());
+    }
+
+    /**
+     * Reads the conversations that are in the cache.
+     * @return a list with the conversations. Is empty if there is no cache or if it could not be read.
+     */
+    public List<ObservableConversation> readConversations(){
+        List<ObservableConversation> observableConversations = new ArrayList<>();
+        if (Files.exists(file)){
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+                if (input.readInt() == VERSION){
+                    int amountOfConversations = input.readInt();
+                    for (int i = 0; i < amountOfConversations; i++){
+                        observableConversations.add(readConversation(input));
+                    }
+                }
+            }catch (IOException | RuntimeException exception){
+                logger.log(Level.INFO, "The conversation cache could not be read and is skipped. " + exception.getMessage());
+                observableConversations.clear();
+            }
+        }
+        return observableConversations;
+    }
+
+    /**
+     * Writes the conversations to the cache. The conversations are written to a new file that is put in the place of the old one,
+     * so a client that stops while writing keeps the old cache.
+     * @param conversations an iterator over the conversations.
+     * @throws IOException gets thrown if the file could not be written.
+     */
+    public void writeConversations(Iterator<ObservableConversation> conversations) throws IOException {
+        checkIfObjectIsNull(conversations, "conversations");
+        List<ObservableConversation> observableConversations = new ArrayList<>();
+        conversations.forEachRemaining(observableConversations::add);
+        if (file.getParent() != null){
+            Files.createDirectories(file.getParent());
+        }
+        Path newFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(newFile)))){
+            output.writeInt(VERSION);
+            output.writeInt(observableConversations.size());
+            for (ObservableConversation observableConversation : observableConversations){
+                writeConversation(output, observableConversation);
+            }
+        }
+        Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a conversation to a stream.
+     * @param output the stream to write to.
+     * @param observableConversation the conversation.
+     * @throws IOException gets thrown if the conversation could not be written.
+     */
+    private void writeConversation(DataOutputStream output, ObservableConversation observableConversation) throws IOException {
+        output.writeLong(observableConversation.getConversationNumber());
+        writeString(output, observableConversation.getConversationName());
+        output.writeLong(observableConversation.getDateMade().toEpochDay());
+        output.writeBoolean(observableConversation.hasOlderMessages());
+        output.writeLong(observableConversation.getLastMessageNumber());
+        MemberRegister memberRegister = observableConversation.getMembers();
+        List<Member> members = new ArrayList<>();
+        memberRegister.getIterator().forEachRemaining(members::add);
+        output.writeLong(memberRegister.getLastMemberNumber());
+        output.writeLong(memberRegister.getLastDeletedMember());
+        output.writeInt(members.size());
+        for (Member member : members){
+            writeString(output, member.getUsername());
+            output.writeLong(member.getMemberNumber());
+        }
+        List<PersonalMessageLog> messageLogs = observableConversation.getMessageLogs();
+        output.writeInt(messageLogs.size());
+        for (PersonalMessageLog messageLog : messageLogs){
+            List<Message> messages = new ArrayList<>(messageLog.getMessages());
+            output.writeLong(messageLog.getDateMade().toEpochDay());
+            output.writeLong(messageLog.getLastMessageNumber());
+            output.writeInt(messages.size());
+            for (Message message : messages){
+                writeMessage(output, (TextMessage) message);
+            }
+        }
+    }
+
+    /**
+     * Reads a conversation from a stream.
+     * @param input the stream to read from.
+     * @return the conversation.
+     * @throws IOException gets thrown if the conversation could not be read.
+     */
+    private ObservableConversation readConversation(DataInputStream input) throws IOException {
+        long conversationNumber = input.readLong();
+        String conversationName = readString(input);
+        LocalDate dateMade = LocalDate.ofEpochDay(input.readLong());
+        boolean olderMessages = input.readBoolean();
+        long lastMessageNumber = input.readLong();
+        long lastMember = input.readLong();
+        long lastDeletedMember = input.readLong();
+        int amountOfMembers = input.readInt();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < amountOfMembers; i++){
+            members.add(new ConversationMember(readString(input), input.readLong()));
+        }
+        int amountOfLogs = input.readInt();
+        List<PersonalMessageLog> messageLogs = new ArrayList<>();
+        for (int i = 0; i < amountOfLogs; i++){
+            LocalDate date = LocalDate.ofEpochDay(input.readLong());
+            long lastMessageNumberOfLog = input.readLong();
+            int amountOfMessages = input.readInt();
+            List<Message> messages = new ArrayList<>();
+            for (int j = 0; j < amountOfMessages; j++){
+                messages.add(readMessage(input));
+            }
+            messageLogs.add(new PersonalMessageLog(date, messages, lastMessageNumberOfLog));
+        }
+        MemberRegister memberRegister = new NormalMembersRegister(members, new ArrayList<>(), lastMember, lastDeletedMember);
+        return new NormalObservableConversation(conversationNumber, conversationName, dateMade, memberRegister, messageLogs, olderMessages, lastMessageNumber);
+    }
+
+    /**
+     * Writes a message to a stream.
+     * @param output the stream to write to.
+     * @param textMessage the message.
+     * @throws IOException gets thrown if the message could not be written.
+     */
+    private void writeMessage(DataOutputStream output, TextMessage textMessage) throws IOException {
+        writeString(output, textMessage.getMessage());
+        writeString(output, textMessage.getFromUsername());
+        output.writeLong(textMessage.getSentFromUserDate().toEpochDay());
+        output.writeLong(textMessage.getSentFromUserTime().toNanoOfDay());
+        LocalDate receivedDate = textMessage.getReceivedByServerDate();
+        output.writeBoolean(receivedDate != null);
+        if (receivedDate != null){
+            output.writeLong(receivedDate.toEpochDay());
+            output.writeLong(textMessage.getReceivedByServerTime().toNanoOfDay());
+        }
+        output.writeLong(textMessage.getMessageNumber());
+        String messageKey = textMessage.getMessageKey();
+        output.writeBoolean(messageKey != null);
+        if (messageKey != null){
+            writeString(output, messageKey);
+        }
+    }
+
+    /**
+     * Reads a message from a stream.
+     * @param input the stream to read from.
+     * @return the message.
+     * @throws IOException gets thrown if the message could not be read.
+     */
+    private Message readMessage(DataInputStream input) throws IOException {
+        String contents = readString(input);
+        String fromUsername = readString(input);
+        LocalDate sentDate = LocalDate.ofEpochDay(input.readLong());
+        LocalTime sentTime = LocalTime.ofNanoOfDay(input.readLong());
+        LocalDate receivedDate = null;
+        LocalTime receivedTime = null;
+        if (input.readBoolean()){
+            receivedDate = LocalDate.ofEpochDay(input.readLong());
+            receivedTime = LocalTime.ofNanoOfDay(input.readLong());
+        }
+        long messageNumber = input.readLong();
+        String messageKey = input.readBoolean() ? readString(input) : null;
+        return new TextMessage(contents, fromUsername, sentDate, sentTime, receivedDate, receivedTime, messageNumber, messageKey);
+    }
+
+    /**
+     * Writes a string with its length first, so strings longer than what writeUTF can take also work.
+     * @param output the stream to write to.
+     * @param string the string.
+     * @throws IOException gets thrown if the string could not be written.
+     */
+    private void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string that was written with its length first.
+     * @param input the stream to read from.
+     * @return the string.
+     * @throws IOException gets thrown if the string could not be read.
+     */
+    private String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package no.stonedstonar.chatapplication.frontend;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the messages a user has written that the server does not have yet.
+ * The messages that are written within a short window are sent together, with one request for each conversation and day.
+ * Every message is written to a file and forced to the disk before it is sent, so the messages that could not be sent are not lost
+ * if the client is closed or the machine stops. The writing is done by the thread of the outbox and not the thread that adds the message,
+ * and the messages that are added while the file is forced are written together the next time.
+ * If the server cannot be reached, or could not store the messages yet, the messages are sent again later with a longer wait after each try.
+ * A message that only gets answers the client does not understand is only tried a few times, and a message the server says no to is not tried again.
+ * Since every message has a key of its own the server does not add a message twice, even if the answer to a request that got through was lost.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class MessageOutbox {
+
+    /**
+     * How long the outbox waits for more messages before it sends, in milliseconds.
+     */
+    public static final long BATCH_WINDOW = 50;
+
+    private static final long FIRST_RETRY_DELAY = 500;
+
+    private static final long MAX_RETRY_DELAY = 30000;
+
+    private static final int MAX_INVALID_RESPONSES = 3;
+
+    private final Path file;
+
+    private final MessageSender messageSender;
+
+    private final List<OutboxEntry> unsentMessages;
+
+    private final List<OutboxEntry> unwrittenMessages;
+
+    private final Object fileLock;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Logger logger;
+
+    private ScheduledFuture<?> scheduledSend;
+
+    private boolean writeScheduled;
+
+    private long retryDelay;
+
+    /**
+      * Makes an instance of the MessageOutbox class. The messages that are left in the file from before are read back and sent.
+      * @param file the file the unsent messages are kept in.
+      * @param messageSender the sender that sends a list of messages to a conversation.
+      * @throws IOException gets thrown if the file could not be read.
+      */
+    public MessageOutbox(Path file, MessageSender messageSender) throws IOException {
+        checkIfObjectIsNull(file, "file");
+        checkIfObjectIsNull(messageSender, "message sender");
+        this.file = file;
+        this.messageSender = messageSender;
+        unsentMessages = new ArrayList<>();
+        unwrittenMessages = new ArrayList<>();
+        fileLock = new Object();
+        writeScheduled = false;
+        logger = Logger.getLogger(getClass().toString());
+        retryDelay = FIRST_RETRY_DELAY;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (file.getParent() != null){
+            Files.createDirectories(file.getParent());
+        }
+        readUnsentMessages();
+        if (!unsentMessages.isEmpty()){
+            scheduleSend(0);
+        }
+    }
+
+    /**
+     * Adds a message that should be sent to a conversation. The message is written to the file and forced to the disk by the thread of the outbox,
+     * so the method returns at once. The message is not sent before it is in the file.
+     * @param conversationNumber the number of the conversation the message is for.
+     * @param message the message.
+     * @return a future that is done when the server has the message. Fails if the server does not want the message, or with an IOException if the message could not be written to the file.
+     * @throws IOException gets thrown if the outbox is closed.
+     */
+    public synchronized CompletableFuture<Void> addMessage(long conversationNumber, Message message) throws IOException {
+        checkIfLongIsNegative(conversationNumber, "conversation number");
+        checkIfObjectIsNull(message, "message");
+        if (!(message instanceof TextMessage textMessage)){
+            throw new IllegalArgumentException("Only text messages can be put in the outbox.");
+        }
+        if (scheduler.isShutdown()){
+            throw new IOException("The outbox is closed.");
+        }
+        OutboxEntry outboxEntry = new OutboxEntry(conversationNumber, textMessage);
+        unwrittenMessages.add(outboxEntry);
+        if (!writeScheduled){
+            writeScheduled = true;
+            scheduler.execute(this::writeNewMessages);
+        }
+        return outboxEntry.getFuture();
+    }
+
+    /**
+     * Writes the messages that are added but not written yet to the end of the file with one force, and lets them be sent.
+     * If they could not be written their futures fail, since the outbox could not keep them.
+     */
+    private void writeNewMessages(){
+        synchronized (fileLock){
+            List<OutboxEntry> newEntries;
+            synchronized (this){
+                writeScheduled = false;
+                newEntries = new ArrayList<>(unwrittenMessages);
+                unwrittenMessages.clear();
+            }
+            if (!newEntries.isEmpty()){
+                try {
+                    writeEntries(file, newEntries, true);
+                    synchronized (this){
+                        unsentMessages.addAll(newEntries);
+                        if (scheduledSend == null && !scheduler.isShutdown()){
+                            scheduleSend(BATCH_WINDOW);
+                        }
+                    }
+                }catch (IOException exception){
+                    logger.log(Level.WARNING, "Could not write " + newEntries.size() + " messages to the outbox file. " + exception.getMessage());
+                    newEntries.forEach(outboxEntry -> outboxEntry.getFuture().completeExceptionally(exception));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tries to send the unsent messages at once, without waiting for the retry delay. Is used when the connection to the server is made again.
+     */
+    public synchronized void retryNow(){
+        if (!unsentMessages.isEmpty() && !scheduler.isShutdown()){
+            retryDelay = FIRST_RETRY_DELAY;
+            if (scheduledSend != null){
+                scheduledSend.cancel(false);
+            }
+            scheduleSend(0);
+        }
+    }
+
+    /**
+     * Gets how many messages have not been sent yet.
+     * @return the number of unsent messages.
+     */
+    public synchronized int getUnsentMessagesCount(){
+        return unsentMessages.size() + unwrittenMessages.size();
+    }
+
+    /**
+     * Stops sending. The messages that are not sent are kept in the file, and are sent the next time an outbox is made with it.
+     * The messages that are not written yet are written before the method returns.
+     */
+    public void close(){
+        synchronized (this){
+            scheduler.shutdownNow();
+            scheduledSend = null;
+        }
+        writeNewMessages();
+    }
+
+    /**
+     * Schedules the next time the messages are sent.
+     * @param delay the time until the messages are sent in milliseconds.
+     */
+    private void scheduleSend(long delay){
+        scheduledSend = scheduler.schedule(this::sendUnsentMessages, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends all the unsent messages with one request for each conversation and day. The messages are sent in the order they were written.
+     * If the server cannot be reached, or answers that it could not store the messages, the rest are kept and sent again after the retry delay, which doubles after each try.
+     * If the answer could not be understood the messages are sent again too, but a message that has gotten such an answer
+     * {@value #MAX_INVALID_RESPONSES} times is removed, so a server that always answers wrong does not keep the outbox busy forever.
+     * The messages the server says no to are removed, since sending them again does not help. Since the server skips the messages it already has,
+     * a message that is sent again after its answer was lost is not said no to.
+     */
+    private void sendUnsentMessages(){
+        List<List<OutboxEntry>> batches;
+        synchronized (this){
+            scheduledSend = null;
+            batches = makeBatches(new ArrayList<>(unsentMessages));
+        }
+        for (List<OutboxEntry> batch : batches){
+            long conversationNumber = batch.get(0).getConversationNumber();
+            List<Message> messages = batch.stream().map(outboxEntry -> (Message) outboxEntry.getMessage()).toList();
+            try {
+                messageSender.sendMessages(conversationNumber, messages);
+                removeEntries(batch, null);
+            }catch (IOException exception){
+                scheduleRetry();
+                return;
+            }catch (InvalidResponseException exception){
+                batch.forEach(OutboxEntry::addInvalidResponse);
+                List<OutboxEntry> givenUpEntries = batch.stream().filter(outboxEntry -> outboxEntry.getInvalidResponses() >= MAX_INVALID_RESPONSES).toList();
+                if (!givenUpEntries.isEmpty()){
+                    logger.log(Level.WARNING, "Got an invalid answer " + MAX_INVALID_RESPONSES + " times for " + givenUpEntries.size() + " messages for the conversation " + conversationNumber + ". The messages are not sent again.");
+                    removeEntries(givenUpEntries, exception);
+                }
+                if (givenUpEntries.size() < batch.size()){
+                    scheduleRetry();
+                    return;
+                }
+            }catch (Exception exception){
+                logger.log(Level.WARNING, "The server did not want " + messages.size() + " messages for the conversation " + conversationNumber + ". " + exception.getClass() + " message: " + exception.getMessage());
+                removeEntries(batch, exception);
+            }
+        }
+        synchronized (this){
+            retryDelay = FIRST_RETRY_DELAY;
+        }
+    }
+
+    /**
+     * Schedules the unsent messages to be sent again after the retry delay, and doubles the delay for the next try.
+     */
+    private synchronized void scheduleRetry(){
+        if (!scheduler.isShutdown()){
+            if (scheduledSend != null){
+                scheduledSend.cancel(false);
+            }
+            logger.log(Level.INFO, "Could not send " + unsentMessages.size() + " messages. Tries again in " + retryDelay + " ms.");
+            scheduleSend(retryDelay);
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+        }
+    }
+
+    /**
+     * Splits the entries into batches with the same conversation and day. The batches keep the order of the first message in them.
+     * @param entries the entries to split.
+     * @return a list with the batches.
+     */
+    private List<List<OutboxEntry>> makeBatches(List<OutboxEntry> entries){
+        Map<Long, Map<LocalDate, List<OutboxEntry>>> batchMap = new LinkedHashMap<>();
+        for (OutboxEntry outboxEntry : entries){
+            batchMap.computeIfAbsent(outboxEntry.getConversationNumber(), number -> new LinkedHashMap<>())
+                    .computeIfAbsent(outboxEntry.getMessage().getDate(), date -> new ArrayList<>()).add(outboxEntry);
+        }
+        List<List<OutboxEntry>> batches = new ArrayList<>();
+        batchMap.values().forEach(dateMap -> batches.addAll(dateMap.values()));
+        return batches;
+    }
+
+    /**
+     * Removes entries that are done from the outbox and writes the file again with the rest.
+     * @param entries the entries that are done.
+     * @param exception the exception the futures should fail with. Is <code>null</code> if the messages were sent.
+     */
+    private void removeEntries(List<OutboxEntry> entries, Exception exception){
+        synchronized (fileLock){
+            synchronized (this){
+                unsentMessages.removeAll(entries);
+                try {
+                    writeUnsentMessages();
+                }catch (IOException ioException){
+                    logger.log(Level.WARNING, "The outbox file could not be written. " + ioException.getMessage());
+                }
+            }
+        }
+        if (exception == null){
+            entries.forEach(outboxEntry -> outboxEntry.getFuture().complete(null));
+        }else {
+            entries.forEach(outboxEntry -> outboxEntry.getFuture().completeExceptionally(exception));
+        }
+    }
+
+    /**
+     * Writes all the unsent messages to a new file and puts it in the place of the old one.
+     * The new file is forced to the disk before it is moved, so the outbox file is always either the old or the new list.
+     * @throws IOException gets thrown if the file could not be written.
+     */
+    private void writeUnsentMessages() throws IOException {
+        Path newFile = file.resolveSibling(file.getFileName() + ".tmp");
+        writeEntries(newFile, unsentMessages, false);
+        Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the unsent messages from the file. A message that was only partly written when the client stopped is skipped,
+     * and the file is written again so the new messages are not put after it.
+     * @throws IOException gets thrown if the file could not be read.
+     */
+    private void readUnsentMessages() throws IOException {
+        if (Files.exists(file)){
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+                while (true){
+                    unsentMessages.add(readEntry(input));
+                }
+            }catch (EOFException exception){
+                logger.log(Level.INFO, "Read " + unsentMessages.size() + " unsent messages from the outbox.");
+            }
+            writeUnsentMessages();
+        }
+    }
+
+    /**
+     * Writes entries to a file and forces them to the disk before the method returns.
+     * A stream is used and not a channel, so a thread that is interrupted while the outbox is closed still writes whole entries.
+     * @param path the file to write to.
+     * @param entries the entries.
+     * @param append <code>true</code> if the entries should be put after what the file has.
+     *               <code>false</code> if the file should only have the entries.
+     * @throws IOException gets thrown if the entries could not be written.
+     */
+    private void writeEntries(Path path, List<OutboxEntry> entries, boolean append) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)){
+            for (OutboxEntry outboxEntry : entries){
+                writeEntry(output, outboxEntry);
+            }
+        }
+        try (FileOutputStream fileOutput = new FileOutputStream(path.toFile(), append)){
+            bytes.writeTo(fileOutput);
+            fileOutput.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes an entry to a stream.
+     * @param output the stream to write to.
+     * @param outboxEntry the entry.
+     * @throws IOException gets thrown if the entry could not be written.
+     */
+    private void writeEntry(DataOutputStream output, OutboxEntry outboxEntry) throws IOException {
+        TextMessage textMessage = outboxEntry.getMessage();
+        output.writeLong(outboxEntry.getConversationNumber());
+        writeString(output, textMessage.getMessage());
+        writeString(output, textMessage.getFromUsername());
+        output.writeLong(textMessage.getSentFromUserDate().toEpochDay());
+        output.writeLong(textMessage.getSentFromUserTime().toNanoOfDay());
+        writeString(output, textMessage.getMessageKey());
+    }
+
+    /**
+     * Reads an entry from a stream.
+     * @param input the stream to read from.
+     * @return the entry.
+     * @throws IOException gets thrown if the entry could not be read.
+     */
+    private OutboxEntry readEntry(DataInputStream input) throws IOException {
+        long conversationNumber = input.readLong();
+        String contents = readString(input);
+        String fromUsername = readString(input);
+        LocalDate sentDate = LocalDate.ofEpochDay(input.readLong());
+        LocalTime sentTime = LocalTime.ofNanoOfDay(input.readLong());
+        String messageKey = readString(input);
+        return new OutboxEntry(conversationNumber, new TextMessage(contents, fromUsername, sentDate, sentTime, null, null, 0, messageKey));
+    }
+
+    /**
+     * Writes a string with its length first, so strings longer than what writeUTF can take also work.
+     * @param output the stream to write to.
+     * @param string the string.
+     * @throws IOException gets thrown if the string could not be written.
+     */
+    private void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string that was written with its length first.
+     * @param input the stream to read from.
+     * @return the string.
+     * @throws IOException gets thrown if the string could not be read.
+     */
+    private String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+
+    /**
+     * Checks if a long is negative or equal to zero.
+     * @param number the number to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfLongIsNegative(long number, String prefix){
+        if (number < 0){
+            throw new IllegalArgumentException("Expected the " + prefix + " to be larger than zero.");
+        }
+    }
+
+    /**
+     * Represents something that can send a list of messages to a conversation with one request.
+     */
+    public interface MessageSender {
+
+        /**
+         * Sends messages to a conversation.
+         * @param conversationNumber the number of the conversation.
+         * @param messages the messages, with the oldest first.
+         * @throws IOException gets thrown if the server could not be reached or could not store the messages. The messages are sent again later.
+         * @throws InvalidResponseException gets thrown if the answer could not be understood. The messages are sent again later, but only a few times.
+         * @throws Exception gets thrown if the server did not want the messages. The messages are not sent again.
+         */
+        void sendMessages(long conversationNumber, List<Message> messages) throws Exception;
+    }
+
+    /**
+     * Represents a message in the outbox and the conversation it is for.
+     */
+    private static class OutboxEntry {
+
+        private final long conversationNumber;
+
+        private final TextMessage message;
+
+        private final CompletableFuture<Void> future;
+
+        private int invalidResponses;
+
+        /**
+          * Makes an instance of the OutboxEntry class.
+          * @param conversationNumber the number of the conversation.
+          * @param message the message.
+          */
+        public OutboxEntry(long conversationNumber, TextMessage message){
+            this.conversationNumber = conversationNumber;
+            this.message = message;
+            this.future = new CompletableFuture<>();
+        }
+
+        /**
+         * Gets the number of the conversation.
+         * @return the conversation number.
+         */
+        public long getConversationNumber(){
+            return conversationNumber;
+        }
+
+        /**
+         * Gets the message.
+         * @return the message.
+         */
+        public TextMessage getMessage(){
+            return message;
+        }
+
+        /**
+         * Gets the future that is done when the message is sent.
+         * @return the future.
+         */
+        public CompletableFuture<Void> getFuture(){
+            return future;
+        }
+
+        /**
+         * Remembers that the message got an answer that could not be understood.
+         */
+        public void addInvalidResponse(){
+            invalidResponses += 1;
+        }
+
+        /**
+         * Gets how many times the message got an answer that could not be understood.
+         * @return the amount of invalid answers.
+         */
+        public int getInvalidResponses(){
+            return invalidResponses;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package no.stonedstonar.chatapplication.frontend;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireCodec;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+import no.stonedstonar.chatapplication.network.requests.WireFormatRequest;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the one connection a client has to the server. The connection stays open until it is closed or lost.
+ * Every request is sent in a request envelope with an id of its own, so many requests can wait for an answer at the same time
+ * and the answers can come back in any order. A thread of its own reads the answers and gives each to the request it belongs to.
+ * Updates the server pushes without being asked are given to the push listener.
+ * Before anything else is sent the connection agrees with the server on the wire format, and falls back to java serialization
+ * if the server does not know the wanted format.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ServerConnection {
+
+    private final Socket socket;
+
+    private final OutputStream outputStream;
+
+    private final WireCodec wireCodec;
+
+    private final AtomicLong lastRequestId;
+
+    private final Map<Long, CompletableFuture<Object>> waitingRequests;
+
+    private final Logger logger;
+
+    private volatile Consumer<Object> pushListener;
+
+    private volatile boolean closed;
+
+    /**
+      * Makes an instance of the ServerConnection class that wants the binary wire format and connects to the server.
+      * @param host the host of the server.
+      * @param portNumber the port the server listens on.
+      * @throws IOException gets thrown if the connection could not be made.
+      */
+    public ServerConnection(String host, int portNumber) throws IOException {
+        this(host, portNumber, WireFormat.BINARY);
+    }
+
+    /**
+      * Makes an instance of the ServerConnection class and connects to the server.
+      * @param host the host of the server.
+      * @param portNumber the port the server listens on.
+      * @param wantedWireFormat the wire format the connection should use if the server knows it.
+      * @throws IOException gets thrown if the connection could not be made.
+      */
+    public ServerConnection(String host, int portNumber, WireFormat wantedWireFormat) throws IOException {
+        checkIfObjectIsNull(host, "host");
+        checkIfObjectIsNull(wantedWireFormat, "wanted wire format");
+        socket = new Socket(host, portNumber);
+        socket.setTcpNoDelay(true);
+        InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+        outputStream = new BufferedOutputStream(socket.getOutputStream());
+        wireCodec = new WireCodec();
+        try {
+            agreeOnWireFormat(wantedWireFormat, inputStream);
+        }catch (IOException exception){
+            socket.close();
+            throw exception;
+        }
+        lastRequestId = new AtomicLong(ResponseEnvelope.PUSH_ID);
+        waitingRequests = new ConcurrentHashMap<>();
+        logger = Logger.getLogger(getClass().toString());
+        pushListener = push -> {};
+        closed = false;
+        Thread readThread = new Thread(() -> readResponses(inputStream), "server-connection-reader");
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Asks the server to use a wire format and waits for the answer. Is done before the thread that reads is started.
+     * @param wantedWireFormat the wire format that is wanted.
+     * @param inputStream the stream the answer is read from.
+     * @throws IOException gets thrown if the connection is lost.
+     */
+    private void agreeOnWireFormat(WireFormat wantedWireFormat, InputStream inputStream) throws IOException {
+        if (wantedWireFormat != WireFormat.SERIALIZATION){
+            List<WireFormat> wireFormats = new ArrayList<>();
+            wireFormats.add(wantedWireFormat);
+            wireFormats.add(WireFormat.SERIALIZATION);
+            wireCodec.writeFrame(new WireFormatRequest(wireFormats), outputStream);
+            try {
+                Object answer = wireCodec.readFrame(inputStream);
+                if (answer instanceof WireFormatRequest wireFormatRequest){
+                    wireCodec.setWireFormat(wireFormatRequest.getWireFormats().get(0));
+                }
+            }catch (InvalidResponseException exception){
+                throw new IOException("The server answered the wire format request with an invalid frame.");
+            }
+        }
+    }
+
+    /**
+     * Gets the wire format the requests are written in.
+     * @return the wire format.
+     */
+    public WireFormat getWireFormat(){
+        return wireCodec.getWireFormat();
+    }
+
+    /**
+     * Sends a request to the server without waiting for the answer.
+     * @param request the request to send.
+     * @return a future that gets the response of the server. Fails with an IOException if the connection is lost first.
+     * @throws IOException gets thrown if the connection is closed or the request could not be sent.
+     */
+    public CompletableFuture<Object> sendRequest(Object request) throws IOException {
+        checkIfObjectIsNull(request, "request");
+        long requestId = lastRequestId.incrementAndGet();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        waitingRequests.put(requestId, future);
+        if (closed){
+            waitingRequests.remove(requestId);
+            throw new IOException("The connection to the server is closed.");
+        }
+        try {
+            synchronized (outputStream){
+                wireCodec.writeFrame(new RequestEnvelope(requestId, request), outputStream);
+            }
+        }catch (IOException exception){
+            waitingRequests.remove(requestId);
+            close();
+            throw exception;
+        }
+        return future;
+    }
+
+    /**
+     * Sends a request to the server and waits for the answer.
+     * @param request the request to send.
+     * @return the response of the server.
+     * @throws IOException gets thrown if the connection is lost before the answer comes.
+     * @throws InvalidResponseException gets thrown if the thread is interrupted while it waits.
+     */
+    public Object sendRequestAndWait(Object request) throws IOException, InvalidResponseException {
+        return waitForResponse(sendRequest(request));
+    }
+
+    /**
+     * Waits for the answer to a request that is already sent.
+     * @param future the future of the request.
+     * @return the response of the server.
+     * @throws IOException gets thrown if the connection is lost before the answer comes.
+     * @throws InvalidResponseException gets thrown if the thread is interrupted while it waits.
+     */
+    public static Object waitForResponse(CompletableFuture<Object> future) throws IOException, InvalidResponseException {
+        try {
+            return future.get();
+        }catch (ExecutionException exception){
+            if (exception.getCause() instanceof IOException ioException){
+                throw ioException;
+            }
+            throw new IOException(exception.getCause());
+        }catch (InterruptedException exception){
+            Thread.currentThread().interrupt();
+            throw new InvalidResponseException("The thread was interrupted while it waited for the server.");
+        }
+    }
+
+    /**
+     * Sets the listener that gets the updates the server pushes. The listener is called by the thread that reads,
+     * so it should hand the update on rather than wait for something.
+     * @param pushListener the listener of the pushes.
+     */
+    public void setPushListener(Consumer<Object> pushListener){
+        checkIfObjectIsNull(pushListener, "push listener");
+        this.pushListener = pushListener;
+    }
+
+    /**
+     * Reads the answers from the server until the connection is closed.
+     * @param inputStream the stream the answers are read from.
+     */
+    private void readResponses(InputStream inputStream){
+        try {
+            while (!closed){
+                Object object = wireCodec.readFrame(inputStream);
+                if (object instanceof ResponseEnvelope responseEnvelope){
+                    if (responseEnvelope.isPush()){
+                        pushListener.accept(responseEnvelope.getResponse());
+                    }else {
+                        CompletableFuture<Object> future = waitingRequests.remove(responseEnvelope.getRequestId());
+                        if (future != null){
+                            future.complete(responseEnvelope.getResponse());
+                        }
+                    }
+                }else {
+                    logger.log(Level.WARNING, "The server sent an object that is not in a response envelope. " + object.getClass());
+                }
+            }
+        }catch (IOException | InvalidResponseException exception){
+            if (!closed){
+                logger.log(Level.WARNING, "The connection to the server was lost. " + exception.getClass() + " message: " + exception.getMessage());
+            }
+        }
+        close();
+    }
+
+    /**
+     * Checks if the connection is closed.
+     * @return <code>true</code> if the connection is closed.
+     *         <code>false</code> if the connection is still open.
+     */
+    public boolean isClosed(){
+        return closed;
+    }
+
+    /**
+     * Closes the connection. Every request that still waits for an answer fails with an IOException.
+     */
+    public void close(){
+        closed = true;
+        try {
+            socket.close();
+        }catch (IOException exception){
+            logger.log(Level.WARNING, "The connection to the server cannot be closed.");
+        }
+        IOException exception = new IOException("The connection to the server is closed.");
+        waitingRequests.values().forEach(future -> future.completeExceptionally(exception));
+        waitingRequests.clear();
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
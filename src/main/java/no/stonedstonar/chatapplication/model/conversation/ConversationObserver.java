@@ -2,6 +2,8 @@ package no.stonedstonar.chatapplication.model.conversation;
 
 import no.stonedstonar.chatapplication.model.message.Message;
 
+import java.util.List;
+
 /**
  * Represents an object that wants a conversations updates.
  * @version 0.2
@@ -18,6 +20,15 @@ public interface ConversationObserver {
      */
     void updateConversationMessage(Message message, boolean removed, long conversationNumber);
 
+    /**
+     * Tells the observer that many messages were added or removed at once.
+     * @param messages the messages that were added or removed, in the order they were changed.
+     * @param removed <code>true</code> if the messages were removed.
+     *                <code>false</code> if the messages were added.
+     * @param conversationNumber the conversation number.
+     */
+    void updateConversationMessages(List<Message> messages, boolean removed, long conversationNumber);
+
     /**
      * Tells if there is a new member to update.
      * @param conversationNumber the conversation number of this conversation.
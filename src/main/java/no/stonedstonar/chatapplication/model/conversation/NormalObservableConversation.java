@@ -5,6 +5,7 @@ import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessag
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.MemberRegister;
 import no.stonedstonar.chatapplication.model.membersregister.MembersRegisterObserver;
 import no.stonedstonar.chatapplication.model.membersregister.NormalObservableMemberRegister;
 import no.stonedstonar.chatapplication.model.membersregister.ObservableMemberRegister;
@@ -18,10 +19,13 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Optional;
 
 /**
  * Represents a personal conversation that is on the client side.
+ * Keeps the number of the newest message it has got from the server. The messages are numbered for the whole conversation,
+ * so that number is the only cursor the client needs to ask for the new messages of every day.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
@@ -41,16 +45,36 @@ public class NormalObservableConversation implements ObservableConversation, Ser
 
     private Message newlyAddedMessage;
 
+    private List<Message> newlyAddedMessages;
+
     private boolean removed;
 
+    private boolean olderMessages;
+
+    private long lastMessageNumber;
 
     /**
-     * Makes an instance of the PersonalNormalConversation class.
+     * Makes an instance of the PersonalNormalConversation class with all the messages of the conversation.
      * @param serverConversation the conversation this personal conversation is going to imitate.
      * @param username the username of the person who is a part of this conversation.
      */
     public NormalObservableConversation(ServerConversation serverConversation, String username) {
+        this(serverConversation, username, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes an instance of the PersonalNormalConversation class with only the newest page of messages.
+     * The message logs of the days in the page keep the last message number of the server, so the conversation can be synced like before.
+     * The older messages are loaded later with {@link #addOlderMessages(List, boolean)}.
+     * @param serverConversation the conversation this personal conversation is going to imitate.
+     * @param username the username of the person who is a part of this conversation.
+     * @param pageSize the most messages the conversation should have.
+     */
+    public NormalObservableConversation(ServerConversation serverConversation, String username, int pageSize) {
         checkIfObjectIsNull(serverConversation, "conversation");
+        if (pageSize <= 0){
+            throw new IllegalArgumentException("Expected the page size to be larger than zero.");
+        }
         conversationObservers = new ArrayList<>();
         this.conversationName = serverConversation.getConversationName();
         this.conversationNumber = serverConversation.getConversationNumber();
@@ -58,13 +82,51 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         this.personalMessageLogs = new ArrayList<>();
         this.observableMembersRegister = new NormalObservableMemberRegister(serverConversation.getMembers());
         List<ServerMessageLog> messageLogList = serverConversation.getMessageLogs(username);
-        messageLogList.forEach(messageLog -> {
-            PersonalMessageLog personalMessageLog = new PersonalMessageLog(messageLog);
-            personalMessageLogs.add(personalMessageLog);
-        });
+        ListIterator<ServerMessageLog> it = messageLogList.listIterator(messageLogList.size());
+        int messagesLeft = pageSize;
+        while (it.hasPrevious() && messagesLeft > 0){
+            ServerMessageLog messageLog = it.previous();
+            List<Message> messages = messageLog.getMessagesBefore(Long.MAX_VALUE, messagesLeft);
+            personalMessageLogs.add(0, new PersonalMessageLog(messageLog.getDateMade(), messages, messageLog.getLastMessageNumber()));
+            messagesLeft -= messages.size();
+        }
+        olderMessages = messagesLeft == 0;
+        lastMessageNumber = serverConversation.getLastMessageNumber();
         observableMembersRegister.addObserver(this);
     }
 
+    /**
+     * Makes an instance of the PersonalNormalConversation class from parts that are already known, like a conversation that is read back from the cache of the client.
+     * @param conversationNumber the number of the conversation.
+     * @param conversationName the name of the conversation.
+     * @param dateMade the date the conversation was made.
+     * @param memberRegister the members of the conversation.
+     * @param messageLogs the message logs of the conversation, with the oldest day first.
+     * @param olderMessages <code>true</code> if the server can have older messages than the ones in the message logs.
+     *                      <code>false</code> if all the messages are in the message logs.
+     * @param lastMessageNumber the number of the newest message the conversation has got from the server.
+     */
+    public NormalObservableConversation(long conversationNumber, String conversationName, LocalDate dateMade, MemberRegister memberRegister, List<PersonalMessageLog> messageLogs, boolean olderMessages, long lastMessageNumber) {
+        checkString(conversationName, "conversation name");
+        checkIfObjectIsNull(dateMade, "date made");
+        checkIfObjectIsNull(memberRegister, "member register");
+        checkIfObjectIsNull(messageLogs, "message logs");
+        if (conversationNumber <= 0){
+            throw new IllegalArgumentException("Expected the conversation number to be larger than zero.");
+        }
+        if (lastMessageNumber < 0){
+            throw new IllegalArgumentException("Expected the last message number to be zero or larger.");
+        }
+        conversationObservers = new ArrayList<>();
+        this.conversationNumber = conversationNumber;
+        this.conversationName = conversationName;
+        this.dateMade = dateMade;
+        this.personalMessageLogs = new ArrayList<>(messageLogs);
+        this.observableMembersRegister = new NormalObservableMemberRegister(memberRegister);
+        this.olderMessages = olderMessages;
+        this.lastMessageNumber = lastMessageNumber;
+        observableMembersRegister.addObserver(this);
+    }
 
     @Override
     public void registerObserver(ConversationObserver conversationObserver) {
@@ -89,6 +151,11 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         conversationObservers.forEach(obs -> obs.updateConversationMessage(newlyAddedMessage, removed, this.conversationNumber));
     }
 
+    @Override
+    public void notifyObserversAboutNewMessages() {
+        conversationObservers.forEach(obs -> obs.updateConversationMessages(newlyAddedMessages, removed, this.conversationNumber));
+    }
+
     @Override
     public void notifyAboutNewName(String name) {
         conversationObservers.forEach(obs -> obs.updateConversationName(conversationNumber));
@@ -175,6 +242,7 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         checkIfUsernameIsMemberAndThrowExceptionIfNot(message.getFromUsername());
         PersonalMessageLog personalMessageLog = getMessageLogForDate(message.getDate(), message.getFromUsername());
         personalMessageLog.addMessage(message);
+        lastMessageNumber = Math.max(lastMessageNumber, message.getMessageNumber());
         this.newlyAddedMessage = message;
         this.removed = false;
         notifyObserversAboutNewMessage();
@@ -211,6 +279,7 @@ public class NormalObservableConversation implements ObservableConversation, Ser
      */
     private void addMessageToMessageLog(Message message, MessageLog messageLog) throws CouldNotAddMessageException {
         messageLog.addMessage(message);
+        lastMessageNumber = Math.max(lastMessageNumber, message.getMessageNumber());
     }
 
     @Override
@@ -222,16 +291,15 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         boolean allAreMembers = newMessageList.stream().allMatch(message -> observableMembersRegister.checkIfUsernameIsMember(message.getFromUsername()));
         boolean validDate = newMessageList.stream().allMatch(message -> message.getDate().isEqual(testDateFromOneMessage));
         if (validDate && allAreMembers){
-            PersonalMessageLog messageLog = getMessageLogByTheDate(testDateFromOneMessage, username);
+            PersonalMessageLog messageLog = getMessageLogForDate(testDateFromOneMessage, username);
             if (messageLog.checkIfAllMessagesAreNewMessages(newMessageList)){
                 Iterator<Message> it = newMessageList.iterator();
                 while (it.hasNext()){
-                    Message message = it.next();
-                    addMessageToMessageLog(message, messageLog);
-                    this.newlyAddedMessage = message;
-                    this.removed = false;
-                    notifyObserversAboutNewMessage();
+                    addMessageToMessageLog(it.next(), messageLog);
                 }
+                this.newlyAddedMessages = newMessageList;
+                this.removed = false;
+                notifyObserversAboutNewMessages();
             }else {
                 throw new CouldNotAddMessageException("One of the messages in the list is already in the message log. " + messageLog.getDateMade() + " and the conversation is "  + conversationNumber);
             }
@@ -273,8 +341,12 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         if (checkForMessageLogByDate(localDate)){
             return getMessageLogByTheDate(localDate, username);
         }else {
-            PersonalMessageLog messageLog = new PersonalMessageLog(LocalDate.now());
-            personalMessageLogs.add(messageLog);
+            PersonalMessageLog messageLog = new PersonalMessageLog(localDate);
+            int place = 0;
+            while (place < personalMessageLogs.size() && personalMessageLogs.get(place).getDateMade().isBefore(localDate)){
+                place += 1;
+            }
+            personalMessageLogs.add(place, messageLog);
             return messageLog;
         }
     }
@@ -290,6 +362,48 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         return messages;
     }
 
+    @Override
+    public List<PersonalMessageLog> getMessageLogs() {
+        return new ArrayList<>(personalMessageLogs);
+    }
+
+    @Override
+    public long getLastMessageNumber() {
+        return lastMessageNumber;
+    }
+
+    @Override
+    public boolean hasOlderMessages() {
+        return olderMessages;
+    }
+
+    @Override
+    public void addOlderMessages(List<Message> olderMessageList, boolean hasOlderMessages) {
+        checkIfObjectIsNull(olderMessageList, "older message list");
+        olderMessageList.forEach(message -> checkIfDateIsValid(message.getDate()));
+        int end = olderMessageList.size();
+        while (end > 0){
+            LocalDate date = olderMessageList.get(end - 1).getDate();
+            int start = end - 1;
+            while (start > 0 && olderMessageList.get(start - 1).getDate().isEqual(date)){
+                start -= 1;
+            }
+            List<Message> messagesOfDate = olderMessageList.subList(start, end);
+            Optional<PersonalMessageLog> optionalMessageLog = personalMessageLogs.stream().filter(log -> log.getDateMade().isEqual(date)).findFirst();
+            if (optionalMessageLog.isPresent()){
+                optionalMessageLog.get().addOlderMessages(messagesOfDate);
+            }else {
+                int place = 0;
+                while (place < personalMessageLogs.size() && personalMessageLogs.get(place).getDateMade().isBefore(date)){
+                    place += 1;
+                }
+                personalMessageLogs.add(place, new PersonalMessageLog(date, messagesOfDate, messagesOfDate.get(messagesOfDate.size() - 1).getMessageNumber()));
+            }
+            end = start;
+        }
+        this.olderMessages = hasOlderMessages;
+    }
+
     @Override
     public void removeAllMessagesWithSameDate(List<Message> messagesToRemove) throws CouldNotRemoveMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
         checkIfListIsValid(messagesToRemove, "messages to remove");
@@ -299,11 +413,16 @@ public class NormalObservableConversation implements ObservableConversation, Ser
         if (validDate){
             PersonalMessageLog personalMessageLog = getMessageLogByTheDate(testDateFromOneMessage, message.getFromUsername());
             if (personalMessageLog.checkIfAllMessagesAreInMessageLog(messagesToRemove)){
+                for (Message mess : messagesToRemove){
+                    checkIfUsernameIsMemberAndThrowExceptionIfNot(mess.getFromUsername());
+                }
                 Iterator<Message> it = messagesToRemove.iterator();
                 while (it.hasNext()){
-                    Message mess = it.next();
-                    removeMessage(mess);
+                    personalMessageLog.removeMessage(it.next());
                 }
+                this.newlyAddedMessages = messagesToRemove;
+                this.removed = true;
+                notifyObserversAboutNewMessages();
             }else {
                 throw new CouldNotRemoveMessageException("One or more of the messages are missing from the message log.");
             }
@@ -1,51 +1,91 @@
 package no.stonedstonar.chatapplication.model.conversation;
 
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.MembersRegisterObserver;
 import no.stonedstonar.chatapplication.model.membersregister.NormalMembersRegister;
 import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
 import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
 import no.stonedstonar.chatapplication.model.membersregister.ServerMemberRegister;
 import no.stonedstonar.chatapplication.model.message.Message;
 import no.stonedstonar.chatapplication.model.messagelog.MessageLog;
-import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLogFactory;
 import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.util.RecentKeySet;
 
 import java.time.LocalDate;
 import java.util.*;
 
 /**
  * Represents a normal conversation that uses objects and lists to store its contents.
+ * The message logs are kept in a sorted map with the day since the epoch as key, so the log of a day is found in O(log n)
+ * and the logs of a range of days can be read without looking at the other days.
+ * The keys of the last messages that were added are remembered, so a message a user sends again is not added twice.
+ * The message log of a new day is made by a {@link ServerMessageLogFactory}, which decides where the messages are kept.
+ * The messages are numbered for the whole conversation, and the logs are also kept in a map with the number of their last message as key,
+ * so the messages after a number are found by only reading the logs that got a message after it.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
-public class NormalServerConversation implements ServerConversation {
+public class NormalServerConversation implements ServerConversation, MembersRegisterObserver {
 
     private LocalDate conversationDateMade;
 
     private String conversationName;
 
-    private List<ServerMessageLog> messageLogList;
+    private final NavigableMap<Long, ServerMessageLog> messageLogMap;
 
     private long conversationNumber;
 
     private NormalMembersRegister conversationMembers;
 
+    private final List<ServerConversationObserver> serverConversationObservers;
+
+    private static final int MESSAGE_KEY_WINDOW = 256;
+
+    private final RecentKeySet recentMessageKeys;
+
+    private final ServerMessageLogFactory messageLogFactory;
+
+    private final NavigableMap<Long, NavigableMap<Long, ServerMessageLog>> logsByLastMessageNumber;
+
+    private long lastMessageNumber;
+
     /**
-      * Makes an instance of the conversation class.
+      * Makes an instance of the conversation class that keeps its messages on the heap.
       * @param conversationNumber the number this conversation is.
       * @throws CouldNotAddMemberException gets thrown if the same username is written twice in the list.
       */
     public NormalServerConversation(long conversationNumber, List<Member> members) throws CouldNotAddMemberException {
+        this(conversationNumber, members, new NormalServerMessageLogFactory());
+    }
+
+    /**
+      * Makes an instance of the conversation class.
+      * @param conversationNumber the number this conversation is.
+      * @param members the members of the conversation.
+      * @param messageLogFactory the factory that makes the message logs of the conversation.
+      * @throws CouldNotAddMemberException gets thrown if the same username is written twice in the list.
+      */
+    public NormalServerConversation(long conversationNumber, List<Member> members, ServerMessageLogFactory messageLogFactory) throws CouldNotAddMemberException {
         checkIfLongIsNegative(conversationNumber, "conversation number");
         checkIfListIsValid(members, "usernames");
+        checkIfObjectIsNull(messageLogFactory, "message log factory");
+        this.messageLogFactory = messageLogFactory;
         conversationDateMade = LocalDate.now();
-        messageLogList = new ArrayList<>();
+        messageLogMap = new TreeMap<>();
+        logsByLastMessageNumber = new TreeMap<>();
+        lastMessageNumber = 0;
         conversationMembers = new NormalMembersRegister(members);
         this.conversationNumber = conversationNumber;
         conversationName = "";
+        serverConversationObservers = new ArrayList<>();
+        recentMessageKeys = new RecentKeySet(MESSAGE_KEY_WINDOW);
+        conversationMembers.addObserver(this);
     }
 
     /**
@@ -64,6 +104,13 @@ public class NormalServerConversation implements ServerConversation {
         this.conversationNumber = conversationNumber;
         this.conversationMembers = conversationMembers;
         this.conversationDateMade = dateMade;
+        messageLogMap = new TreeMap<>();
+        logsByLastMessageNumber = new TreeMap<>();
+        lastMessageNumber = 0;
+        serverConversationObservers = new ArrayList<>();
+        recentMessageKeys = new RecentKeySet(MESSAGE_KEY_WINDOW);
+        messageLogFactory = new NormalServerMessageLogFactory();
+        conversationMembers.addObserver(this);
     }
 
     /**
@@ -78,6 +125,64 @@ public class NormalServerConversation implements ServerConversation {
         this.conversationName = conversationName;
         this.conversationNumber = conversationNumber;
         this.conversationMembers = conversationMembers;
+        messageLogMap = new TreeMap<>();
+        logsByLastMessageNumber = new TreeMap<>();
+        lastMessageNumber = 0;
+        serverConversationObservers = new ArrayList<>();
+        recentMessageKeys = new RecentKeySet(MESSAGE_KEY_WINDOW);
+        messageLogFactory = new NormalServerMessageLogFactory();
+        conversationMembers.addObserver(this);
+    }
+
+    /**
+     * Makes an instance of the conversation class with message logs that were made before, like when a conversation is read back from a snapshot.
+     * The keys of the newest messages are remembered, so a message that is sent again after a restart is still skipped.
+     * @param conversationNumber the conversation number this class is going to have.
+     * @param conversationMembers the members of the class.
+     * @param dateMade the date this class was made.
+     * @param conversationName the name of the conversation. Can be empty.
+     * @param messageLogs the message logs of the conversation.
+     * @param messageLogFactory the factory that makes the message logs of new days.
+     */
+    public NormalServerConversation(long conversationNumber, NormalMembersRegister conversationMembers, LocalDate dateMade, String conversationName, List<ServerMessageLog> messageLogs, ServerMessageLogFactory messageLogFactory){
+        checkIfLongIsNegative(conversationNumber, "conversation number");
+        checkIfObjectIsNull(conversationMembers, "members");
+        checkIfDateIsValid(dateMade);
+        checkIfObjectIsNull(conversationName, "conversation name");
+        checkIfObjectIsNull(messageLogs, "message logs");
+        checkIfObjectIsNull(messageLogFactory, "message log factory");
+        this.messageLogFactory = messageLogFactory;
+        this.conversationName = conversationName;
+        this.conversationNumber = conversationNumber;
+        this.conversationMembers = conversationMembers;
+        this.conversationDateMade = dateMade;
+        messageLogMap = new TreeMap<>();
+        logsByLastMessageNumber = new TreeMap<>();
+        lastMessageNumber = 0;
+        messageLogs.forEach(this::addNewMessageLog);
+        serverConversationObservers = new ArrayList<>();
+        recentMessageKeys = new RecentKeySet(MESSAGE_KEY_WINDOW);
+        rememberNewestMessageKeys();
+        conversationMembers.addObserver(this);
+    }
+
+    /**
+     * Remembers the keys of the newest messages, with the oldest of them first. Only the newest days are looked at.
+     */
+    private void rememberNewestMessageKeys(){
+        Deque<String> newestKeys = new ArrayDeque<>();
+        Iterator<ServerMessageLog> logs = messageLogMap.descendingMap().values().iterator();
+        while (logs.hasNext() && newestKeys.size() < MESSAGE_KEY_WINDOW){
+            List<Message> messages = logs.next().getMessages();
+            ListIterator<Message> it = messages.listIterator(messages.size());
+            while (it.hasPrevious() && newestKeys.size() < MESSAGE_KEY_WINDOW){
+                String messageKey = it.previous().getMessageKey();
+                if (messageKey != null){
+                    newestKeys.addFirst(messageKey);
+                }
+            }
+        }
+        newestKeys.forEach(recentMessageKeys::add);
     }
 
     /**
@@ -115,6 +220,32 @@ public class NormalServerConversation implements ServerConversation {
     public void setConversationName(String conversationName) {
         checkString(conversationName, "conversation name");
         this.conversationName = conversationName;
+        serverConversationObservers.forEach(observer -> observer.updateConversationName(this));
+    }
+
+    @Override
+    public void registerObserver(ServerConversationObserver serverConversationObserver) {
+        checkIfObjectIsNull(serverConversationObserver, "observer");
+        if (!serverConversationObservers.contains(serverConversationObserver)){
+            serverConversationObservers.add(serverConversationObserver);
+        }else {
+            throw new IllegalArgumentException("The observer " + serverConversationObserver + " is already a observer of this object " + this);
+        }
+    }
+
+    @Override
+    public void removeObserver(ServerConversationObserver serverConversationObserver) {
+        checkIfObjectIsNull(serverConversationObserver, "observer");
+        if (serverConversationObservers.contains(serverConversationObserver)){
+            serverConversationObservers.remove(serverConversationObserver);
+        }else {
+            throw new IllegalArgumentException("The observer " + serverConversationObserver + " is not a observer of this object " + this);
+        }
+    }
+
+    @Override
+    public void updateMember(Member member, boolean removed) {
+        serverConversationObservers.forEach(observer -> observer.updateMember(this, member, removed));
     }
 
     @Override
@@ -124,9 +255,13 @@ public class NormalServerConversation implements ServerConversation {
         if (checkForMessageLogByDate(localDate)){
             return getMessageLogByTheDate(localDate);
         }else {
-            ServerMessageLog messageLog = new NormalServerMessageLog(localDate);
-            addNewMessageLog(messageLog);
-            return messageLog;
+            try {
+                ServerMessageLog messageLog = messageLogFactory.makeMessageLog(conversationNumber, localDate);
+                addNewMessageLog(messageLog);
+                return messageLog;
+            }catch (CouldNotAddMessageLogException exception){
+                throw new CouldNotGetMessageLogException(exception.getMessage());
+            }
         }
     }
 
@@ -134,16 +269,28 @@ public class NormalServerConversation implements ServerConversation {
     public List<ServerMessageLog> getMessageLogs(String username) {
         checkString(username, "user");
         if (conversationMembers.checkIfUsernameIsMember(username)){
-            return messageLogList;
+            return getMessageLogList();
         }else {
             throw new IllegalArgumentException("The user with the username " + username + " is not a part of this conversation.");
         }
     }
 
+    @Override
+    public List<ServerMessageLog> getMessageLogsBetweenDates(LocalDate fromDate, LocalDate toDate, String username) throws UsernameNotPartOfConversationException {
+        checkIfObjectIsNull(fromDate, "from date");
+        checkIfObjectIsNull(toDate, "to date");
+        checkString(username, "username");
+        if (fromDate.isAfter(toDate)){
+            throw new IllegalArgumentException("The from date cannot be after the to date.");
+        }
+        checkIfUsernameIsMemberAndThrowExceptionIfNot(username);
+        return new ArrayList<>(messageLogMap.subMap(fromDate.toEpochDay(), true, toDate.toEpochDay(), true).values());
+    }
+
     @Override
     public boolean checkForMessageLogByDate(LocalDate localDate) {
         checkIfDateIsValid(localDate);
-        return messageLogList.stream().anyMatch(log -> log.getDateMade().isEqual(localDate));
+        return messageLogMap.containsKey(localDate.toEpochDay());
     }
 
     @Override
@@ -162,16 +309,26 @@ public class NormalServerConversation implements ServerConversation {
         checkIfUsernameIsMemberAndThrowExceptionIfNot(message.getFromUsername());
         MessageLog messageLog = getMessageLogByTheDate(message.getDate());
         messageLog.removeMessage(message);
+        recentMessageKeys.remove(message.getMessageKey());
     }
 
     /**
-     * Adds a new message to the message log.
+     * Adds a new message to the message log. The message gets the number after the newest message of the conversation.
      * @param message the new message.
      * @param messageLog the message log this message is going into.
      * @throws CouldNotAddMessageException gets thrown if the message could not be added.
      */
     private void addMessageToMessageLog(Message message, ServerMessageLog messageLog) throws CouldNotAddMessageException {
-        messageLog.addMessage(message);
+        long lastNumberOfLog = messageLog.getLastMessageNumber();
+        long messageNumber = Math.max(lastMessageNumber, lastNumberOfLog) + 1;
+        messageLog.addMessage(message, messageNumber);
+        lastMessageNumber = messageNumber;
+        removeLogByLastMessageNumber(lastNumberOfLog, messageLog);
+        putLogByLastMessageNumber(messageNumber, messageLog);
+        if (message.getMessageKey() != null){
+            recentMessageKeys.add(message.getMessageKey());
+        }
+        serverConversationObservers.forEach(observer -> observer.updateNewMessage(this, message));
     }
 
     @Override
@@ -195,6 +352,35 @@ public class NormalServerConversation implements ServerConversation {
         }
     }
 
+    @Override
+    public List<Message> addSentMessages(List<Message> sentMessages) throws CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
+        checkIfListIsValid(sentMessages, "sent messages");
+        Set<String> keysInList = new HashSet<>();
+        List<Message> newMessages = new ArrayList<>();
+        for (Message message : sentMessages){
+            String messageKey = message.getMessageKey();
+            if (messageKey == null || (!recentMessageKeys.contains(messageKey) && !checkIfMessageKeyIsInDayLog(message) && keysInList.add(messageKey))){
+                newMessages.add(message);
+            }
+        }
+        if (!newMessages.isEmpty()){
+            addAllMessagesWithSameDate(newMessages);
+        }
+        return newMessages;
+    }
+
+    /**
+     * Checks if a message with the same message key is already in the log of the day the message was sent.
+     * Is used for the keys that are too old to be among the newest message keys.
+     * @param message the message to check.
+     * @return <code>true</code> if the log of the day has a message with the same message key.
+     *         <code>false</code> if the day has no log or the key is not in it.
+     */
+    private boolean checkIfMessageKeyIsInDayLog(Message message){
+        ServerMessageLog messageLog = messageLogMap.get(message.getDate().toEpochDay());
+        return messageLog != null && messageLog.checkIfAllMessagesAreNewMessages(List.of(message));
+    }
+
     @Override
     public void removeAllMessagesWithSameDate(List<Message> messagesToRemove) throws CouldNotRemoveMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
         checkIfListIsValid(messagesToRemove, "messages to remove");
@@ -220,30 +406,95 @@ public class NormalServerConversation implements ServerConversation {
     public List<Message> checkForNewMessagesOnDate(LocalDate localDate, long lastMessage, String username) throws CouldNotGetMessageLogException, UsernameNotPartOfConversationException {
         checkIfDateIsValid(localDate);
         checkIfLongIsNegative(lastMessage, "last message");
+        checkString(username, "username");
+        checkIfUsernameIsMemberAndThrowExceptionIfNot(username);
         try {
-            ServerMessageLog messageLog;
-            if (localDate.isEqual(LocalDate.now())){
-                messageLog = getMessageLogForDate(localDate, username);
-            }else{
-                messageLog = getMessageLogByTheDate(localDate);
-            }
+            ServerMessageLog messageLog = getMessageLogByTheDate(localDate);
             return messageLog.checkForNewMessages(lastMessage);
         }catch (CouldNotGetMessageLogException exception){
             if ((lastMessage == 0) && localDate.isEqual(LocalDate.now())){
-                ServerMessageLog messageLog = getMessageLogForDate(localDate, username);
-                return messageLog.checkForNewMessages(lastMessage);
+                return new ArrayList<>();
             }else {
                 throw new CouldNotGetMessageLogException("There is no message log for the date " + localDate.toString() + " and the last message is not zero.");
             }
         }
     }
 
+    @Override
+    public List<Message> getMessagesBefore(LocalDate beforeDate, long beforeMessageNumber, int limit, String username) throws UsernameNotPartOfConversationException {
+        checkIfDateIsValid(beforeDate);
+        checkIfLongIsNegative(beforeMessageNumber, "before message number");
+        checkIfLongIsNegative(limit, "limit");
+        checkString(username, "username");
+        checkIfUsernameIsMemberAndThrowExceptionIfNot(username);
+        List<Message> olderMessages = new ArrayList<>();
+        Iterator<ServerMessageLog> logs = messageLogMap.headMap(beforeDate.toEpochDay(), true).descendingMap().values().iterator();
+        while (logs.hasNext() && olderMessages.size() < limit){
+            ServerMessageLog messageLog = logs.next();
+            long beforeNumber = messageLog.getDateMade().isEqual(beforeDate) ? beforeMessageNumber : Long.MAX_VALUE;
+            olderMessages.addAll(0, messageLog.getMessagesBefore(beforeNumber, limit - olderMessages.size()));
+        }
+        return olderMessages;
+    }
+
+    @Override
+    public long getLastMessageNumber() {
+        return lastMessageNumber;
+    }
+
+    @Override
+    public List<Message> getMessagesAfter(long afterMessageNumber, int limit, String username) throws UsernameNotPartOfConversationException {
+        checkIfLongIsNegative(afterMessageNumber, "after message number");
+        checkIfLongIsNegative(limit, "limit");
+        checkString(username, "username");
+        checkIfUsernameIsMemberAndThrowExceptionIfNot(username);
+        List<Message> newerMessages = new ArrayList<>();
+        for (NavigableMap<Long, ServerMessageLog> logsWithSameNumber : logsByLastMessageNumber.tailMap(afterMessageNumber, false).values()){
+            for (ServerMessageLog messageLog : logsWithSameNumber.values()){
+                List<Message> messages = messageLog.checkForNewMessages(afterMessageNumber);
+                newerMessages.addAll(messages.subList(0, Math.min(messages.size(), limit)));
+            }
+        }
+        newerMessages.sort(Comparator.comparingLong(Message::getMessageNumber));
+        return newerMessages.size() > limit ? new ArrayList<>(newerMessages.subList(0, limit)) : newerMessages;
+    }
+
     /**
      * Adds a new message log to the conversation.
      * @param messageLog the new message log to be added.
      */
     private void addNewMessageLog(ServerMessageLog messageLog){
-        messageLogList.add(messageLog);
+        messageLogMap.put(messageLog.getDateMade().toEpochDay(), messageLog);
+        long lastNumberOfLog = messageLog.getLastMessageNumber();
+        if (lastNumberOfLog > 0){
+            putLogByLastMessageNumber(lastNumberOfLog, messageLog);
+            lastMessageNumber = Math.max(lastMessageNumber, lastNumberOfLog);
+        }
+    }
+
+    /**
+     * Puts a message log under the number of its last message. Logs from before the messages were numbered for the whole conversation
+     * are numbered for each day, so many days can end on the same number. The logs are therefore kept by their day under each number.
+     * @param lastNumberOfLog the number of the last message in the log.
+     * @param messageLog the message log.
+     */
+    private void putLogByLastMessageNumber(long lastNumberOfLog, ServerMessageLog messageLog){
+        logsByLastMessageNumber.computeIfAbsent(lastNumberOfLog, number -> new TreeMap<>()).put(messageLog.getDateMade().toEpochDay(), messageLog);
+    }
+
+    /**
+     * Takes a message log away from the number of its last message, like when it gets a new last message.
+     * @param lastNumberOfLog the number the log was put under.
+     * @param messageLog the message log.
+     */
+    private void removeLogByLastMessageNumber(long lastNumberOfLog, ServerMessageLog messageLog){
+        NavigableMap<Long, ServerMessageLog> logsWithSameNumber = logsByLastMessageNumber.get(lastNumberOfLog);
+        if (logsWithSameNumber != null){
+            logsWithSameNumber.remove(messageLog.getDateMade().toEpochDay(), messageLog);
+            if (logsWithSameNumber.isEmpty()){
+                logsByLastMessageNumber.remove(lastNumberOfLog);
+            }
+        }
     }
 
     /**
@@ -254,20 +505,17 @@ public class NormalServerConversation implements ServerConversation {
      */
     private ServerMessageLog getMessageLogByTheDate(LocalDate localDate) throws CouldNotGetMessageLogException {
         checkIfObjectIsNull(localDate, "local date");
-        Optional<ServerMessageLog> optionalMessageLog = messageLogList.stream().filter(log -> log.getDateMade().isEqual(localDate)).findFirst();
-        if (optionalMessageLog.isPresent()){
-            return optionalMessageLog.get();
+        ServerMessageLog messageLog = messageLogMap.get(localDate.toEpochDay());
+        if (messageLog != null){
+            return messageLog;
         }else {
             throw new CouldNotGetMessageLogException("The message log by the local date " + localDate.toString() + " is not in this conversation.");
         }
     }
 
-    /**
-     * Gets the message log list.
-     * @return a list with all the message logs for each day.
-     */
+    @Override
     public List<ServerMessageLog> getMessageLogList(){
-        return messageLogList;
+        return new ArrayList<>(messageLogMap.values());
     }
 
     /**
@@ -23,6 +23,35 @@ public interface ObservableConversation extends Conversation{
      */
     List<Message> getAllMessagesOfConversationAsList();
 
+    /**
+     * Checks if the server can have older messages of this conversation than the ones that are loaded.
+     * @return <code>true</code> if there can be older messages to load.
+     *         <code>false</code> if all the messages are loaded.
+     */
+    boolean hasOlderMessages();
+
+    /**
+     * Adds a page of messages that are older than the messages the conversation has. The observers are not told about each message,
+     * since the messages are not new.
+     * @param olderMessageList the older messages, with the oldest message first.
+     * @param hasOlderMessages <code>true</code> if the server has even older messages.
+     *                         <code>false</code> if this was the oldest page.
+     */
+    void addOlderMessages(List<Message> olderMessageList, boolean hasOlderMessages);
+
+    /**
+     * Gets the number of the newest message this conversation has got from the server. The messages are numbered for the whole conversation,
+     * so the number can be sent as the one cursor for the new messages of every day.
+     * @return the number of the newest message, or zero if the conversation has no messages from the server.
+     */
+    long getLastMessageNumber();
+
+    /**
+     * Gets the message logs of the conversation, with the oldest day first.
+     * @return a list with the message logs.
+     */
+    List<PersonalMessageLog> getMessageLogs();
+
     /**
      * Register a new object as a subscriber.
      * @param conversationObserver the new observer.
@@ -40,6 +69,11 @@ public interface ObservableConversation extends Conversation{
      */
     void notifyObserversAboutNewMessage();
 
+    /**
+     * Notifies all the observers once that many messages have come or have been removed.
+     */
+    void notifyObserversAboutNewMessages();
+
     /**
      * Notifies the observers about a new name of the conversation.
      * @param name the new name.
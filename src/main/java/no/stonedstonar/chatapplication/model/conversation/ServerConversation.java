@@ -1,6 +1,7 @@
 package no.stonedstonar.chatapplication.model.conversation;
 
 import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
 import no.stonedstonar.chatapplication.model.membersregister.ServerMemberRegister;
 import no.stonedstonar.chatapplication.model.message.Message;
@@ -20,6 +21,18 @@ public interface ServerConversation extends Conversation {
     @Override
     ServerMemberRegister getMembers();
 
+    /**
+     * Adds an observer that wants to know about the changes of this conversation.
+     * @param serverConversationObserver the new observer.
+     */
+    void registerObserver(ServerConversationObserver serverConversationObserver);
+
+    /**
+     * Removes an observer from this conversation.
+     * @param serverConversationObserver the observer to remove.
+     */
+    void removeObserver(ServerConversationObserver serverConversationObserver);
+
     /**
      * Gets all the message logs of a conversation if the user is a part of it.
      * @param username the username of a member.
@@ -27,18 +40,78 @@ public interface ServerConversation extends Conversation {
      */
     List<ServerMessageLog> getMessageLogs(String username);
 
+    /**
+     * Gets all the message logs of the conversation without checking for a member. Is meant for the server itself, like when it writes a snapshot.
+     * @return a new list with all the message logs, with the oldest day first.
+     */
+    List<ServerMessageLog> getMessageLogList();
+
+    /**
+     * Gets the message logs of the days between two dates if the user is a part of the conversation.
+     * @param fromDate the first day, included.
+     * @param toDate the last day, included.
+     * @param username the username of a member.
+     * @return a list with the message logs of the days that have one, with the oldest day first.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     */
+    List<ServerMessageLog> getMessageLogsBetweenDates(LocalDate fromDate, LocalDate toDate, String username) throws UsernameNotPartOfConversationException;
+
+    /**
+     * Adds the messages a user has sent, so that each message is only added once even if the user sends it again.
+     * A message with a message key the conversation has added lately, or that is already in the log of its day,
+     * is taken as the same message sent again and is skipped. All the messages must have the same date.
+     * @param sentMessages the messages the user has sent.
+     * @return a list with the messages that were added.
+     * @throws CouldNotAddMessageException gets thrown if a message that is not skipped is already in the conversation.
+     * @throws CouldNotGetMessageLogException gets thrown if the message log with the same date as the messages could not be found.
+     * @throws UsernameNotPartOfConversationException gets thrown if the user is not a part of this conversation.
+     */
+    List<Message> addSentMessages(List<Message> sentMessages) throws CouldNotAddMessageException, CouldNotGetMessageLogException, UsernameNotPartOfConversationException;
+
     @Override
     ServerMessageLog getMessageLogForDate(LocalDate localDate, String username) throws CouldNotGetMessageLogException, UsernameNotPartOfConversationException;
 
     /**
      * Checks for new messages on a specified date.
-     * If there is no message log for that date (the date must be current day) it is made, but then last message must be zero.
+     * If there is no message log for that date (the date must be current day) an empty list is returned, but then last message must be zero.
+     * Checking never changes the conversation, so it can be done while others are reading the same conversation.
      * @param localDate the date you want to check for new messages for.
      * @param lastMessage the number of the last message in the other register.
      * @param username the username of a member of the conversation.
      * @throws CouldNotGetMessageLogException If the last message is larger than zero or the date is not today an exception is thrown.
-     *                                        If the date is before today a new message log is not made.
      * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
      */
     List<Message> checkForNewMessagesOnDate(LocalDate localDate, long lastMessage, String username) throws CouldNotGetMessageLogException, UsernameNotPartOfConversationException;
+
+    /**
+     * Gets a page of the history of the conversation. The page holds the newest messages that are older than the cursor,
+     * where a message is older if it is from an earlier day, or from the same day and has a lower number.
+     * Reading the page never changes the conversation, so it can be done while others are reading the same conversation.
+     * @param beforeDate the day of the cursor.
+     * @param beforeMessageNumber the message number of the cursor.
+     * @param limit the most messages the page can have.
+     * @param username the username of a member of the conversation.
+     * @return a list with the messages, with the oldest message first.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     */
+    List<Message> getMessagesBefore(LocalDate beforeDate, long beforeMessageNumber, int limit, String username) throws UsernameNotPartOfConversationException;
+
+    /**
+     * Gets the number of the newest message of the conversation. The messages are numbered for the whole conversation and not for each day,
+     * so a message that goes into the log of an earlier day still gets a higher number than all the messages before it.
+     * @return the number of the newest message, or zero if the conversation has no messages.
+     */
+    long getLastMessageNumber();
+
+    /**
+     * Gets the messages that have a higher number than a cursor, no matter which day they are in.
+     * Only the logs that got a message after the cursor are read, so the days that have not changed are not looked at.
+     * Reading the messages never changes the conversation, so it can be done while others are reading the same conversation.
+     * @param afterMessageNumber the number of the last message the other side has.
+     * @param limit the most messages the list can have.
+     * @param username the username of a member of the conversation.
+     * @return a list with the messages, with the lowest number first.
+     * @throws UsernameNotPartOfConversationException gets thrown if the username is not a part of this conversation.
+     */
+    List<Message> getMessagesAfter(long afterMessageNumber, int limit, String username) throws UsernameNotPartOfConversationException;
 }
@@ -0,0 +1,41 @@
+package no.stonedstonar.chatapplication.model.conversation;
+
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+
+/**
+ * Represents an object that wants the updates of the conversations on the server.
+ * The observer is told about a change right after it is done, while the conversation is still locked by the one changing it.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public interface ServerConversationObserver {
+
+    /**
+     * Tells the observer that a message was added to a conversation.
+     * @param serverConversation the conversation the message was added to.
+     * @param message the new message.
+     */
+    void updateNewMessage(ServerConversation serverConversation, Message message);
+
+    /**
+     * Tells the observer that a member was added to or removed from a conversation.
+     * @param serverConversation the conversation the member is a part of.
+     * @param member the member that was added or removed.
+     * @param removed <code>true</code> if the member was removed.
+     *                <code>false</code> if the member was added.
+     */
+    void updateMember(ServerConversation serverConversation, Member member, boolean removed);
+
+    /**
+     * Tells the observer that a conversation has a new name.
+     * @param serverConversation the conversation that got a new name.
+     */
+    void updateConversationName(ServerConversation serverConversation);
+
+    /**
+     * Tells the observer that a new conversation was made.
+     * @param serverConversation the new conversation.
+     */
+    void updateNewConversation(ServerConversation serverConversation);
+}
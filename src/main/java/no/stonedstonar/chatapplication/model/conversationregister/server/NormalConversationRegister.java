@@ -7,33 +7,83 @@ import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotGetC
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotRemoveConversationException;
 import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.util.LongObjectHashMap;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * A class that holds messages from one user to other people.
+ * The conversations are kept in a map with the conversation number as key, so finding, adding and removing one is O(1).
+ * Every username points to the conversations it is a part of in an index that follows the member changes,
+ * so the conversations of a user are found without looking at the conversations the user is not a part of.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
 public class NormalConversationRegister implements ServerConversationRegister {
 
-    private List<ServerConversation> conversationList;
+    private final LongObjectHashMap<ServerConversation> conversationMap;
+
+    private final UsernameIndex usernameIndex;
 
     private long lastConversationNumber;
 
+    private final List<ServerConversationObserver> serverConversationObservers;
+
+    private final ServerMessageLogFactory messageLogFactory;
+
     /**
-      * Makes an instance of the MessageRegister class.
+      * Makes an instance of the MessageRegister class where the conversations keep their messages on the heap.
       */
     public NormalConversationRegister(){
-        conversationList = new ArrayList<>();
+        this(new NormalServerMessageLogFactory());
+    }
+
+    /**
+      * Makes an instance of the MessageRegister class.
+      * @param messageLogFactory the factory that makes the message logs of the conversations.
+      */
+    public NormalConversationRegister(ServerMessageLogFactory messageLogFactory){
+        checkIfObjectIsNull(messageLogFactory, "message log factory");
+        this.messageLogFactory = messageLogFactory;
+        conversationMap = new LongObjectHashMap<>();
+        usernameIndex = new UsernameIndex();
+        serverConversationObservers = new ArrayList<>();
+    }
+
+    @Override
+    public void registerObserver(ServerConversationObserver serverConversationObserver){
+        checkIfObjectIsNull(serverConversationObserver, "observer");
+        if (!serverConversationObservers.contains(serverConversationObserver)){
+            serverConversationObservers.add(serverConversationObserver);
+            conversationMap.values().forEach(conversation -> conversation.registerObserver(serverConversationObserver));
+        }else {
+            throw new IllegalArgumentException("The observer " + serverConversationObserver + " is already a observer of this register.");
+        }
+    }
+
+    @Override
+    public void removeObserver(ServerConversationObserver serverConversationObserver){
+        checkIfObjectIsNull(serverConversationObserver, "observer");
+        if (serverConversationObservers.contains(serverConversationObserver)){
+            serverConversationObservers.remove(serverConversationObserver);
+            conversationMap.values().forEach(conversation -> conversation.removeObserver(serverConversationObserver));
+        }else {
+            throw new IllegalArgumentException("The observer " + serverConversationObserver + " is not a observer of this register.");
+        }
     }
 
     @Override
     public List<ServerConversation> getAllConversationsOfUsername(String username){
         checkString(username, "username");
-        return conversationList.stream().filter(con -> con.getMembers().checkIfUsernameIsMember(username)).toList();
+        return usernameIndex.getConversationsOfUsername(username);
+    }
+
+    @Override
+    public List<ServerConversation> getAllConversations(){
+        return conversationMap.values();
     }
 
     @Override
@@ -48,7 +98,7 @@ public class NormalConversationRegister implements ServerConversationRegister {
         checkIfObjectIsNull(nameOfConversation, "name of conversation");
         if (!members.isEmpty()){
             makeNewConversationNumber();
-            ServerConversation conversation = new NormalServerConversation(lastConversationNumber, members);
+            ServerConversation conversation = new NormalServerConversation(lastConversationNumber, members, messageLogFactory);
             if (!nameOfConversation.isEmpty()){
                 conversation.setConversationName(nameOfConversation);
             }
@@ -59,6 +109,36 @@ public class NormalConversationRegister implements ServerConversationRegister {
         }
     }
 
+    @Override
+    public ServerMessageLogFactory getMessageLogFactory(){
+        return messageLogFactory;
+    }
+
+    @Override
+    public void addExistingConversation(ServerConversation serverConversation) throws CouldNotAddConversationException {
+        checkIfObjectIsNull(serverConversation, "conversation");
+        if (conversationMap.get(serverConversation.getConversationNumber()) != null){
+            throw new CouldNotAddConversationException("The conversation with the number " + serverConversation.getConversationNumber() + " is already in the register.");
+        }
+        addConversation(serverConversation);
+        lastConversationNumber = Math.max(lastConversationNumber, serverConversation.getConversationNumber());
+    }
+
+    /**
+     * Takes out the conversation that was made last and gives its number back, so the next conversation gets the same number.
+     * Is used when the new conversation could not be written to the state log, so the numbers stay the same as the ones in the log.
+     * @param conversation the conversation that was made last.
+     * @throws CouldNotRemoveConversationException gets thrown if the conversation is not the newest one in the register.
+     */
+    public void removeNewestConversation(ServerConversation conversation) throws CouldNotRemoveConversationException {
+        checkIfObjectIsNull(conversation, "conversation");
+        if (conversation.getConversationNumber() != lastConversationNumber){
+            throw new CouldNotRemoveConversationException("The conversation " + conversation.getConversationNumber() + " is not the newest conversation in the register.");
+        }
+        removeConversation(conversation);
+        lastConversationNumber -= 1;
+    }
+
     /**
      * Makes a new log number for each log that is in the list.
      * @return the number that the new message log can have.
@@ -70,9 +150,9 @@ public class NormalConversationRegister implements ServerConversationRegister {
     @Override
     public ServerConversation getConversationByNumber(long conversationNumber) throws CouldNotGetConversationException {
         checkIfLongIsAboveZero(conversationNumber, "conversation number");
-        Optional<ServerConversation> optionalMessageLog = conversationList.stream().filter(log -> log.getConversationNumber() == conversationNumber).findFirst();
-        if (optionalMessageLog.isPresent()){
-            return optionalMessageLog.get();
+        ServerConversation conversation = conversationMap.get(conversationNumber);
+        if (conversation != null){
+            return conversation;
         }else {
             throw new CouldNotGetConversationException("The conversation with the log number " + conversationNumber + " is not a part of this register.");
         }
@@ -85,7 +165,12 @@ public class NormalConversationRegister implements ServerConversationRegister {
      */
     private void addConversation(ServerConversation serverConversation) throws CouldNotAddConversationException {
         if (!checkIfConversationIsInRegister(serverConversation)){
-            conversationList.add(serverConversation);
+            conversationMap.put(serverConversation.getConversationNumber(), serverConversation);
+            usernameIndex.addConversation(serverConversation);
+            serverConversationObservers.forEach(observer -> {
+                serverConversation.registerObserver(observer);
+                observer.updateNewConversation(serverConversation);
+            });
         }else {
             throw new CouldNotAddConversationException("The conversation is already in the register.");
         }
@@ -98,7 +183,7 @@ public class NormalConversationRegister implements ServerConversationRegister {
      */
     public void removeConversation(Conversation conversation) throws CouldNotRemoveConversationException {
         if (checkIfConversationIsInRegister(conversation)){
-            conversationList.remove(conversation);
+            usernameIndex.removeConversation(conversationMap.remove(conversation.getConversationNumber()));
         }else {
             throw new CouldNotRemoveConversationException("The conversation is not in the system.");
         }
@@ -112,7 +197,8 @@ public class NormalConversationRegister implements ServerConversationRegister {
      */
     private boolean checkIfConversationIsInRegister(Conversation conversation){
         checkIfObjectIsNull(conversation, "conversation");
-        return conversationList.stream().anyMatch(con -> con.equals(conversation));
+        ServerConversation conversationInRegister = conversationMap.get(conversation.getConversationNumber());
+        return conversationInRegister != null && conversationInRegister.equals(conversation);
     }
 
     /**
@@ -1,6 +1,7 @@
 package no.stonedstonar.chatapplication.model.conversationregister.server;
 
 import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversationObserver;
 import no.stonedstonar.chatapplication.model.conversationregister.ConversationRegister;
 import no.stonedstonar.chatapplication.model.conversationregister.personal.NormalPersonalConversationRegister;
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
@@ -8,6 +9,7 @@ import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotGetC
 import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLogFactory;
 
 import java.util.List;
 
@@ -34,6 +36,24 @@ public interface ServerConversationRegister extends ConversationRegister {
      */
     List<ServerConversation> getAllConversationsOfUsername(String username);
 
+    /**
+     * Gets all the conversations in this register.
+     * @return a new list with all the conversations in the register.
+     */
+    List<ServerConversation> getAllConversations();
+
+    /**
+     * Adds an observer that wants to know about new conversations and the changes of every conversation in the register.
+     * @param serverConversationObserver the new observer.
+     */
+    void registerObserver(ServerConversationObserver serverConversationObserver);
+
+    /**
+     * Removes an observer from the register and all its conversations.
+     * @param serverConversationObserver the observer to remove.
+     */
+    void removeObserver(ServerConversationObserver serverConversationObserver);
+
     /**
      * Adds a new conversation based on a list of names that are in it.
      * @param members list with all the members of this conversation.
@@ -44,4 +64,18 @@ public interface ServerConversationRegister extends ConversationRegister {
      */
     ServerConversation addNewConversationWithUsernames(List<Member> members, String nameOfConversation) throws CouldNotAddMemberException, CouldNotAddConversationException;
 
+    /**
+     * Gets the factory that makes the message logs of the conversations in the register.
+     * @return the message log factory.
+     */
+    ServerMessageLogFactory getMessageLogFactory();
+
+    /**
+     * Adds a conversation that was made before and keeps its number, like when the conversations are read back from a snapshot.
+     * New conversations get numbers that are higher than the number of every conversation that is added this way.
+     * @param serverConversation the conversation to add.
+     * @throws CouldNotAddConversationException gets thrown if a conversation with the same number is already in the register.
+     */
+    void addExistingConversation(ServerConversation serverConversation) throws CouldNotAddConversationException;
+
 }
@@ -0,0 +1,125 @@
+package no.stonedstonar.chatapplication.model.conversationregister.server;
+
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversationObserver;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents an index from each username to the conversations that user is a part of.
+ * The index observes every conversation in it, so it is kept up to date when members are added or removed.
+ * Members of different conversations can change at the same time, so every change and every read of a user's conversations
+ * is done while holding the lock of that user's entry.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+class UsernameIndex implements ServerConversationObserver {
+
+    private final Map<String, LongObjectHashMap<ServerConversation>> conversationsOfUsername;
+
+    /**
+      * Makes an instance of the UsernameIndex class.
+      */
+    UsernameIndex(){
+        conversationsOfUsername = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a conversation and all its members to the index, and starts observing the conversation.
+     * @param serverConversation the conversation to add.
+     */
+    void addConversation(ServerConversation serverConversation){
+        Iterator<Member> it = serverConversation.getMembers().getIterator();
+        while (it.hasNext()){
+            addUsername(it.next().getUsername(), serverConversation);
+        }
+        serverConversation.registerObserver(this);
+    }
+
+    /**
+     * Removes a conversation and all its members from the index, and stops observing the conversation.
+     * @param serverConversation the conversation to remove.
+     */
+    void removeConversation(ServerConversation serverConversation){
+        serverConversation.removeObserver(this);
+        Iterator<Member> it = serverConversation.getMembers().getIterator();
+        while (it.hasNext()){
+            removeUsername(it.next().getUsername(), serverConversation);
+        }
+    }
+
+    /**
+     * Gets the conversations a user is a part of.
+     * @param username the username of the user.
+     * @return a new list with the conversations, in the order the user became a part of them.
+     */
+    List<ServerConversation> getConversationsOfUsername(String username){
+        LongObjectHashMap<ServerConversation> conversations = conversationsOfUsername.get(username);
+        List<ServerConversation> list;
+        if (conversations == null){
+            list = new ArrayList<>();
+        }else {
+            synchronized (conversations){
+                list = conversations.values();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Adds a conversation to the conversations of a user.
+     * @param username the username of the user.
+     * @param serverConversation the conversation.
+     */
+    private void addUsername(String username, ServerConversation serverConversation){
+        conversationsOfUsername.compute(username, (key, conversations) -> {
+            LongObjectHashMap<ServerConversation> map = conversations == null ? new LongObjectHashMap<>(4) : conversations;
+            synchronized (map){
+                map.put(serverConversation.getConversationNumber(), serverConversation);
+            }
+            return map;
+        });
+    }
+
+    /**
+     * Removes a conversation from the conversations of a user. The user is removed from the index when it has no conversations left.
+     * @param username the username of the user.
+     * @param serverConversation the conversation.
+     */
+    private void removeUsername(String username, ServerConversation serverConversation){
+        conversationsOfUsername.computeIfPresent(username, (key, conversations) -> {
+            synchronized (conversations){
+                conversations.remove(serverConversation.getConversationNumber());
+                return conversations.isEmpty() ? null : conversations;
+            }
+        });
+    }
+
+    @Override
+    public void updateMember(ServerConversation serverConversation, Member member, boolean removed) {
+        if (removed){
+            removeUsername(member.getUsername(), serverConversation);
+        }else {
+            addUsername(member.getUsername(), serverConversation);
+        }
+    }
+
+    @Override
+    public void updateNewMessage(ServerConversation serverConversation, Message message) {
+    }
+
+    @Override
+    public void updateConversationName(ServerConversation serverConversation) {
+    }
+
+    @Override
+    public void updateNewConversation(ServerConversation serverConversation) {
+    }
+}
@@ -9,33 +9,94 @@ import no.stonedstonar.chatapplication.model.member.Member;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class that represents a conversations members.
+ * The members are kept both by their member number and by their username, so checking if a username is a member is O(1).
+ * The member numbers only go up, so the members that are new since a member number are read from a sorted map in O(log n + k).
+ * Removed members are put at the end of a list of removals, and the removals since a number are read from the list in O(k).
+ * The register remembers how far each member has read the removals. When the list gets long, the removals every member
+ * has read are dropped from the start of it, so the list does not grow forever. A client that comes back with a cursor from before the
+ * dropped removals cannot get the removals it missed, and must read all the members again.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
 public class NormalMembersRegister implements Serializable, ServerMemberRegister {
 
-    private final Map<Long, Member> memberMap;
+    private static final int COMPACT_AFTER = 64;
 
-    private final Map<Long, Member> deletedMap;
+    private final NavigableMap<Long, Member> memberMap;
+
+    private final Map<String, Member> usernameMap;
+
+    private final List<Member> deletedMembers;
+
+    private final Map<String, Long> deletedMemberCursors;
+
+    private long firstDeletedInList;
+
+    private int nextCompactionSize;
 
     private long lastDeletedMember;
 
     private long lastMember;
 
+    private final transient List<MembersRegisterObserver> membersRegisterObserverList;
+
     /**
       * Makes an instance of the MembersOfConversation class.
       */
     public NormalMembersRegister(List<Member> conversationMembers){
-        memberMap = new HashMap<>();
-        deletedMap = new HashMap<>();
+        memberMap = new TreeMap<>();
+        usernameMap = new HashMap<>();
+        deletedMembers = new ArrayList<>();
+        deletedMemberCursors = new ConcurrentHashMap<>();
+        firstDeletedInList = 1;
+        nextCompactionSize = COMPACT_AFTER;
+        membersRegisterObserverList = new ArrayList<>();
         lastMember = 0;
         checkIfListIsValid(conversationMembers, "conversation members");
         conversationMembers.forEach(this::addNewMember);
     }
 
+    /**
+      * Makes an instance of the MembersOfConversation class with members that already have their numbers, like when a register is read back from a snapshot.
+      * Every member is set to have read all the deleted members that are not in the list of deleted members.
+      * @param conversationMembers the members with their member numbers.
+      * @param deletedMembers the deleted members that should be remembered, with the oldest first.
+      * @param lastMember the number the last member that was added got.
+      * @param lastDeletedMember the number of the last deleted member.
+      */
+    public NormalMembersRegister(List<Member> conversationMembers, List<Member> deletedMembers, long lastMember, long lastDeletedMember){
+        checkIfObjectIsNull(conversationMembers, "conversation members");
+        checkIfObjectIsNull(deletedMembers, "deleted members");
+        checkIfLongIsNegative(lastMember, "last member");
+        checkIfLongIsNegative(lastDeletedMember, "last deleted member");
+        if (deletedMembers.size() > lastDeletedMember){
+            throw new IllegalArgumentException("There cannot be more deleted members than the number of the last deleted member.");
+        }
+        memberMap = new TreeMap<>();
+        usernameMap = new HashMap<>();
+        this.deletedMembers = new ArrayList<>(deletedMembers);
+        deletedMemberCursors = new ConcurrentHashMap<>();
+        this.lastMember = lastMember;
+        this.lastDeletedMember = lastDeletedMember;
+        firstDeletedInList = lastDeletedMember - deletedMembers.size() + 1;
+        nextCompactionSize = Math.max(COMPACT_AFTER, deletedMembers.size() * 2);
+        membersRegisterObserverList = new ArrayList<>();
+        for (Member member : conversationMembers){
+            if (member.getMemberNumber() <= 0 || member.getMemberNumber() > lastMember){
+                throw new IllegalArgumentException("The member number " + member.getMemberNumber() + " must be above zero and not higher than " + lastMember + ".");
+            }
+            if (usernameMap.put(member.getUsername(), member) != null){
+                throw new IllegalArgumentException("The username " + member.getUsername() + " is in the list twice.");
+            }
+            memberMap.put(member.getMemberNumber(), member);
+            deletedMemberCursors.put(member.getUsername(), firstDeletedInList - 1);
+        }
+    }
+
     @Override
     public void addMember(Member userToAdd, String username) throws CouldNotAddMemberException, UsernameNotPartOfConversationException {
         checkIfUserIsMemberIfNotThrowException(username);
@@ -54,6 +115,9 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
         makeNewMemberNumber();
         Member member = new ConversationMember(memberToAdd.getUsername(), lastMember);
         memberMap.put(member.getMemberNumber(), member);
+        usernameMap.put(member.getUsername(), member);
+        deletedMemberCursors.put(member.getUsername(), lastDeletedMember);
+        notifyObservers(member, false);
     }
 
     /**
@@ -138,8 +202,78 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
     private void removeMemberFromMap(String usernameToRemove) throws CouldNotGetMemberException {
         Member member = getMemberByUsername(usernameToRemove);
         memberMap.remove(member.getMemberNumber());
+        usernameMap.remove(member.getUsername());
+        deletedMemberCursors.remove(member.getUsername());
         lastDeletedMember += 1;
-        deletedMap.put(lastDeletedMember, member);
+        deletedMembers.add(member);
+        compactDeletedMembers();
+        notifyObservers(member, true);
+    }
+
+    /**
+     * Drops the removals that every member has read from the start of the list, if the list has grown long enough since the last time.
+     * Finding out how far the members have read goes through all the members, so it is only done when the list has doubled in size.
+     */
+    private void compactDeletedMembers(){
+        if (deletedMembers.size() >= nextCompactionSize){
+            long readByAll = lastDeletedMember;
+            for (String username : usernameMap.keySet()){
+                readByAll = Math.min(readByAll, deletedMemberCursors.getOrDefault(username, 0L));
+            }
+            int amountToDrop = (int) Math.max(0, Math.min(readByAll - firstDeletedInList + 1, deletedMembers.size()));
+            if (amountToDrop > 0){
+                deletedMembers.subList(0, amountToDrop).clear();
+                firstDeletedInList += amountToDrop;
+            }
+            nextCompactionSize = Math.max(COMPACT_AFTER, deletedMembers.size() * 2);
+        }
+    }
+
+    /**
+     * Adds a new observer that wants to know when members are added or removed.
+     * @param membersRegisterObserver the new observer.
+     */
+    public void addObserver(MembersRegisterObserver membersRegisterObserver){
+        checkIfObjectIsNull(membersRegisterObserver, "observer");
+        if (!checkIfObjectIsObserver(membersRegisterObserver)){
+            membersRegisterObserverList.add(membersRegisterObserver);
+        }else {
+            throw new IllegalArgumentException("The observer is already in the observer register.");
+        }
+    }
+
+    /**
+     * Removes an observer from this register.
+     * @param membersRegisterObserver the observer to remove.
+     */
+    public void removeObserver(MembersRegisterObserver membersRegisterObserver){
+        checkIfObjectIsNull(membersRegisterObserver, "observer");
+        if (checkIfObjectIsObserver(membersRegisterObserver)){
+            membersRegisterObserverList.remove(membersRegisterObserver);
+        }else {
+            throw new IllegalArgumentException("The observer object is not subscribed to this object.");
+        }
+    }
+
+    /**
+     * Checks if the object is an observer of this register.
+     * @param membersRegisterObserver the object to check.
+     * @return <code>true</code> if the object is an observer.
+     *         <code>false</code> if the object is not an observer.
+     */
+    public boolean checkIfObjectIsObserver(MembersRegisterObserver membersRegisterObserver){
+        checkIfObjectIsNull(membersRegisterObserver, "observer");
+        return membersRegisterObserverList.stream().anyMatch(observer -> observer.equals(membersRegisterObserver));
+    }
+
+    /**
+     * Tells all the observers that a member was added or removed.
+     * @param member the member that was added or removed.
+     * @param removed <code>true</code> if the member was removed.
+     *                <code>false</code> if the member was added.
+     */
+    private void notifyObservers(Member member, boolean removed){
+        membersRegisterObserverList.forEach(observer -> observer.updateMember(member, removed));
     }
 
 
@@ -151,7 +285,7 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
      */
     public boolean checkIfUsernameIsMember(String username){
         checkString(username, "username");
-        return memberMap.values().stream().anyMatch(mem -> mem.getUsername().equals(username));
+        return usernameMap.containsKey(username);
     }
 
     /**
@@ -180,9 +314,9 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
      * @throws CouldNotGetMemberException gets thrown if there is no members with that username.
      */
     private Member getMemberByUsername(String username) throws CouldNotGetMemberException {
-        Optional<Member> optionalMember = memberMap.values().stream().filter(mem -> mem.getUsername().equals(username)).findFirst();
-        if (optionalMember.isPresent()){
-            return optionalMember.get();
+        Member member = usernameMap.get(username);
+        if (member != null){
+            return member;
         }else {
             throw new CouldNotGetMemberException("The member by the username " + username  + " is not in the register.");
         }
@@ -196,13 +330,18 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
      */
     private boolean checkIfNoneUsernamesAreInConversation(List<Member> members){
         if (!members.isEmpty()){
-            return members.stream().anyMatch(mem -> memberMap.values().stream().anyMatch(mem2 -> mem2.getUsername().equals(mem.getUsername())));
+            return members.stream().anyMatch(mem -> usernameMap.containsKey(mem.getUsername()));
         }else {
             throw new IllegalArgumentException("The list must have some usernames in it.");
         }
     }
 
 
+    @Override
+    public List<Member> getRememberedDeletedMembers() {
+        return new ArrayList<>(deletedMembers);
+    }
+
     @Override
     public List<String> getNameOfAllMembers() {
         return memberMap.values().stream().map(Member::getUsername).toList();
@@ -219,24 +358,30 @@ public class NormalMembersRegister implements Serializable, ServerMemberRegister
         checkIfLongIsNegative(lastMember, "last member");
         List<Member> newUsers = new ArrayList<>();
         if (lastMember < this.lastMember){
-            List<Long> newKeys = memberMap.keySet().stream().filter(num -> num > lastMember).toList();
-            newKeys.forEach(key -> newUsers.add(memberMap.get(key)));
+            newUsers.addAll(memberMap.tailMap(lastMember, false).values());
         }
         return newUsers;
     }
 
+    @Override
+    public boolean checkIfDeletedMembersAreRemembered(long lastDeletedMember) {
+        return lastDeletedMember >= firstDeletedInList - 1 && lastDeletedMember <= this.lastDeletedMember;
+    }
+
     @Override
     public List<Member> checkForDeletedMembers(long lastDeletedMember, String username) throws UsernameNotPartOfConversationException {
-        List<Member> deletedMembers = new ArrayList<>();
         checkIfUserIsMemberIfNotThrowException(username);
+        checkIfLongIsNegative(lastDeletedMember, "last deleted member");
+        if (!checkIfDeletedMembersAreRemembered(lastDeletedMember)){
+            throw new IllegalArgumentException("The deleted members after " + lastDeletedMember + " are not remembered, so all the members must be read again.");
+        }
+        List<Member> newDeletedMembers = new ArrayList<>();
         if (this.lastDeletedMember > lastDeletedMember){
-            long firstLong = lastDeletedMember + 1;
-            do {
-                deletedMembers.add(deletedMap.get(firstLong));
-                firstLong += 1;
-            }while (this.lastDeletedMember > firstLong);
+            int fromIndex = (int) (lastDeletedMember + 1 - firstDeletedInList);
+            newDeletedMembers.addAll(deletedMembers.subList(fromIndex, deletedMembers.size()));
         }
-        return deletedMembers;
+        deletedMemberCursors.put(username, lastDeletedMember);
+        return newDeletedMembers;
     }
 
     /**
@@ -161,6 +161,29 @@ public class NormalObservableMemberRegister implements ObservableMemberRegister,
         }
     }
 
+    @Override
+    public void replaceAllMembers(List<Member> members, long lastMemberNumber, long lastDeletedMember) {
+        checkIfListIsValid(members, "members");
+        if (lastMemberNumber < 0 || lastDeletedMember < 0){
+            throw new IllegalArgumentException("The last member number and the last deleted member cannot be negative.");
+        }
+        Set<String> usernames = new HashSet<>();
+        members.forEach(member -> usernames.add(member.getUsername()));
+        List<Member> removedMembers = memberMap.values().stream().filter(member -> !usernames.contains(member.getUsername())).toList();
+        removedMembers.forEach(member -> {
+            memberMap.remove(member.getMemberNumber());
+            notifyObservers(member, true);
+        });
+        for (Member member : members){
+            if (!checkIfUsernameIsMember(member.getUsername())){
+                memberMap.put(member.getMemberNumber(), member);
+                notifyObservers(member, false);
+            }
+        }
+        this.lastMemberNumber = lastMemberNumber;
+        this.lastDeletedMember = lastDeletedMember;
+    }
+
     @Override
     public boolean checkIfUsernameIsMember(String username) {
         checkString(username, "username");
@@ -3,6 +3,8 @@ package no.stonedstonar.chatapplication.model.membersregister;
 import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
 import no.stonedstonar.chatapplication.model.member.Member;
 
+import java.util.List;
+
 /**
  * Represents a class that is used on the client side for observing members.
  * @version 0.2
@@ -38,6 +40,15 @@ public interface ObservableMemberRegister extends MemberRegister {
      */
     boolean checkIfObjectIsObserver(MembersRegisterObserver membersRegisterObserver);
 
+    /**
+     * Replaces the members with all the members the server has, for when the server could not tell which members were removed.
+     * The observers are told about each member that is removed or added.
+     * @param members all the members of the conversation.
+     * @param lastMemberNumber the number of the last member that was added on the server.
+     * @param lastDeletedMember the number of the last member that was removed on the server.
+     */
+    void replaceAllMembers(List<Member> members, long lastMemberNumber, long lastDeletedMember);
+
     /**
      * Gets the amount of members stored.
      * @return the amount of members stored.
@@ -22,11 +22,28 @@ public interface ServerMemberRegister extends MemberRegister {
     List<Member> checkForNewUsers(long lastMember, String username) throws UsernameNotPartOfConversationException;
 
     /**
-     * Checks for new deleted members.
+     * Checks if the register still remembers every member that was deleted after a last deleted member.
+     * A client with a cursor the register has forgotten must read all the members again, since the deleted members it has not seen are gone.
+     * @param lastDeletedMember the last deleted member the client has.
+     * @return <code>true</code> if all the deleted members after the last deleted member can be read.
+     *         <code>false</code> if some of them are forgotten, or the last deleted member is higher than the one of the register.
+     */
+    boolean checkIfDeletedMembersAreRemembered(long lastDeletedMember);
+
+    /**
+     * Checks for new deleted members. The register remembers how far the user has read, and may forget
+     * the deleted members that every member has read.
      * @param lastDeletedMember the last member that was deleted. The number starts with 1.
      * @param username the user's username that wants to check for deleted messages.
-     * @return
-     * @throws UsernameNotPartOfConversationException
+     * @return a list with the members that were deleted after the last deleted member, in the order they were deleted.
+     * @throws UsernameNotPartOfConversationException gets thrown if the input username is not a part of this members object.
+     * @throws IllegalArgumentException gets thrown if some of the deleted members after the last deleted member are forgotten.
      */
     List<Member> checkForDeletedMembers(long lastDeletedMember,String username) throws UsernameNotPartOfConversationException;
+
+    /**
+     * Gets the deleted members the register still remembers, with the oldest first. Does not change how far anyone has read.
+     * @return a new list with the deleted members. The last of them is the deleted member with the number of the last deleted member.
+     */
+    List<Member> getRememberedDeletedMembers();
 }
@@ -11,7 +11,8 @@ import java.time.LocalTime;
 public interface Message {
 
     /**
-     * Sets the message's number.
+     * Sets the message's number. The server's current time is set as the time the message was received,
+     * unless the message already has one, like a message that is read back from the state log of the server.
      * @param messageNumber the message number this message is.
      */
     void setMessageNumber(long messageNumber);
@@ -22,6 +23,13 @@ public interface Message {
      */
     long getMessageNumber();
 
+    /**
+     * Gets the key that was made for this message when the user wrote it.
+     * A message that is sent again keeps its key, so the server can tell a message it already has from a new one.
+     * @return the key of the message, or <code>null</code> if the message was made before messages had keys.
+     */
+    String getMessageKey();
+
     /**
      * Gets the user that this message is from.
      * @return the user that this message is from.
@@ -3,6 +3,7 @@ package no.stonedstonar.chatapplication.model.message;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.UUID;
 
 /**
  * Represents a message that holds text.
@@ -25,6 +26,7 @@ public class TextMessage implements Serializable, Message{
 
     private long messageNumber;
 
+    private final String messageKey;
 
     /**
       * Makes an instance of the Message class.
@@ -40,6 +42,7 @@ public class TextMessage implements Serializable, Message{
         sentTime = LocalTime.now();
         receivedByServerDate = null;
         receivedByServerTime = null;
+        messageKey = UUID.randomUUID().toString();
     }
 
     /**
@@ -57,6 +60,70 @@ public class TextMessage implements Serializable, Message{
         sentDate = localDate;
         sentTime = LocalTime.now();
         messageNumber = -1;
+        messageKey = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Makes an instance of the Message class with all the values a message had when it was written out, and a new message key.
+     * @param message the message this object should contain.
+     * @param fromUsername the username this message was sent form.
+     * @param sentDate the date the user sent the message.
+     * @param sentTime the time the user sent the message.
+     * @param receivedByServerDate the date the server got the message. Is <code>null</code> if the server has not gotten it.
+     * @param receivedByServerTime the time the server got the message. Is <code>null</code> if the server has not gotten it.
+     * @param messageNumber the number of the message.
+     */
+    public TextMessage(String message, String fromUsername, LocalDate sentDate, LocalTime sentTime, LocalDate receivedByServerDate, LocalTime receivedByServerTime, long messageNumber){
+        this(message, fromUsername, sentDate, sentTime, receivedByServerDate, receivedByServerTime, messageNumber, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Makes an instance of the Message class with all the values a message had when it was written out.
+     * Is used when a message is read back from a format that is not java serialization.
+     * @param message the message this object should contain.
+     * @param fromUsername the username this message was sent form.
+     * @param sentDate the date the user sent the message.
+     * @param sentTime the time the user sent the message.
+     * @param receivedByServerDate the date the server got the message. Is <code>null</code> if the server has not gotten it.
+     * @param receivedByServerTime the time the server got the message. Is <code>null</code> if the server has not gotten it.
+     * @param messageNumber the number of the message.
+     * @param messageKey the key of the message. Is <code>null</code> if the message was made before messages had keys.
+     */
+    public TextMessage(String message, String fromUsername, LocalDate sentDate, LocalTime sentTime, LocalDate receivedByServerDate, LocalTime receivedByServerTime, long messageNumber, String messageKey){
+        checkString(message, "Message");
+        checkString(fromUsername, "From username");
+        checkIfObjectIsNull(sentDate, "sent date");
+        checkIfObjectIsNull(sentTime, "sent time");
+        if ((receivedByServerDate == null) != (receivedByServerTime == null)){
+            throw new IllegalArgumentException("The received date and time must both be set or both be null.");
+        }
+        if (messageNumber < -1){
+            throw new IllegalArgumentException("The message number cannot be below -1.");
+        }
+        this.message = message;
+        this.fromUsername = fromUsername;
+        this.sentDate = sentDate;
+        this.sentTime = sentTime;
+        this.receivedByServerDate = receivedByServerDate;
+        this.receivedByServerTime = receivedByServerTime;
+        this.messageNumber = messageNumber;
+        this.messageKey = messageKey;
+    }
+
+    /**
+     * Gets the date the server got the message.
+     * @return the date the server got the message, or <code>null</code> if the server has not gotten it.
+     */
+    public LocalDate getReceivedByServerDate(){
+        return receivedByServerDate;
+    }
+
+    /**
+     * Gets the time the server got the message.
+     * @return the time the server got the message, or <code>null</code> if the server has not gotten it.
+     */
+    public LocalTime getReceivedByServerTime(){
+        return receivedByServerTime;
     }
 
     @Override
@@ -92,8 +159,10 @@ public class TextMessage implements Serializable, Message{
         checkIfLongIsNegative(messageNumber, "message number");
         if (this.messageNumber >= -1){
             this.messageNumber = messageNumber;
-            receivedByServerDate = LocalDate.now();
-            receivedByServerTime = LocalTime.now();
+            if (receivedByServerDate == null){
+                receivedByServerDate = LocalDate.now();
+                receivedByServerTime = LocalTime.now();
+            }
         }else {
             throw new IllegalArgumentException("The message number cannot be altered after its set.");
         }
@@ -104,6 +173,11 @@ public class TextMessage implements Serializable, Message{
         return messageNumber;
     }
 
+    @Override
+    public String getMessageKey() {
+        return messageKey;
+    }
+
     @Override
     public String getFromUsername() {
         return fromUsername;
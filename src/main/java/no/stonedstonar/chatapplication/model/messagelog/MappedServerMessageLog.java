@@ -0,0 +1,915 @@
+package no.stonedstonar.chatapplication.model.messagelog;
+
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.util.RemovedPlaces;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * Represents a message log that keeps the messages of a day in a memory-mapped file instead of as objects on the heap.
+ * Each message is written to the end of the file as a record that starts with its length. The heap only holds the place of each record,
+ * the message numbers and the hashes of the message keys, so a day that is not read costs page cache and not heap.
+ * A message is made again from its record each time it is read, so the messages that are given out are copies.
+ * <p>
+ * The new messages are found with a binary search on the message numbers like in {@link NormalServerMessageLog},
+ * and a message is found by its key in a table of the places of the records that have a key.
+ * A removed message keeps its record, and a short record with the number of the message is written after the other records,
+ * so the bytes that are already written never change. Files from before this have the length of a removed record made negative instead,
+ * and are still read.
+ * <p>
+ * A log that is made with a {@link MessageLogCache} can be unloaded by the cache. It then only keeps its date and last message number,
+ * and reads the places of its records back from the file the next time it is used, since the file has everything that is needed.
+ * The state log is what keeps the messages when the server stops. A snapshot does not write the messages of the file, but only remembers
+ * how long the records were and their checksum, which the log keeps as the records are written so it does not have to read the file.
+ * When the server starts again the file must still start with the same records, and is only cut after them.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class MappedServerMessageLog implements ServerMessageLog {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int DEFAULT_MAPPING_SIZE = 1 << 12;
+
+    private static final int LENGTH_SIZE = 4;
+
+    private static final int REMOVAL_LENGTH = Long.BYTES;
+
+    private final Path file;
+
+    private final LocalDate dateMade;
+
+    private final MessageLogCache messageLogCache;
+
+    private volatile RecordIndex recordIndex;
+
+    private long lastMessageNumber;
+
+    private volatile boolean used;
+
+    private final CRC32C recordsChecksum;
+
+    private volatile long recordsLength;
+
+    private long forcedLength;
+
+    /**
+      * Makes an instance of the MappedServerMessageLog class that is always loaded. A file that is already at the path is written over.
+      * @param file the file the messages should be kept in.
+      * @param dateMade the date this object was made.
+      * @throws IOException gets thrown if the file could not be made or mapped.
+      */
+    public MappedServerMessageLog(Path file, LocalDate dateMade) throws IOException {
+        checkIfObjectIsNull(file, "file");
+        checkIfObjectIsNull(dateMade, "date made");
+        this.file = file;
+        this.dateMade = dateMade;
+        messageLogCache = null;
+        lastMessageNumber = 0;
+        recordsChecksum = new CRC32C();
+        recordIndex = makeEmptyFile();
+    }
+
+    /**
+      * Makes an instance of the MappedServerMessageLog class that can be unloaded by a cache. A file that is already at the path is written over.
+      * @param file the file the messages should be kept in.
+      * @param dateMade the date this object was made.
+      * @param messageLogCache the cache that decides when the log is unloaded.
+      * @throws IOException gets thrown if the file could not be made or mapped.
+      */
+    public MappedServerMessageLog(Path file, LocalDate dateMade, MessageLogCache messageLogCache) throws IOException {
+        checkIfObjectIsNull(file, "file");
+        checkIfObjectIsNull(dateMade, "date made");
+        checkIfObjectIsNull(messageLogCache, "message log cache");
+        this.file = file;
+        this.dateMade = dateMade;
+        this.messageLogCache = messageLogCache;
+        lastMessageNumber = 0;
+        recordsChecksum = new CRC32C();
+        recordIndex = makeEmptyFile();
+    }
+
+    /**
+      * Makes an instance of the MappedServerMessageLog class with messages that already have their numbers, like when a log is read back from a snapshot.
+      * @param file the file the messages should be kept in.
+      * @param dateMade the date this object was made.
+      * @param messages the messages of the log, with the lowest message number first.
+      * @param lastMessageNumber the number the last message that was added got. Can be higher than the numbers of the messages if the last messages were removed.
+      * @throws IOException gets thrown if the file could not be made or the messages could not be written to it.
+      */
+    public MappedServerMessageLog(Path file, LocalDate dateMade, List<Message> messages, long lastMessageNumber) throws IOException {
+        this(file, dateMade);
+        writeMessages(messages, lastMessageNumber);
+    }
+
+    /**
+      * Makes an instance of the MappedServerMessageLog class with messages that already have their numbers, that can be unloaded by a cache.
+      * The log starts out unloaded, so reading many logs back does not fill the heap.
+      * @param file the file the messages should be kept in.
+      * @param dateMade the date this object was made.
+      * @param messages the messages of the log, with the lowest message number first.
+      * @param lastMessageNumber the number the last message that was added got. Can be higher than the numbers of the messages if the last messages were removed.
+      * @param messageLogCache the cache that decides when the log is unloaded.
+      * @throws IOException gets thrown if the file could not be made or the messages could not be written to it.
+      */
+    public MappedServerMessageLog(Path file, LocalDate dateMade, List<Message> messages, long lastMessageNumber, MessageLogCache messageLogCache) throws IOException {
+        this(file, dateMade, messageLogCache);
+        writeMessages(messages, lastMessageNumber);
+        messageLogCache.unload(this);
+    }
+
+    /**
+      * Makes an instance of the MappedServerMessageLog class from a file that is kept from before, like when the server starts again.
+      * The file is cut after the records a snapshot saw, since the changes after the snapshot are done again from the state log.
+      * The file should be checked with {@link #checkIfFileMatches(Path, long, int)} first. The records are read once, so the log knows their checksum.
+      * @param file the file the messages are kept in.
+      * @param dateMade the date this object was made.
+      * @param lastMessageNumber the number the last message that was added got.
+      * @param recordsLength how many bytes at the start of the file hold the records that should be kept.
+      * @param messageLogCache the cache that decides when the log is unloaded. Is <code>null</code> if the log should always be loaded.
+      * @throws IOException gets thrown if the file could not be opened or cut.
+      */
+    public MappedServerMessageLog(Path file, LocalDate dateMade, long lastMessageNumber, long recordsLength, MessageLogCache messageLogCache) throws IOException {
+        checkIfObjectIsNull(file, "file");
+        checkIfObjectIsNull(dateMade, "date made");
+        checkIfLongIsNegative(lastMessageNumber, "last message number");
+        checkIfLongIsNegative(recordsLength, "records length");
+        this.file = file;
+        this.dateMade = dateMade;
+        this.messageLogCache = messageLogCache;
+        this.lastMessageNumber = lastMessageNumber;
+        if (recordsLength > Integer.MAX_VALUE){
+            throw new IOException("The messages of one day cannot take more than " + Integer.MAX_VALUE + " bytes.");
+        }
+        recordsChecksum = new CRC32C();
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            fileChannel.truncate(recordsLength);
+            recordsChecksum.update(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, recordsLength));
+        }
+        this.recordsLength = recordsLength;
+        forcedLength = recordsLength;
+        recordIndex = messageLogCache != null ? null : loadRecordIndex();
+    }
+
+    /**
+     * Checks if a file that is kept from before still starts with the records a snapshot saw.
+     * @param file the file of the log.
+     * @param recordsLength how many bytes of records the snapshot saw.
+     * @param checksum the checksum of those bytes.
+     * @return <code>true</code> if the file has at least that many bytes and they have the same checksum.
+     *         <code>false</code> if the file is missing, too short or has changed.
+     * @throws IOException gets thrown if the file could not be read.
+     */
+    public static boolean checkIfFileMatches(Path file, long recordsLength, int checksum) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < recordsLength || recordsLength > Integer.MAX_VALUE){
+            return false;
+        }
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)){
+            return checksumOf(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, recordsLength), (int) recordsLength) == checksum;
+        }
+    }
+
+    /**
+     * Gets how many bytes at the start of the file hold the records of this log, the removed records included.
+     * Does not load the log.
+     * @return the amount of bytes.
+     */
+    public long getRecordsLength(){
+        return recordsLength;
+    }
+
+    /**
+     * Gets the checksum of the records in the file, so a snapshot can check later that the file has not changed.
+     * The checksum is kept as the records are written, so the file is not read and the log is not loaded.
+     * Must be called while the log cannot be changed.
+     * @return the checksum of the bytes of the records.
+     */
+    public int checksumRecords(){
+        return (int) recordsChecksum.getValue();
+    }
+
+    /**
+     * Forces the records that are written to the disk, so a snapshot that only remembers the file can be trusted after the state log before it is deleted.
+     * Does nothing if no records were written since the last time.
+     * @throws IOException gets thrown if the file could not be forced.
+     */
+    public synchronized void forceRecords() throws IOException {
+        long length = recordsLength;
+        if (length > forcedLength){
+            RecordIndex index = recordIndex;
+            if (index != null){
+                index.mapping.force();
+            }
+            try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)){
+                fileChannel.force(false);
+            }
+            forcedLength = length;
+        }
+    }
+
+    /**
+     * Makes a checksum of the first bytes of a buffer.
+     * @param buffer the buffer.
+     * @param length the amount of bytes from the start of the buffer.
+     * @return the checksum.
+     */
+    private static int checksumOf(ByteBuffer buffer, int length){
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Makes the file of the log empty and maps the start of it.
+     * @return the places of the records in the empty file.
+     * @throws IOException gets thrown if the file could not be made or mapped.
+     */
+    private RecordIndex makeEmptyFile() throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            return new RecordIndex(fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, DEFAULT_MAPPING_SIZE));
+        }
+    }
+
+    /**
+     * Writes messages that already have their numbers to the empty file.
+     * @param messages the messages, with the lowest message number first.
+     * @param lastMessageNumber the number the last message that was added got.
+     * @throws IOException gets thrown if the messages could not be written.
+     */
+    private void writeMessages(List<Message> messages, long lastMessageNumber) throws IOException {
+        checkIfObjectIsNull(messages, "messages");
+        checkIfLongIsNegative(lastMessageNumber, "last message number");
+        long previousNumber = 0;
+        for (Message message : messages){
+            checkIfObjectIsNull(message, "message");
+            long messageNumber = message.getMessageNumber();
+            if (messageNumber <= previousNumber || messageNumber > lastMessageNumber){
+                throw new IllegalArgumentException("The message number " + messageNumber + " must be higher than " + previousNumber + " and not higher than " + lastMessageNumber + ".");
+            }
+            writeMessage(recordIndex, message, messageNumber);
+            previousNumber = messageNumber;
+        }
+        this.lastMessageNumber = lastMessageNumber;
+    }
+
+    /**
+     * Lets go of the places of the records and the mapping, so they no longer take up heap. Is done by the cache.
+     * A thread that is reading the log while it is unloaded keeps the places it has, and the log is loaded again the next time it is used.
+     */
+    void unload(){
+        recordIndex = null;
+    }
+
+    /**
+     * Marks that the log was used since the cache last went past it. Is done by the cache.
+     */
+    void markUsed(){
+        if (!used){
+            used = true;
+        }
+    }
+
+    /**
+     * Takes away the mark that the log was used. Is done by the cache when it goes past the log.
+     * @return <code>true</code> if the log was used since the cache last went past it.
+     *         <code>false</code> if the log was not used.
+     */
+    boolean clearUsed(){
+        boolean wasUsed = used;
+        if (wasUsed){
+            used = false;
+        }
+        return wasUsed;
+    }
+
+    /**
+     * Checks if the places of the records are on the heap.
+     * @return <code>true</code> if the log is loaded.
+     *         <code>false</code> if the log must be read back from its file before it is used.
+     */
+    public boolean isLoaded(){
+        return recordIndex != null;
+    }
+
+    /**
+     * Gets the places of the records, and reads them back from the file if the log was unloaded.
+     * @param used <code>true</code> if the cache should remember that the log was used.
+     * @return the places of the records.
+     */
+    private RecordIndex getRecordIndex(boolean used){
+        RecordIndex index = recordIndex;
+        boolean loaded = false;
+        if (index == null){
+            index = loadRecordIndex();
+            recordIndex = index;
+            loaded = true;
+        }
+        if (messageLogCache != null && (used || loaded)){
+            messageLogCache.recordUse(this, index.mapping.capacity(), loaded);
+        }
+        return index;
+    }
+
+    /**
+     * Reads the places of the records back from the file. The records are read one after the other until a length of zero is found,
+     * and a record that marks a removal marks the message it has the number of as removed.
+     * @return the places of the records.
+     */
+    private RecordIndex loadRecordIndex(){
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            long fileSize = Math.min(Integer.MAX_VALUE, Math.max(DEFAULT_MAPPING_SIZE, fileChannel.size()));
+            RecordIndex index = new RecordIndex(fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize));
+            MappedByteBuffer mapping = index.mapping;
+            int at = 0;
+            while ((long) at + LENGTH_SIZE <= mapping.capacity() && mapping.getInt(at) != 0){
+                int length = mapping.getInt(at);
+                if (length == REMOVAL_LENGTH){
+                    long messageNumber = mapping.getLong(at + LENGTH_SIZE);
+                    int place = index.findFirstIndexOverMessageNumber(messageNumber - 1);
+                    if (place < index.size && index.messageNumbers[place] == messageNumber && !index.removedMessages.get(place)){
+                        index.markRemoved(place);
+                    }
+                }else {
+                    index.addRecord(at, mapping.getLong(at + LENGTH_SIZE), index.readMessageKey(at), length < 0);
+                }
+                at += LENGTH_SIZE + Math.abs(length);
+            }
+            index.position = at;
+            return index;
+        }catch (IOException exception){
+            throw new IllegalStateException("The message log of " + dateMade + " could not be read back from " + file + ".", exception);
+        }
+    }
+
+    @Override
+    public void addMessage(Message message) throws CouldNotAddMessageException {
+        addMessage(message, lastMessageNumber + 1);
+    }
+
+    @Override
+    public void addMessage(Message message, long messageNumber) throws CouldNotAddMessageException {
+        checkIfObjectIsNull(message, "message");
+        if (messageNumber <= lastMessageNumber){
+            throw new CouldNotAddMessageException("The message number " + messageNumber + " must be higher than the last message number " + lastMessageNumber + ".");
+        }
+        RecordIndex index = getRecordIndex(true);
+        if (findIndexOfMessage(index, message) == -1){
+            message.setMessageNumber(messageNumber);
+            try {
+                writeMessage(index, message, messageNumber);
+            }catch (IOException exception){
+                throw new CouldNotAddMessageException("The message could not be written to the message log of " + dateMade + ". " + exception.getMessage());
+            }
+            lastMessageNumber = messageNumber;
+        }else {
+            throw new CouldNotAddMessageException("The message " + message + " is already in the system.");
+        }
+    }
+
+    /**
+     * Writes a message to the end of the file and remembers where it is. A message record is always longer than a record that marks a removal.
+     * @param index the places of the records.
+     * @param message the message to write.
+     * @param messageNumber the number of the message.
+     * @throws IOException gets thrown if the message is not a text message or the file could not be made larger.
+     */
+    private void writeMessage(RecordIndex index, Message message, long messageNumber) throws IOException {
+        if (!(message instanceof TextMessage textMessage)){
+            throw new IOException("Only text messages can be kept in a mapped message log, not " + message.getClass());
+        }
+        byte[] contents = textMessage.getMessage().getBytes(StandardCharsets.UTF_8);
+        byte[] fromUsername = textMessage.getFromUsername().getBytes(StandardCharsets.UTF_8);
+        String messageKey = textMessage.getMessageKey();
+        byte[] key = messageKey != null ? messageKey.getBytes(StandardCharsets.UTF_8) : null;
+        boolean received = textMessage.getReceivedByServerDate() != null;
+        int length = 3 * Long.BYTES + 2 + (received ? 2 * Long.BYTES : 0) + (key != null ? LENGTH_SIZE + key.length : 0)
+            + LENGTH_SIZE + contents.length + LENGTH_SIZE + fromUsername.length;
+        makeRoomFor(index, LENGTH_SIZE + length);
+        MappedByteBuffer mapping = index.mapping;
+        mapping.position(index.position);
+        mapping.putInt(length);
+        mapping.putLong(messageNumber);
+        mapping.putLong(textMessage.getSentFromUserDate().toEpochDay());
+        mapping.putLong(textMessage.getSentFromUserTime().toNanoOfDay());
+        mapping.put((byte) (received ? 1 : 0));
+        if (received){
+            mapping.putLong(textMessage.getReceivedByServerDate().toEpochDay());
+            mapping.putLong(textMessage.getReceivedByServerTime().toNanoOfDay());
+        }
+        mapping.put((byte) (key != null ? 1 : 0));
+        if (key != null){
+            mapping.putInt(key.length).put(key);
+        }
+        mapping.putInt(contents.length).put(contents);
+        mapping.putInt(fromUsername.length).put(fromUsername);
+        index.addRecord(index.position, messageNumber, messageKey, false);
+        addToRecords(index, mapping.position());
+    }
+
+    /**
+     * Writes a record after the other records that marks a message as removed, so the records before it stay the same.
+     * @param index the places of the records.
+     * @param place the place of the message.
+     * @throws IOException gets thrown if the file could not be made larger.
+     */
+    private void writeRemoval(RecordIndex index, int place) throws IOException {
+        makeRoomFor(index, LENGTH_SIZE + REMOVAL_LENGTH);
+        MappedByteBuffer mapping = index.mapping;
+        mapping.position(index.position);
+        mapping.putInt(REMOVAL_LENGTH);
+        mapping.putLong(index.messageNumbers[place]);
+        index.markRemoved(place);
+        addToRecords(index, mapping.position());
+    }
+
+    /**
+     * Adds the bytes from the end of the records to a new end to the records, and to their checksum.
+     * @param index the places of the records.
+     * @param end the new end of the records.
+     */
+    private void addToRecords(RecordIndex index, int end){
+        recordsChecksum.update(index.mapping.duplicate().position(index.position).limit(end));
+        index.position = end;
+        recordsLength = end;
+    }
+
+    /**
+     * Maps a larger part of the file if the mapping does not have room for more bytes, and tells the cache how large the mapping is now.
+     * One byte more than the records is always mapped, so the length of zero after the last record can be read.
+     * @param index the places of the records.
+     * @param amount the amount of bytes that are going to be written.
+     * @throws IOException gets thrown if the file would be larger than a mapping can be or could not be mapped.
+     */
+    private void makeRoomFor(RecordIndex index, int amount) throws IOException {
+        long needed = (long) index.position + amount + LENGTH_SIZE;
+        if (needed > index.mapping.capacity()){
+            if (needed > Integer.MAX_VALUE){
+                throw new IOException("The messages of one day cannot take more than " + Integer.MAX_VALUE + " bytes.");
+            }
+            long capacity = index.mapping.capacity();
+            while (capacity < needed){
+                capacity *= 2;
+            }
+            try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                index.mapping = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+            }
+            if (messageLogCache != null){
+                messageLogCache.recordSize(this, index.mapping.capacity());
+            }
+        }
+    }
+
+    /**
+     * Finds the place of a message. A message with a key is found by its key and a message that has a number
+     * is found with a binary search, while a message without either is compared with every message.
+     * @param index the places of the records.
+     * @param message the message you want to find.
+     * @return the place of the message, or -1 if the message is not in the message log.
+     */
+    private int findIndexOfMessage(RecordIndex index, Message message){
+        int place = -1;
+        if (message.getMessageKey() != null){
+            place = index.findIndexOfMessageKey(message.getMessageKey());
+        }else if (message.getMessageNumber() > 0){
+            int candidate = index.findFirstIndexOverMessageNumber(message.getMessageNumber() - 1);
+            if (candidate < index.size && index.messageNumbers[candidate] == message.getMessageNumber() && checkIfMessagesMatch(index, candidate, message)){
+                place = candidate;
+            }
+        }else {
+            for (int i = 0; i < index.size && place == -1; i++){
+                if (checkIfMessagesMatch(index, i, message)){
+                    place = i;
+                }
+            }
+        }
+        return place;
+    }
+
+    /**
+     * Checks if a message in the log is the same message as another message.
+     * @param index the places of the records.
+     * @param place the place of the message in the log.
+     * @param message the message to compare with.
+     * @return <code>true</code> if the messages match on time, date, contents and from username.
+     *         <code>false</code> if the messages does not match or the message in the log is removed.
+     */
+    private boolean checkIfMessagesMatch(RecordIndex index, int place, Message message){
+        return !index.removedMessages.get(place) && ((TextMessage) index.readMessage(place)).checkIfMessageContentsAreEqual(message);
+    }
+
+    @Override
+    public List<Message> checkForNewMessages(long lastMessageNumber){
+        checkIfLongIsNegative(lastMessageNumber, "last message number");
+        List<Message> newMessageList = Collections.emptyList();
+        if (this.lastMessageNumber > lastMessageNumber){
+            newMessageList = new TailView(getRecordIndex(true).findFirstIndexOverMessageNumber(lastMessageNumber));
+        }
+        return newMessageList;
+    }
+
+    @Override
+    public List<Message> getMessagesBefore(long beforeMessageNumber, int limit){
+        checkIfLongIsNegative(beforeMessageNumber, "before message number");
+        checkIfLongIsNegative(limit, "limit");
+        List<Message> olderMessages = new ArrayList<>();
+        RecordIndex records = getRecordIndex(true);
+        int place = beforeMessageNumber > 0 ? records.findFirstIndexOverMessageNumber(beforeMessageNumber - 1) : 0;
+        for (int i = place - 1; i >= 0 && olderMessages.size() < limit; i--){
+            if (!records.removedMessages.get(i)){
+                olderMessages.add(records.readMessage(i));
+            }
+        }
+        Collections.reverse(olderMessages);
+        return olderMessages;
+    }
+
+    @Override
+    public LocalDate getDateMade() {
+        return dateMade;
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        getRecordIndex(true);
+        return new TailView(0);
+    }
+
+    @Override
+    public long getLastMessageNumber() {
+        return lastMessageNumber;
+    }
+
+    @Override
+    public void removeMessage(Message message) throws CouldNotRemoveMessageException {
+        checkIfObjectIsNull(message, "message");
+        RecordIndex index = getRecordIndex(true);
+        int place = findIndexOfMessage(index, message);
+        if (place != -1){
+            try {
+                writeRemoval(index, place);
+            }catch (IOException exception){
+                throw new CouldNotRemoveMessageException("The removal could not be written to the message log of " + dateMade + ". " + exception.getMessage());
+            }
+        }else {
+            throw new CouldNotRemoveMessageException("Could not remove the message since its not in the register.");
+        }
+    }
+
+    @Override
+    public boolean checkIfAllMessagesAreNewMessages(List<Message> messageList){
+        RecordIndex index = getRecordIndex(true);
+        return messageList.stream().anyMatch(message -> findIndexOfMessage(index, message) != -1);
+    }
+
+    @Override
+    public boolean checkIfAllMessagesAreInMessageLog(List<Message> messageList) {
+        RecordIndex index = getRecordIndex(true);
+        return messageList.stream().allMatch(message -> findIndexOfMessage(index, message) != -1);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+
+    /**
+     * Checks if a long is negative or equal to zero.
+     * @param number the number to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfLongIsNegative(long number, String prefix){
+        if (number < 0){
+            throw new IllegalArgumentException("Expected the " + prefix + " to be larger than zero.");
+        }
+    }
+
+    /**
+     * Represents the part of a message log that is on the heap while it is loaded: the mapping of the file, the places of the records,
+     * the message numbers and the table of message keys.
+     */
+    private static final class RecordIndex {
+
+        private MappedByteBuffer mapping;
+
+        private int position;
+
+        private int[] offsets;
+
+        private long[] messageNumbers;
+
+        private int[] keyHashes;
+
+        private int size;
+
+        private final BitSet keyedMessages;
+
+        private final BitSet removedMessages;
+
+        private final RemovedPlaces removedPlaces;
+
+        private int[] keySlots;
+
+        private int usedKeySlots;
+
+        /**
+          * Makes an instance of the RecordIndex class without records.
+          * @param mapping the mapping of the file.
+          */
+        private RecordIndex(MappedByteBuffer mapping){
+            this.mapping = mapping;
+            position = 0;
+            offsets = new int[DEFAULT_CAPACITY];
+            messageNumbers = new long[DEFAULT_CAPACITY];
+            keyHashes = new int[DEFAULT_CAPACITY];
+            keyedMessages = new BitSet();
+            removedMessages = new BitSet();
+            removedPlaces = new RemovedPlaces();
+            keySlots = new int[DEFAULT_CAPACITY];
+            size = 0;
+            usedKeySlots = 0;
+        }
+
+        /**
+         * Remembers the place of a record.
+         * @param offset the place of the record in the file.
+         * @param messageNumber the number of the message.
+         * @param messageKey the key of the message. Is <code>null</code> if the message has no key.
+         * @param removed <code>true</code> if the message is removed.
+         */
+        private void addRecord(int offset, long messageNumber, String messageKey, boolean removed){
+            if (size == offsets.length){
+                offsets = Arrays.copyOf(offsets, size * 2);
+                messageNumbers = Arrays.copyOf(messageNumbers, size * 2);
+                keyHashes = Arrays.copyOf(keyHashes, size * 2);
+            }
+            offsets[size] = offset;
+            messageNumbers[size] = messageNumber;
+            if (removed){
+                markRemoved(size);
+            }
+            if (messageKey != null){
+                keyHashes[size] = messageKey.hashCode();
+                keyedMessages.set(size);
+                if (!removed){
+                    addKeySlot(size);
+                }
+            }
+            size += 1;
+        }
+
+        /**
+         * Marks a message as removed.
+         * @param place the place of the message.
+         */
+        private void markRemoved(int place){
+            removedMessages.set(place);
+            removedPlaces.markRemoved(place);
+        }
+
+        /**
+         * Makes a message again from its record in the file.
+         * @param place the place of the message.
+         * @return the message.
+         */
+        private Message readMessage(int place){
+            int at = offsets[place] + LENGTH_SIZE;
+            long messageNumber = mapping.getLong(at);
+            LocalDate sentDate = LocalDate.ofEpochDay(mapping.getLong(at + Long.BYTES));
+            LocalTime sentTime = LocalTime.ofNanoOfDay(mapping.getLong(at + 2 * Long.BYTES));
+            at += 3 * Long.BYTES;
+            LocalDate receivedDate = null;
+            LocalTime receivedTime = null;
+            if (mapping.get(at++) == 1){
+                receivedDate = LocalDate.ofEpochDay(mapping.getLong(at));
+                receivedTime = LocalTime.ofNanoOfDay(mapping.getLong(at + Long.BYTES));
+                at += 2 * Long.BYTES;
+            }
+            String messageKey = null;
+            if (mapping.get(at++) == 1){
+                messageKey = readString(at);
+                at += LENGTH_SIZE + mapping.getInt(at);
+            }
+            String contents = readString(at);
+            at += LENGTH_SIZE + mapping.getInt(at);
+            String fromUsername = readString(at);
+            return new TextMessage(contents, fromUsername, sentDate, sentTime, receivedDate, receivedTime, messageNumber, messageKey);
+        }
+
+        /**
+         * Reads the message key of a record without making the rest of the message.
+         * @param offset the place of the record in the file.
+         * @return the message key, or <code>null</code> if the message has no key.
+         */
+        private String readMessageKey(int offset){
+            int at = offset + LENGTH_SIZE + 3 * Long.BYTES;
+            if (mapping.get(at++) == 1){
+                at += 2 * Long.BYTES;
+            }
+            String messageKey = null;
+            if (mapping.get(at++) == 1){
+                messageKey = readString(at);
+            }
+            return messageKey;
+        }
+
+        /**
+         * Reads a string that starts with its length.
+         * @param at the place of the length in the file.
+         * @return the string.
+         */
+        private String readString(int at){
+            byte[] bytes = new byte[mapping.getInt(at)];
+            mapping.get(at + LENGTH_SIZE, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Puts the place of a message with a key in the table of keys. The table is made again when half of it is used.
+         * @param place the place of the message.
+         */
+        private void addKeySlot(int place){
+            if ((usedKeySlots + 1) * 2 > keySlots.length){
+                remakeKeySlots();
+            }
+            int mask = keySlots.length - 1;
+            int slot = spreadHash(keyHashes[place]) & mask;
+            while (keySlots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            keySlots[slot] = place + 1;
+            usedKeySlots += 1;
+        }
+
+        /**
+         * Makes the table of keys again with only the messages that are not removed, and room for as many again.
+         */
+        private void remakeKeySlots(){
+            int keysLeft = 0;
+            for (int i = keyedMessages.nextSetBit(0); i >= 0; i = keyedMessages.nextSetBit(i + 1)){
+                if (!removedMessages.get(i)){
+                    keysLeft += 1;
+                }
+            }
+            int length = DEFAULT_CAPACITY;
+            while (length < (keysLeft + 1) * 4){
+                length *= 2;
+            }
+            keySlots = new int[length];
+            usedKeySlots = 0;
+            for (int i = keyedMessages.nextSetBit(0); i >= 0; i = keyedMessages.nextSetBit(i + 1)){
+                if (!removedMessages.get(i)){
+                    int slot = spreadHash(keyHashes[i]) & (length - 1);
+                    while (keySlots[slot] != 0){
+                        slot = (slot + 1) & (length - 1);
+                    }
+                    keySlots[slot] = i + 1;
+                    usedKeySlots += 1;
+                }
+            }
+        }
+
+        /**
+         * Finds the place of the message with a message key that is not removed.
+         * @param messageKey the message key.
+         * @return the place of the message, or -1 if no message has the key.
+         */
+        private int findIndexOfMessageKey(String messageKey){
+            int hash = messageKey.hashCode();
+            int mask = keySlots.length - 1;
+            int slot = spreadHash(hash) & mask;
+            int place = -1;
+            while (place == -1 && keySlots[slot] != 0){
+                int candidate = keySlots[slot] - 1;
+                if (keyHashes[candidate] == hash && !removedMessages.get(candidate) && messageKey.equals(readMessageKey(offsets[candidate]))){
+                    place = candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return place;
+        }
+
+        /**
+         * Spreads the high bits of a hash down, so keys that only differ in the high bits do not end up in the same slot.
+         * @param hash the hash.
+         * @return the spread hash.
+         */
+        private static int spreadHash(int hash){
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Finds the place of the first message that has a higher number than a message number with a binary search.
+         * @param messageNumber the message number.
+         * @return the place of the first message over the number, or the amount of places if there is none.
+         */
+        private int findFirstIndexOverMessageNumber(long messageNumber){
+            int low = 0;
+            int high = size;
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (messageNumbers[middle] <= messageNumber){
+                    low = middle + 1;
+                }else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Represents a view of the messages from a place in the file to the end of it, as the message log is right now.
+     * Each message is read from the file when it is asked for. Messages that are added or removed after the view is made are seen by the view.
+     * The view cannot be changed, and must not be read while another thread changes the message log.
+     */
+    private class TailView extends AbstractList<Message> {
+
+        private final int fromIndex;
+
+        /**
+          * Makes an instance of the TailView class.
+          * @param fromIndex the place of the first message in the view.
+          */
+        private TailView(int fromIndex){
+            this.fromIndex = fromIndex;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0){
+                throw new IndexOutOfBoundsException("The index " + index + " is negative.");
+            }
+            RecordIndex records = getRecordIndex(false);
+            int place = fromIndex + index;
+            RemovedPlaces removedPlaces = records.removedPlaces;
+            if (removedPlaces.getRemovedAmount() > 0){
+                place = removedPlaces.findKeptPlace(fromIndex - removedPlaces.countRemovedBefore(fromIndex) + index);
+            }
+            if (place >= records.size){
+                throw new IndexOutOfBoundsException("The index " + index + " is not in the view.");
+            }
+            return records.readMessage(place);
+        }
+
+        @Override
+        public int size() {
+            RecordIndex records = getRecordIndex(false);
+            int amount = Math.max(0, records.size - fromIndex);
+            if (amount > 0){
+                amount -= records.removedPlaces.getRemovedAmount() - records.removedPlaces.countRemovedBefore(fromIndex);
+            }
+            return amount;
+        }
+
+        @Override
+        public Iterator<Message> iterator() {
+            RecordIndex records = getRecordIndex(false);
+            return new Iterator<>() {
+
+                private int nextIndex = records.removedMessages.nextClearBit(fromIndex);
+
+                @Override
+                public boolean hasNext() {
+                    return nextIndex < records.size;
+                }
+
+                @Override
+                public Message next() {
+                    if (!hasNext()){
+                        throw new NoSuchElementException("There are no more messages in the view.");
+                    }
+                    Message message = records.readMessage(nextIndex);
+                    nextIndex = records.removedMessages.nextClearBit(nextIndex + 1);
+                    return message;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package no.stonedstonar.chatapplication.model.messagelog;
+
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
+import no.stonedstonar.chatapplication.model.message.Message;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents a factory that makes message logs that keep each day of a conversation in its own memory-mapped file.
+ * The files are kept in one folder for each conversation, and are named after the day since the epoch.
+ * If the factory has a {@link MessageLogCache}, the logs it makes can be unloaded by the cache when they have not been used for a while.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class MappedServerMessageLogFactory implements ServerMessageLogFactory {
+
+    private static final String FILE_ENDING = ".messages";
+
+    private final Path directory;
+
+    private final MessageLogCache messageLogCache;
+
+    /**
+      * Makes an instance of the MappedServerMessageLogFactory class where the logs are always loaded.
+      * @param directory the folder the message files should be kept in.
+      * @throws IOException gets thrown if the folder could not be made.
+      */
+    public MappedServerMessageLogFactory(Path directory) throws IOException {
+        this(directory, null);
+    }
+
+    /**
+      * Makes an instance of the MappedServerMessageLogFactory class. The message files that are left in the folder from
+      * before are kept, since a snapshot only remembers the records of each file and not its messages.
+      * @param directory the folder the message files should be kept in.
+      * @param messageLogCache the cache that unloads the logs. Is <code>null</code> if the logs should always be loaded.
+      * @throws IOException gets thrown if the folder could not be made.
+      */
+    public MappedServerMessageLogFactory(Path directory, MessageLogCache messageLogCache) throws IOException {
+        checkIfObjectIsNull(directory, "directory");
+        this.directory = directory;
+        this.messageLogCache = messageLogCache;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Gets the folder the message files are kept in.
+     * @return the folder.
+     */
+    public Path getDirectory(){
+        return directory;
+    }
+
+    /**
+     * Gets the cache that unloads the logs.
+     * @return the message log cache, or <code>null</code> if the logs are always loaded.
+     */
+    public MessageLogCache getMessageLogCache(){
+        return messageLogCache;
+    }
+
+    @Override
+    public ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade) throws CouldNotAddMessageLogException {
+        try {
+            Path file = makePath(conversationNumber, dateMade);
+            return messageLogCache != null ? new MappedServerMessageLog(file, dateMade, messageLogCache) : new MappedServerMessageLog(file, dateMade);
+        }catch (IOException exception){
+            throw new CouldNotAddMessageLogException("The message log of " + dateMade + " in the conversation " + conversationNumber + " could not be made. " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade, List<Message> messages, long lastMessageNumber) throws CouldNotAddMessageLogException {
+        try {
+            Path file = makePath(conversationNumber, dateMade);
+            return messageLogCache != null ? new MappedServerMessageLog(file, dateMade, messages, lastMessageNumber, messageLogCache) : new MappedServerMessageLog(file, dateMade, messages, lastMessageNumber);
+        }catch (IOException exception){
+            throw new CouldNotAddMessageLogException("The message log of " + dateMade + " in the conversation " + conversationNumber + " could not be made. " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public ServerMessageLog openKeptMessageLog(long conversationNumber, LocalDate dateMade, long lastMessageNumber, long recordsLength, int checksum){
+        try {
+            Path file = makePath(conversationNumber, dateMade);
+            ServerMessageLog messageLog = null;
+            if (MappedServerMessageLog.checkIfFileMatches(file, recordsLength, checksum)){
+                messageLog = new MappedServerMessageLog(file, dateMade, lastMessageNumber, recordsLength, messageLogCache);
+            }
+            return messageLog;
+        }catch (IOException exception){
+            return null;
+        }
+    }
+
+    /**
+     * Makes the path of the file of a day, and the folder of the conversation if it is not made.
+     * @param conversationNumber the number of the conversation.
+     * @param dateMade the day.
+     * @return the path of the file.
+     * @throws IOException gets thrown if the folder of the conversation could not be made.
+     */
+    private Path makePath(long conversationNumber, LocalDate dateMade) throws IOException {
+        checkIfObjectIsNull(dateMade, "date made");
+        Path conversationDirectory = directory.resolve(Long.toString(conversationNumber));
+        Files.createDirectories(conversationDirectory);
+        return conversationDirectory.resolve(dateMade.toEpochDay() + FILE_ENDING);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package no.stonedstonar.chatapplication.model.messagelog;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Represents a cache that limits how many mapped message logs can be loaded at the same time, and how many bytes their mappings can have together.
+ * Each loaded log is a mapping of a file, so the amount of logs is what keeps the server under the limit of mappings a process can have.
+ * When there are too many logs or bytes the logs that have not been used lately are unloaded. An unloaded log only keeps its date and last message number,
+ * and is read back from its file the next time it is used.
+ * <p>
+ * A log that is used only marks itself as used, so reading a loaded log never takes a lock that all the logs share.
+ * The logs are unloaded with the clock method: the loaded logs are kept in a ring, and the one that unloads goes around it
+ * and gives each log that was used since the last round one more round instead of unloading it. Only one thread unloads at a time,
+ * and a thread that finds another thread unloading does not wait for it.
+ * <p>
+ * The cache counts how often a log was loaded when it was used, how often it had to be read back and how many logs were unloaded,
+ * so the size of the cache can be fitted to the server.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class MessageLogCache {
+
+    private final int maxLoadedLogs;
+
+    private final long maxMappedBytes;
+
+    private final Map<MappedServerMessageLog, Long> loadedLogs;
+
+    private final Queue<MappedServerMessageLog> clock;
+
+    private final AtomicLong mappedBytes;
+
+    private final ReentrantLock unloadLock;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    /**
+      * Makes an instance of the MessageLogCache class.
+      * @param maxLoadedLogs the amount of logs that can be loaded before the logs that were not used lately are unloaded.
+      * @param maxMappedBytes the amount of bytes the mappings of the loaded logs can have together before the logs that were not used lately are unloaded.
+      */
+    public MessageLogCache(int maxLoadedLogs, long maxMappedBytes){
+        if (maxLoadedLogs <= 0){
+            throw new IllegalArgumentException("Expected the max loaded logs to be larger than zero.");
+        }
+        if (maxMappedBytes <= 0){
+            throw new IllegalArgumentException("Expected the max mapped bytes to be larger than zero.");
+        }
+        this.maxLoadedLogs = maxLoadedLogs;
+        this.maxMappedBytes = maxMappedBytes;
+        loadedLogs = new ConcurrentHashMap<>();
+        clock = new ConcurrentLinkedQueue<>();
+        mappedBytes = new AtomicLong();
+        unloadLock = new ReentrantLock();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    /**
+     * Remembers that a log was used. A log that was read back from its file is added to the cache, and other logs are unloaded if the cache is full.
+     * @param messageLog the log that was used.
+     * @param mappedBytes the amount of bytes the log has mapped now.
+     * @param loaded <code>true</code> if the log had to be read back from its file.
+     *               <code>false</code> if the log was loaded already.
+     */
+    void recordUse(MappedServerMessageLog messageLog, int mappedBytes, boolean loaded){
+        if (loaded){
+            misses.increment();
+        }else {
+            hits.increment();
+        }
+        messageLog.markUsed();
+        if (loaded || !loadedLogs.containsKey(messageLog)){
+            recordSize(messageLog, mappedBytes);
+        }
+    }
+
+    /**
+     * Remembers how many bytes a log has mapped, like after it has grown to make room for a message, and unloads other logs if the cache is full.
+     * The log is added to the cache if it is not in it.
+     * @param messageLog the log.
+     * @param mappedBytes the amount of bytes the log has mapped now.
+     */
+    void recordSize(MappedServerMessageLog messageLog, int mappedBytes){
+        Long oldBytes = loadedLogs.put(messageLog, (long) mappedBytes);
+        if (oldBytes == null){
+            clock.add(messageLog);
+        }
+        this.mappedBytes.addAndGet(mappedBytes - (oldBytes != null ? oldBytes : 0));
+        if (checkIfFull()){
+            unloadUntilRoom(messageLog);
+        }
+    }
+
+    /**
+     * Unloads a log and takes it out of the cache.
+     * @param messageLog the log to unload.
+     */
+    void unload(MappedServerMessageLog messageLog){
+        Long bytes = loadedLogs.remove(messageLog);
+        if (bytes != null){
+            mappedBytes.addAndGet(-bytes);
+        }
+        messageLog.unload();
+    }
+
+    /**
+     * Checks if there are more logs or mapped bytes than the cache allows.
+     * @return <code>true</code> if logs should be unloaded.
+     *         <code>false</code> if there is room.
+     */
+    private boolean checkIfFull(){
+        return loadedLogs.size() > maxLoadedLogs || mappedBytes.get() > maxMappedBytes;
+    }
+
+    /**
+     * Goes around the ring and unloads the logs that have not been used since the last round until there is room.
+     * Is skipped if another thread is unloading. The log that was just used is never unloaded here.
+     * @param usedLog the log that was just used.
+     */
+    private void unloadUntilRoom(MappedServerMessageLog usedLog){
+        if (unloadLock.tryLock()){
+            try {
+                int checksLeft = 2 * clock.size() + 1;
+                while (checkIfFull() && checksLeft > 0){
+                    checksLeft -= 1;
+                    MappedServerMessageLog messageLog = clock.poll();
+                    if (messageLog == null){
+                        checksLeft = 0;
+                    }else if (loadedLogs.containsKey(messageLog)){
+                        if (messageLog == usedLog || messageLog.clearUsed()){
+                            clock.add(messageLog);
+                        }else {
+                            unload(messageLog);
+                            evictions.increment();
+                        }
+                    }
+                }
+            }finally {
+                unloadLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of logs that can be loaded at the same time.
+     * @return the max amount of loaded logs.
+     */
+    public int getMaxLoadedLogs(){
+        return maxLoadedLogs;
+    }
+
+    /**
+     * Gets the amount of bytes the loaded logs can have mapped together.
+     * @return the max amount of mapped bytes.
+     */
+    public long getMaxMappedBytes(){
+        return maxMappedBytes;
+    }
+
+    /**
+     * Gets the amount of logs that are loaded.
+     * @return the amount of loaded logs.
+     */
+    public int getLoadedLogs(){
+        return loadedLogs.size();
+    }
+
+    /**
+     * Gets the amount of bytes the loaded logs have mapped together.
+     * @return the amount of mapped bytes.
+     */
+    public long getMappedBytes(){
+        return mappedBytes.get();
+    }
+
+    /**
+     * Gets how many times a log was loaded when it was used.
+     * @return the amount of hits.
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Gets how many times a log had to be read back from its file when it was used.
+     * @return the amount of misses.
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * Gets how many times a log was unloaded to make room for others.
+     * @return the amount of evictions.
+     */
+    public long getEvictions(){
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString(){
+        return "loaded logs " + getLoadedLogs() + " of " + maxLoadedLogs + ", mapped bytes " + getMappedBytes() + " of " + maxMappedBytes
+            + ", hits " + getHits() + ", misses " + getMisses() + ", evictions " + getEvictions();
+    }
+}
@@ -4,6 +4,7 @@ import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessag
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
 import no.stonedstonar.chatapplication.model.message.Message;
 import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.util.RemovedPlaces;
 
 import java.io.Serializable;
 import java.time.LocalDate;
@@ -11,12 +12,28 @@ import java.util.*;
 
 /**
  * Represents a class that holds messages for each day of the month.
+ * The messages are kept in an array that is only added to, next to an array with their message numbers.
+ * Since the numbers only go up, the first new message is found with a binary search and the new messages are given as a view
+ * of the end of the array, so checking for new messages costs as much as there are new messages.
+ * A removed message leaves an empty place in the array, which the views skip. The empty places are counted in {@link RemovedPlaces},
+ * so a view finds a message by its index in O(log n).
+ * The places of the messages are also kept by their message key, so a message is found in O(1) when it is added again or removed.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
 public class NormalServerMessageLog implements Serializable, ServerMessageLog {
 
-    private final ArrayList<Message> messageList;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Message[] messages;
+
+    private long[] messageNumbers;
+
+    private int size;
+
+    private final RemovedPlaces removedPlaces;
+
+    private final Map<String, Integer> messageKeyIndex;
 
     private final LocalDate dateMade;
 
@@ -28,18 +45,73 @@ public class NormalServerMessageLog implements Serializable, ServerMessageLog {
       */
     public NormalServerMessageLog(LocalDate dateMade){
         checkIfObjectIsNull(dateMade, "date made");
-        messageList = new ArrayList<>();
+        messages = new Message[DEFAULT_CAPACITY];
+        messageNumbers = new long[DEFAULT_CAPACITY];
+        size = 0;
+        removedPlaces = new RemovedPlaces();
+        messageKeyIndex = new HashMap<>();
         lastMessageNumber = 0;
         this.dateMade = dateMade;
     }
 
+    /**
+      * Makes an instance of the MessageLog class with messages that already have their numbers, like when a log is read back from a snapshot.
+      * @param dateMade the date this object was made.
+      * @param messages the messages of the log, with the lowest message number first.
+      * @param lastMessageNumber the number the last message that was added got. Can be higher than the numbers of the messages if the last messages were removed.
+      */
+    public NormalServerMessageLog(LocalDate dateMade, List<Message> messages, long lastMessageNumber){
+        checkIfObjectIsNull(dateMade, "date made");
+        checkIfObjectIsNull(messages, "messages");
+        checkIfLongIsNegative(lastMessageNumber, "last message number");
+        int capacity = Math.max(DEFAULT_CAPACITY, messages.size());
+        this.messages = new Message[capacity];
+        messageNumbers = new long[capacity];
+        messageKeyIndex = new HashMap<>();
+        long previousNumber = 0;
+        for (Message message : messages){
+            checkIfObjectIsNull(message, "message");
+            long messageNumber = message.getMessageNumber();
+            if (messageNumber <= previousNumber || messageNumber > lastMessageNumber){
+                throw new IllegalArgumentException("The message number " + messageNumber + " must be higher than " + previousNumber + " and not higher than " + lastMessageNumber + ".");
+            }
+            this.messages[size] = message;
+            messageNumbers[size] = messageNumber;
+            if (message.getMessageKey() != null){
+                messageKeyIndex.put(message.getMessageKey(), size);
+            }
+            size += 1;
+            previousNumber = messageNumber;
+        }
+        removedPlaces = new RemovedPlaces();
+        this.lastMessageNumber = lastMessageNumber;
+        this.dateMade = dateMade;
+    }
+
     @Override
     public void addMessage(Message message) throws CouldNotAddMessageException {
+        addMessage(message, lastMessageNumber + 1);
+    }
+
+    @Override
+    public void addMessage(Message message, long messageNumber) throws CouldNotAddMessageException {
         checkIfObjectIsNull(message, "message");
+        if (messageNumber <= lastMessageNumber){
+            throw new CouldNotAddMessageException("The message number " + messageNumber + " must be higher than the last message number " + lastMessageNumber + ".");
+        }
         if (!checkIfMessageIsInMessageLog(message)){
-            lastMessageNumber += 1;
+            if (size == messages.length){
+                messages = Arrays.copyOf(messages, size * 2);
+                messageNumbers = Arrays.copyOf(messageNumbers, size * 2);
+            }
+            lastMessageNumber = messageNumber;
             message.setMessageNumber(lastMessageNumber);
-            messageList.add(message);
+            messages[size] = message;
+            messageNumbers[size] = lastMessageNumber;
+            if (message.getMessageKey() != null){
+                messageKeyIndex.put(message.getMessageKey(), size);
+            }
+            size += 1;
         }else {
             throw new CouldNotAddMessageException("The message " + message + " is already in the system.");
         }
@@ -52,32 +124,93 @@ public class NormalServerMessageLog implements Serializable, ServerMessageLog {
      *         <code>false</code> if the message does not match any messages in the log.
      */
     private boolean checkIfMessageIsInMessageLog(Message message){
-        return messageList.stream().anyMatch(mess -> {
-            boolean valid = false;
-            if (mess instanceof TextMessage textMessage){
-                valid = textMessage.checkIfMessageContentsAreEqual(message);
+        return findIndexOfMessage(message) != -1;
+    }
+
+    /**
+     * Finds the place of a message in the array. A message with a key is found by its key and a message that has a number
+     * is found with a binary search, while a message without either is compared with every message.
+     * @param message the message you want to find.
+     * @return the place of the message, or -1 if the message is not in the message log.
+     */
+    private int findIndexOfMessage(Message message){
+        int index = -1;
+        if (message.getMessageKey() != null){
+            index = messageKeyIndex.getOrDefault(message.getMessageKey(), -1);
+        }else if (message.getMessageNumber() > 0){
+            int place = findFirstIndexOverMessageNumber(message.getMessageNumber() - 1);
+            if (place < size && messageNumbers[place] == message.getMessageNumber() && checkIfMessagesMatch(messages[place], message)){
+                index = place;
+            }
+        }else {
+            for (int i = 0; i < size && index == -1; i++){
+                if (checkIfMessagesMatch(messages[i], message)){
+                    index = i;
+                }
             }
-            return valid;
-        });
+        }
+        return index;
+    }
+
+    /**
+     * Checks if a message in the log is the same message as another message.
+     * @param messageInLog the message in the log. Is <code>null</code> if the message was removed.
+     * @param message the message to compare with.
+     * @return <code>true</code> if the messages match on time, date, contents and from username.
+     *         <code>false</code> if the messages does not match or the message in the log is removed.
+     */
+    private boolean checkIfMessagesMatch(Message messageInLog, Message message){
+        boolean valid = false;
+        if (messageInLog == message){
+            valid = true;
+        }else if (messageInLog instanceof TextMessage textMessage){
+            valid = textMessage.checkIfMessageContentsAreEqual(message);
+        }
+        return valid;
     }
 
     @Override
     public List<Message> checkForNewMessages(long lastMessageNumber){
         checkIfLongIsNegative(lastMessageNumber, "last message number");
-        List<Message> newMessageList = new ArrayList<>();
+        List<Message> newMessageList = Collections.emptyList();
         if (this.lastMessageNumber > lastMessageNumber){
-            newMessageList = getMessagesOverMessageNumber(lastMessageNumber);
+            newMessageList = new TailView(findFirstIndexOverMessageNumber(lastMessageNumber));
         }
         return newMessageList;
     }
 
+    @Override
+    public List<Message> getMessagesBefore(long beforeMessageNumber, int limit){
+        checkIfLongIsNegative(beforeMessageNumber, "before message number");
+        checkIfLongIsNegative(limit, "limit");
+        List<Message> olderMessages = new ArrayList<>();
+        int place = beforeMessageNumber > 0 ? findFirstIndexOverMessageNumber(beforeMessageNumber - 1) : 0;
+        for (int i = place - 1; i >= 0 && olderMessages.size() < limit; i--){
+            if (messages[i] != null){
+                olderMessages.add(messages[i]);
+            }
+        }
+        Collections.reverse(olderMessages);
+        return olderMessages;
+    }
+
     /**
-     * Finds all the messages that are over a certain message number.
-     * @param lastMessageNumber the message number.
-     * @return a list with all the messages that are over the input message number.
+     * Finds the place of the first message that has a higher number than a message number with a binary search.
+     * @param messageNumber the message number.
+     * @return the place of the first message over the number, or the amount of places if there is none.
      */
-    private List<Message> getMessagesOverMessageNumber(long lastMessageNumber){
-        return messageList.stream().filter(message -> message.getMessageNumber() > lastMessageNumber).toList();
+    private int findFirstIndexOverMessageNumber(long messageNumber){
+        int low = 0;
+        int high = size;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (messageNumbers[middle] <= messageNumber){
+                low = middle + 1;
+            }else {
+                high = middle;
+            }
+        }
+        return low;
     }
     
     /**
@@ -110,7 +243,7 @@ public class NormalServerMessageLog implements Serializable, ServerMessageLog {
 
     @Override
     public List<Message> getMessages() {
-        return messageList;
+        return new TailView(0);
     }
 
     @Override
@@ -121,8 +254,13 @@ public class NormalServerMessageLog implements Serializable, ServerMessageLog {
     @Override
     public void removeMessage(Message message) throws CouldNotRemoveMessageException {
         checkIfObjectIsNull(message, "message");
-        if (messageList.contains(message)){
-            messageList.remove(message);
+        int index = findIndexOfMessage(message);
+        if (index != -1){
+            if (messages[index].getMessageKey() != null){
+                messageKeyIndex.remove(messages[index].getMessageKey());
+            }
+            messages[index] = null;
+            removedPlaces.markRemoved(index);
         }else {
             throw new CouldNotRemoveMessageException("Could not remove the message since its not in the register.");
         }
@@ -137,4 +275,78 @@ public class NormalServerMessageLog implements Serializable, ServerMessageLog {
     public boolean checkIfAllMessagesAreInMessageLog(List<Message> messageList) {
         return messageList.stream().allMatch(this::checkIfMessageIsInMessageLog);
     }
+
+    /**
+     * Represents a view of the messages from a place in the array to the end of it, as the message log is right now.
+     * Messages that are added or removed after the view is made are seen by the view. The view cannot be changed.
+     * The view must not be read while another thread changes the message log.
+     */
+    private class TailView extends AbstractList<Message> {
+
+        private final int fromIndex;
+
+        /**
+          * Makes an instance of the TailView class.
+          * @param fromIndex the place of the first message in the view.
+          */
+        private TailView(int fromIndex){
+            this.fromIndex = fromIndex;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0){
+                throw new IndexOutOfBoundsException("The index " + index + " is negative.");
+            }
+            int place = fromIndex + index;
+            if (removedPlaces.getRemovedAmount() > 0){
+                place = removedPlaces.findKeptPlace(fromIndex - removedPlaces.countRemovedBefore(fromIndex) + index);
+            }
+            if (place >= size){
+                throw new IndexOutOfBoundsException("The index " + index + " is not in the view.");
+            }
+            return messages[place];
+        }
+
+        @Override
+        public int size() {
+            return size - fromIndex - (removedPlaces.getRemovedAmount() - removedPlaces.countRemovedBefore(fromIndex));
+        }
+
+        @Override
+        public Iterator<Message> iterator() {
+            return new Iterator<>() {
+
+                private int nextIndex = findNextIndex(fromIndex);
+
+                @Override
+                public boolean hasNext() {
+                    return nextIndex < size;
+                }
+
+                @Override
+                public Message next() {
+                    if (!hasNext()){
+                        throw new NoSuchElementException("There are no more messages in the view.");
+                    }
+                    Message message = messages[nextIndex];
+                    nextIndex = findNextIndex(nextIndex + 1);
+                    return message;
+                }
+            };
+        }
+
+        /**
+         * Finds the place of the next message that is not removed.
+         * @param index the place to start from.
+         * @return the place of the next message, or the amount of places if there is none.
+         */
+        private int findNextIndex(int index){
+            int next = index;
+            while (next < size && messages[next] == null){
+                next += 1;
+            }
+            return next;
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package no.stonedstonar.chatapplication.model.messagelog;
+
+import no.stonedstonar.chatapplication.model.message.Message;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents a factory that makes message logs that keep their messages as objects on the heap.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class NormalServerMessageLogFactory implements ServerMessageLogFactory {
+
+    /**
+      * Makes an instance of the NormalServerMessageLogFactory class.
+      */
+    public NormalServerMessageLogFactory(){
+
+    }
+
+    @Override
+    public ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade){
+        return new NormalServerMessageLog(dateMade);
+    }
+
+    @Override
+    public ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade, List<Message> messages, long lastMessageNumber){
+        return new NormalServerMessageLog(dateMade, messages, lastMessageNumber);
+    }
+
+    @Override
+    public ServerMessageLog openKeptMessageLog(long conversationNumber, LocalDate dateMade, long lastMessageNumber, long recordsLength, int checksum){
+        return null;
+    }
+}
@@ -8,7 +8,9 @@ import no.stonedstonar.chatapplication.model.message.TextMessage;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a message log that is on the client side.
@@ -28,11 +30,25 @@ public class PersonalMessageLog implements MessageLog, Serializable {
       */
     public PersonalMessageLog(ServerMessageLog serverMessageLog){
         checkIfObjectIsNull(serverMessageLog, "normal message log.");
-        messageList = serverMessageLog.getMessages();
+        messageList = new ArrayList<>(serverMessageLog.getMessages());
         dateMade = serverMessageLog.getDateMade();
         lastMessageNumber = serverMessageLog.getLastMessageNumber();
     }
 
+    /**
+      * Makes an instance of the PersonalMessageLog class with only some of the messages of a day, like the newest page of a conversation.
+      * @param dateMade the date the personal message log was made.
+      * @param messages the messages the log should have, with the lowest message number first.
+      * @param lastMessageNumber the number of the last message of the day on the server.
+      */
+    public PersonalMessageLog(LocalDate dateMade, List<Message> messages, long lastMessageNumber){
+        checkIfObjectIsNull(dateMade, "date made");
+        checkIfObjectIsNull(messages, "messages");
+        messageList = new ArrayList<>(messages);
+        this.dateMade = dateMade;
+        this.lastMessageNumber = lastMessageNumber;
+    }
+
     /**
      * Makes an instance of the PersonalMessageLog class.
      * @param dateMade the date the personal message log was made.
@@ -87,6 +103,18 @@ public class PersonalMessageLog implements MessageLog, Serializable {
         }
     }
 
+    /**
+     * Adds messages that are older than the messages the log has, in front of them. The last message number is not changed.
+     * A message with a number the log already has is skipped, so a page that is loaded twice is only added once.
+     * @param olderMessages the older messages, with the lowest message number first.
+     */
+    public void addOlderMessages(List<Message> olderMessages){
+        checkIfObjectIsNull(olderMessages, "older messages");
+        Set<Long> messageNumbers = new HashSet<>();
+        messageList.forEach(message -> messageNumbers.add(message.getMessageNumber()));
+        messageList.addAll(0, olderMessages.stream().filter(message -> !messageNumbers.contains(message.getMessageNumber())).toList());
+    }
+
     @Override
     public void removeMessage(Message message) throws CouldNotRemoveMessageException {
         checkIfObjectIsNull(message, "message");
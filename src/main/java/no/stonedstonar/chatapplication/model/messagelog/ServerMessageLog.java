@@ -1,5 +1,6 @@
 package no.stonedstonar.chatapplication.model.messagelog;
 
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
 import no.stonedstonar.chatapplication.model.message.Message;
 
 import java.util.List;
@@ -11,11 +12,29 @@ import java.util.List;
  */
 public interface ServerMessageLog extends MessageLog{
 
+    /**
+     * Adds a new message with a number the conversation has given it. The numbers of a conversation go on across its days,
+     * so the numbers in one log have gaps where the messages of the other days were added.
+     * @param message the message to add.
+     * @param messageNumber the number the message should get. Must be higher than the last message number of the log.
+     * @throws CouldNotAddMessageException gets thrown if the message could not be added.
+     */
+    void addMessage(Message message, long messageNumber) throws CouldNotAddMessageException;
+
     /**
      * Gets the newest messages from the message log.
      * @param lastMessageNumber the last message the other log has gotten.
-     * @return a list with the new messages.
+     * @return a list with the new messages. The list can be a view of the message log that cannot be changed,
+     *         and should only be read while no one else changes the log.
      */
     List<Message> checkForNewMessages(long lastMessageNumber);
 
+    /**
+     * Gets the newest messages that have a lower number than a message number. Is used to load the history of a conversation one page at a time.
+     * @param beforeMessageNumber the number the messages must be lower than.
+     * @param limit the most messages that should be given back.
+     * @return a list with the messages, with the lowest message number first.
+     */
+    List<Message> getMessagesBefore(long beforeMessageNumber, int limit);
+
 }
@@ -0,0 +1,46 @@
+package no.stonedstonar.chatapplication.model.messagelog;
+
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
+import no.stonedstonar.chatapplication.model.message.Message;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents the way the message logs of a day are made, so a conversation does not need to know where its messages are kept.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public interface ServerMessageLogFactory {
+
+    /**
+     * Makes a new message log without messages.
+     * @param conversationNumber the number of the conversation the log is a part of.
+     * @param dateMade the date of the log.
+     * @return the new message log.
+     * @throws CouldNotAddMessageLogException gets thrown if the message log could not be made.
+     */
+    ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade) throws CouldNotAddMessageLogException;
+
+    /**
+     * Makes a message log with messages that already have their numbers, like when a log is read back from a snapshot.
+     * @param conversationNumber the number of the conversation the log is a part of.
+     * @param dateMade the date of the log.
+     * @param messages the messages of the log, with the lowest message number first.
+     * @param lastMessageNumber the number the last message that was added got.
+     * @return the message log.
+     * @throws CouldNotAddMessageLogException gets thrown if the message log could not be made.
+     */
+    ServerMessageLog makeMessageLog(long conversationNumber, LocalDate dateMade, List<Message> messages, long lastMessageNumber) throws CouldNotAddMessageLogException;
+
+    /**
+     * Opens a message log that is kept from before the server stopped, if it still has the messages a snapshot saw.
+     * @param conversationNumber the number of the conversation the log is a part of.
+     * @param dateMade the date of the log.
+     * @param lastMessageNumber the number the last message that was added got.
+     * @param recordsLength how many bytes of records the snapshot saw.
+     * @param checksum the checksum of those bytes.
+     * @return the message log, or <code>null</code> if the log was not kept or has changed, so it must be made again from its messages.
+     */
+    ServerMessageLog openKeptMessageLog(long conversationNumber, LocalDate dateMade, long lastMessageNumber, long recordsLength, int checksum);
+}
@@ -39,6 +39,11 @@ public class EndUser implements User {
         }
     }
 
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
     @Override
     public void setPassword(String newPassword, String oldPassword) {
         checkString(newPassword, "new password");
@@ -21,6 +21,12 @@ public interface User extends Serializable {
      */
     String getUsername();
 
+    /**
+     * Gets the password of this user. Is meant for the server when it writes the user to its own files.
+     * @return the password of this user.
+     */
+    String getPassword();
+
     /**
      * Sets the password to a new password if the old one matches the set password.
      * @param newPassword the new password of the user.
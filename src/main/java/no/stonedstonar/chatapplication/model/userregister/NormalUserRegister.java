@@ -8,30 +8,32 @@ import no.stonedstonar.chatapplication.model.user.User;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a register that can hold users.
+ * The users are kept in a concurrent map by their username, so logging in and checking a username is O(1)
+ * and the register can be used by many threads at the same time without a lock around it.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
 public class NormalUserRegister implements UserRegister {
 
-    private final List<User> basicEndUserList;
+    private final Map<String, User> usernameUserMap;
 
     /**
       * Makes an instance of the UserRegister class.
       */
     public NormalUserRegister(){
-        basicEndUserList = new ArrayList<>();
+        usernameUserMap = new ConcurrentHashMap<>();
     }
 
     @Override
     public void addUser(User userToAdd) throws CouldNotAddUserException {
         checkIfObjectIsNull(userToAdd, "end user");
-        if (!checkIfUsernameIsTaken(userToAdd.getUsername())){
-            basicEndUserList.add(userToAdd);
-        }else {
+        checkString(userToAdd.getUsername(), "username");
+        if (usernameUserMap.putIfAbsent(userToAdd.getUsername(), userToAdd) != null){
             throw new CouldNotAddUserException("The user by the username " + userToAdd.getUsername() + " is already in the system.");
         }
     }
@@ -40,7 +42,7 @@ public class NormalUserRegister implements UserRegister {
     public void removeUser(User userToRemove) throws CouldNotRemoveUserException {
         checkIfObjectIsNull(userToRemove, "end user");
         if (checkIfUsernameIsTaken(userToRemove.getUsername())){
-            basicEndUserList.remove(userToRemove);
+            usernameUserMap.remove(userToRemove.getUsername(), userToRemove);
         }else {
             throw new CouldNotRemoveUserException("The user by the username " + userToRemove.getUsername() + " is already in the system.");
         }
@@ -62,10 +64,15 @@ public class NormalUserRegister implements UserRegister {
         }
     }
 
+    @Override
+    public List<User> getAllUsers(){
+        return new ArrayList<>(usernameUserMap.values());
+    }
+
     @Override
     public boolean checkIfUsernameIsTaken(String username){
         checkString(username, "username");
-        return basicEndUserList.stream().anyMatch(name -> name.getUsername().equals(username));
+        return usernameUserMap.containsKey(username);
     }
 
     /**
@@ -75,9 +82,9 @@ public class NormalUserRegister implements UserRegister {
      * @throws CouldNotGetUserException gets thrown if the user could not be found.
      */
     private User getUserByUsername(String username) throws CouldNotGetUserException {
-        Optional<User> opUser = basicEndUserList.stream().filter(name -> name.getUsername().equals(username)).findFirst();
-        if (opUser.isPresent()) {
-            return opUser.get();
+        User user = usernameUserMap.get(username);
+        if (user != null) {
+            return user;
         } else{
             throw new CouldNotGetUserException("The user by the username " + username + " is not a part of this register.");
         }
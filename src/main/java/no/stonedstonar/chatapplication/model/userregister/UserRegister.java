@@ -5,6 +5,7 @@ import no.stonedstonar.chatapplication.model.exception.user.CouldNotLoginToUserE
 import no.stonedstonar.chatapplication.model.exception.user.CouldNotRemoveUserException;
 import no.stonedstonar.chatapplication.model.user.User;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Represents a user register and its basic methods.
@@ -43,4 +44,10 @@ public interface UserRegister extends Serializable {
      * @throws CouldNotRemoveUserException gets thrown if the user could not be removed.
      */
     void removeUser(User user) throws CouldNotRemoveUserException;
+
+    /**
+     * Gets all the users in the register. Users that are added or removed while the list is made might not be in it.
+     * @return a new list with all the users.
+     */
+    List<User> getAllUsers();
 }
@@ -0,0 +1,236 @@
+package no.stonedstonar.chatapplication.model.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a hash map with <code>long</code> keys that are never boxed.
+ * The entries are kept in one dense array in the order they were added, and the hash table only holds places in that array.
+ * This makes getting, adding and removing an entry O(1) while the values can still be listed in the order they were added.
+ * A removed entry leaves an empty place in the dense array until the map grows or has too many empty places, then the array is packed.
+ * <p>
+ * The map is not thread safe. Many threads can read from it at the same time as long as no thread changes it.
+ * @param <V> the type of the values.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int EMPTY = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int[] table;
+
+    private int used;
+
+    private int size;
+
+    /**
+      * Makes an instance of the LongObjectHashMap class.
+      */
+    public LongObjectHashMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+      * Makes an instance of the LongObjectHashMap class that can hold an amount of entries before it grows.
+      * @param expectedSize the amount of entries the map is expected to hold.
+      */
+    public LongObjectHashMap(int expectedSize){
+        if (expectedSize < 0){
+            throw new IllegalArgumentException("The expected size cannot be negative.");
+        }
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        table = makeTable(capacity);
+    }
+
+    /**
+     * Gets the value of a key.
+     * @param key the key.
+     * @return the value, or <code>null</code> if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key){
+        int slot = findSlot(key);
+        return slot == EMPTY ? null : (V) values[table[slot]];
+    }
+
+    /**
+     * Checks if a key is in the map.
+     * @param key the key.
+     * @return <code>true</code> if the key has a value.
+     *         <code>false</code> if the key is not in the map.
+     */
+    public boolean containsKey(long key){
+        return findSlot(key) != EMPTY;
+    }
+
+    /**
+     * Sets the value of a key. A new key is put after all the others in the order of the map.
+     * @param key the key.
+     * @param value the value. Cannot be null.
+     * @return the value the key had before, or <code>null</code> if the key is new.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value){
+        if (value == null){
+            throw new IllegalArgumentException("The value cannot be null.");
+        }
+        int slot = findSlot(key);
+        V oldValue = null;
+        if (slot != EMPTY){
+            int index = table[slot];
+            oldValue = (V) values[index];
+            values[index] = value;
+        }else {
+            if (used == keys.length){
+                resize();
+            }
+            keys[used] = key;
+            values[used] = value;
+            insertIntoTable(key, used);
+            used += 1;
+            size += 1;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Removes a key from the map.
+     * @param key the key.
+     * @return the value the key had, or <code>null</code> if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key){
+        int slot = findSlot(key);
+        V oldValue = null;
+        if (slot != EMPTY){
+            int index = table[slot];
+            oldValue = (V) values[index];
+            values[index] = null;
+            size -= 1;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Gets the amount of keys in the map.
+     * @return the size of the map.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Checks if the map is empty.
+     * @return <code>true</code> if the map has no keys.
+     *         <code>false</code> if the map has at least one key.
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Gets all the values in the order their keys were added.
+     * @return a new list with the values.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values(){
+        List<V> list = new ArrayList<>(size);
+        for (int i = 0; i < used; i++){
+            if (values[i] != null){
+                list.add((V) values[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds the place in the table that points to the live entry of a key.
+     * Entries that are removed keep their key, so the search goes on past them.
+     * @param key the key.
+     * @return the place in the table, or -1 if the key is not in the map.
+     */
+    private int findSlot(long key){
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        int index = table[slot];
+        while (index != EMPTY){
+            if (keys[index] == key && values[index] != null){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+            index = table[slot];
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Puts the place of an entry into the first free place of the table for its key.
+     * @param key the key of the entry.
+     * @param index the place of the entry in the dense arrays.
+     */
+    private void insertIntoTable(long key, int index){
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != EMPTY){
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+    }
+
+    /**
+     * Packs the removed entries out of the dense arrays and makes them larger if more than half of the entries are live.
+     * The table is made again since the places of the entries have changed.
+     */
+    private void resize(){
+        int capacity = size * 2 > keys.length ? keys.length * 2 : keys.length;
+        long[] newKeys = new long[capacity];
+        Object[] newValues = new Object[capacity];
+        int newUsed = 0;
+        for (int i = 0; i < used; i++){
+            if (values[i] != null){
+                newKeys[newUsed] = keys[i];
+                newValues[newUsed] = values[i];
+                newUsed += 1;
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        used = newUsed;
+        table = makeTable(capacity);
+        for (int i = 0; i < used; i++){
+            insertIntoTable(keys[i], i);
+        }
+    }
+
+    /**
+     * Makes an empty table that has at least twice as many places as the dense arrays, so it is never more than half full.
+     * @param capacity the length of the dense arrays.
+     * @return the empty table.
+     */
+    private static int[] makeTable(int capacity){
+        int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * Spreads the bits of a key so keys that follow each other do not end up next to each other in the table.
+     * @param key the key.
+     * @return the hash of the key.
+     */
+    private static int hash(long key){
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
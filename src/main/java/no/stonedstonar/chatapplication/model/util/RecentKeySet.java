@@ -0,0 +1,96 @@
+package no.stonedstonar.chatapplication.model.util;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a set that remembers the last keys that were added to it, up to a set amount.
+ * When the set is full the oldest key is forgotten, so the set never grows past its capacity.
+ * Adding a key and checking for a key is O(1).
+ * <p>
+ * The set is not thread safe.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class RecentKeySet implements Serializable {
+
+    private final int capacity;
+
+    private final LinkedHashMap<String, Boolean> keys;
+
+    /**
+      * Makes an instance of the RecentKeySet class.
+      * @param capacity the amount of keys the set remembers. Must be above zero.
+      */
+    public RecentKeySet(int capacity){
+        if (capacity <= 0){
+            throw new IllegalArgumentException("The capacity must be above zero.");
+        }
+        this.capacity = capacity;
+        keys = new LinkedHashMap<>(16, 0.75f, false){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > RecentKeySet.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Adds a key to the set. If the set is full the oldest key is forgotten.
+     * @param key the key. Cannot be null.
+     * @return <code>true</code> if the key was not in the set.
+     *         <code>false</code> if the key was already in the set.
+     */
+    public boolean add(String key){
+        checkIfObjectIsNull(key, "key");
+        return keys.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Removes a key from the set.
+     * @param key the key.
+     * @return <code>true</code> if the key was in the set.
+     *         <code>false</code> if the key was not in the set.
+     */
+    public boolean remove(String key){
+        return key != null && keys.remove(key) != null;
+    }
+
+    /**
+     * Checks if a key is in the set.
+     * @param key the key.
+     * @return <code>true</code> if the key is in the set.
+     *         <code>false</code> if the key was never added or has been forgotten.
+     */
+    public boolean contains(String key){
+        return key != null && keys.containsKey(key);
+    }
+
+    /**
+     * Gets the amount of keys in the set.
+     * @return the amount of keys.
+     */
+    public int size(){
+        return keys.size();
+    }
+
+    /**
+     * Gets the amount of keys the set remembers.
+     * @return the capacity of the set.
+     */
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package no.stonedstonar.chatapplication.model.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Represents the places of a list that is only added to where some of the places are removed, like the messages of a message log.
+ * The removed places are counted in a Fenwick tree, so how many places are removed before a place, and which place
+ * is the nth place that is not removed, are both found in O(log n) instead of by going through the places one by one.
+ * <p>
+ * The tree covers more places than are used, and a place that is not marked as removed counts as kept,
+ * so adding a place to the end of the list does not change the tree.
+ * <p>
+ * The class is not thread safe. Many threads can read from it at the same time as long as no thread changes it.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class RemovedPlaces implements Serializable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] tree;
+
+    private int capacity;
+
+    private int removedAmount;
+
+    /**
+      * Makes an instance of the RemovedPlaces class where no places are removed.
+      */
+    public RemovedPlaces(){
+        capacity = DEFAULT_CAPACITY;
+        tree = new int[capacity + 1];
+        removedAmount = 0;
+    }
+
+    /**
+     * Marks a place as removed. A place must only be marked once.
+     * @param place the place.
+     */
+    public void markRemoved(int place){
+        if (place < 0){
+            throw new IllegalArgumentException("The place " + place + " cannot be negative.");
+        }
+        while (place >= capacity){
+            grow();
+        }
+        for (int i = place + 1; i <= capacity; i += i & -i){
+            tree[i] += 1;
+        }
+        removedAmount += 1;
+    }
+
+    /**
+     * Makes the tree cover twice as many places. The new node at the end covers every place, and the other new nodes
+     * only cover places after the old end, which are not removed.
+     */
+    private void grow(){
+        tree = Arrays.copyOf(tree, capacity * 2 + 1);
+        capacity *= 2;
+        tree[capacity] = removedAmount;
+    }
+
+    /**
+     * Gets how many places are removed.
+     * @return the amount of removed places.
+     */
+    public int getRemovedAmount(){
+        return removedAmount;
+    }
+
+    /**
+     * Counts the removed places before a place.
+     * @param place the place. The place itself is not counted.
+     * @return the amount of removed places before the place.
+     */
+    public int countRemovedBefore(int place){
+        int amount = 0;
+        for (int i = Math.min(place, capacity); i > 0; i -= i & -i){
+            amount += tree[i];
+        }
+        return amount;
+    }
+
+    /**
+     * Finds the place that has an amount of places that are not removed before it, and is not removed itself.
+     * @param keptBefore the amount of places that are not removed before the place.
+     * @return the place.
+     */
+    public int findKeptPlace(int keptBefore){
+        int place = 0;
+        int left = keptBefore + 1;
+        for (int step = capacity; step > 0; step >>= 1){
+            int next = place + step;
+            if (next <= capacity && step - tree[next] < left){
+                place = next;
+                left -= step - tree[next];
+            }
+        }
+        return place + left - 1;
+    }
+}
@@ -0,0 +1,990 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.network.requests.*;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Represents the compact binary format of the requests and transports that are sent the most.
+ * Numbers are written as varints, dates as the day since the epoch and times as the nanosecond of the day.
+ * Usernames go through a string table, so a username is only written out the first time and after that as its place in the table.
+ * Every object the format does not know is written with java serialization inside the binary payload.
+ * <p>
+ * One codec belongs to one connection, and both ends must encode and decode the frames in the order they are sent,
+ * since each frame can add to the string table. A frame that is made to be shared between many connections never uses the table.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class BinaryCodec {
+
+    /**
+     * The most usernames the string table of one direction can hold. Usernames after that are written out every time.
+     */
+    public static final int MAX_STRING_TABLE_SIZE = 4096;
+
+    private static final byte NULL = 0;
+
+    private static final byte FALSE = 1;
+
+    private static final byte TRUE = 2;
+
+    private static final byte SERIALIZED = 3;
+
+    private static final byte REQUEST_ENVELOPE = 4;
+
+    private static final byte RESPONSE_ENVELOPE = 5;
+
+    private static final byte MESSAGE_REQUEST = 6;
+
+    private static final byte MEMBERS_REQUEST = 7;
+
+    private static final byte CONVERSATION_REQUEST = 8;
+
+    private static final byte USER_REQUEST = 9;
+
+    private static final byte SUBSCRIBE_REQUEST = 10;
+
+    private static final byte SYNC_REQUEST = 11;
+
+    private static final byte HISTORY_REQUEST = 12;
+
+    private static final byte TEXT_MESSAGE = 0;
+
+    private static final byte SERIALIZED_MESSAGE = 1;
+
+    private static final int NULL_STRING = 0;
+
+    private static final int NEW_TABLE_STRING = 1;
+
+    private static final int PLAIN_STRING = 2;
+
+    private static final int FIRST_TABLE_REFERENCE = 3;
+
+    private final Map<String, Integer> encodeTable;
+
+    private final List<String> decodeTable;
+
+    /**
+      * Makes an instance of the BinaryCodec class with empty string tables.
+      */
+    public BinaryCodec(){
+        encodeTable = new HashMap<>();
+        decodeTable = new ArrayList<>();
+    }
+
+    /**
+     * Turns an object into a binary payload. The payload starts with the tag of {@link WireFormat#BINARY}.
+     * @param object the object you want to encode.
+     * @param shared <code>true</code> if the payload is going to many connections and cannot use the string table.
+     *               <code>false</code> if the payload only goes to the connection this codec belongs to.
+     * @return the payload.
+     * @throws IOException gets thrown if an object inside could not be serialized.
+     */
+    public byte[] encode(Object object, boolean shared) throws IOException {
+        synchronized (encodeTable){
+            Encoder encoder = new Encoder(shared);
+            encoder.writeByte(WireFormat.BINARY.getTag());
+            encoder.writeValue(object);
+            encoder.commitNewStrings();
+            return encoder.toByteArray();
+        }
+    }
+
+    /**
+     * Turns a binary payload back into an object.
+     * @param payload the payload that starts with the tag of {@link WireFormat#BINARY}.
+     * @return the object the payload holds.
+     * @throws InvalidResponseException gets thrown if the payload is not valid.
+     */
+    public Object decode(byte[] payload) throws InvalidResponseException {
+        checkIfObjectIsNull(payload, "payload");
+        synchronized (decodeTable){
+            Decoder decoder = new Decoder(payload);
+            if (decoder.readByte() != WireFormat.BINARY.getTag()){
+                throw new InvalidResponseException("The payload is not in the binary format.");
+            }
+            try {
+                Object object = decoder.readValue();
+                if (decoder.hasRemaining()){
+                    throw new InvalidResponseException("The binary payload has bytes left after the object.");
+                }
+                return object;
+            }catch (IllegalArgumentException | DateTimeException exception){
+                throw new InvalidResponseException("The binary payload holds an invalid object. " + exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of usernames this codec has sent in the string table.
+     * @return the size of the string table that is used to encode.
+     */
+    public int getEncodeTableSize(){
+        synchronized (encodeTable){
+            return encodeTable.size();
+        }
+    }
+
+    /**
+     * Represents the writing of one payload. New usernames are only put in the table when the whole payload is written,
+     * so a payload that fails half way does not leave the table out of step with the other end.
+     */
+    private class Encoder {
+
+        private final boolean shared;
+
+        private final Map<String, Integer> newStrings;
+
+        private byte[] buffer;
+
+        private int size;
+
+        /**
+          * Makes an instance of the Encoder class.
+          * @param shared <code>true</code> if the string table cannot be used.
+          */
+        private Encoder(boolean shared){
+            this.shared = shared;
+            newStrings = new LinkedHashMap<>();
+            buffer = new byte[128];
+            size = 0;
+        }
+
+        /**
+         * Writes any object the format knows, or the object with java serialization if the format does not know it.
+         * @param object the object to write.
+         * @throws IOException gets thrown if the object could not be serialized.
+         */
+        private void writeValue(Object object) throws IOException {
+            if (object == null){
+                writeByte(NULL);
+            }else if (object instanceof Boolean bool){
+                writeByte(bool ? TRUE : FALSE);
+            }else if (object instanceof RequestEnvelope requestEnvelope){
+                writeByte(REQUEST_ENVELOPE);
+                writeVarLong(requestEnvelope.getRequestId());
+                writeValue(requestEnvelope.getRequest());
+            }else if (object instanceof ResponseEnvelope responseEnvelope){
+                writeByte(RESPONSE_ENVELOPE);
+                writeVarLong(responseEnvelope.getRequestId());
+                writeValue(responseEnvelope.getResponse());
+            }else if (object instanceof MessageRequest messageRequest){
+                writeMessageRequest(messageRequest);
+            }else if (object instanceof MembersRequest membersRequest){
+                writeMembersRequest(membersRequest);
+            }else if (object instanceof ConversationRequest conversationRequest){
+                writeConversationRequest(conversationRequest);
+            }else if (object instanceof UserRequest userRequest){
+                writeUserRequest(userRequest);
+            }else if (object instanceof SubscribeRequest subscribeRequest){
+                writeByte(SUBSCRIBE_REQUEST);
+                writeTableString(subscribeRequest.getUsername());
+            }else if (object instanceof SyncRequest syncRequest){
+                writeSyncRequest(syncRequest);
+            }else if (object instanceof HistoryRequest historyRequest){
+                writeHistoryRequest(historyRequest);
+            }else if (object instanceof Serializable){
+                writeByte(SERIALIZED);
+                writeBytes(FrameCodec.encodeObject(object));
+            }else {
+                throw new NotSerializableException(object.getClass().getName());
+            }
+        }
+
+        /**
+         * Writes a message request.
+         * @param messageRequest the message request.
+         * @throws IOException gets thrown if a message could not be serialized.
+         */
+        private void writeMessageRequest(MessageRequest messageRequest) throws IOException {
+            LocalDate date = messageRequest.getCheckMessageDate();
+            writeByte(MESSAGE_REQUEST);
+            writeFlags(messageRequest.isCheckForMessages(), date != null);
+            writeVarLong(messageRequest.getConversationNumber());
+            writeVarLong(messageRequest.getLastMessage());
+            if (date != null){
+                writeSignedVarLong(date.toEpochDay());
+            }
+            writeTableString(messageRequest.getUsername());
+            List<MessageTransport> messageTransports = messageRequest.getMessageTransportList();
+            writeVarLong(messageTransports.size());
+            for (MessageTransport messageTransport : messageTransports){
+                writeFlags(messageTransport.isAddMessage());
+                writeMessage(messageTransport.getMessage());
+            }
+        }
+
+        /**
+         * Writes a message. The day the server got a text message is written as the days after the day it was sent.
+         * @param message the message.
+         * @throws IOException gets thrown if the message is not a text message and could not be serialized.
+         */
+        private void writeMessage(Message message) throws IOException {
+            if (message instanceof TextMessage textMessage){
+                writeByte(TEXT_MESSAGE);
+                writeString(textMessage.getMessage());
+                writeTableString(textMessage.getFromUsername());
+                long sentDay = textMessage.getSentFromUserDate().toEpochDay();
+                writeSignedVarLong(sentDay);
+                writeVarLong(textMessage.getSentFromUserTime().toNanoOfDay());
+                LocalDate receivedDate = textMessage.getReceivedByServerDate();
+                writeFlags(receivedDate != null);
+                if (receivedDate != null){
+                    writeSignedVarLong(receivedDate.toEpochDay() - sentDay);
+                    writeVarLong(textMessage.getReceivedByServerTime().toNanoOfDay());
+                }
+                writeSignedVarLong(textMessage.getMessageNumber());
+                writeString(textMessage.getMessageKey());
+            }else {
+                writeByte(SERIALIZED_MESSAGE);
+                writeBytes(FrameCodec.encodeObject(message));
+            }
+        }
+
+        /**
+         * Writes a history request.
+         * @param historyRequest the history request.
+         * @throws IOException gets thrown if a message could not be serialized.
+         */
+        private void writeHistoryRequest(HistoryRequest historyRequest) throws IOException {
+            LocalDate date = historyRequest.getBeforeDate();
+            writeByte(HISTORY_REQUEST);
+            writeFlags(historyRequest.hasOlderMessages(), date != null);
+            writeTableString(historyRequest.getUsername());
+            writeVarLong(historyRequest.getConversationNumber());
+            if (date != null){
+                writeSignedVarLong(date.toEpochDay());
+            }
+            writeVarLong(historyRequest.getBeforeMessageNumber());
+            writeVarLong(historyRequest.getLimit());
+            List<Message> messages = historyRequest.getMessages();
+            writeVarLong(messages.size());
+            for (Message message : messages){
+                writeMessage(message);
+            }
+        }
+
+        /**
+         * Writes a user request. The cursors are only written when there are some, so a login without a cache costs the same as before.
+         * @param userRequest the user request.
+         */
+        private void writeUserRequest(UserRequest userRequest){
+            List<ConversationCursorTransport> conversationCursors = userRequest.getConversationCursors();
+            writeByte(USER_REQUEST);
+            writeFlags(userRequest.isLogin(), userRequest.isNewUser(), userRequest.isCheckUsername(), !conversationCursors.isEmpty());
+            writeTableString(userRequest.getUsername());
+            writeString(userRequest.getPassword());
+            if (!conversationCursors.isEmpty()){
+                writeVarLong(conversationCursors.size());
+                for (ConversationCursorTransport conversationCursor : conversationCursors){
+                    writeVarLong(conversationCursor.getConversationNumber());
+                    writeVarLong(conversationCursor.getLastMessage());
+                    writeVarLong(conversationCursor.getLastMember());
+                    writeVarLong(conversationCursor.getLastDeletedMember());
+                    writeString(conversationCursor.getConversationName());
+                }
+            }
+        }
+
+        /**
+         * Writes a sync request. The new conversations are written with java serialization, since they hold whole conversations.
+         * @param syncRequest the sync request.
+         * @throws IOException gets thrown if a message or a new conversation could not be serialized.
+         */
+        private void writeSyncRequest(SyncRequest syncRequest) throws IOException {
+            writeByte(SYNC_REQUEST);
+            writeTableString(syncRequest.getUsername());
+            List<ConversationCursorTransport> conversationCursors = syncRequest.getConversationCursors();
+            writeVarLong(conversationCursors.size());
+            for (ConversationCursorTransport conversationCursor : conversationCursors){
+                writeVarLong(conversationCursor.getConversationNumber());
+                writeVarLong(conversationCursor.getLastMessage());
+                writeVarLong(conversationCursor.getLastMember());
+                writeVarLong(conversationCursor.getLastDeletedMember());
+                writeString(conversationCursor.getConversationName());
+            }
+            List<ConversationChangesTransport> conversationChanges = syncRequest.getConversationChanges();
+            writeVarLong(conversationChanges.size());
+            for (ConversationChangesTransport changes : conversationChanges){
+                writeVarLong(changes.getConversationNumber());
+                writeVarLong(changes.getMessageTransportList().size());
+                for (MessageTransport messageTransport : changes.getMessageTransportList()){
+                    writeFlags(messageTransport.isAddMessage());
+                    writeMessage(messageTransport.getMessage());
+                }
+                writeVarLong(changes.getMemberTransportList().size());
+                for (MemberTransport memberTransport : changes.getMemberTransportList()){
+                    writeFlags(memberTransport.isAddMember());
+                    writeMember(memberTransport.getMember());
+                }
+                writeFlags(changes.isAllMembers());
+                if (changes.isAllMembers()){
+                    writeVarLong(changes.getLastMember());
+                    writeVarLong(changes.getLastDeletedMember());
+                }
+                writeString(changes.getNewConversationName());
+            }
+            List<ObservableConversation> newConversations = syncRequest.getNewConversations();
+            writeFlags(!newConversations.isEmpty());
+            if (!newConversations.isEmpty()){
+                writeBytes(FrameCodec.encodeObject(new ArrayList<>(newConversations)));
+            }
+        }
+
+        /**
+         * Writes a members request.
+         * @param membersRequest the members request.
+         */
+        private void writeMembersRequest(MembersRequest membersRequest){
+            writeByte(MEMBERS_REQUEST);
+            writeFlags(membersRequest.isCheckForNewMembers(), membersRequest.isAllMembers());
+            writeVarLong(membersRequest.getConversationNumber());
+            writeVarLong(membersRequest.getLastMember());
+            writeVarLong(membersRequest.getLastDeletedMember());
+            writeTableString(membersRequest.getUsername());
+            List<MemberTransport> memberTransports = membersRequest.getMembers();
+            writeVarLong(memberTransports.size());
+            for (MemberTransport memberTransport : memberTransports){
+                writeFlags(memberTransport.isAddMember());
+                writeMember(memberTransport.getMember());
+            }
+        }
+
+        /**
+         * Writes a conversation request.
+         * @param conversationRequest the conversation request.
+         */
+        private void writeConversationRequest(ConversationRequest conversationRequest){
+            writeByte(CONVERSATION_REQUEST);
+            writeFlags(conversationRequest.isDeleteConversation(), conversationRequest.isNewConversation(), conversationRequest.isCheckForNewConversation(), conversationRequest.isCheckForNewConversationNames());
+            writeTableString(conversationRequest.getUsername());
+            writeString(conversationRequest.getNameOfConversation());
+            List<Long> conversationNumbers = conversationRequest.getConversationNumberList();
+            writeVarLong(conversationNumbers.size());
+            conversationNumbers.forEach(this::writeVarLong);
+            Map<Long, String> names = conversationRequest.getNewConversationNamesMap();
+            writeVarLong(names.size());
+            names.forEach((conversationNumber, name) -> {
+                writeVarLong(conversationNumber);
+                writeString(name);
+            });
+            List<Member> members = conversationRequest.getMemberList();
+            writeVarLong(members.size());
+            members.forEach(this::writeMember);
+        }
+
+        /**
+         * Writes a member as its username and member number.
+         * @param member the member.
+         */
+        private void writeMember(Member member){
+            writeTableString(member.getUsername());
+            writeSignedVarLong(member.getMemberNumber());
+        }
+
+        /**
+         * Writes up to eight booleans as the bits of one byte.
+         * @param flags the booleans.
+         */
+        private void writeFlags(boolean... flags){
+            int bits = 0;
+            for (int i = 0; i < flags.length; i++){
+                if (flags[i]){
+                    bits |= 1 << i;
+                }
+            }
+            writeByte((byte) bits);
+        }
+
+        /**
+         * Writes a username through the string table. A username the table has is written as its place in the table.
+         * @param string the username.
+         */
+        private void writeTableString(String string){
+            if (string == null || string.isEmpty() || shared){
+                writeString(string);
+            }else {
+                Integer index = encodeTable.get(string);
+                if (index == null){
+                    index = newStrings.get(string);
+                }
+                if (index != null){
+                    writeVarLong(FIRST_TABLE_REFERENCE + index);
+                }else if (encodeTable.size() + newStrings.size() < MAX_STRING_TABLE_SIZE){
+                    newStrings.put(string, encodeTable.size() + newStrings.size());
+                    writeStringContents(NEW_TABLE_STRING, string);
+                }else {
+                    writeString(string);
+                }
+            }
+        }
+
+        /**
+         * Writes a string without putting it in the string table.
+         * @param string the string. Can be <code>null</code>.
+         */
+        private void writeString(String string){
+            if (string == null){
+                writeVarLong(NULL_STRING);
+            }else {
+                writeStringContents(PLAIN_STRING, string);
+            }
+        }
+
+        /**
+         * Writes the kind of a string followed by its UTF-8 bytes.
+         * @param kind the kind of string.
+         * @param string the string.
+         */
+        private void writeStringContents(int kind, String string){
+            writeVarLong(kind);
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeRaw(bytes);
+        }
+
+        /**
+         * Writes a length followed by the bytes.
+         * @param bytes the bytes.
+         */
+        private void writeBytes(byte[] bytes){
+            writeVarLong(bytes.length);
+            writeRaw(bytes);
+        }
+
+        /**
+         * Writes a long that can be negative, so small negative numbers also take few bytes.
+         * @param number the number.
+         */
+        private void writeSignedVarLong(long number){
+            writeVarLong((number << 1) ^ (number >> 63));
+        }
+
+        /**
+         * Writes a long seven bits at a time, with the high bit of each byte telling if more bytes follow.
+         * @param number the number.
+         */
+        private void writeVarLong(long number){
+            while ((number & ~0x7FL) != 0){
+                writeByte((byte) ((number & 0x7F) | 0x80));
+                number >>>= 7;
+            }
+            writeByte((byte) number);
+        }
+
+        /**
+         * Writes one byte.
+         * @param value the byte.
+         */
+        private void writeByte(byte value){
+            ensureCapacity(1);
+            buffer[size++] = value;
+        }
+
+        /**
+         * Writes the bytes as they are.
+         * @param bytes the bytes.
+         */
+        private void writeRaw(byte[] bytes){
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        /**
+         * Makes the buffer larger if the amount of bytes does not fit.
+         * @param amount the amount of bytes that are going to be written.
+         */
+        private void ensureCapacity(int amount){
+            if (size + amount > buffer.length){
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + amount));
+            }
+        }
+
+        /**
+         * Puts the usernames this payload added in the string table.
+         */
+        private void commitNewStrings(){
+            encodeTable.putAll(newStrings);
+        }
+
+        /**
+         * Gets the bytes that are written.
+         * @return the payload.
+         */
+        private byte[] toByteArray(){
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Represents the reading of one payload.
+     */
+    private class Decoder {
+
+        private final byte[] payload;
+
+        private int position;
+
+        /**
+          * Makes an instance of the Decoder class.
+          * @param payload the payload to read.
+          */
+        private Decoder(byte[] payload){
+            this.payload = payload;
+            position = 0;
+        }
+
+        /**
+         * Reads any object the format knows.
+         * @return the object.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private Object readValue() throws InvalidResponseException {
+            byte tag = readByte();
+            Object object;
+            switch (tag){
+                case NULL -> object = null;
+                case FALSE -> object = false;
+                case TRUE -> object = true;
+                case REQUEST_ENVELOPE -> {
+                    long requestId = readVarLong();
+                    object = new RequestEnvelope(requestId, readValue());
+                }
+                case RESPONSE_ENVELOPE -> {
+                    long requestId = readVarLong();
+                    object = new ResponseEnvelope(requestId, readValue());
+                }
+                case MESSAGE_REQUEST -> object = readMessageRequest();
+                case MEMBERS_REQUEST -> object = readMembersRequest();
+                case CONVERSATION_REQUEST -> object = readConversationRequest();
+                case USER_REQUEST -> object = readUserRequest();
+                case SUBSCRIBE_REQUEST -> object = new SubscribeRequest(readString());
+                case SYNC_REQUEST -> object = readSyncRequest();
+                case HISTORY_REQUEST -> object = readHistoryRequest();
+                case SERIALIZED -> object = readSerialized();
+                default -> throw new InvalidResponseException("The binary tag " + tag + " is not valid.");
+            }
+            return object;
+        }
+
+        /**
+         * Reads a message request.
+         * @return the message request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private MessageRequest readMessageRequest() throws InvalidResponseException {
+            int flags = readByte();
+            MessageRequestBuilder messageRequestBuilder = new MessageRequestBuilder().setCheckForMessages(isSet(flags, 0));
+            messageRequestBuilder.addConversationNumber(readVarLong()).addLastMessage(readVarLong());
+            if (isSet(flags, 1)){
+                messageRequestBuilder.addDate(LocalDate.ofEpochDay(readSignedVarLong()));
+            }
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                messageRequestBuilder.setUsername(username);
+            }
+            int amount = readSize();
+            List<MessageTransport> messageTransports = new ArrayList<>(amount);
+            for (int i = 0; i < amount; i++){
+                boolean addMessage = isSet(readByte(), 0);
+                messageTransports.add(new MessageTransport(readMessage(), addMessage));
+            }
+            return messageRequestBuilder.addMessageTransportList(messageTransports).build();
+        }
+
+        /**
+         * Reads a message.
+         * @return the message.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private Message readMessage() throws InvalidResponseException {
+            byte kind = readByte();
+            Message message;
+            if (kind == TEXT_MESSAGE){
+                String contents = readString();
+                String fromUsername = readString();
+                long sentDay = readSignedVarLong();
+                LocalTime sentTime = LocalTime.ofNanoOfDay(readVarLong());
+                LocalDate receivedDate = null;
+                LocalTime receivedTime = null;
+                if (isSet(readByte(), 0)){
+                    receivedDate = LocalDate.ofEpochDay(sentDay + readSignedVarLong());
+                    receivedTime = LocalTime.ofNanoOfDay(readVarLong());
+                }
+                message = new TextMessage(contents, fromUsername, LocalDate.ofEpochDay(sentDay), sentTime, receivedDate, receivedTime, readSignedVarLong(), readString());
+            }else if (kind == SERIALIZED_MESSAGE){
+                Object object = readSerialized();
+                if (!(object instanceof Message serializedMessage)){
+                    throw new InvalidResponseException("The serialized message is not a message.");
+                }
+                message = serializedMessage;
+            }else {
+                throw new InvalidResponseException("The message kind " + kind + " is not valid.");
+            }
+            return message;
+        }
+
+        /**
+         * Reads a history request.
+         * @return the history request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private HistoryRequest readHistoryRequest() throws InvalidResponseException {
+            int flags = readByte();
+            HistoryRequestBuilder historyRequestBuilder = new HistoryRequestBuilder().setOlderMessages(isSet(flags, 0));
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                historyRequestBuilder.setUsername(username);
+            }
+            historyRequestBuilder.addConversationNumber(readVarLong());
+            LocalDate date = isSet(flags, 1) ? LocalDate.ofEpochDay(readSignedVarLong()) : null;
+            long beforeMessageNumber = readVarLong();
+            if (date != null){
+                historyRequestBuilder.addCursor(date, beforeMessageNumber);
+            }
+            long limit = readVarLong();
+            if (limit < 0 || limit > Integer.MAX_VALUE){
+                throw new InvalidResponseException("The limit " + limit + " of the history request is not valid.");
+            }
+            historyRequestBuilder.addLimit((int) limit);
+            int amount = readSize();
+            List<Message> messages = new ArrayList<>(amount);
+            for (int i = 0; i < amount; i++){
+                messages.add(readMessage());
+            }
+            return historyRequestBuilder.addMessages(messages).build();
+        }
+
+        /**
+         * Reads a sync request.
+         * @return the sync request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private SyncRequest readSyncRequest() throws InvalidResponseException {
+            SyncRequestBuilder syncRequestBuilder = new SyncRequestBuilder();
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                syncRequestBuilder.setUsername(username);
+            }
+            int amountOfCursors = readSize();
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>(amountOfCursors);
+            for (int i = 0; i < amountOfCursors; i++){
+                conversationCursors.add(new ConversationCursorTransport(readVarLong(), readVarLong(), readVarLong(), readVarLong(), readString()));
+            }
+            int amountOfChanges = readSize();
+            List<ConversationChangesTransport> conversationChanges = new ArrayList<>(amountOfChanges);
+            for (int i = 0; i < amountOfChanges; i++){
+                long conversationNumber = readVarLong();
+                int amountOfMessages = readSize();
+                List<MessageTransport> messageTransports = new ArrayList<>(amountOfMessages);
+                for (int j = 0; j < amountOfMessages; j++){
+                    boolean addMessage = isSet(readByte(), 0);
+                    messageTransports.add(new MessageTransport(readMessage(), addMessage));
+                }
+                int amountOfMembers = readSize();
+                List<MemberTransport> memberTransports = new ArrayList<>(amountOfMembers);
+                for (int j = 0; j < amountOfMembers; j++){
+                    boolean addMember = isSet(readByte(), 0);
+                    memberTransports.add(new MemberTransport(readMember(), addMember));
+                }
+                if (isSet(readByte(), 0)){
+                    long lastMember = readVarLong();
+                    long lastDeletedMember = readVarLong();
+                    conversationChanges.add(new ConversationChangesTransport(conversationNumber, messageTransports, memberTransports, readString(), lastMember, lastDeletedMember));
+                }else {
+                    conversationChanges.add(new ConversationChangesTransport(conversationNumber, messageTransports, memberTransports, readString()));
+                }
+            }
+            List<ObservableConversation> newConversations = new ArrayList<>();
+            if (isSet(readByte(), 0)){
+                if (!(readSerialized() instanceof List<?> list)){
+                    throw new InvalidResponseException("The new conversations of the sync request are not a list.");
+                }
+                for (Object object : list){
+                    if (!(object instanceof ObservableConversation observableConversation)){
+                        throw new InvalidResponseException("A new conversation of the sync request is not a conversation.");
+                    }
+                    newConversations.add(observableConversation);
+                }
+            }
+            return syncRequestBuilder.addConversationCursors(conversationCursors).addConversationChanges(conversationChanges).addNewConversations(newConversations).build();
+        }
+
+        /**
+         * Reads a members request.
+         * @return the members request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private MembersRequest readMembersRequest() throws InvalidResponseException {
+            int flags = readByte();
+            MembersRequestBuilder membersRequestBuilder = new MembersRequestBuilder().setCheckForNewMembers(isSet(flags, 0)).setAllMembers(isSet(flags, 1));
+            membersRequestBuilder.addConversationNumber(readVarLong()).addLastMember(readVarLong()).setLastDeletedMember(readVarLong());
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                membersRequestBuilder.addUsername(username);
+            }
+            int amount = readSize();
+            List<MemberTransport> memberTransports = new ArrayList<>(amount);
+            for (int i = 0; i < amount; i++){
+                boolean addMember = isSet(readByte(), 0);
+                memberTransports.add(new MemberTransport(readMember(), addMember));
+            }
+            return membersRequestBuilder.addMemberTransports(memberTransports).build();
+        }
+
+        /**
+         * Reads a conversation request.
+         * @return the conversation request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private ConversationRequest readConversationRequest() throws InvalidResponseException {
+            int flags = readByte();
+            ConversationRequestBuilder conversationRequestBuilder = new ConversationRequestBuilder();
+            if (isSet(flags, 0)){
+                conversationRequestBuilder.setDeleteConversation(true);
+            }
+            if (isSet(flags, 1)){
+                conversationRequestBuilder.setNewConversation(true);
+            }
+            if (isSet(flags, 2)){
+                conversationRequestBuilder.setCheckForNewConversations(true);
+            }
+            if (isSet(flags, 3)){
+                conversationRequestBuilder.setCheckForConversationNames(true);
+            }
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                conversationRequestBuilder.addUsername(username);
+            }
+            String nameOfConversation = readString();
+            if (nameOfConversation != null && !nameOfConversation.isEmpty()){
+                conversationRequestBuilder.addConversationName(nameOfConversation);
+            }
+            int amountOfNumbers = readSize();
+            List<Long> conversationNumbers = new ArrayList<>(amountOfNumbers);
+            for (int i = 0; i < amountOfNumbers; i++){
+                conversationNumbers.add(readVarLong());
+            }
+            int amountOfNames = readSize();
+            Map<Long, String> names = new HashMap<>();
+            for (int i = 0; i < amountOfNames; i++){
+                long conversationNumber = readVarLong();
+                names.put(conversationNumber, readString());
+            }
+            int amountOfMembers = readSize();
+            List<Member> members = new ArrayList<>(amountOfMembers);
+            for (int i = 0; i < amountOfMembers; i++){
+                members.add(readMember());
+            }
+            return conversationRequestBuilder.addConversationNumberList(conversationNumbers).addConversationNamesMap(names).addMembers(members).build();
+        }
+
+        /**
+         * Reads a user request.
+         * @return the user request.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private UserRequest readUserRequest() throws InvalidResponseException {
+            int flags = readByte();
+            UserRequestBuilder userRequestBuilder = new UserRequestBuilder().setLogin(isSet(flags, 0)).setNewUser(isSet(flags, 1)).setCheckUsername(isSet(flags, 2));
+            String username = readString();
+            if (username != null && !username.isEmpty()){
+                userRequestBuilder.setUsername(username);
+            }
+            String password = readString();
+            if (password != null && !password.isEmpty()){
+                userRequestBuilder.setPassword(password);
+            }
+            if (isSet(flags, 3)){
+                int amountOfCursors = readSize();
+                List<ConversationCursorTransport> conversationCursors = new ArrayList<>(amountOfCursors);
+                for (int i = 0; i < amountOfCursors; i++){
+                    conversationCursors.add(new ConversationCursorTransport(readVarLong(), readVarLong(), readVarLong(), readVarLong(), readString()));
+                }
+                userRequestBuilder.addConversationCursors(conversationCursors);
+            }
+            return userRequestBuilder.build();
+        }
+
+        /**
+         * Reads a member.
+         * @return the member.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private Member readMember() throws InvalidResponseException {
+            String username = readString();
+            long memberNumber = readSignedVarLong();
+            Member member;
+            if (memberNumber < 0){
+                member = new ConversationMember(username);
+            }else {
+                member = new ConversationMember(username, memberNumber);
+            }
+            return member;
+        }
+
+        /**
+         * Reads an object that was written with java serialization.
+         * @return the object.
+         * @throws InvalidResponseException gets thrown if the object could not be read.
+         */
+        private Object readSerialized() throws InvalidResponseException {
+            byte[] bytes = readRaw(readSize());
+            try {
+                return FrameCodec.decodeObject(bytes);
+            }catch (IOException exception){
+                throw new InvalidResponseException("The serialized object in the binary payload could not be read.");
+            }
+        }
+
+        /**
+         * Reads a string that can be a place in the string table.
+         * @return the string. Can be <code>null</code>.
+         * @throws InvalidResponseException gets thrown if the payload is not valid.
+         */
+        private String readString() throws InvalidResponseException {
+            long kind = readVarLong();
+            String string;
+            if (kind == NULL_STRING){
+                string = null;
+            }else if (kind == NEW_TABLE_STRING || kind == PLAIN_STRING){
+                string = new String(readRaw(readSize()), StandardCharsets.UTF_8);
+                if (kind == NEW_TABLE_STRING){
+                    if (decodeTable.size() >= MAX_STRING_TABLE_SIZE){
+                        throw new InvalidResponseException("The string table is full.");
+                    }
+                    decodeTable.add(string);
+                }
+            }else {
+                long index = kind - FIRST_TABLE_REFERENCE;
+                if (index >= decodeTable.size()){
+                    throw new InvalidResponseException("The string table does not have a string at " + index + ".");
+                }
+                string = decodeTable.get((int) index);
+            }
+            return string;
+        }
+
+        /**
+         * Reads a long that was written with {@link Encoder#writeSignedVarLong(long)}.
+         * @return the number.
+         * @throws InvalidResponseException gets thrown if the payload ends too early.
+         */
+        private long readSignedVarLong() throws InvalidResponseException {
+            long number = readVarLong();
+            return (number >>> 1) ^ -(number & 1);
+        }
+
+        /**
+         * Reads a long that was written seven bits at a time.
+         * @return the number.
+         * @throws InvalidResponseException gets thrown if the payload ends too early or the number is too long.
+         */
+        private long readVarLong() throws InvalidResponseException {
+            long number = 0;
+            for (int shift = 0; shift < 64; shift += 7){
+                byte value = readByte();
+                number |= (long) (value & 0x7F) << shift;
+                if ((value & 0x80) == 0){
+                    return number;
+                }
+            }
+            throw new InvalidResponseException("A varint in the binary payload is too long.");
+        }
+
+        /**
+         * Reads the size of a list or an array and checks that it can fit in what is left of the payload.
+         * @return the size.
+         * @throws InvalidResponseException gets thrown if the size is not valid.
+         */
+        private int readSize() throws InvalidResponseException {
+            long size = readVarLong();
+            if (size < 0 || size > payload.length - position){
+                throw new InvalidResponseException("The size " + size + " in the binary payload is not valid.");
+            }
+            return (int) size;
+        }
+
+        /**
+         * Reads one byte.
+         * @return the byte.
+         * @throws InvalidResponseException gets thrown if the payload ends too early.
+         */
+        private byte readByte() throws InvalidResponseException {
+            if (position >= payload.length){
+                throw new InvalidResponseException("The binary payload ended too early.");
+            }
+            return payload[position++];
+        }
+
+        /**
+         * Reads an amount of bytes as they are.
+         * @param amount the amount of bytes.
+         * @return the bytes.
+         * @throws InvalidResponseException gets thrown if the payload ends too early.
+         */
+        private byte[] readRaw(int amount) throws InvalidResponseException {
+            if (amount > payload.length - position){
+                throw new InvalidResponseException("The binary payload ended too early.");
+            }
+            byte[] bytes = Arrays.copyOfRange(payload, position, position + amount);
+            position += amount;
+            return bytes;
+        }
+
+        /**
+         * Checks if there are bytes left in the payload.
+         * @return <code>true</code> if there are bytes left.
+         *         <code>false</code> if the whole payload is read.
+         */
+        private boolean hasRemaining(){
+            return position < payload.length;
+        }
+
+        /**
+         * Checks if a bit is set in a set of flags.
+         * @param flags the flags.
+         * @param bit the bit to check.
+         * @return <code>true</code> if the bit is set.
+         *         <code>false</code> if the bit is not set.
+         */
+        private boolean isSet(int flags, int bit){
+            return (flags & (1 << bit)) != 0;
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents the framing that is used between the server and the client.
+ * Every object is sent as one frame that starts with the length of the payload as a four byte int.
+ * That way the receiver can tell when a whole request has arrived without blocking on the socket.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public final class FrameCodec {
+
+    /**
+     * The amount of bytes the length header of a frame uses.
+     */
+    public static final int HEADER_SIZE = 4;
+
+    /**
+     * The largest payload a frame is allowed to have.
+     */
+    public static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Makes an instance of the FrameCodec class.
+     */
+    private FrameCodec(){
+
+    }
+
+    /**
+     * Turns an object into the bytes that are sent as the payload of a frame.
+     * @param object the object you want to encode.
+     * @return the payload of the frame.
+     * @throws IOException gets thrown if the object could not be serialized.
+     */
+    public static byte[] encodeObject(Object object) throws IOException {
+        checkIfObjectIsNull(object, "object");
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)){
+            objectOutputStream.writeObject(object);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Turns the payload of a frame back into an object.
+     * @param payload the payload of the frame.
+     * @return the object the payload holds.
+     * @throws IOException gets thrown if the payload could not be read.
+     * @throws InvalidResponseException gets thrown if the class of the object could not be found.
+     */
+    public static Object decodeObject(byte[] payload) throws IOException, InvalidResponseException {
+        checkIfObjectIsNull(payload, "payload");
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(payload))){
+            Object object = objectInputStream.readObject();
+            checkIfObjectIsNull(object, "object");
+            return object;
+        }catch (ClassNotFoundException exception){
+            throw new InvalidResponseException("The class of the response was invalid.");
+        }
+    }
+
+    /**
+     * Makes a whole frame with header and payload that is ready to be written to a channel.
+     * @param object the object the frame should hold.
+     * @return a byte buffer with the frame that is flipped and ready to be read.
+     * @throws IOException gets thrown if the object could not be serialized.
+     */
+    public static ByteBuffer encodeFrame(Object object) throws IOException {
+        return makeFrame(encodeObject(object));
+    }
+
+    /**
+     * Puts the length header in front of a payload.
+     * @param payload the payload of the frame.
+     * @return a byte buffer with the frame that is flipped and ready to be read.
+     * @throws IOException gets thrown if the payload is too large.
+     */
+    public static ByteBuffer makeFrame(byte[] payload) throws IOException {
+        checkIfObjectIsNull(payload, "payload");
+        checkFrameLength(payload.length);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        byteBuffer.putInt(payload.length);
+        byteBuffer.put(payload);
+        byteBuffer.flip();
+        return byteBuffer;
+    }
+
+    /**
+     * Writes an object as a frame to the output stream.
+     * @param object the object you want to send.
+     * @param outputStream the stream the frame should go through.
+     * @throws IOException gets thrown if the frame could not be written.
+     */
+    public static void writeFrame(Object object, OutputStream outputStream) throws IOException {
+        checkIfObjectIsNull(outputStream, "output stream");
+        ByteBuffer frame = encodeFrame(object);
+        outputStream.write(frame.array(), 0, frame.limit());
+        outputStream.flush();
+    }
+
+    /**
+     * Reads one whole frame from the input stream and turns it into an object.
+     * @param inputStream the stream the frame is coming through.
+     * @return the object the frame holds.
+     * @throws IOException gets thrown if the stream closes before the frame is read.
+     * @throws InvalidResponseException gets thrown if the frame is invalid or the class could not be found.
+     */
+    public static Object readFrame(InputStream inputStream) throws IOException, InvalidResponseException {
+        return decodeObject(readPayload(inputStream));
+    }
+
+    /**
+     * Reads the payload of one whole frame from the input stream.
+     * @param inputStream the stream the frame is coming through.
+     * @return the payload of the frame.
+     * @throws IOException gets thrown if the stream closes before the frame is read.
+     * @throws InvalidResponseException gets thrown if the length of the frame is invalid.
+     */
+    public static byte[] readPayload(InputStream inputStream) throws IOException, InvalidResponseException {
+        checkIfObjectIsNull(inputStream, "input stream");
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        int length = dataInputStream.readInt();
+        if (length <= 0 || length > MAX_FRAME_SIZE){
+            throw new InvalidResponseException("The frame length " + length + " is not valid.");
+        }
+        byte[] payload = new byte[length];
+        dataInputStream.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Checks if the length of a frame is within the valid bounds.
+     * @param length the length of the payload.
+     * @throws IOException gets thrown if the payload is too large.
+     */
+    private static void checkFrameLength(int length) throws IOException {
+        if (length > MAX_FRAME_SIZE){
+            throw new IOException("The frame is " + length + " bytes which is more than the max of " + MAX_FRAME_SIZE + " bytes.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private static void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+import java.io.Serializable;
+
+/**
+ * Represents a request that is tagged with an id, so many requests can be sent over one connection
+ * without waiting for the answer of the one before. The server answers with a {@link ResponseEnvelope} that has the same id.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class RequestEnvelope implements Serializable {
+
+    private final long requestId;
+
+    private final Object request;
+
+    /**
+      * Makes an instance of the RequestEnvelope class.
+      * @param requestId the id of the request. Must be above zero since zero is used for pushes.
+      * @param request the request itself.
+      */
+    public RequestEnvelope(long requestId, Object request){
+        if (requestId <= 0){
+            throw new IllegalArgumentException("Expected the request id to be larger than zero.");
+        }
+        if (request == null){
+            throw new IllegalArgumentException("The request cannot be null.");
+        }
+        this.requestId = requestId;
+        this.request = request;
+    }
+
+    /**
+     * Gets the id of the request.
+     * @return the id of the request.
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Gets the request.
+     * @return the request.
+     */
+    public Object getRequest() {
+        return request;
+    }
+}
@@ -0,0 +1,59 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+import java.io.Serializable;
+
+/**
+ * Represents the answer to a {@link RequestEnvelope}, or an update the server pushes without being asked.
+ * Answers have the id of the request they answer, so they can come back in any order. Pushes have the id {@link #PUSH_ID}.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ResponseEnvelope implements Serializable {
+
+    /**
+     * The id the server uses for updates that are not an answer to a request.
+     */
+    public static final long PUSH_ID = 0;
+
+    private final long requestId;
+
+    private final Object response;
+
+    /**
+      * Makes an instance of the ResponseEnvelope class.
+      * @param requestId the id of the request this is the answer to, or {@link #PUSH_ID} for a push.
+      * @param response the response. Can be <code>null</code> if the request had no answer.
+      */
+    public ResponseEnvelope(long requestId, Object response){
+        if (requestId < 0){
+            throw new IllegalArgumentException("Expected the request id to be zero or larger.");
+        }
+        this.requestId = requestId;
+        this.response = response;
+    }
+
+    /**
+     * Gets the id of the request this is the answer to.
+     * @return the id of the request, or {@link #PUSH_ID} if this is a push.
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Gets the response.
+     * @return the response.
+     */
+    public Object getResponse() {
+        return response;
+    }
+
+    /**
+     * Checks if this is a push from the server.
+     * @return <code>true</code> if this is a push.
+     *         <code>false</code> if this is the answer to a request.
+     */
+    public boolean isPush(){
+        return requestId == PUSH_ID;
+    }
+}
@@ -0,0 +1,136 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents the way one connection turns objects into frames and back.
+ * Frames are written in the wire format the two ends have agreed on, and frames of any format can be read,
+ * since the first byte of the payload tells which format it has. Until the ends agree on something else java serialization is used.
+ * The frames of one connection must be encoded in the same order as they are written and decoded in the same order as they are read.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class WireCodec {
+
+    private final BinaryCodec binaryCodec;
+
+    private volatile WireFormat wireFormat;
+
+    /**
+      * Makes an instance of the WireCodec class that writes with java serialization.
+      */
+    public WireCodec(){
+        binaryCodec = new BinaryCodec();
+        wireFormat = WireFormat.SERIALIZATION;
+    }
+
+    /**
+     * Sets the format the frames should be written in from now on.
+     * @param wireFormat the wire format.
+     */
+    public void setWireFormat(WireFormat wireFormat){
+        checkIfObjectIsNull(wireFormat, "wire format");
+        this.wireFormat = wireFormat;
+    }
+
+    /**
+     * Gets the format the frames are written in.
+     * @return the wire format.
+     */
+    public WireFormat getWireFormat(){
+        return wireFormat;
+    }
+
+    /**
+     * Makes a whole frame with header and payload in the wire format of this connection.
+     * @param object the object the frame should hold.
+     * @return a byte buffer with the frame that is flipped and ready to be read.
+     * @throws IOException gets thrown if the object could not be encoded.
+     */
+    public ByteBuffer encodeFrame(Object object) throws IOException {
+        checkIfObjectIsNull(object, "object");
+        byte[] payload;
+        if (wireFormat == WireFormat.BINARY){
+            payload = binaryCodec.encode(object, false);
+        }else {
+            payload = FrameCodec.encodeObject(object);
+        }
+        return FrameCodec.makeFrame(payload);
+    }
+
+    /**
+     * Makes a frame that can be given to every connection that uses the wire format.
+     * The frame does not use or change the state of any connection.
+     * @param object the object the frame should hold.
+     * @param wireFormat the wire format of the frame.
+     * @return a byte buffer with the frame that is flipped and ready to be read.
+     * @throws IOException gets thrown if the object could not be encoded.
+     */
+    public static ByteBuffer encodeSharedFrame(Object object, WireFormat wireFormat) throws IOException {
+        checkIfObjectIsNull(object, "object");
+        checkIfObjectIsNull(wireFormat, "wire format");
+        byte[] payload;
+        if (wireFormat == WireFormat.BINARY){
+            payload = new BinaryCodec().encode(object, true);
+        }else {
+            payload = FrameCodec.encodeObject(object);
+        }
+        return FrameCodec.makeFrame(payload);
+    }
+
+    /**
+     * Turns the payload of a frame back into an object. The format is read from the first byte of the payload.
+     * @param payload the payload of the frame.
+     * @return the object the payload holds.
+     * @throws IOException gets thrown if the payload could not be read.
+     * @throws InvalidResponseException gets thrown if the payload is not valid.
+     */
+    public Object decodeObject(byte[] payload) throws IOException, InvalidResponseException {
+        checkIfObjectIsNull(payload, "payload");
+        if (payload.length > 0 && payload[0] == WireFormat.BINARY.getTag()){
+            return binaryCodec.decode(payload);
+        }else {
+            return FrameCodec.decodeObject(payload);
+        }
+    }
+
+    /**
+     * Writes an object as a frame to the output stream.
+     * @param object the object you want to send.
+     * @param outputStream the stream the frame should go through.
+     * @throws IOException gets thrown if the frame could not be written.
+     */
+    public void writeFrame(Object object, OutputStream outputStream) throws IOException {
+        checkIfObjectIsNull(outputStream, "output stream");
+        ByteBuffer frame = encodeFrame(object);
+        outputStream.write(frame.array(), 0, frame.limit());
+        outputStream.flush();
+    }
+
+    /**
+     * Reads one whole frame from the input stream and turns it into an object.
+     * @param inputStream the stream the frame is coming through.
+     * @return the object the frame holds.
+     * @throws IOException gets thrown if the stream closes before the frame is read.
+     * @throws InvalidResponseException gets thrown if the frame is not valid.
+     */
+    public Object readFrame(InputStream inputStream) throws IOException, InvalidResponseException {
+        return decodeObject(FrameCodec.readPayload(inputStream));
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private static void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package no.stonedstonar.chatapplication.network.frame;
+
+/**
+ * Represents the different ways the payload of a frame can be encoded.
+ * The first byte of every payload tells which format it has, so a receiver can read both at any time.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public enum WireFormat {
+
+    /**
+     * The object is written with java serialization. Every client and server knows this format.
+     */
+    SERIALIZATION((byte) 0xAC),
+
+    /**
+     * The object is written with the compact binary format of {@link BinaryCodec}.
+     */
+    BINARY((byte) 0xB1);
+
+    private final byte tag;
+
+    /**
+      * Makes an instance of the WireFormat enum.
+      * @param tag the first byte of a payload in this format.
+      */
+    WireFormat(byte tag){
+        this.tag = tag;
+    }
+
+    /**
+     * Gets the first byte a payload in this format has.
+     * @return the tag of the format.
+     */
+    public byte getTag() {
+        return tag;
+    }
+}
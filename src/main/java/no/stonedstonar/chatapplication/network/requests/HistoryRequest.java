@@ -0,0 +1,115 @@
+package no.stonedstonar.chatapplication.network.requests;
+
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents a request for one page of the older messages of a conversation.
+ * The client sends the day and number of the oldest message it has as a cursor, and the most messages the page can have.
+ * The server answers with a history request that holds the newest messages that are older than the cursor, and if there are even older messages.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class HistoryRequest implements Serializable {
+
+    private final String username;
+
+    private final long conversationNumber;
+
+    private final LocalDate beforeDate;
+
+    private final long beforeMessageNumber;
+
+    private final int limit;
+
+    private final List<Message> messages;
+
+    private final boolean olderMessages;
+
+    /**
+      * Makes an instance of the HistoryRequest class.
+      * @param historyRequestBuilder the builder that holds the values of the request.
+      */
+    public HistoryRequest(HistoryRequestBuilder historyRequestBuilder){
+        checkIfObjectIsNull(historyRequestBuilder, "history request builder");
+        username = historyRequestBuilder.getUsername();
+        conversationNumber = historyRequestBuilder.getConversationNumber();
+        beforeDate = historyRequestBuilder.getBeforeDate();
+        beforeMessageNumber = historyRequestBuilder.getBeforeMessageNumber();
+        limit = historyRequestBuilder.getLimit();
+        messages = historyRequestBuilder.getMessages();
+        olderMessages = historyRequestBuilder.hasOlderMessages();
+    }
+
+    /**
+     * Gets the username that sent this request.
+     * @return the username of the end user.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the number of the conversation.
+     * @return the conversation number.
+     */
+    public long getConversationNumber() {
+        return conversationNumber;
+    }
+
+    /**
+     * Gets the day of the oldest message the client has.
+     * @return the date of the cursor.
+     */
+    public LocalDate getBeforeDate() {
+        return beforeDate;
+    }
+
+    /**
+     * Gets the number of the oldest message the client has.
+     * @return the message number of the cursor.
+     */
+    public long getBeforeMessageNumber() {
+        return beforeMessageNumber;
+    }
+
+    /**
+     * Gets the most messages the page can have.
+     * @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the messages of the page.
+     * @return a list with the messages, with the oldest message first.
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Checks if the server has messages that are older than the page.
+     * @return <code>true</code> if there are older messages.
+     *         <code>false</code> if this is the oldest page.
+     */
+    public boolean hasOlderMessages() {
+        return olderMessages;
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
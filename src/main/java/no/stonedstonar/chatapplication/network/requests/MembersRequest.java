@@ -15,6 +15,8 @@ public class MembersRequest implements Serializable {
 
     private final boolean checkForNewMembers;
 
+    private final boolean allMembers;
+
     private final long conversationNumber;
 
     private final List<MemberTransport> memberTransportList;
@@ -31,6 +33,7 @@ public class MembersRequest implements Serializable {
     public MembersRequest(MembersRequestBuilder membersRequestBuilder){
         checkIfObjectIsNull(membersRequestBuilder, "members request builder");
         checkForNewMembers = membersRequestBuilder.isCheckForNewMembers();
+        allMembers = membersRequestBuilder.isAllMembers();
         conversationNumber = membersRequestBuilder.getConversationNumber();
         memberTransportList = membersRequestBuilder.getMembers();
         username = membersRequestBuilder.getUsername();
@@ -79,6 +82,15 @@ public class MembersRequest implements Serializable {
         return checkForNewMembers;
     }
 
+    /**
+     * Says true if the member transports are all the members of the conversation.
+     * @return <code>true</code> if the members should replace the members the client has.
+     *         <code>false</code> if the members are the members that have been added or removed.
+     */
+    public boolean isAllMembers() {
+        return allMembers;
+    }
+
     /***
      * Gets the list of all the members.
      * @return a list with all the members.
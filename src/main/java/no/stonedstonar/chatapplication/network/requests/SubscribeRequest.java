@@ -0,0 +1,46 @@
+package no.stonedstonar.chatapplication.network.requests;
+
+import java.io.Serializable;
+
+/**
+ * A request that makes the server push the changes of the user's conversations over the connection it is sent over.
+ * The connection must be logged in as the user first. The server answers with the same request, and after that it pushes
+ * the changes as message, members, conversation and personal conversation transports in response envelopes with the push id.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SubscribeRequest implements Serializable {
+
+    private final String username;
+
+    /**
+      * Makes an instance of the SubscribeRequest class.
+      * @param username the username of the user that wants the updates.
+      */
+    public SubscribeRequest(String username){
+        checkString(username, "username");
+        this.username = username;
+    }
+
+    /**
+     * Gets the username of the user that wants the updates.
+     * @return the username.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Checks if a string is of a valid format or not.
+     * @param stringToCheck the string you want to check.
+     * @param errorPrefix the error the exception should have if the string is invalid.
+     */
+    private void checkString(String stringToCheck, String errorPrefix){
+        if (stringToCheck == null){
+            throw new IllegalArgumentException("The " + errorPrefix + " cannot be null.");
+        }
+        if (stringToCheck.isEmpty()){
+            throw new IllegalArgumentException("The " + errorPrefix + " cannot be empty.");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package no.stonedstonar.chatapplication.network.requests;
+
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Represents a request that brings all the conversations of a user up to date in one round trip.
+ * The client sends a cursor for every conversation it has. The server answers with a sync request that only holds
+ * the conversations that have changed since their cursor, and the conversations the user is a part of that the client does not have.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SyncRequest implements Serializable {
+
+    private final String username;
+
+    private final List<ConversationCursorTransport> conversationCursors;
+
+    private final List<ConversationChangesTransport> conversationChanges;
+
+    private final List<ObservableConversation> newConversations;
+
+    /**
+      * Makes an instance of the SyncRequest class.
+      * @param syncRequestBuilder the builder that holds the values of the request.
+      */
+    public SyncRequest(SyncRequestBuilder syncRequestBuilder){
+        checkIfObjectIsNull(syncRequestBuilder, "sync request builder");
+        username = syncRequestBuilder.getUsername();
+        conversationCursors = syncRequestBuilder.getConversationCursors();
+        conversationChanges = syncRequestBuilder.getConversationChanges();
+        newConversations = syncRequestBuilder.getNewConversations();
+    }
+
+    /**
+     * Gets the username that sent this request.
+     * @return the username of the end user.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the cursors of the conversations the client has.
+     * @return a list with the cursors.
+     */
+    public List<ConversationCursorTransport> getConversationCursors() {
+        return conversationCursors;
+    }
+
+    /**
+     * Gets the changes of the conversations that have changed.
+     * @return a list with the changes.
+     */
+    public List<ConversationChangesTransport> getConversationChanges() {
+        return conversationChanges;
+    }
+
+    /**
+     * Gets the conversations the user is a part of that the client does not have.
+     * @return a list with the new conversations.
+     */
+    public List<ObservableConversation> getNewConversations() {
+        return newConversations;
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
@@ -1,8 +1,10 @@
 package no.stonedstonar.chatapplication.network.requests;
 
 import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * This is an object that contains a request the user wants to make to the server.
@@ -21,6 +23,8 @@ public class UserRequest implements Serializable {
 
     private boolean checkUsername;
 
+    private List<ConversationCursorTransport> conversationCursors;
+
     /**
       * Makes an instance of the UserRequest class.
       */
@@ -30,7 +34,7 @@ public class UserRequest implements Serializable {
         login = userRequestBuilder.isLogin();
         newUser = userRequestBuilder.isNewUser();
         checkUsername = userRequestBuilder.isCheckUsername();
-
+        conversationCursors = userRequestBuilder.getConversationCursors();
     }
 
     /**
@@ -76,6 +80,14 @@ public class UserRequest implements Serializable {
         return checkUsername;
     }
 
+    /**
+     * Gets the cursors of the conversations the client has from before. Only a login uses them.
+     * @return a list with the cursors. Is empty if the client has no conversations from before.
+     */
+    public List<ConversationCursorTransport> getConversationCursors() {
+        return conversationCursors;
+    }
+
     /**
      * Checks if a string is of a valid format or not.
      * @param stringToCheck the string you want to check.
@@ -0,0 +1,41 @@
+package no.stonedstonar.chatapplication.network.requests;
+
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request that agrees on the wire format of a connection. The client sends the formats it knows with the one it wants most first.
+ * The server answers with a request that only holds the format it picked, and writes every frame after that in the picked format.
+ * The request itself is always sent with java serialization. If the answer is anything else the client keeps using java serialization.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class WireFormatRequest implements Serializable {
+
+    private final List<WireFormat> wireFormats;
+
+    /**
+      * Makes an instance of the WireFormatRequest class.
+      * @param wireFormats the wire formats, with the one that is wanted most first.
+      */
+    public WireFormatRequest(List<WireFormat> wireFormats){
+        if (wireFormats == null){
+            throw new IllegalArgumentException("The wire formats cannot be null.");
+        }
+        if (wireFormats.isEmpty()){
+            throw new IllegalArgumentException("The wire formats cannot be zero in size.");
+        }
+        this.wireFormats = new ArrayList<>(wireFormats);
+    }
+
+    /**
+     * Gets the wire formats.
+     * @return the wire formats, with the one that is wanted most first.
+     */
+    public List<WireFormat> getWireFormats() {
+        return wireFormats;
+    }
+}
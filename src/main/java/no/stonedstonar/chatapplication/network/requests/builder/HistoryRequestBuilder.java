@@ -0,0 +1,209 @@
+package no.stonedstonar.chatapplication.network.requests.builder;
+
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.network.requests.HistoryRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a builder for the history request class.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class HistoryRequestBuilder {
+
+    private String username;
+
+    private long conversationNumber;
+
+    private LocalDate beforeDate;
+
+    private long beforeMessageNumber;
+
+    private int limit;
+
+    private List<Message> messages;
+
+    private boolean olderMessages;
+
+    /**
+      * Makes an instance of the HistoryRequestBuilder class.
+      */
+    public HistoryRequestBuilder(){
+        username = "";
+        conversationNumber = 0;
+        beforeMessageNumber = 0;
+        limit = 0;
+        messages = new ArrayList<>();
+        olderMessages = false;
+    }
+
+    /**
+     * Sets the username of the user that wants the history.
+     * @param username the username of the user.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder setUsername(String username){
+        checkString(username, "username");
+        this.username = username;
+        return this;
+    }
+
+    /**
+     * Adds the number of the conversation.
+     * @param conversationNumber the conversation number.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder addConversationNumber(long conversationNumber){
+        checkIfLongIsNegative(conversationNumber, "conversation number");
+        this.conversationNumber = conversationNumber;
+        return this;
+    }
+
+    /**
+     * Adds the cursor the page should be older than. That is the day and number of the oldest message the client has.
+     * @param beforeDate the day of the cursor.
+     * @param beforeMessageNumber the message number of the cursor.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder addCursor(LocalDate beforeDate, long beforeMessageNumber){
+        checkIfObjectIsNull(beforeDate, "before date");
+        checkIfLongIsNegative(beforeMessageNumber, "before message number");
+        this.beforeDate = beforeDate;
+        this.beforeMessageNumber = beforeMessageNumber;
+        return this;
+    }
+
+    /**
+     * Adds the most messages the page can have.
+     * @param limit the limit.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder addLimit(int limit){
+        checkIfLongIsNegative(limit, "limit");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Adds the messages of the page.
+     * @param messages the messages, with the oldest message first.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder addMessages(List<Message> messages){
+        checkIfObjectIsNull(messages, "messages");
+        this.messages = messages;
+        return this;
+    }
+
+    /**
+     * Sets if the server has messages that are older than the page.
+     * @param olderMessages <code>true</code> if there are older messages.
+     * @return this builder object.
+     */
+    public HistoryRequestBuilder setOlderMessages(boolean olderMessages){
+        this.olderMessages = olderMessages;
+        return this;
+    }
+
+    /**
+     * Gets the username that sent this request.
+     * @return the username of the end user.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the number of the conversation.
+     * @return the conversation number.
+     */
+    public long getConversationNumber() {
+        return conversationNumber;
+    }
+
+    /**
+     * Gets the day of the cursor.
+     * @return the date of the cursor.
+     */
+    public LocalDate getBeforeDate() {
+        return beforeDate;
+    }
+
+    /**
+     * Gets the message number of the cursor.
+     * @return the message number of the cursor.
+     */
+    public long getBeforeMessageNumber() {
+        return beforeMessageNumber;
+    }
+
+    /**
+     * Gets the most messages the page can have.
+     * @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the messages of the page.
+     * @return a list with the messages.
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Checks if the server has messages that are older than the page.
+     * @return <code>true</code> if there are older messages.
+     *         <code>false</code> if this is the oldest page.
+     */
+    public boolean hasOlderMessages() {
+        return olderMessages;
+    }
+
+    /**
+     * Makes the history request.
+     * @return a history request with the input values.
+     */
+    public HistoryRequest build(){
+        return new HistoryRequest(this);
+    }
+
+    /**
+     * Checks if a long is negative.
+     * @param number the number to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfLongIsNegative(long number, String prefix){
+        if (number < 0){
+            throw new IllegalArgumentException("The " + prefix + " cannot be negative.");
+        }
+    }
+
+    /**
+     * Checks if a string is of a valid format or not.
+     * @param stringToCheck the string you want to check.
+     * @param errorPrefix the error the exception should have if the string is invalid.
+     */
+    private void checkString(String stringToCheck, String errorPrefix){
+        checkIfObjectIsNull(stringToCheck, errorPrefix);
+        if (stringToCheck.isEmpty()){
+            throw new IllegalArgumentException("The " + errorPrefix + " cannot be empty.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
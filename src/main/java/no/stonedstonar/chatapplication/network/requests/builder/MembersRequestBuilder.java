@@ -15,6 +15,8 @@ public class MembersRequestBuilder {
 
     private boolean checkForNewMembers;
 
+    private boolean allMembers;
+
     private long conversationNumber;
 
     private List<MemberTransport> memberList;
@@ -30,6 +32,7 @@ public class MembersRequestBuilder {
       */
     public MembersRequestBuilder(){
         checkForNewMembers = false;
+        allMembers = false;
         memberList = new ArrayList<>();
         username = "";
     }
@@ -50,6 +53,18 @@ public class MembersRequestBuilder {
         return this;
     }
 
+    /**
+     * Says if the member transports are all the members of the conversation, like when the server has forgotten
+     * some of the members that were removed after the last deleted member of the client.
+     * @param allMembers <code>true</code> if the members should replace the members the client has.
+     *                   <code>false</code> if the members are the members that have been added or removed.
+     * @return this builder object.
+     */
+    public MembersRequestBuilder setAllMembers(boolean allMembers){
+        this.allMembers = allMembers;
+        return this;
+    }
+
     /**
      * Sets the last deleted member number.
      * @param lastDeletedMember the last member that was deleted.
@@ -147,6 +162,15 @@ public class MembersRequestBuilder {
 
 
 
+    /**
+     * Says true if the member transports are all the members of the conversation.
+     * @return <code>true</code> if the members should replace the members the client has.
+     *         <code>false</code> if the members are the members that have been added or removed.
+     */
+    public boolean isAllMembers() {
+        return allMembers;
+    }
+
     /***
      * Gets the list of all the members.
      * @return a list with all the members.
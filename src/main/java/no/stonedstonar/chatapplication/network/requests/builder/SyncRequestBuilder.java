@@ -0,0 +1,142 @@
+package no.stonedstonar.chatapplication.network.requests.builder;
+
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.network.requests.SyncRequest;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a builder for the sync request class.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class SyncRequestBuilder {
+
+    private String username;
+
+    private List<ConversationCursorTransport> conversationCursors;
+
+    private List<ConversationChangesTransport> conversationChanges;
+
+    private List<ObservableConversation> newConversations;
+
+    /**
+      * Makes an instance of the SyncRequestBuilder class.
+      */
+    public SyncRequestBuilder(){
+        username = "";
+        conversationCursors = new ArrayList<>();
+        conversationChanges = new ArrayList<>();
+        newConversations = new ArrayList<>();
+    }
+
+    /**
+     * Sets the username of the user that wants to sync.
+     * @param username the username of the user.
+     * @return this builder object.
+     */
+    public SyncRequestBuilder setUsername(String username){
+        checkString(username, "username");
+        this.username = username;
+        return this;
+    }
+
+    /**
+     * Adds the cursors of the conversations the client has.
+     * @param conversationCursors the cursors.
+     * @return this builder object.
+     */
+    public SyncRequestBuilder addConversationCursors(List<ConversationCursorTransport> conversationCursors){
+        checkIfObjectIsNull(conversationCursors, "conversation cursors");
+        this.conversationCursors = conversationCursors;
+        return this;
+    }
+
+    /**
+     * Adds the changes of the conversations that have changed.
+     * @param conversationChanges the changes.
+     * @return this builder object.
+     */
+    public SyncRequestBuilder addConversationChanges(List<ConversationChangesTransport> conversationChanges){
+        checkIfObjectIsNull(conversationChanges, "conversation changes");
+        this.conversationChanges = conversationChanges;
+        return this;
+    }
+
+    /**
+     * Adds the conversations the client does not have.
+     * @param newConversations the new conversations.
+     * @return this builder object.
+     */
+    public SyncRequestBuilder addNewConversations(List<ObservableConversation> newConversations){
+        checkIfObjectIsNull(newConversations, "new conversations");
+        this.newConversations = newConversations;
+        return this;
+    }
+
+    /**
+     * Gets the username that sent this request.
+     * @return the username of the end user.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the cursors of the conversations the client has.
+     * @return a list with the cursors.
+     */
+    public List<ConversationCursorTransport> getConversationCursors() {
+        return conversationCursors;
+    }
+
+    /**
+     * Gets the changes of the conversations that have changed.
+     * @return a list with the changes.
+     */
+    public List<ConversationChangesTransport> getConversationChanges() {
+        return conversationChanges;
+    }
+
+    /**
+     * Gets the conversations the client does not have.
+     * @return a list with the new conversations.
+     */
+    public List<ObservableConversation> getNewConversations() {
+        return newConversations;
+    }
+
+    /**
+     * Makes the sync request.
+     * @return a sync request with the input values.
+     */
+    public SyncRequest build(){
+        return new SyncRequest(this);
+    }
+
+    /**
+     * Checks if a string is of a valid format or not.
+     * @param stringToCheck the string you want to check.
+     * @param errorPrefix the error the exception should have if the string is invalid.
+     */
+    private void checkString(String stringToCheck, String errorPrefix){
+        checkIfObjectIsNull(stringToCheck, errorPrefix);
+        if (stringToCheck.isEmpty()){
+            throw new IllegalArgumentException("The " + errorPrefix + " cannot be empty.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
@@ -1,6 +1,10 @@
 package no.stonedstonar.chatapplication.network.requests.builder;
 
 import no.stonedstonar.chatapplication.network.requests.UserRequest;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A builder that makes an user request. This can be used to make a new user or check a username.
@@ -19,7 +23,7 @@ public class UserRequestBuilder {
 
     private boolean checkUsername;
 
-
+    private List<ConversationCursorTransport> conversationCursors;
 
     /**
      * Makes an instance of the UserRequestBuilder class.
@@ -31,6 +35,7 @@ public class UserRequestBuilder {
         login = false;
         newUser = false;
         checkUsername = false;
+        conversationCursors = new ArrayList<>();
     }
 
     /**
@@ -103,6 +108,17 @@ public class UserRequestBuilder {
         return this;
     }
 
+    /**
+     * Adds the cursors of the conversations the client has from before, so a login only gets what has changed since.
+     * @param conversationCursors the cursors of the conversations.
+     * @return this builder object
+     */
+    public UserRequestBuilder addConversationCursors(List<ConversationCursorTransport> conversationCursors){
+        checkIfObjectIsNull(conversationCursors, "conversation cursors");
+        this.conversationCursors = conversationCursors;
+        return this;
+    }
+
     /**
      * Builds the object and returns it.
      */
@@ -176,4 +192,12 @@ public class UserRequestBuilder {
     public boolean isCheckUsername() {
         return checkUsername;
     }
+
+    /**
+     * Gets the cursors of the conversations the client has from before.
+     * @return a list with the cursors.
+     */
+    public List<ConversationCursorTransport> getConversationCursors() {
+        return conversationCursors;
+    }
 }
@@ -0,0 +1,157 @@
+package no.stonedstonar.chatapplication.network.transport;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Represents everything that has changed in one conversation since the cursor a client sent.
+ * Holds the new messages, the members that have been added or removed and the new name if the name has changed.
+ * If the server has forgotten some of the members that were removed after the cursor, it holds all the members of the conversation instead,
+ * together with the numbers of the last added and the last removed member, so the client can replace its members.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ConversationChangesTransport implements Serializable {
+
+    private final long conversationNumber;
+
+    private final List<MessageTransport> messageTransportList;
+
+    private final List<MemberTransport> memberTransportList;
+
+    private final String newConversationName;
+
+    private final boolean allMembers;
+
+    private final long lastMember;
+
+    private final long lastDeletedMember;
+
+    /**
+      * Makes an instance of the ConversationChangesTransport class.
+      * @param conversationNumber the number of the conversation.
+      * @param messageTransports the new messages.
+      * @param memberTransports the members that have been added or removed.
+      * @param newConversationName the new name of the conversation, or an empty string if the name has not changed.
+      */
+    public ConversationChangesTransport(long conversationNumber, List<MessageTransport> messageTransports, List<MemberTransport> memberTransports, String newConversationName){
+        this(conversationNumber, messageTransports, memberTransports, newConversationName, false, 0, 0);
+    }
+
+    /**
+      * Makes an instance of the ConversationChangesTransport class that holds all the members of the conversation instead of the members that have changed.
+      * @param conversationNumber the number of the conversation.
+      * @param messageTransports the new messages.
+      * @param memberTransports all the members of the conversation.
+      * @param newConversationName the new name of the conversation, or an empty string if the name has not changed.
+      * @param lastMember the number of the last member that was added to the conversation.
+      * @param lastDeletedMember the number of the last member that was removed from the conversation.
+      */
+    public ConversationChangesTransport(long conversationNumber, List<MessageTransport> messageTransports, List<MemberTransport> memberTransports, String newConversationName, long lastMember, long lastDeletedMember){
+        this(conversationNumber, messageTransports, memberTransports, newConversationName, true, lastMember, lastDeletedMember);
+    }
+
+    /**
+     * Makes an instance of the ConversationChangesTransport class.
+     * @param conversationNumber the number of the conversation.
+     * @param messageTransports the new messages.
+     * @param memberTransports the members that have been added or removed, or all the members.
+     * @param newConversationName the new name of the conversation, or an empty string if the name has not changed.
+     * @param allMembers <code>true</code> if the member transports are all the members of the conversation.
+     *                   <code>false</code> if the member transports are the members that have changed.
+     * @param lastMember the number of the last member that was added to the conversation.
+     * @param lastDeletedMember the number of the last member that was removed from the conversation.
+     */
+    private ConversationChangesTransport(long conversationNumber, List<MessageTransport> messageTransports, List<MemberTransport> memberTransports, String newConversationName, boolean allMembers, long lastMember, long lastDeletedMember){
+        if (conversationNumber < 0 || lastMember < 0 || lastDeletedMember < 0){
+            throw new IllegalArgumentException("The conversation number and the member numbers cannot be negative.");
+        }
+        checkIfObjectIsNull(messageTransports, "message transports");
+        checkIfObjectIsNull(memberTransports, "member transports");
+        checkIfObjectIsNull(newConversationName, "new conversation name");
+        this.conversationNumber = conversationNumber;
+        this.messageTransportList = messageTransports;
+        this.memberTransportList = memberTransports;
+        this.newConversationName = newConversationName;
+        this.allMembers = allMembers;
+        this.lastMember = lastMember;
+        this.lastDeletedMember = lastDeletedMember;
+    }
+
+    /**
+     * Gets the number of the conversation.
+     * @return the conversation number.
+     */
+    public long getConversationNumber() {
+        return conversationNumber;
+    }
+
+    /**
+     * Gets the new messages.
+     * @return a list with the new messages.
+     */
+    public List<MessageTransport> getMessageTransportList() {
+        return messageTransportList;
+    }
+
+    /**
+     * Gets the members that have been added or removed.
+     * @return a list with the members that have changed.
+     */
+    public List<MemberTransport> getMemberTransportList() {
+        return memberTransportList;
+    }
+
+    /**
+     * Gets the new name of the conversation.
+     * @return the new name, or an empty string if the name has not changed.
+     */
+    public String getNewConversationName() {
+        return newConversationName;
+    }
+
+    /**
+     * Checks if the member transports are all the members of the conversation.
+     * @return <code>true</code> if the members should replace the members the client has.
+     *         <code>false</code> if the members are the members that have been added or removed.
+     */
+    public boolean isAllMembers() {
+        return allMembers;
+    }
+
+    /**
+     * Gets the number of the last member that was added. Is only set when the transport holds all the members.
+     * @return the number of the last member that was added.
+     */
+    public long getLastMember() {
+        return lastMember;
+    }
+
+    /**
+     * Gets the number of the last member that was removed. Is only set when the transport holds all the members.
+     * @return the number of the last member that was removed.
+     */
+    public long getLastDeletedMember() {
+        return lastDeletedMember;
+    }
+
+    /**
+     * Checks if anything has changed in the conversation.
+     * @return <code>true</code> if there are new messages, changed members, all the members or a new name.
+     *         <code>false</code> if nothing has changed.
+     */
+    public boolean hasChanges(){
+        return !messageTransportList.isEmpty() || !memberTransportList.isEmpty() || allMembers || !newConversationName.isEmpty();
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
@@ -0,0 +1,106 @@
+package no.stonedstonar.chatapplication.network.transport;
+
+import java.io.Serializable;
+
+/**
+ * Represents how far a client has come in one conversation. Holds the number of the last message it has,
+ * the last member and the last deleted member it has, and the name it has for the conversation.
+ * The messages are numbered for the whole conversation, so the last message number is enough to find the new messages of every day.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ConversationCursorTransport implements Serializable {
+
+    private final long conversationNumber;
+
+    private final long lastMessage;
+
+    private final long lastMember;
+
+    private final long lastDeletedMember;
+
+    private final String conversationName;
+
+    /**
+      * Makes an instance of the ConversationCursorTransport class.
+      * @param conversationNumber the number of the conversation.
+      * @param lastMessage the number of the last message the client has.
+      * @param lastMember the number of the last member the client has.
+      * @param lastDeletedMember the number of the last deleted member the client has.
+      * @param conversationName the name the client has for the conversation.
+      */
+    public ConversationCursorTransport(long conversationNumber, long lastMessage, long lastMember, long lastDeletedMember, String conversationName){
+        checkIfLongIsNegative(conversationNumber, "conversation number");
+        checkIfLongIsNegative(lastMessage, "last message");
+        checkIfLongIsNegative(lastMember, "last member");
+        checkIfLongIsNegative(lastDeletedMember, "last deleted member");
+        checkIfObjectIsNull(conversationName, "conversation name");
+        this.conversationNumber = conversationNumber;
+        this.lastMessage = lastMessage;
+        this.lastMember = lastMember;
+        this.lastDeletedMember = lastDeletedMember;
+        this.conversationName = conversationName;
+    }
+
+    /**
+     * Gets the number of the conversation.
+     * @return the conversation number.
+     */
+    public long getConversationNumber() {
+        return conversationNumber;
+    }
+
+    /**
+     * Gets the number of the last message the client has.
+     * @return the last message number.
+     */
+    public long getLastMessage() {
+        return lastMessage;
+    }
+
+    /**
+     * Gets the number of the last member the client has.
+     * @return the last member number.
+     */
+    public long getLastMember() {
+        return lastMember;
+    }
+
+    /**
+     * Gets the number of the last deleted member the client has.
+     * @return the last deleted member number.
+     */
+    public long getLastDeletedMember() {
+        return lastDeletedMember;
+    }
+
+    /**
+     * Gets the name the client has for the conversation.
+     * @return the name of the conversation.
+     */
+    public String getConversationName() {
+        return conversationName;
+    }
+
+    /**
+     * Checks if a long is negative.
+     * @param number the number to check.
+     * @param prefix the prefix the error should have.
+     */
+    private void checkIfLongIsNegative(long number, String prefix){
+        if (number < 0){
+            throw new IllegalArgumentException("The " + prefix + " cannot be negative.");
+        }
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+       if (object == null){
+           throw new IllegalArgumentException("The " + error + " cannot be null.");
+       }
+    }
+}
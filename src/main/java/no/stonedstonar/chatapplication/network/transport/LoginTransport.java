@@ -4,9 +4,13 @@ import no.stonedstonar.chatapplication.model.conversationregister.personal.Norma
 import no.stonedstonar.chatapplication.model.user.User;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Transports the details the user needs to login.
+ * If the client sent the cursors of the conversations it has from before, the transport holds the changes of each of those conversations
+ * that the client can keep. The personal conversation register then only holds the conversations the client must get in full.
  * @version 0.2
  * @author Steinar Hjelle Midthus
  */
@@ -17,14 +21,28 @@ public class LoginTransport implements Serializable {
 
     private NormalPersonalConversationRegister personalConversationRegister;
 
+    private List<ConversationChangesTransport> conversationChanges;
+
     /**
       * Makes an instance of the LoginTransport class.
       */
     public LoginTransport(User user, NormalPersonalConversationRegister personalConversationRegister){
+        this(user, personalConversationRegister, new ArrayList<>());
+    }
+
+    /**
+      * Makes an instance of the LoginTransport class with the changes of the conversations the client has from before.
+      * @param user the user that logged in.
+      * @param personalConversationRegister the conversations the client must get in full.
+      * @param conversationChanges the changes of each conversation the client can keep, even if a conversation has no changes.
+      */
+    public LoginTransport(User user, NormalPersonalConversationRegister personalConversationRegister, List<ConversationChangesTransport> conversationChanges){
         checkIfObjectIsNull(user, "end user");
         checkIfObjectIsNull(personalConversationRegister, "message log list");
+        checkIfObjectIsNull(conversationChanges, "conversation changes");
         this.user = user;
         this.personalConversationRegister = personalConversationRegister;
+        this.conversationChanges = conversationChanges;
     }
 
     /**
@@ -43,6 +61,15 @@ public class LoginTransport implements Serializable {
         return personalConversationRegister;
     }
 
+    /**
+     * Gets the changes of the conversations the client has from before. A conversation the client has that is not in this list
+     * or in the personal conversation register is no longer a conversation of the user.
+     * @return a list with the changes.
+     */
+    public List<ConversationChangesTransport> getConversationChanges(){
+        return conversationChanges;
+    }
+
     /**
      * Checks if an object is null.
      * @param object the object you want to check.
@@ -29,6 +29,8 @@ public class ChatApplicationClient extends Application {
 
     private volatile ExecutorService executor;
 
+    private final FrameDispatcher frameDispatcher;
+
     /**
      * Makes an instance of the ChatApplicationGUI app.
      */
@@ -36,6 +38,7 @@ public class ChatApplicationClient extends Application {
         chatClient = new ChatClient();
         chatApplicationClient = this;
         executor = Executors.newFixedThreadPool(2);
+        frameDispatcher = new FrameDispatcher();
     }
 
     /**
@@ -46,6 +49,14 @@ public class ChatApplicationClient extends Application {
         return executor;
     }
 
+    /**
+     * Gets the dispatcher that applies the updates of the model to the windows once for each frame.
+     * @return the frame dispatcher.
+     */
+    public FrameDispatcher getFrameDispatcher(){
+        return frameDispatcher;
+    }
+
     @Override
     public void start(Stage primaryStage) throws Exception {
         stage = primaryStage;
@@ -0,0 +1,102 @@
+package no.stonedstonar.chatapplication.ui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a dispatcher that gathers the changes the user interface should have from any thread, and applies all of them
+ * on the JavaFX thread once for each frame. A burst of updates from the model is then one task and one layout pass, and not one for each update.
+ * An update can have a key. If an update with the same key is waiting already, it is replaced, so the same part of the window is only updated once for each frame.
+ * The dispatcher only runs while it has updates, and stops after a frame where nothing came in.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class FrameDispatcher {
+
+    private final Map<Object, Runnable> pendingUpdates;
+
+    private final AnimationTimer animationTimer;
+
+    private boolean running;
+
+    /**
+      * Makes an instance of the FrameDispatcher class.
+      */
+    public FrameDispatcher(){
+        pendingUpdates = new LinkedHashMap<>();
+        running = false;
+        animationTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                applyPendingUpdates();
+            }
+        };
+    }
+
+    /**
+     * Adds an update that should be applied in the next frame.
+     * @param update the update.
+     */
+    public void submit(Runnable update){
+        submit(new Object(), update);
+    }
+
+    /**
+     * Adds an update that should be applied in the next frame, and replaces the update with the same key if it is still waiting.
+     * The update keeps the place the first update with the key had.
+     * @param key the key of the part of the window the update changes.
+     * @param update the update.
+     */
+    public void submit(Object key, Runnable update){
+        checkIfObjectIsNull(key, "key");
+        checkIfObjectIsNull(update, "update");
+        boolean start;
+        synchronized (this){
+            pendingUpdates.put(key, update);
+            start = !running;
+            running = true;
+        }
+        if (start){
+            Platform.runLater(animationTimer::start);
+        }
+    }
+
+    /**
+     * Removes all the updates that are waiting. Is used when the window the updates are for is emptied.
+     */
+    public synchronized void clearPendingUpdates(){
+        pendingUpdates.clear();
+    }
+
+    /**
+     * Applies all the updates that are waiting. Stops the timer if there were none, so it does not run when nothing happens.
+     */
+    private void applyPendingUpdates(){
+        List<Runnable> updates;
+        synchronized (this){
+            updates = new ArrayList<>(pendingUpdates.values());
+            pendingUpdates.clear();
+            if (updates.isEmpty()){
+                animationTimer.stop();
+                running = false;
+            }
+        }
+        updates.forEach(Runnable::run);
+    }
+
+    /**
+     * Checks if an object is null.
+     * @param object the object you want to check.
+     * @param error the error message the exception should have.
+     */
+    private void checkIfObjectIsNull(Object object, String error){
+        if (object == null){
+            throw new IllegalArgumentException("The " + error + " cannot be null.");
+        }
+    }
+}
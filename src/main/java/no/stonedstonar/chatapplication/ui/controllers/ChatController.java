@@ -1,6 +1,8 @@
 package no.stonedstonar.chatapplication.ui.controllers;
 
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
@@ -16,8 +18,8 @@ import no.stonedstonar.chatapplication.model.conversation.ConversationObserver;
 import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
 import no.stonedstonar.chatapplication.model.conversationregister.personal.ConversationRegisterObserver;
 import no.stonedstonar.chatapplication.model.conversationregister.personal.PersonalConversationRegister;
-import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotGetConversationException;
+import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
 import no.stonedstonar.chatapplication.model.member.Member;
@@ -33,6 +35,7 @@ import java.io.IOException;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents the controller of the chat window.
@@ -41,6 +44,10 @@ import java.util.concurrent.ExecutorService;
  */
 public class ChatController implements Controller, ConversationObserver, ConversationRegisterObserver {
 
+    private static final int HISTORY_PAGE_SIZE = 50;
+
+    private static final String MESSAGES_KEY = "messages";
+
     @FXML
     private Label loggedInLabel;
 
@@ -48,7 +55,7 @@ public class ChatController implements Controller, ConversationObserver, Convers
     private VBox contactsBox;
 
     @FXML
-    private VBox messageBox;
+    private ListView<Message> messageListView;
 
     @FXML
     private Button sendButton;
@@ -62,9 +69,6 @@ public class ChatController implements Controller, ConversationObserver, Convers
     @FXML
     private Button logOutButton;
 
-    @FXML
-    private ScrollPane scrollPane;
-
     @FXML
     private Button editConversationButton;
 
@@ -72,6 +76,13 @@ public class ChatController implements Controller, ConversationObserver, Convers
 
     private Map<Node, Boolean> validFields;
 
+    private final ObservableList<Message> messages;
+
+    private final Set<Long> conversationsLoadingOlderMessages;
+
+    private long shownMessagesVersion;
+
+    private final List<MessageChange> pendingMessageChanges;
 
     /**
       * Makes an instance of the ChatController class.
@@ -79,6 +90,22 @@ public class ChatController implements Controller, ConversationObserver, Convers
     public ChatController(){
         validFields = new HashMap<>();
         activeConversation = 0;
+        messages = FXCollections.observableArrayList();
+        conversationsLoadingOlderMessages = new HashSet<>();
+        shownMessagesVersion = 0;
+        pendingMessageChanges = new ArrayList<>();
+    }
+
+    /**
+     * Sets up the message list. The list only makes cells for the messages that can be seen and uses them again when it is scrolled,
+     * so showing a conversation costs the same no matter how long its history is.
+     */
+    @FXML
+    private void initialize(){
+        messageListView.setItems(messages);
+        messageListView.setCellFactory(listView -> new MessageCell());
+        messageListView.setPlaceholder(new Label("There is no messages in this conversation yet."));
+        messageListView.setFocusTraversable(false);
     }
 
     /**
@@ -158,7 +185,11 @@ public class ChatController implements Controller, ConversationObserver, Convers
      */
     public void setAllFieldsEmpty(){
         textMessageField.textProperty().set("");
-        messageBox.getChildren().clear();
+        ChatApplicationClient.getChatApplication().getFrameDispatcher().clearPendingUpdates();
+        synchronized (pendingMessageChanges){
+            pendingMessageChanges.clear();
+        }
+        messages.clear();
         contactsBox.getChildren().clear();
     }
 
@@ -171,26 +202,38 @@ public class ChatController implements Controller, ConversationObserver, Convers
     }
 
     /**
-     * Sends a new message to the user.
+     * Sends a new message to the user. The message is sent in the background and the field is emptied at once.
+     * If the message could not be sent the contents are put back in the field, as long as nothing new is written in it.
      * @param messageContents the message's contents.
      * @param chatClient the chat client of the application
      */
     private void sendNewMessage(String messageContents, ChatClient chatClient) {
         try {
             ObservableConversation observableConversation = chatClient.getConversationByNumber(activeConversation);
-            chatClient.sendMessage(messageContents, observableConversation);
             textMessageField.textProperty().set("");
-        }catch (IllegalArgumentException  exception){
-            AlertTemplates.makeAndShowInvalidInputAlert();
-        } catch (CouldNotAddMessageException exception) {
-            AlertTemplates.makeAndShowCriticalErrorAlert(exception);
-        } catch (CouldNotGetMessageLogException exception) {
-            AlertTemplates.makeAndShowCouldNotGetMessageLogExceptionAlert();
-        } catch (IOException exception) {
-            AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
-        } catch (InvalidResponseException e) {
-            AlertTemplates.makeAndShowInvalidResponseFromTheServer();
-        } catch (CouldNotGetConversationException exception) {
+            chatClient.sendMessageAsync(messageContents, observableConversation).whenComplete((result, throwable) -> {
+                if (throwable != null){
+                    Platform.runLater(() -> {
+                        if (textMessageField.getText().isEmpty()){
+                            textMessageField.textProperty().set(messageContents);
+                        }
+                        if (throwable instanceof IllegalArgumentException){
+                            AlertTemplates.makeAndShowInvalidInputAlert();
+                        }else if (throwable instanceof CouldNotAddMessageException exception){
+                            AlertTemplates.makeAndShowCriticalErrorAlert(exception);
+                        }else if (throwable instanceof CouldNotGetMessageLogException){
+                            AlertTemplates.makeAndShowCouldNotGetMessageLogExceptionAlert();
+                        }else if (throwable instanceof IOException){
+                            AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
+                        }else if (throwable instanceof TimeoutException){
+                            AlertTemplates.makeAndShowServerTimedOutAlert();
+                        }else {
+                            AlertTemplates.makeAndShowInvalidResponseFromTheServer();
+                        }
+                    });
+                }
+            });
+        }catch (CouldNotGetConversationException exception) {
             AlertTemplates.makeAndShowCouldNotGetConversationAlert();
         }
     }
@@ -355,42 +398,74 @@ public class ChatController implements Controller, ConversationObserver, Convers
      * @param observableConversation the message log you want to load.
      */
     public void showMessagesFromConversation(ObservableConversation observableConversation){
-        messageBox.getChildren().clear();
-        List<Message> messages = observableConversation.getAllMessagesOfConversationAsList();
         this.activeConversation = observableConversation.getConversationNumber();
+        shownMessagesVersion += 1;
         ChatClient chatClient = ChatApplicationClient.getChatApplication().getChatClient();
         chatClient.setConversationFocus(activeConversation);
+        setMessagesOfConversation(observableConversation);
+        scrollToLastMessage();
+    }
+
+    /**
+     * Puts all the messages the conversation has right now in the message list, and forgets the changes that have not been shown yet since the list has them.
+     * @param observableConversation the conversation.
+     */
+    private void setMessagesOfConversation(ObservableConversation observableConversation){
+        synchronized (pendingMessageChanges){
+            pendingMessageChanges.clear();
+        }
+        messages.setAll(observableConversation.getAllMessagesOfConversationAsList().stream().filter(TextMessage.class::isInstance).toList());
+    }
+
+    /**
+     * Scrolls the message list down to the newest message.
+     */
+    private void scrollToLastMessage(){
         if (!messages.isEmpty()){
-            messages.forEach(message -> {
-                if (message instanceof TextMessage textMessage){
-                    addMessage(textMessage);
-                }
-            });
-        }else {
-            Label label = new Label("There is no messages in this conversation yet.");
-            messageBox.getChildren().add(label);
+            messageListView.scrollTo(messages.size() - 1);
         }
     }
 
     /**
-     * Adds a message to the conversation box.
-     * @param message the message you want to add to the gui.
+     * Loads the page of messages that comes before the oldest message in the list, if the active conversation has older messages on the server.
+     * The page is loaded in the background, and is put on the top of the list while the messages that were shown stay in place.
+     * A conversation only loads one page at a time, also when the user switches away and back while the page is loading.
+     * If the list was shown again while the page was loading, it is made again from the conversation, which has the page by then.
      */
-    private void addMessage(TextMessage message) {
-        Text text = new Text();
-        LocalTime timeOfMessage = message.getTime();
-        Label label = new Label(message.getFromUsername() + " " + addZeroUntilLengthIsValid(timeOfMessage.getHour()) + ":" + addZeroUntilLengthIsValid(timeOfMessage.getMinute()));
-        label.setTextFill(Color.valueOf("#666666"));
-        label.setFont(Font.font(label.getFont().getName(), FontWeight.NORMAL, FontPosture.REGULAR, 12));
-        text.setFont(Font.font(label.getFont().getName(), FontWeight.NORMAL, FontPosture.REGULAR, 12));
-        text.setText(message.getMessage());
-        VBox vBox = new VBox();
-        vBox.setPadding(new Insets(0, 5, 10, 5));
-        vBox.setMinWidth(Long.MAX_VALUE);
-        vBox.getChildren().add(label);
-        vBox.getChildren().add(text);
-        messageBox.getChildren().add(vBox);
-        messageBox.heightProperty().addListener((obs, oldVal, newVal) -> scrollPane.setVvalue(1.0));
+    private void loadOlderMessages(){
+        ChatClient chatClient = ChatApplicationClient.getChatApplication().getChatClient();
+        long conversationNumber = activeConversation;
+        long messagesVersion = shownMessagesVersion;
+        try {
+            ObservableConversation observableConversation = chatClient.getConversationByNumber(conversationNumber);
+            if (!conversationsLoadingOlderMessages.contains(conversationNumber) && observableConversation.hasOlderMessages()){
+                conversationsLoadingOlderMessages.add(conversationNumber);
+                chatClient.loadOlderMessagesAsync(observableConversation, HISTORY_PAGE_SIZE).whenComplete((loadedMessages, throwable) -> Platform.runLater(() -> {
+                    conversationsLoadingOlderMessages.remove(conversationNumber);
+                    if (throwable == null){
+                        List<Message> olderMessages = loadedMessages.stream().filter(TextMessage.class::isInstance).toList();
+                        if (activeConversation == conversationNumber){
+                            if (shownMessagesVersion == messagesVersion){
+                                messages.addAll(0, olderMessages);
+                            }else {
+                                setMessagesOfConversation(observableConversation);
+                            }
+                            messageListView.scrollTo(olderMessages.size());
+                        }
+                    }else if (throwable instanceof IOException){
+                        AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
+                    }else if (throwable instanceof UsernameNotPartOfConversationException || throwable instanceof CouldNotGetConversationException){
+                        AlertTemplates.makeAndShowCouldNotGetConversationAlert();
+                    }else if (throwable instanceof TimeoutException){
+                        AlertTemplates.makeAndShowServerTimedOutAlert();
+                    }else {
+                        AlertTemplates.makeAndShowInvalidResponseFromTheServer();
+                    }
+                }));
+            }
+        }catch (CouldNotGetConversationException exception){
+            AlertTemplates.makeAndShowCouldNotGetConversationAlert();
+        }
     }
 
     /**
@@ -445,24 +520,62 @@ public class ChatController implements Controller, ConversationObserver, Convers
 
     @Override
     public void updateConversationMessage(Message message, boolean removed, long conversationNumber) {
-        Platform.runLater(() ->{
-            if ((message instanceof TextMessage textMessage) && (activeConversation == conversationNumber)){
-                if (messageBox.getChildren().size() == 1 && messageBox.getChildren().get(0) instanceof Label){
-                    messageBox.getChildren().clear();
+        addMessageChange(Collections.singletonList(message), removed, conversationNumber);
+    }
+
+    @Override
+    public void updateConversationMessages(List<Message> messageList, boolean removed, long conversationNumber) {
+        addMessageChange(new ArrayList<>(messageList), removed, conversationNumber);
+    }
+
+    /**
+     * Adds a change of the messages to the changes that are applied in the next frame.
+     * All the changes that come in before the frame are applied to the message list together.
+     * @param messageList the messages that were added or removed.
+     * @param removed <code>true</code> if the messages were removed.
+     * @param conversationNumber the conversation number.
+     */
+    private void addMessageChange(List<Message> messageList, boolean removed, long conversationNumber){
+        synchronized (pendingMessageChanges){
+            pendingMessageChanges.add(new MessageChange(messageList, removed, conversationNumber));
+        }
+        ChatApplicationClient.getChatApplication().getFrameDispatcher().submit(MESSAGES_KEY, this::applyMessageChanges);
+    }
+
+    /**
+     * Applies all the changes of the messages that have come since the last frame to the message list of the active conversation.
+     */
+    private void applyMessageChanges(){
+        List<MessageChange> messageChanges;
+        synchronized (pendingMessageChanges){
+            messageChanges = new ArrayList<>(pendingMessageChanges);
+            pendingMessageChanges.clear();
+        }
+        boolean added = false;
+        for (MessageChange messageChange : messageChanges){
+            if (messageChange.conversationNumber == activeConversation){
+                List<TextMessage> textMessages = messageChange.messageList.stream().filter(TextMessage.class::isInstance).map(TextMessage.class::cast).toList();
+                if (messageChange.removed){
+                    textMessages.forEach(textMessage -> messages.removeIf(textMessage::checkIfMessageContentsAreEqual));
+                }else if (!textMessages.isEmpty()){
+                    messages.addAll(textMessages);
+                    added = true;
                 }
-                addMessage(textMessage);
             }
-        });
+        }
+        if (added){
+            scrollToLastMessage();
+        }
     }
 
     @Override
     public void updateMemberInConversation(long conversationNumber) {
-        Platform.runLater(() -> changeConversationMembers(conversationNumber));
+        ChatApplicationClient.getChatApplication().getFrameDispatcher().submit("members " + conversationNumber, () -> changeConversationMembers(conversationNumber));
     }
 
     @Override
     public void updateConversationName(long conversationNumber) {
-        Platform.runLater(() -> {
+        ChatApplicationClient.getChatApplication().getFrameDispatcher().submit("name " + conversationNumber, () -> {
             try {
                 ChatClient chatClient = ChatApplicationClient.getChatApplication().getChatClient();
                 VBox vBox = getConversationVBox(conversationNumber);
@@ -484,7 +597,7 @@ public class ChatController implements Controller, ConversationObserver, Convers
 
     @Override
     public void updateConversation(ObservableConversation observableConversation, boolean removed) {
-        Platform.runLater(() -> {
+        ChatApplicationClient.getChatApplication().getFrameDispatcher().submit(() -> {
             if (removed){
                 if (!contactsBox.getChildren().isEmpty()){
                     contactsBox.getChildren().clear();
@@ -533,4 +646,72 @@ public class ChatController implements Controller, ConversationObserver, Convers
         String conversationNumberAsString = Long.toString(conversationNumber);
         return (VBox) contactsBox.getChildren().stream().filter(node -> node.getId().equals(conversationNumberAsString)).findFirst().get();
     }
+
+    /**
+     * Represents a cell in the message list that shows who sent a message, when it was sent and what it says.
+     * The list only makes as many cells as it can show, and a cell is given a new message each time the list is scrolled.
+     * When the cell of the first message in the list is shown, the older messages of the conversation are loaded.
+     */
+    private class MessageCell extends ListCell<Message> {
+
+        private final VBox vBox;
+
+        private final Label label;
+
+        private final Text text;
+
+        /**
+          * Makes an instance of the MessageCell class.
+          */
+        private MessageCell(){
+            label = new Label();
+            label.setTextFill(Color.valueOf("#666666"));
+            label.setFont(Font.font(label.getFont().getName(), FontWeight.NORMAL, FontPosture.REGULAR, 12));
+            text = new Text();
+            text.setFont(Font.font(label.getFont().getName(), FontWeight.NORMAL, FontPosture.REGULAR, 12));
+            text.wrappingWidthProperty().bind(messageListView.widthProperty().subtract(40));
+            vBox = new VBox(label, text);
+            vBox.setPadding(new Insets(0, 5, 10, 5));
+        }
+
+        @Override
+        protected void updateItem(Message message, boolean empty) {
+            super.updateItem(message, empty);
+            if (empty || !(message instanceof TextMessage textMessage)){
+                setGraphic(null);
+            }else {
+                LocalTime timeOfMessage = textMessage.getTime();
+                label.setText(textMessage.getFromUsername() + " " + addZeroUntilLengthIsValid(timeOfMessage.getHour()) + ":" + addZeroUntilLengthIsValid(timeOfMessage.getMinute()));
+                text.setText(textMessage.getMessage());
+                setGraphic(vBox);
+                if (getIndex() == 0){
+                    loadOlderMessages();
+                }
+            }
+        }
+    }
+
+    /**
+     * Represents messages that were added to or removed from a conversation, and waits to be applied in the next frame.
+     */
+    private static class MessageChange {
+
+        private final List<Message> messageList;
+
+        private final boolean removed;
+
+        private final long conversationNumber;
+
+        /**
+          * Makes an instance of the MessageChange class.
+          * @param messageList the messages that were added or removed.
+          * @param removed <code>true</code> if the messages were removed.
+          * @param conversationNumber the conversation number.
+          */
+        private MessageChange(List<Message> messageList, boolean removed, long conversationNumber){
+            this.messageList = messageList;
+            this.removed = removed;
+            this.conversationNumber = conversationNumber;
+        }
+    }
 }
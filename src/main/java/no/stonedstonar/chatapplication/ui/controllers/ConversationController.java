@@ -1,5 +1,6 @@
 package no.stonedstonar.chatapplication.ui.controllers;
 
+import javafx.application.Platform;
 import javafx.beans.property.StringProperty;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
@@ -23,6 +24,8 @@ import no.stonedstonar.chatapplication.ui.windows.ChatWindow;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents the controller of the conversation window.
@@ -162,33 +165,46 @@ public class ConversationController implements Controller {
 
         makeConversationButton.setOnAction(event -> {
             String nameOfConversation = conversationField.textProperty().get();
-            try {
-                if (editConversation){
-                    List<String> originalMembers = conversationToEdit.getMembers().getNameOfAllMembers();
-                    List<String> newMembers = usernames.stream().filter(name -> originalMembers.stream().noneMatch(user -> user.equals(name))).toList();
-                    chatClient.editConversation(newMembers, removedUsernames, conversationField.getText(), conversationToEdit);
-                }else {
-                    chatClient.makeNewConversation(usernames, nameOfConversation);
-                }
-                editConversation = false;
-                conversationToEdit = null;
-                setAllFieldsEmpty();
-                chatApplicationClient.setNewScene(ChatWindow.getChatWindow());
-            } catch (CouldNotAddMessageLogException exception) {
-                AlertTemplates.makeAndShowCouldNotGetMessageLogExceptionAlert();
-            } catch (IOException exception) {
-                AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
-            } catch (CouldNotAddMemberException exception) {
-                AlertTemplates.makeAndShowCriticalErrorAlert(exception);
-            } catch (InvalidResponseException e) {
-                AlertTemplates.makeAndShowInvalidResponseFromTheServer();
-            } catch (CouldNotAddConversationException exception) {
-                AlertTemplates.makeAndShowCouldNotAddConversation();
-            } catch (CouldNotGetConversationException exception) {
-                AlertTemplates.makeAndShowCouldNotGetConversationAlert();
-            } catch (CouldNotRemoveMemberException e) {
-                AlertTemplates.makeCouldNotRemoveMemberExceptionAlert();
+            CompletableFuture<Void> future;
+            if (editConversation){
+                List<String> originalMembers = conversationToEdit.getMembers().getNameOfAllMembers();
+                List<String> newMembers = usernames.stream().filter(name -> originalMembers.stream().noneMatch(user -> user.equals(name))).toList();
+                future = chatClient.editConversationAsync(newMembers, new ArrayList<>(removedUsernames), conversationField.getText(), conversationToEdit);
+            }else {
+                future = chatClient.makeNewConversationAsync(new ArrayList<>(usernames), nameOfConversation);
             }
+            makeConversationButton.setDisable(true);
+            future.whenComplete((result, throwable) -> Platform.runLater(() -> {
+                checkIfRequiredFieldsAreOk();
+                try {
+                    if (throwable == null){
+                        editConversation = false;
+                        conversationToEdit = null;
+                        setAllFieldsEmpty();
+                        chatApplicationClient.setNewScene(ChatWindow.getChatWindow());
+                    }else if (throwable instanceof CouldNotAddMessageLogException){
+                        AlertTemplates.makeAndShowCouldNotGetMessageLogExceptionAlert();
+                    }else if (throwable instanceof IOException){
+                        AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
+                    }else if (throwable instanceof CouldNotAddMemberException exception){
+                        AlertTemplates.makeAndShowCriticalErrorAlert(exception);
+                    }else if (throwable instanceof CouldNotAddConversationException){
+                        AlertTemplates.makeAndShowCouldNotAddConversation();
+                    }else if (throwable instanceof CouldNotGetConversationException){
+                        AlertTemplates.makeAndShowCouldNotGetConversationAlert();
+                    }else if (throwable instanceof CouldNotRemoveMemberException){
+                        AlertTemplates.makeCouldNotRemoveMemberExceptionAlert();
+                    }else if (throwable instanceof TimeoutException){
+                        AlertTemplates.makeAndShowServerTimedOutAlert();
+                    }else if (throwable instanceof IllegalArgumentException){
+                        AlertTemplates.makeAndShowInvalidInputAlert();
+                    }else {
+                        AlertTemplates.makeAndShowInvalidResponseFromTheServer();
+                    }
+                }catch (IOException exception){
+                    AlertTemplates.makeAndShowCriticalErrorAlert(exception);
+                }
+            }));
         });
 
         makeConversationButton.setDefaultButton(true);
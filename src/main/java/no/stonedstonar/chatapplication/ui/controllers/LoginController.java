@@ -7,7 +7,6 @@ import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import no.stonedstonar.chatapplication.frontend.ChatClient;
-import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
 import no.stonedstonar.chatapplication.model.exception.user.CouldNotLoginToUserException;
 import no.stonedstonar.chatapplication.ui.ChatApplicationClient;
 import no.stonedstonar.chatapplication.ui.windows.AlertTemplates;
@@ -17,6 +16,7 @@ import no.stonedstonar.chatapplication.ui.windows.NewUserWindow;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents the controller for the login window.
@@ -85,20 +85,29 @@ public class LoginController implements Controller {
         ChatClient chatClient = chatApplicationClient.getChatClient();
 
         loginButton.setOnAction(actionEvent -> {
-            try {
-                String username = usernameField.textProperty().get();
-                String password = passwordField.textProperty().get();
-                chatClient.loginToUser(username, password);
-                chatApplicationClient.setNewScene(ChatWindow.getChatWindow());
-            }catch (IOException exception){
-                AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
-            }catch (IllegalArgumentException exception){
-                AlertTemplates.makeAndShowInvalidInputAlert();
-            } catch (CouldNotLoginToUserException exception) {
-                AlertTemplates.makeAndShowCouldNotLoginAlert();
-            }  catch (InvalidResponseException e) {
-                AlertTemplates.makeAndShowInvalidResponseFromTheServer();
-            }
+            String username = usernameField.textProperty().get();
+            String password = passwordField.textProperty().get();
+            loginButton.setDisable(true);
+            chatClient.loginToUserAsync(username, password).whenComplete((result, throwable) -> Platform.runLater(() -> {
+                loginButton.setDisable(false);
+                try {
+                    if (throwable == null){
+                        chatApplicationClient.setNewScene(ChatWindow.getChatWindow());
+                    }else if (throwable instanceof IOException){
+                        AlertTemplates.makeAndShowCouldNotConnectToServerAlert();
+                    }else if (throwable instanceof IllegalArgumentException){
+                        AlertTemplates.makeAndShowInvalidInputAlert();
+                    }else if (throwable instanceof CouldNotLoginToUserException){
+                        AlertTemplates.makeAndShowCouldNotLoginAlert();
+                    }else if (throwable instanceof TimeoutException){
+                        AlertTemplates.makeAndShowServerTimedOutAlert();
+                    }else {
+                        AlertTemplates.makeAndShowInvalidResponseFromTheServer();
+                    }
+                }catch (IOException exception){
+                    AlertTemplates.makeAndShowCriticalErrorAlert(exception);
+                }
+            }));
         });
         cancelButton.setOnAction(actionEvent -> {
             Platform.exit();
@@ -57,6 +57,13 @@ public class AlertTemplates {
         makeAndShowAlert(Alert.AlertType.WARNING, "Could not connect to server", "Could not connect to the server.", "The program could not connect to the server. \nPlease check that there is a internet connection.");
     }
 
+    /**
+     * Makes an alert that is shown when the server does not answer in time.
+     */
+    public static void makeAndShowServerTimedOutAlert(){
+        makeAndShowAlert(Alert.AlertType.WARNING, "Server is not answering", "The server did not answer in time.", "The server is slow or cannot be reached. \nPlease try again.");
+    }
+
     /**
      * Makes and shows an alert that is used when the response form the server is invalid.
      */
@@ -0,0 +1,127 @@
+package no.stonedstonar.chatappliation.backend;
+
+import no.stonedstonar.chatapplication.backend.SelectorTransport;
+import no.stonedstonar.chatapplication.backend.ServerRequestHandler;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+import no.stonedstonar.chatapplication.network.frame.FrameCodec;
+import no.stonedstonar.chatapplication.network.requests.MessageRequest;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * A benchmark that measures how many requests the selector transport handles each second with one client and with many clients.
+ * Every client has its own conversation, so the clients never wait on each others locks.
+ * Is run by hand with its main method and is not a part of the tests. Takes the amount of clients and requests for each client as arguments.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ServerThroughputBenchmark {
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of clients and the amount of requests for each client. Is one client for each processor and 2 000 requests if they are not given.
+     * @throws Exception gets thrown if the server could not be started or a client failed.
+     */
+    public static void main(String[] args) throws Exception {
+        int amountOfClients = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        NormalConversationRegister conversationRegister = new NormalConversationRegister();
+        for (int i = 0; i < amountOfClients; i++){
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("client" + i));
+            conversationRegister.addNewConversationWithUsernames(members, "Throughput " + i);
+        }
+        int portNumber;
+        try (ServerSocket serverSocket = new ServerSocket(0)){
+            portNumber = serverSocket.getLocalPort();
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(amountOfClients);
+        SelectorTransport selectorTransport = new SelectorTransport(portNumber, Math.max(1, amountOfClients / 2), workers, new ServerRequestHandler(new NormalUserRegister(), conversationRegister));
+        Thread acceptThread = new Thread(selectorTransport::run);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        try {
+            runClients(portNumber, 1, requestsPerClient);
+            double oneClient = runClients(portNumber, 1, requestsPerClient);
+            double manyClients = runClients(portNumber, amountOfClients, requestsPerClient);
+            System.out.printf("1 client: %.0f requests/s, %d clients: %.0f requests/s (x%.2f)%n", oneClient, amountOfClients, manyClients, manyClients / oneClient);
+        }finally {
+            selectorTransport.stop();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Lets a set of clients send messages and check for new messages in their own conversation at the same time.
+     * @param portNumber the port of the server.
+     * @param amountOfClients the amount of clients that should run.
+     * @param requestsPerClient the amount of requests each client makes.
+     * @return the amount of requests the server handled each second.
+     * @throws Exception gets thrown if a client failed.
+     */
+    private static double runClients(int portNumber, int amountOfClients, int requestsPerClient) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(amountOfClients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < amountOfClients; i++){
+            int clientNumber = i;
+            results.add(clients.submit(() -> {
+                runClient(portNumber, clientNumber, requestsPerClient, start);
+                return null;
+            }));
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results){
+            result.get(10, TimeUnit.MINUTES);
+        }
+        long time = System.nanoTime() - startTime;
+        clients.shutdown();
+        return (double) amountOfClients * requestsPerClient / (time / 1_000_000_000.0);
+    }
+
+    /**
+     * Runs one client that alternates between sending a message and checking for new messages.
+     * @param portNumber the port of the server.
+     * @param clientNumber the number of the client.
+     * @param requests the amount of requests the client makes.
+     * @param start the latch that all the clients wait on before they start.
+     * @throws Exception gets thrown if the connection fails or the server sends back an exception.
+     */
+    private static void runClient(int portNumber, int clientNumber, int requests, CountDownLatch start) throws Exception {
+        String username = "client" + clientNumber;
+        long conversationNumber = clientNumber + 1;
+        try (Socket socket = new Socket("localhost", portNumber)){
+            socket.setTcpNoDelay(true);
+            InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+            OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+            start.await();
+            for (int i = 0; i < requests; i++){
+                Object request;
+                if (i % 2 == 0){
+                    List<MessageTransport> messageTransports = new ArrayList<>();
+                    messageTransports.add(new MessageTransport(new TextMessage("Message " + i, username), true));
+                    request = new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(conversationNumber).setUsername(username).build();
+                }else {
+                    request = new MessageRequestBuilder().setCheckForMessages(true).addLastMessage(0).addConversationNumber(conversationNumber).setUsername(username).build();
+                }
+                FrameCodec.writeFrame(request, outputStream);
+                Object response = FrameCodec.readFrame(inputStream);
+                if (!(response instanceof MessageRequest)){
+                    throw new IllegalStateException("Expected a message request back, but got " + response);
+                }
+            }
+        }
+    }
+}
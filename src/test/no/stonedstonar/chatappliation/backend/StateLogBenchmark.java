@@ -0,0 +1,115 @@
+package no.stonedstonar.chatappliation.backend;
+
+import no.stonedstonar.chatapplication.backend.ServerRequestHandler;
+import no.stonedstonar.chatapplication.backend.wal.ServerStateLog;
+import no.stonedstonar.chatapplication.backend.wal.WriteAheadLog;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A benchmark that measures how long the server takes to read its state back at startup.
+ * Replaying the whole state log is compared with loading a snapshot and replaying the changes after it.
+ * Is run by hand with its main method and is not a part of the tests. Takes the amount of messages and conversations as arguments.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class StateLogBenchmark {
+
+    private static final int MESSAGES_PER_RECORD = 100;
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of messages and the amount of conversations. Is 1 000 000 messages in 1 000 conversations if they are not given.
+     * @throws Exception gets thrown if the state could not be made, logged or read.
+     */
+    public static void main(String[] args) throws Exception {
+        int amountOfMessages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int amountOfConversations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        Path directory = Files.createTempDirectory("state-benchmark");
+        try {
+            NormalUserRegister userRegister = new NormalUserRegister();
+            NormalConversationRegister conversationRegister = new NormalConversationRegister();
+            long start = System.nanoTime();
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(directory, 0, false))){
+                long lastRecord = 0;
+                for (int i = 0; i < amountOfConversations; i++){
+                    String username = "user" + i;
+                    userRegister.addUser(new EndUser(username, "pass"));
+                    serverStateLog.logUserAdded(username, "pass");
+                    List<Member> members = new ArrayList<>();
+                    members.add(new ConversationMember(username));
+                    ServerConversation conversation = conversationRegister.addNewConversationWithUsernames(members, "");
+                    serverStateLog.logConversationMade(conversation, members);
+                }
+                List<ServerConversation> conversations = conversationRegister.getAllConversations();
+                for (int sent = 0; sent < amountOfMessages; sent += MESSAGES_PER_RECORD){
+                    ServerConversation conversation = conversations.get((sent / MESSAGES_PER_RECORD) % amountOfConversations);
+                    String username = "user" + (conversation.getConversationNumber() - 1);
+                    List<Message> messages = new ArrayList<>(MESSAGES_PER_RECORD);
+                    for (int i = 0; i < MESSAGES_PER_RECORD; i++){
+                        messages.add(new TextMessage("Message number " + (sent + i), username));
+                    }
+                    conversation.addAllMessagesWithSameDate(messages);
+                    lastRecord = serverStateLog.logMessagesChanged(conversation.getConversationNumber(), messages, true);
+                }
+                serverStateLog.awaitDurable(lastRecord);
+            }
+            System.out.printf("Logged %d messages in %d conversations in %d ms, %d MB on disk%n", amountOfMessages, amountOfConversations, (System.nanoTime() - start) / 1_000_000, sizeOf(directory) / (1024 * 1024));
+
+            start = System.nanoTime();
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(directory, 0, false))){
+                serverStateLog.replay(new NormalUserRegister(), new NormalConversationRegister());
+            }
+            System.out.printf("Replaying the whole log: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(directory, 0, false))){
+                new ServerRequestHandler(userRegister, conversationRegister, serverStateLog).writeSnapshot();
+            }
+            System.out.printf("Writing a snapshot: %d ms, %d MB on disk%n", (System.nanoTime() - start) / 1_000_000, sizeOf(directory) / (1024 * 1024));
+
+            for (int round = 0; round < 3; round++){
+                start = System.nanoTime();
+                try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(directory, 0, false))){
+                    serverStateLog.replay(new NormalUserRegister(), new NormalConversationRegister());
+                }
+                System.out.printf("Loading the snapshot and the log after it: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            }
+        }finally {
+            try (Stream<Path> files = Files.walk(directory)){
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()){
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the size of all the files in a folder.
+     * @param directory the folder.
+     * @return the size in bytes.
+     * @throws Exception gets thrown if the folder could not be read.
+     */
+    private static long sizeOf(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)){
+            long size = 0;
+            for (Path file : files.toList()){
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+}
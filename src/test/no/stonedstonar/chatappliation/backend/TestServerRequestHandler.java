@@ -0,0 +1,467 @@
+package no.stonedstonar.chatappliation.backend;
+
+import no.stonedstonar.chatapplication.backend.ClientConnection;
+import no.stonedstonar.chatapplication.backend.ServerRequestHandler;
+import no.stonedstonar.chatapplication.backend.SubscriptionHub;
+import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.ServerMemberRegister;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.frame.WireCodec;
+import no.stonedstonar.chatapplication.network.frame.WireFormat;
+import no.stonedstonar.chatapplication.network.requests.HistoryRequest;
+import no.stonedstonar.chatapplication.network.requests.MembersRequest;
+import no.stonedstonar.chatapplication.network.requests.MessageRequest;
+import no.stonedstonar.chatapplication.network.requests.SubscribeRequest;
+import no.stonedstonar.chatapplication.network.requests.SyncRequest;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+import no.stonedstonar.chatapplication.network.transport.LoginTransport;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A class that tests the sync, history and login requests of the server request handler.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestServerRequestHandler {
+
+    private NormalConversationRegister conversationRegister;
+
+    private ServerRequestHandler serverRequestHandler;
+
+    /**
+     * Makes a handler with two conversations that bjarne22 is a part of.
+     */
+    @BeforeEach
+    private void makeHandler(){
+        try {
+            conversationRegister = new NormalConversationRegister();
+            for (int i = 0; i < 2; i++){
+                List<Member> members = new ArrayList<>();
+                members.add(new ConversationMember("bjarne22"));
+                members.add(new ConversationMember("fjell"));
+                conversationRegister.addNewConversationWithUsernames(members, "Conversation " + i);
+            }
+            NormalUserRegister userRegister = new NormalUserRegister();
+            userRegister.addUser(new EndUser("bjarne22", "passr"));
+            serverRequestHandler = new ServerRequestHandler(userRegister, conversationRegister);
+        }catch (Exception exception){
+            fail("Expected the conversations to be made since the input is valid.");
+        }
+    }
+
+    /**
+     * Makes the cursors that match the conversations as they are on the server now.
+     * @return a list with the cursors.
+     * @throws Exception gets thrown if a conversation could not be found.
+     */
+    private List<ConversationCursorTransport> makeCursors() throws Exception {
+        List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+        for (ServerConversation serverConversation : conversationRegister.getAllConversations()){
+            conversationCursors.add(new ConversationCursorTransport(serverConversation.getConversationNumber(), serverConversation.getLastMessageNumber(), serverConversation.getMembers().getLastMemberNumber(), serverConversation.getMembers().getLastDeletedMember(), serverConversation.getConversationName()));
+        }
+        return conversationCursors;
+    }
+
+    /**
+     * Sends a sync request with cursors to the handler.
+     * @param conversationCursors the cursors.
+     * @return the answer of the handler.
+     * @throws Exception gets thrown if the request is not valid.
+     */
+    private SyncRequest sync(List<ConversationCursorTransport> conversationCursors) throws Exception {
+        SyncRequest syncRequest = new SyncRequestBuilder().setUsername("bjarne22").addConversationCursors(conversationCursors).build();
+        return (SyncRequest) serverRequestHandler.handleRequest(syncRequest);
+    }
+
+    /**
+     * Tests if a sync with cursors that are up to date gives back no changes.
+     */
+    @Test
+    @DisplayName("Tests if a sync with cursors that are up to date gives back no changes.")
+    public void testIfSyncWithoutChangesIsEmpty(){
+        try {
+            SyncRequest response = sync(makeCursors());
+            assertTrue(response.getConversationChanges().isEmpty());
+            assertTrue(response.getNewConversations().isEmpty());
+        }catch (Exception exception){
+            fail("Expected the sync to work since the cursors are valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a sync only gives back the conversation that changed, with all its changes, and the new conversations.
+     */
+    @Test
+    @DisplayName("Tests if a sync only gives back the conversation that changed, with all its changes, and the new conversations.")
+    public void testIfSyncGivesBackOnlyTheChanges(){
+        try {
+            List<ConversationCursorTransport> conversationCursors = makeCursors();
+            List<MessageTransport> messageTransports = new ArrayList<>();
+            messageTransports.add(new MessageTransport(new TextMessage("Hei", "fjell"), true));
+            serverRequestHandler.handleRequest(new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(2).build());
+            List<MemberTransport> memberTransports = new ArrayList<>();
+            memberTransports.add(new MemberTransport(new ConversationMember("bass"), true));
+            serverRequestHandler.handleRequest(new MembersRequestBuilder().addMemberTransports(memberTransports).addConversationNumber(2).addUsername("fjell").build());
+            serverRequestHandler.handleRequest(new ConversationRequestBuilder().addConversationName("Pizza").addConversationNumberList(Collections.singletonList(2L)).addUsername("fjell").build());
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("fjell"));
+            members.add(new ConversationMember("bjarne22"));
+            conversationRegister.addNewConversationWithUsernames(members, "New");
+
+            SyncRequest response = sync(conversationCursors);
+            assertEquals(1, response.getConversationChanges().size());
+            ConversationChangesTransport changes = response.getConversationChanges().get(0);
+            assertEquals(2, changes.getConversationNumber());
+            assertEquals(1, changes.getMessageTransportList().size());
+            assertEquals("Hei", ((TextMessage) changes.getMessageTransportList().get(0).getMessage()).getMessage());
+            assertEquals(1, changes.getMemberTransportList().size());
+            assertEquals("bass", changes.getMemberTransportList().get(0).getMember().getUsername());
+            assertEquals("Pizza", changes.getNewConversationName());
+            assertEquals(1, response.getNewConversations().size());
+            assertEquals(3, response.getNewConversations().get(0).getConversationNumber());
+        }catch (Exception exception){
+            fail("Expected the sync to work since the cursors are valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a sync finds a message that was put in the log of an earlier day after the newer messages, with the one number of the cursor.
+     */
+    @Test
+    @DisplayName("Tests if a sync finds a message that was put in the log of an earlier day after the newer messages, with the one number of the cursor.")
+    public void testIfSyncFindsNewMessagesOfEarlierDays(){
+        try {
+            List<ConversationCursorTransport> conversationCursors = makeCursors();
+            ServerConversation serverConversation = conversationRegister.getConversationByNumber(1);
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            serverConversation.addNewMessage(new TextMessage("Today", "fjell"));
+            serverConversation.addNewMessage(new TextMessage("Sent yesterday", "fjell", yesterday, LocalTime.now(), yesterday, LocalTime.now(), 0, null));
+
+            SyncRequest response = sync(conversationCursors);
+            assertEquals(1, response.getConversationChanges().size());
+            List<MessageTransport> messageTransports = response.getConversationChanges().get(0).getMessageTransportList();
+            assertEquals(2, messageTransports.size());
+            Message lateMessage = messageTransports.get(1).getMessage();
+            assertEquals("Sent yesterday", ((TextMessage) lateMessage).getMessage());
+            assertEquals(yesterday, lateMessage.getDate());
+            assertEquals(serverConversation.getLastMessageNumber(), lateMessage.getMessageNumber());
+            assertTrue(messageTransports.get(0).getMessage().getMessageNumber() < lateMessage.getMessageNumber());
+        }catch (Exception exception){
+            fail("Expected the sync to work since the cursors are valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a sync request without a username is answered with an exception.
+     */
+    @Test
+    @DisplayName("Tests if a sync request without a username is answered with an exception.")
+    public void testIfSyncWithoutUsernameIsInvalid(){
+        try {
+            Object response = serverRequestHandler.handleRequest(new SyncRequestBuilder().addConversationCursors(makeCursors()).build());
+            assertTrue(response instanceof IllegalArgumentException);
+        }catch (Exception exception){
+            fail("Expected the handler to answer with an exception instead of throwing, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a conversation only gets the newest page at first, if the history requests give back the older pages across days, and if a page that is added twice is only kept once.
+     */
+    @Test
+    @DisplayName("Tests if a conversation only gets the newest page at first, if the history requests give back the older pages across days, and if a page that is added twice is only kept once.")
+    public void testIfHistoryIsLoadedOnePageAtATime(){
+        try {
+            ServerConversation serverConversation = conversationRegister.getConversationByNumber(1);
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            for (int i = 0; i < 70; i++){
+                serverConversation.getMessageLogForDate(yesterday, "fjell").addMessage(new TextMessage("Old " + i, "fjell", yesterday, LocalTime.now(), yesterday, LocalTime.now(), 0, null));
+                serverConversation.getMessageLogForDate(LocalDate.now(), "fjell").addMessage(new TextMessage("New " + i, "fjell"));
+            }
+            ObservableConversation observableConversation = new NormalObservableConversation(serverConversation, "bjarne22", 50);
+            List<Message> messages = observableConversation.getAllMessagesOfConversationAsList();
+            assertEquals(50, messages.size());
+            assertEquals(21L, messages.get(0).getMessageNumber());
+            assertEquals(70L, observableConversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getLastMessageNumber());
+            assertTrue(observableConversation.hasOlderMessages());
+
+            HistoryRequest response = (HistoryRequest) serverRequestHandler.handleRequest(new HistoryRequestBuilder().setUsername("bjarne22").addConversationNumber(1).addCursor(LocalDate.now(), 21).addLimit(50).build());
+            assertEquals(50, response.getMessages().size());
+            assertEquals("Old 40", ((TextMessage) response.getMessages().get(0)).getMessage());
+            assertEquals("New 19", ((TextMessage) response.getMessages().get(49)).getMessage());
+            assertTrue(response.hasOlderMessages());
+            observableConversation.addOlderMessages(response.getMessages(), response.hasOlderMessages());
+            assertEquals(100, observableConversation.getAllMessagesOfConversationAsList().size());
+            assertEquals(yesterday, observableConversation.getAllMessagesOfConversationAsList().get(0).getDate());
+            observableConversation.addOlderMessages(response.getMessages(), response.hasOlderMessages());
+            assertEquals(100, observableConversation.getAllMessagesOfConversationAsList().size());
+
+            response = (HistoryRequest) serverRequestHandler.handleRequest(new HistoryRequestBuilder().setUsername("bjarne22").addConversationNumber(1).addCursor(yesterday, 41).addLimit(50).build());
+            assertEquals(40, response.getMessages().size());
+            assertFalse(response.hasOlderMessages());
+            observableConversation.addOlderMessages(response.getMessages(), response.hasOlderMessages());
+            assertEquals("Old 0", ((TextMessage) observableConversation.getAllMessagesOfConversationAsList().get(0)).getMessage());
+            assertEquals(140, observableConversation.getAllMessagesOfConversationAsList().size());
+            assertFalse(observableConversation.hasOlderMessages());
+        }catch (Exception exception){
+            fail("Expected the history to be loaded since the cursors are valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a history request from a user that is not a part of the conversation is answered with an exception.
+     */
+    @Test
+    @DisplayName("Tests if a history request from a user that is not a part of the conversation is answered with an exception.")
+    public void testIfHistoryOfOtherUserIsInvalid(){
+        try {
+            Object response = serverRequestHandler.handleRequest(new HistoryRequestBuilder().setUsername("bass").addConversationNumber(1).addCursor(LocalDate.now(), 1).addLimit(10).build());
+            assertTrue(response instanceof Exception);
+        }catch (Exception exception){
+            fail("Expected the handler to answer with an exception instead of throwing, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a login with cursors only gives back the changes since them across days, and sends the conversations the client does not have in full.
+     */
+    @Test
+    @DisplayName("Tests if a login with cursors only gives back the changes since them across days, and sends the conversations the client does not have in full.")
+    public void testIfLoginWithCursorsGivesBackOnlyTheChanges(){
+        try {
+            ServerConversation serverConversation = conversationRegister.getConversationByNumber(1);
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            long lastMessageBefore = serverConversation.getLastMessageNumber();
+            for (int i = 0; i < 5; i++){
+                serverConversation.addNewMessage(new TextMessage("Old " + i, "fjell", yesterday, LocalTime.now(), yesterday, LocalTime.now(), 0, null));
+            }
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+            conversationCursors.add(new ConversationCursorTransport(1, lastMessageBefore + 3, serverConversation.getMembers().getLastMemberNumber(), serverConversation.getMembers().getLastDeletedMember(), "Conversation 0"));
+            conversationCursors.add(new ConversationCursorTransport(9, 0, 0, 0, "Gone"));
+            serverConversation.addNewMessage(new TextMessage("New", "fjell"));
+            serverRequestHandler.handleRequest(new ConversationRequestBuilder().addConversationName("Pizza").addConversationNumberList(Collections.singletonList(1L)).addUsername("fjell").build());
+
+            Object response = serverRequestHandler.handleRequest(new UserRequestBuilder().setLogin(true).setUsername("bjarne22").setPassword("passr").addConversationCursors(conversationCursors).build());
+            LoginTransport loginTransport = (LoginTransport) response;
+            assertEquals(1, loginTransport.getConversationChanges().size());
+            ConversationChangesTransport changes = loginTransport.getConversationChanges().get(0);
+            assertEquals(1, changes.getConversationNumber());
+            assertEquals(3, changes.getMessageTransportList().size());
+            assertEquals("Old 3", ((TextMessage) changes.getMessageTransportList().get(0).getMessage()).getMessage());
+            assertEquals("New", ((TextMessage) changes.getMessageTransportList().get(2).getMessage()).getMessage());
+            assertEquals("Pizza", changes.getNewConversationName());
+            assertEquals(List.of(2L), loginTransport.getPersonalConversationRegister().getAllConversationNumbers());
+        }catch (Exception exception){
+            fail("Expected the login to work since the user and cursors are valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a client with a deleted member cursor from before the removals every member has read were dropped gets all the members,
+     * both when it checks the members and when it syncs, instead of only the removals that are still remembered.
+     */
+    @Test
+    @DisplayName("Tests if a client with a forgotten deleted member cursor gets all the members.")
+    public void testIfForgottenDeletedMemberCursorGivesAllMembers(){
+        try {
+            ServerMemberRegister memberRegister = conversationRegister.getConversationByNumber(1).getMembers();
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < 64; i++){
+                members.add(new ConversationMember("user" + i));
+            }
+            memberRegister.addAllMembers(members, "bjarne22");
+            memberRegister.removeAllMembers(members.subList(0, 63), "bjarne22");
+            memberRegister.checkForDeletedMembers(63, "bjarne22");
+            memberRegister.checkForDeletedMembers(63, "fjell");
+            memberRegister.removeMember(members.get(63), "bjarne22");
+            assertFalse(memberRegister.checkIfDeletedMembersAreRemembered(0));
+
+            MembersRequest response = (MembersRequest) serverRequestHandler.handleRequest(new MembersRequestBuilder().setCheckForNewMembers(true).addConversationNumber(1).addUsername("bjarne22").addLastMember(2).setLastDeletedMember(0).build());
+            assertTrue(response.isAllMembers());
+            assertEquals(List.of("bjarne22", "fjell"), response.getMembers().stream().map(memberTransport -> memberTransport.getMember().getUsername()).toList());
+            assertEquals(66, response.getLastMember());
+            assertEquals(64, response.getLastDeletedMember());
+
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+            conversationCursors.add(new ConversationCursorTransport(1, conversationRegister.getConversationByNumber(1).getLastMessageNumber(), 2, 0, "Conversation 0"));
+            SyncRequest syncResponse = sync(conversationCursors);
+            ConversationChangesTransport changes = syncResponse.getConversationChanges().get(0);
+            assertTrue(changes.isAllMembers());
+            assertEquals(2, changes.getMemberTransportList().size());
+            assertEquals(64, changes.getLastDeletedMember());
+
+            MembersRequest upToDate = (MembersRequest) serverRequestHandler.handleRequest(new MembersRequestBuilder().setCheckForNewMembers(true).addConversationNumber(1).addUsername("bjarne22").addLastMember(66).setLastDeletedMember(64).build());
+            assertFalse(upToDate.isAllMembers());
+            assertTrue(upToDate.getMembers().isEmpty());
+        }catch (Exception exception){
+            fail("Expected all the members to be sent since the cursor is forgotten, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the pushes of a conversation are sent in the order they were queued, even if the later change is finished first.
+     */
+    @Test
+    @DisplayName("Tests if the pushes of a conversation are sent in the order they were queued, even if the later change is finished first.")
+    public void testIfPushesAreSentInTheOrderTheyWereQueued(){
+        try {
+            SubscriptionHub subscriptionHub = new SubscriptionHub();
+            RecordingConnection recordingConnection = new RecordingConnection();
+            subscriptionHub.subscribe("bjarne22", recordingConnection);
+            ServerConversation serverConversation = conversationRegister.getConversationByNumber(1);
+            List<SubscriptionHub.PushTicket> pushTickets = new ArrayList<>();
+            for (int i = 0; i < 3; i++){
+                Message message = new TextMessage("Message " + i, "fjell");
+                serverConversation.addNewMessage(message);
+                subscriptionHub.holdPushes();
+                subscriptionHub.updateNewMessage(serverConversation, message);
+                pushTickets.add(subscriptionHub.queueHeldPushes(1));
+            }
+            subscriptionHub.finishQueuedPushes(pushTickets.get(2), true);
+            assertTrue(recordingConnection.getMessageNumbers().isEmpty());
+            subscriptionHub.finishQueuedPushes(pushTickets.get(1), false);
+            assertTrue(recordingConnection.getMessageNumbers().isEmpty());
+            subscriptionHub.finishQueuedPushes(pushTickets.get(0), true);
+            assertEquals(List.of(1L, 3L), recordingConnection.getMessageNumbers());
+        }catch (Exception exception){
+            fail("Expected the pushes to be sent since the conversation is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the members get the messages of two senders that send at the same time in the order of their numbers.
+     */
+    @Test
+    @DisplayName("Tests if the members get the messages of two senders that send at the same time in the order of their numbers.")
+    public void testIfRacingSendsArePushedInOrder(){
+        ExecutorService senders = Executors.newFixedThreadPool(2);
+        try {
+            RecordingConnection recordingConnection = new RecordingConnection();
+            recordingConnection.setLoggedInUsername("bjarne22");
+            serverRequestHandler.handleRequest(new SubscribeRequest("bjarne22"), recordingConnection);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int sender = 0; sender < 2; sender++){
+                int senderNumber = sender;
+                results.add(senders.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 300; i++){
+                        List<MessageTransport> messageTransports = new ArrayList<>();
+                        messageTransports.add(new MessageTransport(new TextMessage("Sender " + senderNumber + " message " + i, "fjell"), true));
+                        Object response = serverRequestHandler.handleRequest(new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(1).build());
+                        assertTrue(response instanceof MessageRequest);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results){
+                result.get(30, TimeUnit.SECONDS);
+            }
+            List<Long> messageNumbers = recordingConnection.getMessageNumbers();
+            assertEquals(600, messageNumbers.size());
+            for (int i = 0; i < messageNumbers.size(); i++){
+                assertEquals(i + 1, messageNumbers.get(i));
+            }
+        }catch (Exception exception){
+            fail("Expected the messages to be pushed in order since both senders are members, but got " + exception.getClass());
+        }finally {
+            senders.shutdownNow();
+        }
+    }
+
+    /**
+     * Represents a connection that remembers the numbers of the messages that are pushed to it.
+     */
+    private static class RecordingConnection implements ClientConnection {
+
+        private final List<Long> messageNumbers = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile String loggedInUsername;
+
+        @Override
+        public void sendFrame(ByteBuffer frame) throws IOException {
+            ByteBuffer readableFrame = frame.duplicate();
+            byte[] bytes = new byte[readableFrame.remaining()];
+            readableFrame.get(bytes);
+            try {
+                ResponseEnvelope responseEnvelope = (ResponseEnvelope) new WireCodec().readFrame(new ByteArrayInputStream(bytes));
+                if (responseEnvelope.getResponse() instanceof MessageRequest messageRequest){
+                    messageRequest.getMessageTransportList().forEach(transport -> messageNumbers.add(transport.getMessage().getMessageNumber()));
+                }
+            }catch (Exception exception){
+                throw new IOException("The push could not be read.", exception);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public void setLoggedInUsername(String username) {
+            loggedInUsername = username;
+        }
+
+        @Override
+        public String getLoggedInUsername() {
+            return loggedInUsername;
+        }
+
+        @Override
+        public void setWireFormat(WireFormat wireFormat) {
+        }
+
+        @Override
+        public WireFormat getWireFormat() {
+            return WireFormat.SERIALIZATION;
+        }
+
+        /**
+         * Gets the numbers of the messages that were pushed, in the order they came.
+         * @return a list with the message numbers.
+         */
+        public List<Long> getMessageNumbers(){
+            synchronized (messageNumbers){
+                return new ArrayList<>(messageNumbers);
+            }
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package no.stonedstonar.chatappliation.backend;
+
+import no.stonedstonar.chatapplication.backend.ServerRequestHandler;
+import no.stonedstonar.chatapplication.backend.ServerTestData;
+import no.stonedstonar.chatapplication.backend.wal.ServerStateLog;
+import no.stonedstonar.chatapplication.backend.wal.WriteAheadLog;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.messagelog.MappedServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Represents a testing class of the WriteAheadLog and the ServerStateLog.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestServerStateLog {
+
+    private Path path;
+
+    /**
+     * Makes a folder for the log.
+     */
+    @BeforeEach
+    private void makeLogFolder(){
+        try {
+            path = Files.createTempDirectory("state");
+        }catch (IOException exception){
+            fail("Expected a temporary folder to be made.");
+        }
+    }
+
+    /**
+     * Removes the folder of the log with everything in it.
+     */
+    @AfterEach
+    private void removeLogFolder(){
+        try (Stream<Path> files = Files.walk(path)){
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()){
+                Files.deleteIfExists(file);
+            }
+        }catch (IOException exception){
+            fail("Expected the temporary folder to be removed.");
+        }
+    }
+
+    /**
+     * Tests if records that are written can be read in the same order after the log is opened again.
+     */
+    @Test
+    @DisplayName("Tests if records that are written can be read in the same order after the log is opened again.")
+    public void testIfRecordsCanBeReadAfterReopen(){
+        try {
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, true)){
+                long last = 0;
+                for (int i = 0; i < 100; i++){
+                    last = writeAheadLog.append(("record" + i).getBytes(StandardCharsets.UTF_8));
+                }
+                writeAheadLog.awaitDurable(last);
+                assertEquals(100, writeAheadLog.getLastDurableRecord());
+            }
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, true)){
+                List<byte[]> records = writeAheadLog.readRecords();
+                assertEquals(100, records.size());
+                for (int i = 0; i < 100; i++){
+                    assertEquals("record" + i, new String(records.get(i), StandardCharsets.UTF_8));
+                }
+            }
+        }catch (IOException exception){
+            fail("Expected the records to be written and read since the file can be used.");
+        }
+    }
+
+    /**
+     * Tests if a record that was only partly written is cut away when the log is opened.
+     */
+    @Test
+    @DisplayName("Tests if a record that was only partly written is cut away when the log is opened.")
+    public void testIfTornRecordIsCutAway(){
+        try {
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false)){
+                writeAheadLog.append(new byte[]{1, 2, 3});
+                writeAheadLog.awaitDurable(writeAheadLog.append(new byte[]{4, 5}));
+            }
+            Path segment = path.resolve(String.format("%020d", 1) + ".wal");
+            long validSize = Files.size(segment);
+            try (FileChannel fileChannel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+                ByteBuffer tornRecord = ByteBuffer.allocate(10);
+                tornRecord.putInt(100).putInt(42).put((byte) 7).put((byte) 8).flip();
+                fileChannel.write(tornRecord);
+            }
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false)){
+                assertEquals(validSize, Files.size(segment));
+                assertEquals(2, writeAheadLog.readRecords().size());
+                writeAheadLog.awaitDurable(writeAheadLog.append(new byte[]{6}));
+            }
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false)){
+                List<byte[]> records = writeAheadLog.readRecords();
+                assertEquals(3, records.size());
+                assertEquals(6, records.get(2)[0]);
+            }
+        }catch (IOException exception){
+            fail("Expected the torn record to be cut away and the log to be usable.");
+        }
+    }
+
+    /**
+     * Tests if many threads can add records at the same time and all of them are written.
+     */
+    @Test
+    @DisplayName("Tests if many threads can add records at the same time and all of them are written.")
+    public void testIfRecordsFromManyThreadsAreWritten(){
+        try {
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 50, false)){
+                List<Thread> threads = new ArrayList<>();
+                List<IOException> failures = new ArrayList<>();
+                for (int i = 0; i < 8; i++){
+                    Thread thread = new Thread(() -> {
+                        try {
+                            for (int j = 0; j < 200; j++){
+                                writeAheadLog.awaitDurable(writeAheadLog.append(new byte[]{(byte) j}));
+                            }
+                        }catch (IOException exception){
+                            synchronized (failures){
+                                failures.add(exception);
+                            }
+                        }
+                    });
+                    threads.add(thread);
+                    thread.start();
+                }
+                for (Thread thread : threads){
+                    thread.join();
+                }
+                assertTrue(failures.isEmpty());
+                assertEquals(1600, writeAheadLog.getLastDurableRecord());
+            }
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false)){
+                assertEquals(1600, writeAheadLog.readRecords().size());
+            }
+        }catch (IOException | InterruptedException exception){
+            fail("Expected all the records to be written since the file can be used.");
+        }
+    }
+
+    /**
+     * Tests if the records keep their numbers in new segments, and if old segments can be deleted.
+     */
+    @Test
+    @DisplayName("Tests if the records keep their numbers in new segments, and if old segments can be deleted.")
+    public void testIfSegmentsKeepRecordNumbers(){
+        try {
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false, 100)){
+                for (int i = 1; i <= 50; i++){
+                    writeAheadLog.awaitDurable(writeAheadLog.append(("record" + i).getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+            try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 0, false, 100)){
+                assertEquals(50, writeAheadLog.getLastRecord());
+                assertEquals(51, writeAheadLog.append("record51".getBytes(StandardCharsets.UTF_8)));
+                writeAheadLog.awaitDurable(51);
+                assertTrue(writeAheadLog.deleteRecordsUpTo(30) > 0);
+                List<byte[]> records = writeAheadLog.readRecords(30);
+                assertEquals(21, records.size());
+                assertEquals("record31", new String(records.get(0), StandardCharsets.UTF_8));
+                assertEquals("record51", new String(records.get(20), StandardCharsets.UTF_8));
+                try {
+                    writeAheadLog.readRecords(0);
+                    fail("Expected to get an exception since the first records are deleted.");
+                }catch (IOException exception){
+                    assertTrue(true);
+                }
+            }
+        }catch (IOException exception){
+            fail("Expected the records to be written and read since the folder can be used.");
+        }
+    }
+
+    /**
+     * Tests if a snapshot and the changes after it make the same state as was logged, and if the log before the snapshot is deleted.
+     */
+    @Test
+    @DisplayName("Tests if a snapshot and the changes after it make the same state as was logged, and if the log before the snapshot is deleted.")
+    public void testIfSnapshotAndLogTailMakeTheSameState(){
+        try {
+            NormalUserRegister userRegister = new NormalUserRegister();
+            NormalConversationRegister conversationRegister = new NormalConversationRegister();
+            List<Message> messagesBefore;
+            long snapshotRecord;
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false, 64))){
+                ServerRequestHandler serverRequestHandler = new ServerRequestHandler(userRegister, conversationRegister, serverStateLog);
+                ServerTestData.makeTestDataForServer(conversationRegister, userRegister, serverStateLog);
+                ServerConversation conversation = conversationRegister.getConversationByNumber(1);
+                List<Message> removedMessages = new ArrayList<>();
+                removedMessages.add(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages().get(2));
+                conversation.removeAllMessagesWithSameDate(removedMessages);
+                serverStateLog.logMessagesChanged(1, removedMessages, false);
+                List<Member> removedMembers = new ArrayList<>();
+                removedMembers.add(new ConversationMember("bass"));
+                conversation.getMembers().removeAllMembers(removedMembers, "bjarne22");
+                serverStateLog.logMembersChanged(1, "bjarne22", removedMembers, false);
+                snapshotRecord = serverRequestHandler.writeSnapshot();
+                assertEquals(8, snapshotRecord);
+                conversation.setConversationName("After");
+                serverStateLog.logConversationName(1, "After");
+                List<Message> newMessages = new ArrayList<>();
+                newMessages.add(new TextMessage("Later", "fjell"));
+                conversation.addAllMessagesWithSameDate(newMessages);
+                serverStateLog.logMessagesChanged(1, newMessages, true);
+                List<Member> members = new ArrayList<>();
+                members.add(new ConversationMember("bass"));
+                ServerConversation newConversation = conversationRegister.addNewConversationWithUsernames(members, "");
+                serverStateLog.awaitDurable(serverStateLog.logConversationMade(newConversation, members));
+                messagesBefore = new ArrayList<>(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages());
+            }
+            try (Stream<Path> files = Files.list(path)){
+                assertTrue(files.map(file -> file.getFileName().toString()).noneMatch(name -> name.equals(String.format("%020d", 1) + ".wal")));
+            }
+            NormalUserRegister replayedUsers = new NormalUserRegister();
+            NormalConversationRegister replayedConversations = new NormalConversationRegister();
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false, 64))){
+                assertEquals(11, serverStateLog.replay(replayedUsers, replayedConversations));
+            }
+            assertEquals("bass", replayedUsers.login("bass", "thepass").getUsername());
+            assertEquals(3, replayedConversations.getAllConversations().size());
+            assertEquals(1, replayedConversations.getAllConversationsOfUsername("bass").size());
+            ServerConversation conversation = replayedConversations.getConversationByNumber(1);
+            assertEquals("After", conversation.getConversationName());
+            assertEquals(3, conversation.getMembers().getLastMemberNumber());
+            assertEquals(1, conversation.getMembers().getLastDeletedMember());
+            assertEquals("bass", conversation.getMembers().checkForDeletedMembers(0, "fjell").get(0).getUsername());
+            List<Message> messagesAfter = new ArrayList<>(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages());
+            assertEquals(messagesBefore.size(), messagesAfter.size());
+            for (int i = 0; i < messagesBefore.size(); i++){
+                assertEquals(messagesBefore.get(i).getMessageNumber(), messagesAfter.get(i).getMessageNumber());
+                assertEquals(messagesBefore.get(i).getMessageKey(), messagesAfter.get(i).getMessageKey());
+            }
+            assertEquals(4, messagesAfter.get(messagesAfter.size() - 1).getMessageNumber());
+            List<Message> sentAgain = new ArrayList<>();
+            sentAgain.add(messagesAfter.get(0));
+            assertTrue(conversation.addSentMessages(sentAgain).isEmpty());
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("fjell"));
+            assertEquals(4, replayedConversations.addNewConversationWithUsernames(members, "").getConversationNumber());
+        }catch (Exception exception){
+            fail("Expected the snapshot to be written and loaded since all the changes are valid. " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if replay makes the same users, conversations, members and messages as were logged.
+     */
+    @Test
+    @DisplayName("Tests if replay makes the same users, conversations, members and messages as were logged.")
+    public void testIfReplayMakesTheSameState(){
+        try {
+            NormalUserRegister userRegister = new NormalUserRegister();
+            NormalConversationRegister conversationRegister = new NormalConversationRegister();
+            List<Message> messagesBefore;
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                ServerTestData.makeTestDataForServer(conversationRegister, userRegister, serverStateLog);
+                ServerConversation conversation = conversationRegister.getConversationByNumber(1);
+                conversation.setConversationName("Friends");
+                serverStateLog.logConversationName(1, "Friends");
+                List<Member> removedMembers = new ArrayList<>();
+                removedMembers.add(new ConversationMember("bass"));
+                conversation.getMembers().removeAllMembers(removedMembers, "bjarne22");
+                serverStateLog.logMembersChanged(1, "bjarne22", removedMembers, false);
+                messagesBefore = new ArrayList<>(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages());
+                List<Message> removedMessages = new ArrayList<>();
+                removedMessages.add(messagesBefore.remove(1));
+                conversation.removeAllMessagesWithSameDate(removedMessages);
+                serverStateLog.awaitDurable(serverStateLog.logMessagesChanged(1, removedMessages, false));
+            }
+            NormalUserRegister replayedUsers = new NormalUserRegister();
+            NormalConversationRegister replayedConversations = new NormalConversationRegister();
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                assertEquals(9, serverStateLog.replay(replayedUsers, replayedConversations));
+            }
+            assertEquals("fjell", replayedUsers.login("fjell", "passord").getUsername());
+            assertEquals(2, replayedConversations.getAllConversations().size());
+            ServerConversation conversation = replayedConversations.getConversationByNumber(1);
+            assertEquals("Friends", conversation.getConversationName());
+            assertTrue(conversation.getMembers().checkIfUsernameIsMember("fjell"));
+            assertTrue(!conversation.getMembers().checkIfUsernameIsMember("bass"));
+            List<Message> messagesAfter = new ArrayList<>(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages());
+            assertEquals(messagesBefore.size(), messagesAfter.size());
+            for (int i = 0; i < messagesBefore.size(); i++){
+                Message before = messagesBefore.get(i);
+                Message after = messagesAfter.get(i);
+                assertEquals(before.getMessageNumber(), after.getMessageNumber());
+                assertEquals(before.getMessageKey(), after.getMessageKey());
+                assertEquals(before.getFromUsername(), after.getFromUsername());
+                assertEquals(before.getSentFromUserTime(), after.getSentFromUserTime());
+                assertEquals(before.getTime(), after.getTime());
+                assertEquals(((TextMessage) before).getMessage(), ((TextMessage) after).getMessage());
+            }
+        }catch (Exception exception){
+            fail("Expected the state to be logged and replayed since all the changes are valid. " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if messages that could not be written to the state log are taken out of the conversation again and are reported as a log error.
+     */
+    @Test
+    @DisplayName("Tests if messages that could not be written to the state log are taken out of the conversation again and are reported as a log error.")
+    public void testIfMessagesAreTakenOutWhenTheLogFails(){
+        try {
+            NormalUserRegister userRegister = new NormalUserRegister();
+            NormalConversationRegister conversationRegister = new NormalConversationRegister();
+            ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false));
+            ServerRequestHandler serverRequestHandler = new ServerRequestHandler(userRegister, conversationRegister, serverStateLog);
+            ServerTestData.makeTestDataForServer(conversationRegister, userRegister, serverStateLog);
+            serverStateLog.close();
+            ServerConversation conversation = conversationRegister.getConversationByNumber(1);
+            int amountBefore = conversation.checkForNewMessagesOnDate(LocalDate.now(), 0, "fjell").size();
+            Message message = new TextMessage("Not written", "fjell");
+            List<MessageTransport> messageTransports = new ArrayList<>();
+            messageTransports.add(new MessageTransport(message, true));
+            Object response = serverRequestHandler.handleRequest(new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(1).setUsername("fjell").build());
+            assertTrue(response instanceof IOException);
+            assertEquals(amountBefore, conversation.checkForNewMessagesOnDate(LocalDate.now(), 0, "fjell").size());
+            List<Message> sentAgain = new ArrayList<>();
+            sentAgain.add(message);
+            assertEquals(1, conversation.addSentMessages(sentAgain).size());
+        }catch (Exception exception){
+            fail("Expected the messages to be taken out again since the log is closed. " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if a new user, a new conversation, a new name and new members are undone or not done when the state log fails,
+     * and if the number of the conversation that was not made is given to the next one.
+     */
+    @Test
+    @DisplayName("Tests if users, conversations, names and members are not changed when the state log fails.")
+    public void testIfChangesAreUndoneWhenTheLogFails(){
+        try {
+            NormalUserRegister userRegister = new NormalUserRegister();
+            NormalConversationRegister conversationRegister = new NormalConversationRegister();
+            ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false));
+            ServerRequestHandler serverRequestHandler = new ServerRequestHandler(userRegister, conversationRegister, serverStateLog);
+            ServerTestData.makeTestDataForServer(conversationRegister, userRegister, serverStateLog);
+            serverStateLog.close();
+            ServerConversation conversation = conversationRegister.getConversationByNumber(1);
+            String nameBefore = conversation.getConversationName();
+            long lastMemberBefore = conversation.getMembers().getLastMemberNumber();
+
+            Object response = serverRequestHandler.handleRequest(new UserRequestBuilder().setNewUser(true).setUsername("notwritten").setPassword("passord").build());
+            assertTrue(response instanceof IOException);
+            assertFalse(userRegister.checkIfUsernameIsTaken("notwritten"));
+
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("fjell"));
+            response = serverRequestHandler.handleRequest(new ConversationRequestBuilder().setNewConversation(true).addMembers(members).build());
+            assertTrue(response instanceof IOException);
+            assertEquals(2, conversationRegister.getAllConversations().size());
+
+            response = serverRequestHandler.handleRequest(new ConversationRequestBuilder().addConversationName("Not written").addUsername("fjell").addConversationNumberList(Collections.singletonList(1L)).build());
+            assertTrue(response instanceof IOException);
+            assertEquals(nameBefore, conversation.getConversationName());
+
+            List<MemberTransport> memberTransports = new ArrayList<>();
+            memberTransports.add(new MemberTransport(new ConversationMember("notwritten"), true));
+            response = serverRequestHandler.handleRequest(new MembersRequestBuilder().addMemberTransports(memberTransports).addConversationNumber(1).addUsername("fjell").build());
+            assertTrue(response instanceof IOException);
+            assertFalse(conversation.getMembers().checkIfUsernameIsMember("notwritten"));
+            assertEquals(lastMemberBefore, conversation.getMembers().getLastMemberNumber());
+
+            assertEquals(3, conversationRegister.addNewConversationWithUsernames(members, "").getConversationNumber());
+        }catch (Exception exception){
+            fail("Expected the changes to be undone since the log is closed. " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if a replay stops with an exception when a conversation gets another number than the one in the log.
+     */
+    @Test
+    @DisplayName("Tests if a replay stops with an exception when a conversation gets another number than the one in the log.")
+    public void testIfReplayFailsWhenNumbersDoNotMatch(){
+        try {
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                List<Member> members = new ArrayList<>();
+                members.add(new ConversationMember("fjell"));
+                ServerConversation conversation = new NormalServerConversation(5, members);
+                serverStateLog.awaitDurable(serverStateLog.logConversationMade(conversation, members));
+            }
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                serverStateLog.replay(new NormalUserRegister(), new NormalConversationRegister());
+                fail("Expected to get an IOException since the conversation gets the number 1 instead of 5.");
+            }catch (IOException exception){
+                assertTrue(exception.getMessage().contains("5"));
+            }
+        }catch (Exception exception){
+            fail("Expected the replay to stop with an IOException, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the message files a snapshot saw are kept after a restart, and if the changes after the snapshot are done again from the log.
+     */
+    @Test
+    @DisplayName("Tests if the message files a snapshot saw are kept after a restart, and if the changes after the snapshot are done again from the log.")
+    public void testIfSnapshotKeepsMessageFiles(){
+        try {
+            Path messageDirectory = path.resolve("messages");
+            List<Message> messagesBefore;
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                NormalConversationRegister conversationRegister = new NormalConversationRegister(new MappedServerMessageLogFactory(messageDirectory));
+                ServerRequestHandler serverRequestHandler = new ServerRequestHandler(new NormalUserRegister(), conversationRegister, serverStateLog);
+                ServerTestData.makeTestDataForServer(conversationRegister, new NormalUserRegister(), serverStateLog);
+                serverRequestHandler.writeSnapshot();
+                ServerConversation conversation = conversationRegister.getConversationByNumber(1);
+                List<Message> newMessages = new ArrayList<>();
+                newMessages.add(new TextMessage("After the snapshot", "fjell"));
+                conversation.addAllMessagesWithSameDate(newMessages);
+                serverStateLog.awaitDurable(serverStateLog.logMessagesChanged(1, newMessages, true));
+                messagesBefore = new ArrayList<>(conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages());
+            }
+            NormalConversationRegister replayedConversations = new NormalConversationRegister(new MappedServerMessageLogFactory(messageDirectory));
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                serverStateLog.replay(new NormalUserRegister(), replayedConversations);
+            }
+            ServerConversation conversation = replayedConversations.getConversationByNumber(1);
+            assertEquals(messagesBefore.get(messagesBefore.size() - 1).getMessageNumber(), conversation.getLastMessageNumber());
+            List<Message> messagesAfter = conversation.getMessageLogForDate(LocalDate.now(), "bjarne22").getMessages();
+            assertEquals(messagesBefore.size(), messagesAfter.size());
+            for (int i = 0; i < messagesBefore.size(); i++){
+                assertEquals(messagesBefore.get(i).getMessageNumber(), messagesAfter.get(i).getMessageNumber());
+                assertEquals(messagesBefore.get(i).getMessageKey(), messagesAfter.get(i).getMessageKey());
+            }
+        }catch (Exception exception){
+            fail("Expected the messages to be the same after the restart since the files and the log have them. " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if a snapshot that only remembers a message file is not loaded when the file has changed, since the snapshot does not have the messages.
+     */
+    @Test
+    @DisplayName("Tests if a snapshot that only remembers a message file is not loaded when the file has changed.")
+    public void testIfChangedMessageFileStopsTheSnapshot(){
+        try {
+            Path messageDirectory = path.resolve("messages");
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                NormalConversationRegister conversationRegister = new NormalConversationRegister(new MappedServerMessageLogFactory(messageDirectory));
+                ServerRequestHandler serverRequestHandler = new ServerRequestHandler(new NormalUserRegister(), conversationRegister, serverStateLog);
+                ServerTestData.makeTestDataForServer(conversationRegister, new NormalUserRegister(), serverStateLog);
+                serverRequestHandler.writeSnapshot();
+            }
+            Path file = messageDirectory.resolve("1").resolve(LocalDate.now().toEpochDay() + ".messages");
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[Integer.BYTES + Long.BYTES] ^= 1;
+            Files.write(file, bytes);
+            try (ServerStateLog serverStateLog = new ServerStateLog(new WriteAheadLog(path, 0, false))){
+                serverStateLog.replay(new NormalUserRegister(), new NormalConversationRegister(new MappedServerMessageLogFactory(messageDirectory)));
+                fail("Expected to get an IOException since the message file has changed after the snapshot.");
+            }catch (IOException exception){
+                assertTrue(exception.getMessage().contains("has changed since the snapshot"));
+            }
+        }catch (Exception exception){
+            fail("Expected the snapshot to not be loaded since the message file has changed, but got " + exception.getClass());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package no.stonedstonar.chatappliation.backend;
+
+import no.stonedstonar.chatapplication.backend.SelectorTransport;
+import no.stonedstonar.chatapplication.backend.ServerRequestHandler;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+import no.stonedstonar.chatapplication.network.frame.FrameCodec;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.requests.MessageRequest;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A class that tests that many clients talking to the server at the same time are not handled one at a time.
+ * Every client has its own conversation, so the clients never wait on each others locks.
+ * The tests check this with locks and latches and not with the time the clients take, so they do not depend on how busy the machine is.
+ * How many requests the server handles each second is measured by {@link ServerThroughputBenchmark}.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestServerThroughput {
+
+    private static final int REQUESTS_PER_CLIENT = 300;
+
+    private static final int AMOUNT_OF_CLIENTS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private NormalConversationRegister conversationRegister;
+
+    private ServerRequestHandler serverRequestHandler;
+
+    private SelectorTransport selectorTransport;
+
+    private ExecutorService workers;
+
+    private int portNumber;
+
+    /**
+     * Makes one conversation for each client and starts a selector transport on a free port.
+     */
+    @BeforeEach
+    private void startServer(){
+        try {
+            conversationRegister = new NormalConversationRegister();
+            for (int i = 0; i < AMOUNT_OF_CLIENTS; i++){
+                addConversation(i);
+            }
+            serverRequestHandler = new ServerRequestHandler(new NormalUserRegister(), conversationRegister);
+            try (ServerSocket serverSocket = new ServerSocket(0)){
+                portNumber = serverSocket.getLocalPort();
+            }
+            workers = Executors.newFixedThreadPool(AMOUNT_OF_CLIENTS);
+            selectorTransport = new SelectorTransport(portNumber, Math.max(1, AMOUNT_OF_CLIENTS / 2), workers, serverRequestHandler);
+            Thread acceptThread = new Thread(selectorTransport::run);
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }catch (Exception exception){
+            fail("Expected the server to start since the input is valid.");
+        }
+    }
+
+    /**
+     * Adds the conversation of a client.
+     * @param clientNumber the number of the client. The conversation gets the number after it.
+     * @throws Exception gets thrown if the conversation could not be added.
+     */
+    private void addConversation(int clientNumber) throws Exception {
+        List<Member> members = new ArrayList<>();
+        members.add(new ConversationMember("client" + clientNumber));
+        members.add(new ConversationMember("reader" + clientNumber));
+        conversationRegister.addNewConversationWithUsernames(members, "Throughput " + clientNumber);
+    }
+
+    /**
+     * Stops the server after each test.
+     */
+    @AfterEach
+    private void stopServer(){
+        selectorTransport.stop();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Tests if many clients that send messages at the same time get all their messages into their conversations.
+     */
+    @Test
+    @DisplayName("Tests if many clients that send messages at the same time get all their messages into their conversations.")
+    public void testIfManyClientsLoseNoMessages(){
+        try {
+            runClients(AMOUNT_OF_CLIENTS);
+            for (int i = 0; i < AMOUNT_OF_CLIENTS; i++){
+                ServerConversation conversation = conversationRegister.getConversationByNumber(i + 1);
+                int amount = conversation.getMessageLogs("client" + i).stream().mapToInt(log -> log.getMessages().size()).sum();
+                assertEquals(REQUESTS_PER_CLIENT / 2, amount, "Expected every message that was sent to be in the conversation " + (i + 1));
+            }
+        }catch (Exception exception){
+            fail("Expected the clients to finish without problems since the server is running, but got " + exception.getClass() + " " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if a request for one conversation is answered while the lock of another conversation is held,
+     * and if the request for the locked conversation is answered when the lock is let go.
+     */
+    @Test
+    @DisplayName("Tests if a request for one conversation is answered while the lock of another conversation is held.")
+    public void testIfOtherConversationsAreNotBlocked(){
+        ReadWriteLock heldLock = serverRequestHandler.getConversationLocks().getLock(1);
+        try (Socket blockedSocket = new Socket("localhost", portNumber); Socket freeSocket = new Socket("localhost", portNumber)){
+            int otherClient = 1;
+            while (serverRequestHandler.getConversationLocks().getLock(otherClient + 1) == heldLock){
+                otherClient += 1;
+            }
+            for (int i = AMOUNT_OF_CLIENTS; i <= otherClient; i++){
+                addConversation(i);
+            }
+            blockedSocket.setSoTimeout(10000);
+            freeSocket.setSoTimeout(10000);
+            InputStream blockedInput = new BufferedInputStream(blockedSocket.getInputStream());
+            heldLock.writeLock().lock();
+            try {
+                FrameCodec.writeFrame(makeCheckRequest(0), blockedSocket.getOutputStream());
+                FrameCodec.writeFrame(makeCheckRequest(otherClient), freeSocket.getOutputStream());
+                assertTrue(FrameCodec.readFrame(new BufferedInputStream(freeSocket.getInputStream())) instanceof MessageRequest);
+                assertEquals(0, blockedInput.available(), "Expected the request for the locked conversation to wait for the lock.");
+            }finally {
+                heldLock.writeLock().unlock();
+            }
+            assertTrue(FrameCodec.readFrame(blockedInput) instanceof MessageRequest);
+        }catch (Exception exception){
+            fail("Expected the request for the other conversation to be answered while the lock is held, but got " + exception.getClass() + " " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if many requests in request envelopes can be sent over one connection before any answer is read,
+     * and that every answer has the id of one of the requests.
+     */
+    @Test
+    @DisplayName("Tests if many requests in request envelopes over one connection all get an answer with their id.")
+    public void testIfEnvelopedRequestsGetAnswersWithTheirId(){
+        try (Socket socket = new Socket("localhost", portNumber)){
+            InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+            OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+            Set<Long> requestIds = new HashSet<>();
+            for (long requestId = 1; requestId <= AMOUNT_OF_CLIENTS; requestId++){
+                FrameCodec.writeFrame(new RequestEnvelope(requestId, makeCheckRequest((int) requestId - 1)), outputStream);
+                requestIds.add(requestId);
+            }
+            for (int i = 0; i < AMOUNT_OF_CLIENTS; i++){
+                Object response = FrameCodec.readFrame(inputStream);
+                assertTrue(response instanceof ResponseEnvelope, "Expected the answer to be in a response envelope.");
+                ResponseEnvelope responseEnvelope = (ResponseEnvelope) response;
+                assertTrue(requestIds.remove(responseEnvelope.getRequestId()), "Expected the answer to have the id of a request that is not answered yet.");
+                assertTrue(responseEnvelope.getResponse() instanceof MessageRequest);
+            }
+            assertTrue(requestIds.isEmpty());
+        }catch (Exception exception){
+            fail("Expected the requests to be answered since the server is running, but got " + exception.getClass() + " " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Tests if a message that is many times larger than the read buffer of a connection is read when its bytes come in small parts.
+     */
+    @Test
+    @DisplayName("Tests if a message that is many times larger than the read buffer is read when its bytes come in small parts.")
+    public void testIfLargeFramesAreReadInParts(){
+        try (Socket socket = new Socket("localhost", portNumber)){
+            socket.setSoTimeout(10000);
+            List<MessageTransport> messageTransports = new ArrayList<>();
+            messageTransports.add(new MessageTransport(new TextMessage("Large " + "ø".repeat(500000), "client0"), true));
+            MessageRequest request = new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(1).setUsername("client0").build();
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            FrameCodec.writeFrame(request, frame);
+            byte[] bytes = frame.toByteArray();
+            OutputStream outputStream = socket.getOutputStream();
+            for (int from = 0; from < bytes.length; from += 100000){
+                outputStream.write(bytes, from, Math.min(100000, bytes.length - from));
+                outputStream.flush();
+                Thread.sleep(5);
+            }
+            assertTrue(FrameCodec.readFrame(new BufferedInputStream(socket.getInputStream())) instanceof MessageRequest);
+            Message message = conversationRegister.getConversationByNumber(1).getMessageLogs("client0").get(0).getMessages().get(0);
+            assertEquals(500006, ((TextMessage) message).getMessage().length());
+        }catch (Exception exception){
+            fail("Expected the large message to be added since its frame is not larger than the max, but got " + exception.getClass() + " " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Makes a request that checks the conversation of a client for new messages.
+     * @param clientNumber the number of the client.
+     * @return the request.
+     */
+    private MessageRequest makeCheckRequest(int clientNumber){
+        return new MessageRequestBuilder().setCheckForMessages(true).addLastMessage(0).addConversationNumber(clientNumber + 1).setUsername("reader" + clientNumber).build();
+    }
+
+    /**
+     * Lets a set of clients send messages and check for new messages in their own conversation at the same time.
+     * @param amountOfClients the amount of clients that should run.
+     * @throws Exception gets thrown if a client failed.
+     */
+    private void runClients(int amountOfClients) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(amountOfClients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < amountOfClients; i++){
+            int clientNumber = i;
+            results.add(clients.submit(() -> {
+                runClient(clientNumber, start);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results){
+            result.get(2, TimeUnit.MINUTES);
+        }
+        clients.shutdown();
+    }
+
+    /**
+     * Runs one client that alternates between sending a message and checking for new messages.
+     * @param clientNumber the number of the client.
+     * @param start the latch that all the clients wait on before they start.
+     * @throws Exception gets thrown if the connection fails or the server sends back an exception.
+     */
+    private void runClient(int clientNumber, CountDownLatch start) throws Exception {
+        String username = "client" + clientNumber;
+        try (Socket socket = new Socket("localhost", portNumber)){
+            socket.setTcpNoDelay(true);
+            InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+            OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+            start.await();
+            for (int i = 0; i < REQUESTS_PER_CLIENT; i++){
+                Object request;
+                if (i % 2 == 0){
+                    List<MessageTransport> messageTransports = new ArrayList<>();
+                    messageTransports.add(new MessageTransport(new TextMessage("Message " + i, username), true));
+                    request = new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(clientNumber + 1).setUsername(username).build();
+                }else {
+                    request = makeCheckRequest(clientNumber);
+                }
+                FrameCodec.writeFrame(request, outputStream);
+                Object response = FrameCodec.readFrame(inputStream);
+                if (!(response instanceof MessageRequest)){
+                    throw new IllegalStateException("Expected a message request back, but got " + response);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package no.stonedstonar.chatappliation.frontend;
+
+import no.stonedstonar.chatapplication.frontend.ConversationCache;
+import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
+import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the cache that keeps the conversations of a user on disk between logins.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestConversationCache {
+
+    private Path directory;
+
+    /**
+     * Makes a temporary folder for the cache file.
+     */
+    @BeforeEach
+    private void makeFolder(){
+        try {
+            directory = Files.createTempDirectory("conversation-cache");
+        }catch (IOException exception){
+            fail("Expected the folder to be made since the temporary folder can be written to.");
+        }
+    }
+
+    /**
+     * Deletes the temporary folder.
+     * @throws IOException gets thrown if the files could not be deleted.
+     */
+    @AfterEach
+    private void deleteFolder() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)){
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()){
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Tests if a conversation is the same after it is written to the cache and read back.
+     */
+    @Test
+    @DisplayName("Tests if a conversation is the same after it is written to the cache and read back.")
+    public void testIfConversationIsTheSameAfterCache(){
+        try {
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("bjarne22"));
+            members.add(new ConversationMember("fjell"));
+            NormalServerConversation serverConversation = new NormalServerConversation(3, members);
+            serverConversation.setConversationName("Pizza");
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            serverConversation.addNewMessage(new TextMessage("Old", "fjell", yesterday, LocalTime.now(), yesterday, LocalTime.now(), 0, null));
+            serverConversation.addNewMessage(new TextMessage("New " + "ø".repeat(40000), "fjell"));
+            ObservableConversation observableConversation = new NormalObservableConversation(serverConversation, "bjarne22", 50);
+
+            ConversationCache conversationCache = new ConversationCache(directory.resolve("bjarne22.cache"));
+            conversationCache.writeConversations(List.of(observableConversation).iterator());
+            List<ObservableConversation> cachedConversations = new ConversationCache(directory.resolve("bjarne22.cache")).readConversations();
+
+            assertEquals(1, cachedConversations.size());
+            ObservableConversation cachedConversation = cachedConversations.get(0);
+            assertEquals(3, cachedConversation.getConversationNumber());
+            assertEquals("Pizza", cachedConversation.getConversationName());
+            assertEquals(observableConversation.getMembers().getNameOfAllMembers(), cachedConversation.getMembers().getNameOfAllMembers());
+            assertEquals(observableConversation.getMembers().getLastMemberNumber(), cachedConversation.getMembers().getLastMemberNumber());
+            List<Message> messages = observableConversation.getAllMessagesOfConversationAsList();
+            List<Message> cachedMessages = cachedConversation.getAllMessagesOfConversationAsList();
+            assertEquals(2, cachedMessages.size());
+            for (int i = 0; i < messages.size(); i++){
+                TextMessage message = (TextMessage) messages.get(i);
+                TextMessage cachedMessage = (TextMessage) cachedMessages.get(i);
+                assertTrue(cachedMessage.checkIfMessageContentsAreEqual(message));
+                assertEquals(message.getMessageNumber(), cachedMessage.getMessageNumber());
+                assertEquals(message.getMessageKey(), cachedMessage.getMessageKey());
+                assertEquals(message.getDate(), cachedMessage.getDate());
+            }
+            assertEquals(1, cachedConversation.getMessageLogForDate(yesterday, "bjarne22").getLastMessageNumber());
+            assertEquals(2, cachedConversation.getLastMessageNumber());
+        }catch (Exception exception){
+            fail("Expected the conversation to be read back since it was written by the same cache, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a cache file that is broken is read as an empty cache.
+     */
+    @Test
+    @DisplayName("Tests if a cache file that is broken is read as an empty cache.")
+    public void testIfBrokenCacheIsEmpty(){
+        try {
+            Path file = directory.resolve("bjarne22.cache");
+            Files.write(file, new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 1});
+            assertTrue(new ConversationCache(file).readConversations().isEmpty());
+            assertTrue(new ConversationCache(directory.resolve("other.cache")).readConversations().isEmpty());
+        }catch (IOException exception){
+            fail("Expected the broken cache to be written since the folder can be written to.");
+        }
+    }
+}
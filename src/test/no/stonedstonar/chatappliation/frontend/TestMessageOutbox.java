@@ -0,0 +1,218 @@
+package no.stonedstonar.chatappliation.frontend;
+
+import no.stonedstonar.chatapplication.frontend.MessageOutbox;
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the outbox that batches the messages of the client and sends them again if the server cannot be reached.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestMessageOutbox {
+
+    private Path directory;
+
+    private List<List<Message>> sentBatches;
+
+    /**
+     * Makes a temporary folder for the outbox file.
+     */
+    @BeforeEach
+    private void makeFolder(){
+        try {
+            directory = Files.createTempDirectory("message-outbox");
+            sentBatches = Collections.synchronizedList(new ArrayList<>());
+        }catch (IOException exception){
+            fail("Expected the folder to be made since the temporary folder can be written to.");
+        }
+    }
+
+    /**
+     * Deletes the temporary folder.
+     * @throws IOException gets thrown if the files could not be deleted.
+     */
+    @AfterEach
+    private void deleteFolder() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)){
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()){
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Tests if the messages written close together are sent with one request for each conversation.
+     */
+    @Test
+    @DisplayName("Tests if the messages written close together are sent with one request for each conversation.")
+    public void testIfMessagesAreSentTogether(){
+        try {
+            MessageOutbox messageOutbox = new MessageOutbox(directory.resolve("bjarne21.outbox"), (conversationNumber, messages) -> sentBatches.add(messages));
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++){
+                futures.add(messageOutbox.addMessage(1, new TextMessage("Message " + i, "bjarne21")));
+            }
+            futures.add(messageOutbox.addMessage(2, new TextMessage("Other", "bjarne21")));
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(2, sentBatches.size());
+            assertEquals(10, sentBatches.get(0).size());
+            assertEquals("Message 9", ((TextMessage) sentBatches.get(0).get(9)).getMessage());
+            assertEquals(0, messageOutbox.getUnsentMessagesCount());
+            messageOutbox.close();
+        }catch (Exception exception){
+            fail("Expected the messages to be sent since the sender takes them, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the messages are sent again when the server could not be reached, and if they are kept in the file after the outbox is closed.
+     */
+    @Test
+    @DisplayName("Tests if the messages are sent again when the server could not be reached, and if they are kept in the file after the outbox is closed.")
+    public void testIfUnsentMessagesAreSentAgain(){
+        try {
+            Path file = directory.resolve("bjarne21.outbox");
+            MessageOutbox offlineOutbox = new MessageOutbox(file, (conversationNumber, messages) -> {
+                throw new IOException("The server is down.");
+            });
+            TextMessage message = new TextMessage("Sent while offline " + "ø".repeat(40000), "bjarne21");
+            offlineOutbox.addMessage(1, message);
+            offlineOutbox.addMessage(1, new TextMessage("Second", "bjarne21"));
+            Thread.sleep(200);
+            assertEquals(2, offlineOutbox.getUnsentMessagesCount());
+            offlineOutbox.close();
+
+            AtomicInteger tries = new AtomicInteger();
+            MessageOutbox messageOutbox = new MessageOutbox(file, (conversationNumber, messages) -> {
+                if (tries.incrementAndGet() == 1){
+                    throw new IOException("The server is starting.");
+                }
+                sentBatches.add(messages);
+            });
+            long start = System.currentTimeMillis();
+            while (messageOutbox.getUnsentMessagesCount() > 0 && System.currentTimeMillis() - start < 5000){
+                Thread.sleep(20);
+            }
+            assertEquals(0, messageOutbox.getUnsentMessagesCount());
+            assertEquals(2, tries.get());
+            assertEquals(1, sentBatches.size());
+            TextMessage sentMessage = (TextMessage) sentBatches.get(0).get(0);
+            assertTrue(sentMessage.checkIfMessageContentsAreEqual(message));
+            assertEquals(message.getMessageKey(), sentMessage.getMessageKey());
+            assertEquals(0L, Files.size(file));
+            messageOutbox.close();
+        }catch (IOException | InterruptedException exception){
+            fail("Expected the messages to be sent again since the second sender takes them, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the messages that are added right before the outbox is closed are written to the file, so the next outbox sends them.
+     */
+    @Test
+    @DisplayName("Tests if the messages that are added right before the outbox is closed are written to the file.")
+    public void testIfMessagesAddedBeforeCloseAreKept(){
+        try {
+            Path file = directory.resolve("bjarne21.outbox");
+            MessageOutbox closedOutbox = new MessageOutbox(file, (conversationNumber, messages) -> {
+                throw new IOException("The server is down.");
+            });
+            for (int i = 0; i < 20; i++){
+                closedOutbox.addMessage(1, new TextMessage("Message " + i, "bjarne21"));
+            }
+            closedOutbox.close();
+            try {
+                closedOutbox.addMessage(1, new TextMessage("Too late", "bjarne21"));
+                fail("Expected to get an IOException since the outbox is closed.");
+            }catch (IOException exception){
+                assertEquals(20, closedOutbox.getUnsentMessagesCount());
+            }
+
+            MessageOutbox messageOutbox = new MessageOutbox(file, (conversationNumber, messages) -> sentBatches.add(messages));
+            long start = System.currentTimeMillis();
+            while (messageOutbox.getUnsentMessagesCount() > 0 && System.currentTimeMillis() - start < 5000){
+                Thread.sleep(20);
+            }
+            assertEquals(1, sentBatches.size());
+            assertEquals(20, sentBatches.get(0).size());
+            assertEquals("Message 19", ((TextMessage) sentBatches.get(0).get(19)).getMessage());
+            messageOutbox.close();
+        }catch (IOException | InterruptedException exception){
+            fail("Expected the messages to be kept in the file since the outbox writes them when it is closed, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a message the server does not want fails its future.
+     */
+    @Test
+    @DisplayName("Tests if a message the server does not want fails its future.")
+    public void testIfRejectedMessagesAreNotSentAgain(){
+        try {
+            MessageOutbox messageOutbox = new MessageOutbox(directory.resolve("bjarne21.outbox"), (conversationNumber, messages) -> {
+                throw new CouldNotAddMessageException("The message is not valid.");
+            });
+            messageOutbox.addMessage(1, new TextMessage("Hei", "bjarne21")).get(5, TimeUnit.SECONDS);
+            fail("Expected to get a CouldNotAddMessageException since the server does not want the message.");
+        }catch (ExecutionException exception){
+            assertTrue(exception.getCause() instanceof CouldNotAddMessageException);
+        }catch (Exception exception){
+            fail("Expected to get a CouldNotAddMessageException since the server does not want the message, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a message that only gets invalid answers is tried a few times and then fails its future, while messages that get through are still sent.
+     */
+    @Test
+    @DisplayName("Tests if a message that only gets invalid answers is tried a few times and then fails its future.")
+    public void testIfMessagesWithInvalidResponsesAreOnlyTriedAFewTimes(){
+        try {
+            AtomicInteger tries = new AtomicInteger();
+            MessageOutbox messageOutbox = new MessageOutbox(directory.resolve("bjarne21.outbox"), (conversationNumber, messages) -> {
+                if (conversationNumber == 1){
+                    tries.incrementAndGet();
+                    throw new InvalidResponseException("The answer could not be read.");
+                }
+                sentBatches.add(messages);
+            });
+            CompletableFuture<Void> invalidFuture = messageOutbox.addMessage(1, new TextMessage("Hei", "bjarne21"));
+            CompletableFuture<Void> sentFuture = messageOutbox.addMessage(2, new TextMessage("Hallo", "bjarne21"));
+            try {
+                invalidFuture.get(10, TimeUnit.SECONDS);
+                fail("Expected to get an InvalidResponseException since the server never gives a valid answer.");
+            }catch (ExecutionException exception){
+                assertTrue(exception.getCause() instanceof InvalidResponseException);
+            }
+            sentFuture.get(5, TimeUnit.SECONDS);
+            assertEquals(3, tries.get());
+            assertEquals(1, sentBatches.size());
+            assertEquals(0, messageOutbox.getUnsentMessagesCount());
+            messageOutbox.close();
+        }catch (Exception exception){
+            fail("Expected the message to be given up after a few tries and the other message to be sent, but got " + exception.getClass());
+        }
+    }
+}
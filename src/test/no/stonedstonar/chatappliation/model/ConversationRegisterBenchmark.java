@@ -0,0 +1,62 @@
+package no.stonedstonar.chatappliation.model;
+
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark that measures how long it takes to find a conversation in a register with many conversations.
+ * The lookup of the register is compared with going through all the conversations, which is how the register used to find them.
+ * Is run by hand with its main method and is not a part of the tests. Takes the amount of conversations as the first argument.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class ConversationRegisterBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final int SCANS = 20;
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of conversations. Is 1 000 000 if it is not given.
+     * @throws Exception gets thrown if a conversation could not be added or found.
+     */
+    public static void main(String[] args) throws Exception {
+        int amountOfConversations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        NormalConversationRegister conversationRegister = new NormalConversationRegister();
+        long start = System.nanoTime();
+        for (int i = 0; i < amountOfConversations; i++){
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("user" + i));
+            conversationRegister.addNewConversationWithUsernames(members, "");
+        }
+        System.out.printf("Added %d conversations in %d ms%n", amountOfConversations, (System.nanoTime() - start) / 1_000_000);
+
+        Random random = new Random(42);
+        long check = 0;
+        for (int round = 0; round < 3; round++){
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++){
+                check += conversationRegister.getConversationByNumber(1 + random.nextInt(amountOfConversations)).getConversationNumber();
+            }
+            System.out.printf("Register lookup: %d ns per lookup%n", (System.nanoTime() - start) / LOOKUPS);
+        }
+
+        List<ServerConversation> conversations = conversationRegister.getAllConversations();
+        start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++){
+            long conversationNumber = 1 + random.nextInt(amountOfConversations);
+            check += conversations.stream().filter(conversation -> conversation.getConversationNumber() == conversationNumber).findFirst().orElseThrow().getConversationNumber();
+        }
+        System.out.printf("Going through the list: %d ns per lookup%n", (System.nanoTime() - start) / SCANS);
+        if (check == 0){
+            System.out.println(check);
+        }
+    }
+}
@@ -301,4 +301,95 @@ public class TestConversationMembers {
             assertTrue(true);
         }
     }
+
+    /**
+     * Tests if a removed member is no longer a member and can be added again.
+     */
+    @Test
+    @DisplayName("Tests if a removed member is no longer a member and can be added again.")
+    public void testIfRemovedMemberCanBeAddedAgain(){
+        try {
+            conversationMembers.removeMember(removeMember, memberUsername);
+            assertFalse(conversationMembers.checkIfUsernameIsMember(removeMember.getUsername()));
+            conversationMembers.addMember(new ConversationMember(removeMember.getUsername()), memberUsername);
+            assertTrue(conversationMembers.checkIfUsernameIsMember(removeMember.getUsername()));
+            conversationMembers.removeMember(removeMember, memberUsername);
+            assertFalse(conversationMembers.checkIfUsernameIsMember(removeMember.getUsername()));
+        }catch (IllegalArgumentException | CouldNotAddMemberException | CouldNotRemoveMemberException | UsernameNotPartOfConversationException exception){
+            fail("Expected the member to be removed and added again since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if checkForDeletedMembers gives back every member that was removed after the last deleted member, also the last one.
+     */
+    @Test
+    @DisplayName("Tests if checkForDeletedMembers gives back every member that was removed after the last deleted member, also the last one.")
+    public void testIfCheckForDeletedMembersGivesBackAllRemovedMembers(){
+        try {
+            conversationMembers.addAllMembers(makeTestMembers(), memberUsername);
+            conversationMembers.removeMember(removeMember, memberUsername);
+            conversationMembers.removeMember(new ConversationMember("lordVader"), memberUsername);
+            List<Member> deletedMembers = conversationMembers.checkForDeletedMembers(0, memberUsername);
+            assertEquals(List.of("ironman2019", "lordVader"), deletedMembers.stream().map(Member::getUsername).toList());
+            assertEquals(1, conversationMembers.checkForDeletedMembers(1, memberUsername).size());
+            assertTrue(conversationMembers.checkForDeletedMembers(2, memberUsername).isEmpty());
+        }catch (IllegalArgumentException | CouldNotAddMemberException | CouldNotRemoveMemberException | UsernameNotPartOfConversationException exception){
+            fail("Expected the members to be added and removed since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if checkForDeletedMembers still gives back the right members after the removals every member has read are dropped.
+     */
+    @Test
+    @DisplayName("Tests if checkForDeletedMembers still gives back the right members after the removals every member has read are dropped.")
+    public void testIfCheckForDeletedMembersWorksAfterCompaction(){
+        try {
+            long lastReadByOther = 0;
+            for (int i = 0; i < 500; i++){
+                Member member = new ConversationMember("user" + i);
+                conversationMembers.addMember(member, memberUsername);
+                conversationMembers.removeMember(member, memberUsername);
+                List<Member> deletedMembers = conversationMembers.checkForDeletedMembers(i, memberUsername);
+                assertEquals(List.of("user" + i), deletedMembers.stream().map(Member::getUsername).toList());
+                if (i % 50 == 0){
+                    lastReadByOther += conversationMembers.checkForDeletedMembers(lastReadByOther, removeMember.getUsername()).size();
+                }
+            }
+            List<Member> deletedMembers = conversationMembers.checkForDeletedMembers(lastReadByOther, removeMember.getUsername());
+            assertEquals(500 - lastReadByOther, deletedMembers.size());
+            assertEquals("user" + lastReadByOther, deletedMembers.get(0).getUsername());
+            assertEquals(500, conversationMembers.getLastDeletedMember());
+        }catch (IllegalArgumentException | CouldNotAddMemberException | CouldNotRemoveMemberException | UsernameNotPartOfConversationException exception){
+            fail("Expected the members to be added and removed since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a deleted member cursor from before the dropped removals is not answered with only the removals that are left.
+     */
+    @Test
+    @DisplayName("Tests if a deleted member cursor from before the dropped removals is not answered with only the removals that are left.")
+    public void testIfForgottenDeletedMemberCursorIsNotAnswered(){
+        try {
+            for (int i = 0; i < 100; i++){
+                Member member = new ConversationMember("user" + i);
+                conversationMembers.addMember(member, memberUsername);
+                conversationMembers.removeMember(member, memberUsername);
+                conversationMembers.checkForDeletedMembers(i + 1, memberUsername);
+                conversationMembers.checkForDeletedMembers(i + 1, removeMember.getUsername());
+            }
+            assertTrue(conversationMembers.checkIfDeletedMembersAreRemembered(100));
+            assertFalse(conversationMembers.checkIfDeletedMembersAreRemembered(0));
+            assertFalse(conversationMembers.checkIfDeletedMembersAreRemembered(101));
+            assertTrue(conversationMembers.checkForDeletedMembers(100, memberUsername).isEmpty());
+            conversationMembers.checkForDeletedMembers(0, memberUsername);
+            fail("Expected to get an IllegalArgumentException since the removals after the cursor are forgotten.");
+        }catch (IllegalArgumentException exception){
+            assertTrue(exception.getMessage().contains("must be read again"));
+        }catch (CouldNotAddMemberException | CouldNotRemoveMemberException | UsernameNotPartOfConversationException exception){
+            fail("Expected to get an IllegalArgumentException since the removals after the cursor are forgotten, but got " + exception.getClass());
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package no.stonedstonar.chatappliation.model;
+
+import no.stonedstonar.chatapplication.model.util.LongObjectHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A class that tests the methods in the LongObjectHashMap class.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestLongObjectHashMap {
+
+    private LongObjectHashMap<String> map;
+
+    /**
+     * Makes a map with three keys.
+     */
+    @BeforeEach
+    private void makeTestMap(){
+        map = new LongObjectHashMap<>();
+        map.put(1, "one");
+        map.put(2, "two");
+        map.put(3, "three");
+    }
+
+    /**
+     * Tests if get works with keys in the map and keys not in the map.
+     */
+    @Test
+    @DisplayName("Tests if get works with keys in the map and keys not in the map.")
+    public void testIfGetWorks(){
+        assertEquals("two", map.get(2));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(3));
+        assertFalse(map.containsKey(-3));
+        assertEquals(3, map.size());
+    }
+
+    /**
+     * Tests if put replaces the value of a key that is already in the map.
+     */
+    @Test
+    @DisplayName("Tests if put replaces the value of a key that is already in the map.")
+    public void testIfPutReplacesValue(){
+        assertEquals("two", map.put(2, "to"));
+        assertEquals("to", map.get(2));
+        assertEquals(3, map.size());
+    }
+
+    /**
+     * Tests if put works with a null value.
+     */
+    @Test
+    @DisplayName("Tests if put works with a null value.")
+    public void testIfPutWorksWithNullValue(){
+        try {
+            map.put(5, null);
+            fail("Expected to get an IllegalArgumentException since the value is null.");
+        }catch (IllegalArgumentException exception){
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * Tests if a removed key is gone and can be added again.
+     */
+    @Test
+    @DisplayName("Tests if a removed key is gone and can be added again.")
+    public void testIfRemoveWorks(){
+        assertEquals("one", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertEquals(2, map.size());
+        map.put(1, "en");
+        assertEquals("en", map.get(1));
+        assertEquals(List.of("two", "three", "en"), map.values());
+    }
+
+    /**
+     * Tests if the map keeps all the keys and their order when it grows past its first size many times.
+     */
+    @Test
+    @DisplayName("Tests if the map keeps all the keys and their order when it grows past its first size many times.")
+    public void testIfMapKeepsKeysWhenItGrows(){
+        LongObjectHashMap<Long> bigMap = new LongObjectHashMap<>();
+        for (long i = 0; i < 10_000; i++){
+            bigMap.put(i * 31, i);
+            if (i % 3 == 0){
+                bigMap.remove(i * 31);
+            }
+        }
+        for (long i = 0; i < 10_000; i++){
+            if (i % 3 == 0){
+                assertFalse(bigMap.containsKey(i * 31));
+            }else {
+                assertEquals(i, bigMap.get(i * 31));
+            }
+        }
+        List<Long> values = bigMap.values();
+        assertEquals(bigMap.size(), values.size());
+        for (int i = 1; i < values.size(); i++){
+            assertTrue(values.get(i - 1) < values.get(i));
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package no.stonedstonar.chatappliation.model;
+
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
+import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
+import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotAddMessageLogException;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.model.messagelog.MappedServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.MappedServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.messagelog.MessageLogCache;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests the message log that keeps its messages in a memory-mapped file.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestMappedServerMessageLog {
+
+    private Path directory;
+
+    private ServerMessageLog testMessageLog;
+
+    private Message testMessage;
+
+    /**
+     * Makes a test message log in a temporary folder.
+     */
+    @BeforeEach
+    private void makeTestMessageLog(){
+        try {
+            directory = Files.createTempDirectory("mapped-message-log");
+            testMessageLog = new MappedServerMessageLog(directory.resolve("test.messages"), LocalDate.now());
+            testMessage = new TextMessage("Hello", "lordVader");
+            testMessageLog.addMessage(new TextMessage("Hei", "bjarne21"));
+            testMessageLog.addMessage(testMessage);
+        }catch (IOException exception){
+            fail("Expected the message log to be made since the folder can be written to.");
+        }catch (CouldNotAddMessageException exception){
+            fail("Expected the messages to be added since they are not already in the log.");
+        }
+    }
+
+    /**
+     * Deletes the temporary folder.
+     * @throws IOException gets thrown if the files could not be deleted.
+     */
+    @AfterEach
+    private void deleteFolder() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)){
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()){
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Tests if constructor works with invalid date format.
+     */
+    @Test
+    @DisplayName("Tests if constructor works with invalid date format.")
+    public void testIfConstructorWorksWithInvalidDateFormat(){
+        try {
+            new MappedServerMessageLog(directory.resolve("other.messages"), null);
+            fail("Expected to get a IllegalArgumentException since the input is invalid format.");
+        }catch (IllegalArgumentException exception){
+            assertTrue(true);
+        }catch (IOException exception){
+            fail("Expected to get a IllegalArgumentException since the date is null.");
+        }
+    }
+
+    /**
+     * Tests if the messages that are read back from the file have the same contents, numbers and keys as the messages that were added.
+     */
+    @Test
+    @DisplayName("Tests if the messages that are read back from the file have the same contents, numbers and keys as the messages that were added.")
+    public void testIfMessagesAreReadBackFromTheFile(){
+        try {
+            TextMessage message = new TextMessage("Ærlig talt, dette er en lang melding " + "x".repeat(5000), "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "bjarne21-1");
+            testMessageLog.addMessage(message);
+            List<Message> messages = testMessageLog.getMessages();
+            assertEquals(3, messages.size());
+            TextMessage readMessage = (TextMessage) messages.get(2);
+            assertTrue(readMessage.checkIfMessageContentsAreEqual(message));
+            assertEquals(3L, readMessage.getMessageNumber());
+            assertEquals("bjarne21-1", readMessage.getMessageKey());
+            assertEquals(message.getReceivedByServerTime(), readMessage.getReceivedByServerTime());
+            assertTrue(((TextMessage) messages.get(1)).checkIfMessageContentsAreEqual(testMessage));
+        }catch (IllegalArgumentException | CouldNotAddMessageException exception){
+            fail("Expected the message to be added and read back since the input is valid.");
+        }
+    }
+
+    /**
+     * Tests if addMessage works with duplicate messages, both with and without a message key.
+     */
+    @Test
+    @DisplayName("Tests if addMessage works with duplicate messages, both with and without a message key.")
+    public void testIfAddMessageWorksWithDuplicateMessages(){
+        try {
+            testMessageLog.addMessage(new TextMessage("Hello", "lordVader", testMessage.getDate(), ((TextMessage) testMessage).getSentFromUserTime(), null, null, 0, null));
+            fail("Expected to get a CouldNotAddMessageException since the text message is already in the log.");
+        }catch (CouldNotAddMessageException exception){
+            assertTrue(true);
+        }
+        try {
+            for (int i = 0; i < 100; i++){
+                testMessageLog.addMessage(new TextMessage("Message " + i, "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "key-" + i));
+            }
+            testMessageLog.addMessage(new TextMessage("Sent again", "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "key-42"));
+            fail("Expected to get a CouldNotAddMessageException since a message with the key is already in the log.");
+        }catch (CouldNotAddMessageException exception){
+            assertEquals(102L, testMessageLog.getLastMessageNumber());
+        }
+    }
+
+    /**
+     * Tests if checkForNewMessages only gives back the messages after the message number, also after the file is mapped again.
+     */
+    @Test
+    @DisplayName("Tests if checkForNewMessages only gives back the messages after the message number, also after the file is mapped again.")
+    public void testIfCheckForNewMessagesGivesBackTheTail(){
+        try {
+            for (int i = 0; i < 1000; i++){
+                testMessageLog.addMessage(new TextMessage("Message " + i, "bjarne21"));
+            }
+            List<Message> newMessages = testMessageLog.checkForNewMessages(999L);
+            assertEquals(3, newMessages.size());
+            assertEquals(1000L, newMessages.get(0).getMessageNumber());
+            assertEquals("Message 999", ((TextMessage) newMessages.get(2)).getMessage());
+            assertTrue(testMessageLog.checkForNewMessages(1002L).isEmpty());
+        }catch (IllegalArgumentException | CouldNotAddMessageException exception){
+            fail("Expected the messages to be added since they are not in the log.");
+        }
+    }
+
+    /**
+     * Tests if a removed message is skipped, and can be added again with the same key.
+     */
+    @Test
+    @DisplayName("Tests if a removed message is skipped, and can be added again with the same key.")
+    public void testIfRemovedMessagesAreSkipped(){
+        try {
+            TextMessage message = new TextMessage("ss", "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "bjarne21-7");
+            testMessageLog.addMessage(message);
+            List<Message> newMessages = testMessageLog.checkForNewMessages(0L);
+            testMessageLog.removeMessage(message);
+            assertEquals(2, newMessages.size());
+            assertEquals(2L, newMessages.get(1).getMessageNumber());
+            assertFalse(testMessageLog.checkIfAllMessagesAreInMessageLog(List.of(message)));
+            testMessageLog.removeMessage(testMessage);
+            assertEquals(1, newMessages.size());
+            testMessageLog.addMessage(message);
+            assertEquals(List.of(1L, 4L), newMessages.stream().map(Message::getMessageNumber).toList());
+        }catch (CouldNotAddMessageException exception){
+            fail("Expected the message to be added again since it was removed.");
+        }catch (CouldNotRemoveMessageException exception){
+            fail("Expected the messages to be removed since they are in the log.");
+        }
+    }
+
+    /**
+     * Tests if a log made with messages that have their numbers keeps the numbers and finds the messages by their keys.
+     */
+    @Test
+    @DisplayName("Tests if a log made with messages that have their numbers keeps the numbers and finds the messages by their keys.")
+    public void testIfLogWithMessagesKeepsTheNumbers(){
+        try {
+            MappedServerMessageLogFactory factory = new MappedServerMessageLogFactory(directory.resolve("messages"));
+            List<Message> messages = new ArrayList<>();
+            for (int i = 1; i <= 10; i++){
+                messages.add(new TextMessage("Message " + i, "bjarne21", LocalDate.now(), LocalTime.now(), LocalDate.now(), LocalTime.now(), i * 2L, "key-" + i));
+            }
+            ServerMessageLog messageLog = factory.makeMessageLog(4L, LocalDate.now(), messages, 21L);
+            assertTrue(Files.exists(factory.getDirectory().resolve("4").resolve(LocalDate.now().toEpochDay() + ".messages")));
+            assertEquals(21L, messageLog.getLastMessageNumber());
+            assertEquals(List.of(18L, 20L), messageLog.checkForNewMessages(16L).stream().map(Message::getMessageNumber).toList());
+            assertTrue(messageLog.checkIfAllMessagesAreNewMessages(List.of(new TextMessage("Again", "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "key-3"))));
+            messageLog.addMessage(new TextMessage("New", "bjarne21"));
+            assertEquals(22L, messageLog.getLastMessageNumber());
+            new MappedServerMessageLogFactory(directory.resolve("messages"));
+            assertTrue(Files.exists(factory.getDirectory().resolve("4").resolve(LocalDate.now().toEpochDay() + ".messages")));
+        }catch (IOException | CouldNotAddMessageLogException | CouldNotAddMessageException exception){
+            fail("Expected the message log to be made since the messages have rising numbers.");
+        }
+    }
+
+    /**
+     * Tests if a kept file is opened again with the records a snapshot saw, also after a message is removed, and if a file that has changed since is not.
+     */
+    @Test
+    @DisplayName("Tests if a kept file is opened again with the records a snapshot saw, also after a message is removed, and if a file that has changed since is not.")
+    public void testIfKeptFileIsOpenedAgain(){
+        try {
+            MappedServerMessageLogFactory factory = new MappedServerMessageLogFactory(directory.resolve("kept"));
+            MappedServerMessageLog messageLog = (MappedServerMessageLog) factory.makeMessageLog(2L, LocalDate.now());
+            Message removedMessage = new TextMessage("Removed", "bjarne21");
+            messageLog.addMessage(removedMessage);
+            for (int i = 0; i < 20; i++){
+                messageLog.addMessage(new TextMessage("Message " + i, "bjarne21"));
+            }
+            messageLog.removeMessage(removedMessage);
+            long recordsLength = messageLog.getRecordsLength();
+            int checksum = messageLog.checksumRecords();
+            messageLog.addMessage(new TextMessage("After the snapshot", "bjarne21"));
+            messageLog.removeMessage(messageLog.getMessages().get(0));
+            MappedServerMessageLogFactory restartedFactory = new MappedServerMessageLogFactory(directory.resolve("kept"));
+            ServerMessageLog keptLog = restartedFactory.openKeptMessageLog(2L, LocalDate.now(), 21L, recordsLength, checksum);
+            assertEquals(20, keptLog.getMessages().size());
+            assertEquals(21L, keptLog.getLastMessageNumber());
+            assertFalse(keptLog.checkIfAllMessagesAreNewMessages(List.of(removedMessage)));
+            keptLog.addMessage(new TextMessage("After the restart", "bjarne21"));
+            assertEquals(List.of(22L), keptLog.checkForNewMessages(21L).stream().map(Message::getMessageNumber).toList());
+            assertNull(restartedFactory.openKeptMessageLog(2L, LocalDate.now(), 21L, recordsLength, checksum + 1));
+            assertNull(restartedFactory.openKeptMessageLog(3L, LocalDate.now(), 21L, recordsLength, checksum));
+        }catch (CouldNotAddMessageLogException | CouldNotAddMessageException | CouldNotRemoveMessageException | IOException exception){
+            fail("Expected the kept file to be opened again since it has not changed before the snapshot.");
+        }
+    }
+
+    /**
+     * Tests if the cache unloads the logs that were not used lately when too many are loaded, and if an unloaded log is read back with its messages, removed messages and keys.
+     */
+    @Test
+    @DisplayName("Tests if the cache unloads the logs that were not used lately when too many are loaded, and if an unloaded log is read back with its messages, removed messages and keys.")
+    public void testIfCacheUnloadsAndReadsBackLogs(){
+        try {
+            MessageLogCache messageLogCache = new MessageLogCache(1, Long.MAX_VALUE);
+            MappedServerMessageLog firstLog = new MappedServerMessageLog(directory.resolve("first.messages"), LocalDate.now(), messageLogCache);
+            MappedServerMessageLog secondLog = new MappedServerMessageLog(directory.resolve("second.messages"), LocalDate.now(), messageLogCache);
+            Message removedMessage = null;
+            for (int i = 0; i < 100; i++){
+                Message message = new TextMessage("First " + i, "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "first-" + i);
+                firstLog.addMessage(message);
+                if (i == 50){
+                    removedMessage = message;
+                }
+            }
+            firstLog.removeMessage(removedMessage);
+            for (int i = 0; i < 100; i++){
+                secondLog.addMessage(new TextMessage("Second " + i, "bjarne21"));
+            }
+            assertFalse(firstLog.isLoaded());
+            assertTrue(secondLog.isLoaded());
+            assertEquals(1L, messageLogCache.getEvictions());
+            List<Message> newMessages = firstLog.checkForNewMessages(98L);
+            assertTrue(firstLog.isLoaded());
+            assertFalse(secondLog.isLoaded());
+            assertEquals(List.of(99L, 100L), newMessages.stream().map(Message::getMessageNumber).toList());
+            assertEquals("First 99", ((TextMessage) newMessages.get(1)).getMessage());
+            assertEquals(99, firstLog.getMessages().size());
+            assertFalse(firstLog.checkIfAllMessagesAreNewMessages(List.of(removedMessage)));
+            assertTrue(firstLog.checkIfAllMessagesAreNewMessages(List.of(new TextMessage("Again", "bjarne21", LocalDate.now(), LocalTime.now(), null, null, 0, "first-7"))));
+            assertEquals(1L, messageLogCache.getMisses());
+            assertEquals(100L, secondLog.getLastMessageNumber());
+        }catch (IOException | CouldNotAddMessageException | CouldNotRemoveMessageException exception){
+            fail("Expected the logs to be made, unloaded and read back since the folder can be written to.");
+        }
+    }
+
+    /**
+     * Tests if the cache counts the bytes a log has mapped after it grows, and unloads other logs when the mapped bytes are too many.
+     */
+    @Test
+    @DisplayName("Tests if the cache counts the bytes a log has mapped after it grows, and unloads other logs when the mapped bytes are too many.")
+    public void testIfCacheUnloadsLogsWhenTooManyBytesAreMapped(){
+        try {
+            MessageLogCache messageLogCache = new MessageLogCache(100, 3 * 4096);
+            MappedServerMessageLog firstLog = new MappedServerMessageLog(directory.resolve("first.messages"), LocalDate.now(), messageLogCache);
+            MappedServerMessageLog secondLog = new MappedServerMessageLog(directory.resolve("second.messages"), LocalDate.now(), messageLogCache);
+            firstLog.addMessage(new TextMessage("First", "bjarne21"));
+            secondLog.addMessage(new TextMessage("Second", "bjarne21"));
+            assertEquals(2 * 4096, messageLogCache.getMappedBytes());
+            for (int i = 0; i < 200; i++){
+                firstLog.addMessage(new TextMessage("Message " + i, "bjarne21"));
+            }
+            assertTrue(firstLog.isLoaded());
+            assertFalse(secondLog.isLoaded());
+            assertEquals(1, messageLogCache.getLoadedLogs());
+            assertTrue(messageLogCache.getMappedBytes() > 3 * 4096);
+            assertEquals(1L, messageLogCache.getEvictions());
+            assertEquals(1, secondLog.getMessages().size());
+        }catch (IOException | CouldNotAddMessageException exception){
+            fail("Expected the logs to be made and unloaded since the folder can be written to.");
+        }
+    }
+}
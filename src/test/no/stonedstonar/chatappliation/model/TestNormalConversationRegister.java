@@ -2,6 +2,7 @@ package no.stonedstonar.chatappliation.model;
 
 import no.stonedstonar.chatapplication.model.conversation.Conversation;
 import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
 import no.stonedstonar.chatapplication.model.conversationregister.server.NormalConversationRegister;
 import no.stonedstonar.chatapplication.model.conversationregister.server.ServerConversationRegister;
 import no.stonedstonar.chatapplication.model.exception.conversation.CouldNotAddConversationException;
@@ -17,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -222,4 +224,26 @@ public class TestNormalConversationRegister {
             fail("Expected to get a CouldNotRemoveConversationException since the input is valid format.");
         }
     }
+
+    /**
+     * Tests if getAllConversationsOfUsername follows the members that are added and removed after the conversations are made.
+     */
+    @Test
+    @DisplayName("Tests if getAllConversationsOfUsername follows the members that are added and removed.")
+    public void testIfGetAllConversationsOfUsernameFollowsMemberChanges(){
+        try {
+            assertEquals(2, conversationRegister.getAllConversationsOfUsername(username).size());
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember(username));
+            conversationRegister.getConversationByNumber(3).getMembers().addAllMembers(members, "lordVader");
+            assertEquals(3, conversationRegister.getAllConversationsOfUsername(username).size());
+            conversationRegister.getConversationByNumber(1).getMembers().removeAllMembers(members, "lordVader");
+            List<ServerConversation> conversations = conversationRegister.getAllConversationsOfUsername(username);
+            assertEquals(2, conversations.size());
+            assertTrue(conversations.stream().noneMatch(conversation -> conversation.getConversationNumber() == 1));
+            assertTrue(conversationRegister.getAllConversationsOfUsername("nobody").isEmpty());
+        }catch (Exception exception){
+            fail("Expected the members to be changed since the usernames are members of the conversations, but got " + exception.getClass());
+        }
+    }
 }
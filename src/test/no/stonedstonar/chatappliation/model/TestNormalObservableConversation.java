@@ -1,5 +1,6 @@
 package no.stonedstonar.chatappliation.model;
 
+import no.stonedstonar.chatapplication.model.conversation.ConversationObserver;
 import no.stonedstonar.chatapplication.model.conversation.NormalObservableConversation;
 import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
 import no.stonedstonar.chatapplication.model.conversation.ObservableConversation;
@@ -21,6 +22,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -333,4 +335,42 @@ public class TestNormalObservableConversation {
         }
     }
 
+    /**
+     * Tests if addMessagesWithSameDate tells the observers about all the messages at once.
+     */
+    @Test
+    @DisplayName("Tests if addMessagesWithSameDate tells the observers about all the messages at once.")
+    public void testIfAddMessagesWithSameDateNotifiesOnce(){
+        try {
+            List<List<Message>> updates = new ArrayList<>();
+            observableConversation.registerObserver(new ConversationObserver() {
+                @Override
+                public void updateConversationMessage(Message message, boolean removed, long conversationNumber) {
+                    updates.add(List.of(message));
+                }
+
+                @Override
+                public void updateConversationMessages(List<Message> messages, boolean removed, long conversationNumber) {
+                    updates.add(messages);
+                }
+
+                @Override
+                public void updateMemberInConversation(long conversationNumber) {
+                }
+
+                @Override
+                public void updateConversationName(long conversationNumber) {
+                }
+            });
+            List<Message> messageList = new ArrayList<>();
+            for (int i = 0; i < 20; i++){
+                messageList.add(new TextMessage("Message " + i, "bjarne21"));
+            }
+            observableConversation.addAllMessagesWithSameDate(messageList);
+            assertEquals(1, updates.size());
+            assertEquals(20, updates.get(0).size());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | UsernameNotPartOfConversationException | CouldNotGetMessageLogException exception){
+            fail("Expected the messages to be added since the input is valid " + exception.getClass());
+        }
+    }
 }
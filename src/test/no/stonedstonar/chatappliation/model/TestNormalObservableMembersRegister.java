@@ -18,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -432,4 +433,25 @@ public class TestNormalObservableMembersRegister {
             assertTrue(true);
         }
     }
+
+    /**
+     * Tests if replaceAllMembers removes the members that are gone, adds the new ones and takes the member numbers of the server.
+     */
+    @Test
+    @DisplayName("Tests if replaceAllMembers removes the members that are gone, adds the new ones and takes the member numbers of the server.")
+    public void testIfReplaceAllMembersWorks(){
+        List<String> removedUsernames = new ArrayList<>();
+        List<String> addedUsernames = new ArrayList<>();
+        observableMemberRegister.addObserver((member, removed) -> (removed ? removedUsernames : addedUsernames).add(member.getUsername()));
+        List<Member> members = new ArrayList<>();
+        members.add(new ConversationMember(memberUsername, 1));
+        members.add(new ConversationMember("lordVader", 40));
+        observableMemberRegister.replaceAllMembers(members, 41, 37);
+        assertEquals(List.of(removeMember.getUsername()), removedUsernames);
+        assertEquals(List.of("lordVader"), addedUsernames);
+        assertEquals(2, observableMemberRegister.getAmountOfMembers());
+        assertTrue(observableMemberRegister.checkIfUsernameIsMember("lordVader"));
+        assertEquals(41, observableMemberRegister.getLastMemberNumber());
+        assertEquals(37, observableMemberRegister.getLastDeletedMember());
+    }
 }
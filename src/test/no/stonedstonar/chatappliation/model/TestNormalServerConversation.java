@@ -3,12 +3,17 @@ package no.stonedstonar.chatappliation.model;
 import no.stonedstonar.chatapplication.model.conversation.Conversation;
 import no.stonedstonar.chatapplication.model.conversation.NormalServerConversation;
 import no.stonedstonar.chatapplication.model.conversation.ServerConversation;
+import no.stonedstonar.chatapplication.model.conversation.ServerConversationObserver;
 import no.stonedstonar.chatapplication.model.exception.conversation.UsernameNotPartOfConversationException;
 import no.stonedstonar.chatapplication.model.exception.messagelog.CouldNotGetMessageLogException;
 import no.stonedstonar.chatapplication.model.member.ConversationMember;
 import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.membersregister.NormalMembersRegister;
 import no.stonedstonar.chatapplication.model.message.TextMessage;
 import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLog;
+import no.stonedstonar.chatapplication.model.messagelog.NormalServerMessageLogFactory;
+import no.stonedstonar.chatapplication.model.messagelog.ServerMessageLog;
 import no.stonedstonar.chatapplication.model.exception.member.CouldNotAddMemberException;
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotAddMessageException;
 import no.stonedstonar.chatapplication.model.exception.message.CouldNotRemoveMessageException;
@@ -17,9 +22,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -374,4 +382,171 @@ public class TestNormalServerConversation {
             fail("Expected to get a IllegalArgumentException since the input format is invalid.");
         }
     }
+
+    /**
+     * Tests if a server conversation observer is told about new messages, new members and new names.
+     */
+    @Test
+    @DisplayName("Tests if a server conversation observer is told about new messages, new members and new names.")
+    public void testIfServerConversationObserverIsToldAboutChanges(){
+        List<String> updates = new ArrayList<>();
+        testConversation.registerObserver(new ServerConversationObserver() {
+            @Override
+            public void updateNewMessage(ServerConversation serverConversation, Message message) {
+                updates.add("message " + message.getMessageNumber());
+            }
+
+            @Override
+            public void updateMember(ServerConversation serverConversation, Member member, boolean removed) {
+                updates.add((removed ? "removed " : "added ") + member.getUsername());
+            }
+
+            @Override
+            public void updateConversationName(ServerConversation serverConversation) {
+                updates.add("name " + serverConversation.getConversationName());
+            }
+
+            @Override
+            public void updateNewConversation(ServerConversation serverConversation) {
+                updates.add("conversation");
+            }
+        });
+        try {
+            testConversation.addNewMessage(new TextMessage("Are you there?", username));
+            testConversation.getMembers().addMember(new ConversationMember("fjell"), username);
+            testConversation.getMembers().removeMember(new ConversationMember("fjell"), username);
+            testConversation.setConversationName("The darkside");
+            assertEquals(List.of("message 3", "added fjell", "removed fjell", "name The darkside"), updates);
+        }catch (Exception exception){
+            fail("Expected the changes to be made since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if getMessageLogsBetweenDates only gives back the days in the range, with the oldest day first.
+     */
+    @Test
+    @DisplayName("Tests if getMessageLogsBetweenDates only gives back the days in the range, with the oldest day first.")
+    public void testIfGetMessageLogsBetweenDatesWorks(){
+        try {
+            LocalDate today = LocalDate.now();
+            for (int daysAgo = 10; daysAgo > 0; daysAgo -= 2){
+                testConversation.addNewMessage(new TextMessage("Day " + daysAgo, username, today.minusDays(daysAgo), LocalTime.NOON, null, null, -1));
+            }
+            List<ServerMessageLog> messageLogs = testConversation.getMessageLogsBetweenDates(today.minusDays(7), today.minusDays(1), username);
+            assertEquals(3, messageLogs.size());
+            assertEquals(today.minusDays(6), messageLogs.get(0).getDateMade());
+            assertEquals(today.minusDays(2), messageLogs.get(2).getDateMade());
+            assertTrue(testConversation.checkForMessageLogByDate(today.minusDays(10)));
+            assertFalse(testConversation.checkForMessageLogByDate(today.minusDays(9)));
+            assertEquals(6, testConversation.getMessageLogs(username).size());
+        }catch (Exception exception){
+            fail("Expected the message logs to be found since the input is valid, but got " + exception.getClass());
+        }
+        try {
+            testConversation.getMessageLogsBetweenDates(LocalDate.now(), LocalDate.now().minusDays(1), username);
+            fail("Expected to get an IllegalArgumentException since the from date is after the to date.");
+        }catch (IllegalArgumentException exception){
+            assertTrue(true);
+        }catch (UsernameNotPartOfConversationException exception){
+            fail("Expected to get an IllegalArgumentException since the user is a part of the conversation.");
+        }
+    }
+
+    /**
+     * Tests if addSentMessages only adds a message once when it is sent again, also in the same list.
+     */
+    @Test
+    @DisplayName("Tests if addSentMessages only adds a message once when it is sent again, also in the same list.")
+    public void testIfAddSentMessagesSkipsMessagesSentAgain(){
+        try {
+            int amountBefore = testConversation.checkForNewMessagesOnDate(LocalDate.now(), 0, "bjarne21").size();
+            Message message = new TextMessage("Testing", "bjarne21");
+            Message otherMessage = new TextMessage("Testing again", "bjarne21");
+            assertEquals(1, testConversation.addSentMessages(List.of(message, message)).size());
+            Message sentAgain = new TextMessage("Testing", "bjarne21", message.getSentFromUserDate(), message.getSentFromUserTime(), null, null, -1, message.getMessageKey());
+            List<Message> addedMessages = testConversation.addSentMessages(List.of(sentAgain, otherMessage));
+            assertEquals(List.of(otherMessage), addedMessages);
+            assertEquals(amountBefore + 2, testConversation.checkForNewMessagesOnDate(LocalDate.now(), 0, "bjarne21").size());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException exception){
+            fail("Expected the messages to be added once since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if addSentMessages skips a message that is sent again after more than 256 newer messages, without failing the rest of the list.
+     */
+    @Test
+    @DisplayName("Tests if addSentMessages skips a message that is sent again after more than 256 newer messages, without failing the rest of the list.")
+    public void testIfAddSentMessagesSkipsOldMessagesSentAgain(){
+        try {
+            Message message = new TextMessage("Sent first", "bjarne21");
+            testConversation.addSentMessages(List.of(message));
+            for (int i = 0; i < 300; i++){
+                testConversation.addSentMessages(List.of(new TextMessage("Newer " + i, "bjarne21")));
+            }
+            long lastMessageNumber = testConversation.getLastMessageNumber();
+            Message sentAgain = new TextMessage("Sent first", "bjarne21", message.getSentFromUserDate(), message.getSentFromUserTime(), null, null, -1, message.getMessageKey());
+            Message otherMessage = new TextMessage("Sent last", "bjarne21");
+            List<Message> addedMessages = testConversation.addSentMessages(List.of(sentAgain, otherMessage));
+            assertEquals(List.of(otherMessage), addedMessages);
+            assertEquals(lastMessageNumber + 1, testConversation.getLastMessageNumber());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException exception){
+            fail("Expected the old message to be skipped since it is already in the log, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the messages are numbered for the whole conversation, and if getMessagesAfter finds the new messages of every day with one number.
+     */
+    @Test
+    @DisplayName("Tests if the messages are numbered for the whole conversation, and if getMessagesAfter finds the new messages of every day with one number.")
+    public void testIfMessagesAreNumberedAcrossDays(){
+        try {
+            assertEquals(2, testConversation.getLastMessageNumber());
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            Message lateMessage = new TextMessage("Sent yesterday", "lordVader", yesterday, LocalTime.now(), yesterday, LocalTime.now(), 0, null);
+            testConversation.addNewMessage(lateMessage);
+            testConversation.addNewMessage(new TextMessage("Newest", "bjarne21"));
+            assertEquals(3, lateMessage.getMessageNumber());
+            assertEquals(4, testConversation.getLastMessageNumber());
+            List<Message> newMessages = testConversation.getMessagesAfter(1, 10, username);
+            assertEquals(3, newMessages.size());
+            assertEquals(lateMessage, newMessages.get(1));
+            assertEquals(List.of(lateMessage), testConversation.getMessagesAfter(2, 1, username));
+            assertTrue(testConversation.getMessagesAfter(4, 10, username).isEmpty());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException exception){
+            fail("Expected the messages to be added and found since the input is valid, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if getMessagesAfter finds the messages of every day when the logs are from before the messages were numbered for the whole conversation,
+     * and two days end on the same number.
+     */
+    @Test
+    @DisplayName("Tests if getMessagesAfter finds the messages of two old days that end on the same number.")
+    public void testIfOldDaysWithTheSameLastNumberAreBothFound(){
+        try {
+            List<ServerMessageLog> messageLogs = new ArrayList<>();
+            for (int day = 2; day > 0; day--){
+                LocalDate date = LocalDate.now().minusDays(day);
+                NormalServerMessageLog messageLog = new NormalServerMessageLog(date);
+                messageLog.addMessage(new TextMessage("First " + day, "bjarne21", date, LocalTime.now(), date, LocalTime.now(), 0, null), 1);
+                messageLog.addMessage(new TextMessage("Second " + day, "lordVader", date, LocalTime.now(), date, LocalTime.now(), 0, null), 2);
+                messageLogs.add(messageLog);
+            }
+            ServerConversation oldConversation = new NormalServerConversation(302L, new NormalMembersRegister(makeMembers()), LocalDate.now().minusDays(2), "", messageLogs, new NormalServerMessageLogFactory());
+            assertEquals(2, oldConversation.getLastMessageNumber());
+            assertEquals(4, oldConversation.getMessagesAfter(0, 10, username).size());
+            assertEquals(2, oldConversation.getMessagesAfter(1, 10, username).size());
+            Message newMessage = new TextMessage("New", "bjarne21");
+            oldConversation.addNewMessage(newMessage);
+            assertEquals(3, newMessage.getMessageNumber());
+            assertEquals(List.of(newMessage), oldConversation.getMessagesAfter(2, 10, username));
+            assertEquals(5, oldConversation.getMessagesAfter(0, 10, username).size());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | CouldNotGetMessageLogException | UsernameNotPartOfConversationException exception){
+            fail("Expected the messages of both days to be found since the logs are valid, but got " + exception.getClass());
+        }
+    }
 }
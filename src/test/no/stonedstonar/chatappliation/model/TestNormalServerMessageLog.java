@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -205,4 +206,46 @@ public class TestNormalServerMessageLog {
             fail("Expected the message to be added since its not already in the log.");
         }
     }
+
+    /**
+     * Tests if checkForNewMessages only gives back the messages after the message number, also after many messages are added.
+     */
+    @Test
+    @DisplayName("Tests if checkForNewMessages only gives back the messages after the message number, also after many messages are added.")
+    public void testIfCheckForNewMessagesGivesBackTheTail(){
+        try {
+            for (int i = 0; i < 100; i++){
+                testMessageLog.addMessage(new TextMessage("Message " + i, "bjarne21"));
+            }
+            List<Message> newMessages = testMessageLog.checkForNewMessages(99L);
+            assertEquals(3, newMessages.size());
+            assertEquals(100L, newMessages.get(0).getMessageNumber());
+            assertEquals(102L, newMessages.get(2).getMessageNumber());
+            assertTrue(testMessageLog.checkForNewMessages(102L).isEmpty());
+        }catch (IllegalArgumentException | CouldNotAddMessageException exception){
+            fail("Expected the messages to be added and found since the input is valid.");
+        }
+    }
+
+    /**
+     * Tests if the new messages from checkForNewMessages do not have a message that is removed.
+     */
+    @Test
+    @DisplayName("Tests if the new messages from checkForNewMessages do not have a message that is removed.")
+    public void testIfCheckForNewMessagesSkipsRemovedMessages(){
+        try {
+            Message message = new TextMessage("ss", "bjarne21");
+            testMessageLog.addMessage(message);
+            List<Message> newMessages = testMessageLog.checkForNewMessages(0L);
+            testMessageLog.removeMessage(testMessage);
+            assertEquals(2, newMessages.size());
+            assertEquals(message, newMessages.get(1));
+            assertEquals(List.of(newMessages.get(0), message), List.copyOf(newMessages));
+            assertEquals(1, testMessageLog.checkForNewMessages(1L).size());
+            testMessageLog.addMessage(testMessage);
+            assertEquals(3, newMessages.size());
+        }catch (IllegalArgumentException | CouldNotAddMessageException | CouldNotRemoveMessageException exception){
+            fail("Expected the messages to be added and removed since the input is valid.");
+        }
+    }
 }
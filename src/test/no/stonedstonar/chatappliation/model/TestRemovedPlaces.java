@@ -0,0 +1,65 @@
+package no.stonedstonar.chatappliation.model;
+
+import no.stonedstonar.chatapplication.model.util.RemovedPlaces;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A class that tests the methods in the RemovedPlaces class.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestRemovedPlaces {
+
+    /**
+     * Tests if the places are counted and found the same way as when every place is looked at, also after the tree grows.
+     */
+    @Test
+    @DisplayName("Tests if the places are counted and found the same way as when every place is looked at, also after the tree grows.")
+    public void testIfPlacesMatchEveryPlace(){
+        RemovedPlaces removedPlaces = new RemovedPlaces();
+        BitSet removed = new BitSet();
+        Random random = new Random(21);
+        int size = 1000;
+        for (int i = 0; i < 300; i++){
+            int place = random.nextInt(size);
+            if (!removed.get(place)){
+                removed.set(place);
+                removedPlaces.markRemoved(place);
+            }
+        }
+        assertEquals(removed.cardinality(), removedPlaces.getRemovedAmount());
+        int kept = 0;
+        for (int place = 0; place < size; place++){
+            assertEquals(removed.get(0, place).cardinality(), removedPlaces.countRemovedBefore(place));
+            if (!removed.get(place)){
+                assertEquals(place, removedPlaces.findKeptPlace(kept));
+                kept += 1;
+            }
+        }
+        assertEquals(size, removedPlaces.findKeptPlace(kept));
+        assertEquals(removed.cardinality(), removedPlaces.countRemovedBefore(size * 4));
+    }
+
+    /**
+     * Tests if places that are not removed are found without any removed places, and if a negative place is not taken.
+     */
+    @Test
+    @DisplayName("Tests if places that are not removed are found without any removed places, and if a negative place is not taken.")
+    public void testIfPlacesWithoutRemovalsWork(){
+        RemovedPlaces removedPlaces = new RemovedPlaces();
+        assertEquals(0, removedPlaces.countRemovedBefore(40));
+        assertEquals(40, removedPlaces.findKeptPlace(40));
+        try {
+            removedPlaces.markRemoved(-1);
+            fail("Expected to get an IllegalArgumentException since the place is negative.");
+        }catch (IllegalArgumentException exception){
+            assertEquals(0, removedPlaces.getRemovedAmount());
+        }
+    }
+}
@@ -10,6 +10,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -234,4 +240,39 @@ public class TestUserRegister {
             fail("Expected to get a true boolean back since the username is in the register.");
         }
     }
+
+    /**
+     * Tests if only one of many threads that add the same username at the same time gets the username.
+     */
+    @Test
+    @DisplayName("Tests if only one of many threads that add the same username at the same time gets the username.")
+    public void testIfAddUserOnlyAddsUsernameOnceFromManyThreads(){
+        try {
+            AtomicInteger addedUsers = new AtomicInteger();
+            CountDownLatch startLatch = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 8; i++){
+                String password = "password" + i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        startLatch.await();
+                        normalUserRegister.addUser(new EndUser("fjell", password));
+                        addedUsers.incrementAndGet();
+                    }catch (CouldNotAddUserException | InterruptedException exception){
+                        assertTrue(true);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            startLatch.countDown();
+            for (Thread thread : threads){
+                thread.join();
+            }
+            assertEquals(1, addedUsers.get());
+            assertTrue(normalUserRegister.checkIfUsernameIsTaken("fjell"));
+        }catch (InterruptedException exception){
+            fail("Expected the threads to finish without being interrupted.");
+        }
+    }
 }
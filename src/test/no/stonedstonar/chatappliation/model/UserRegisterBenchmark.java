@@ -0,0 +1,82 @@
+package no.stonedstonar.chatappliation.model;
+
+import no.stonedstonar.chatapplication.model.user.EndUser;
+import no.stonedstonar.chatapplication.model.userregister.NormalUserRegister;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A benchmark that measures how long it takes to log in and check usernames in a register with many users.
+ * The logins are done first from one thread and then from many threads at the same time, without any lock around the register.
+ * Is run by hand with its main method and is not a part of the tests. Takes the amount of users as the first argument.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class UserRegisterBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of users. Is 1 000 000 if it is not given.
+     * @throws Exception gets thrown if a user could not be added or logged in to.
+     */
+    public static void main(String[] args) throws Exception {
+        int amountOfUsers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        NormalUserRegister userRegister = new NormalUserRegister();
+        long start = System.nanoTime();
+        for (int i = 0; i < amountOfUsers; i++){
+            userRegister.addUser(new EndUser("user" + i, "password" + i));
+        }
+        System.out.printf("Added %d users in %d ms%n", amountOfUsers, (System.nanoTime() - start) / 1_000_000);
+
+        Random random = new Random(42);
+        long check = 0;
+        for (int round = 0; round < 3; round++){
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++){
+                int user = random.nextInt(amountOfUsers);
+                check += userRegister.login("user" + user, "password" + user).getUsername().length();
+            }
+            System.out.printf("Login: %d ns per login%n", (System.nanoTime() - start) / LOOKUPS);
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++){
+                if (userRegister.checkIfUsernameIsTaken("user" + random.nextInt(amountOfUsers * 2))){
+                    check += 1;
+                }
+            }
+            System.out.printf("Username check: %d ns per check%n", (System.nanoTime() - start) / LOOKUPS);
+        }
+
+        int amountOfThreads = Runtime.getRuntime().availableProcessors();
+        AtomicLong threadCheck = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        start = System.nanoTime();
+        for (int t = 0; t < amountOfThreads; t++){
+            Random threadRandom = new Random(t);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < LOOKUPS; i++){
+                        int user = threadRandom.nextInt(amountOfUsers);
+                        threadCheck.addAndGet(userRegister.login("user" + user, "password" + user).getUsername().length());
+                    }
+                }catch (Exception exception){
+                    throw new IllegalStateException(exception);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads){
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d threads: %d logins per second%n", amountOfThreads, (long) amountOfThreads * LOOKUPS * 1_000_000_000L / nanos);
+        if (check + threadCheck.get() == 0){
+            System.out.println(check);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package no.stonedstonar.chatappliation.network;
+
+import no.stonedstonar.chatapplication.model.exception.InvalidResponseException;
+import no.stonedstonar.chatapplication.model.member.ConversationMember;
+import no.stonedstonar.chatapplication.model.member.Member;
+import no.stonedstonar.chatapplication.model.message.Message;
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.network.frame.BinaryCodec;
+import no.stonedstonar.chatapplication.network.frame.FrameCodec;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.frame.ResponseEnvelope;
+import no.stonedstonar.chatapplication.network.requests.ConversationRequest;
+import no.stonedstonar.chatapplication.network.requests.HistoryRequest;
+import no.stonedstonar.chatapplication.network.requests.MembersRequest;
+import no.stonedstonar.chatapplication.network.requests.MessageRequest;
+import no.stonedstonar.chatapplication.network.requests.SyncRequest;
+import no.stonedstonar.chatapplication.network.requests.UserRequest;
+import no.stonedstonar.chatapplication.network.requests.builder.ConversationRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.HistoryRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MembersRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.SyncRequestBuilder;
+import no.stonedstonar.chatapplication.network.requests.builder.UserRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.ConversationChangesTransport;
+import no.stonedstonar.chatapplication.network.transport.ConversationCursorTransport;
+import no.stonedstonar.chatapplication.network.transport.MemberTransport;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A class that tests that the binary codec gives back the same objects it was given.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class TestBinaryCodec {
+
+    private BinaryCodec sender;
+
+    private BinaryCodec receiver;
+
+    /**
+     * Makes a codec for each end of a connection.
+     */
+    @BeforeEach
+    private void makeCodecs(){
+        sender = new BinaryCodec();
+        receiver = new BinaryCodec();
+    }
+
+    /**
+     * Makes a message request with two messages, where one of them has gotten a message number.
+     * @return the message request.
+     */
+    private MessageRequest makeMessageRequest(){
+        List<MessageTransport> messageTransports = new ArrayList<>();
+        TextMessage textMessage = new TextMessage("Hei på deg", "bjarne22");
+        textMessage.setMessageNumber(5);
+        messageTransports.add(new MessageTransport(textMessage, true));
+        messageTransports.add(new MessageTransport(new TextMessage("Pizza?", "fjell"), false));
+        return new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(3).addLastMessage(4).addDate(LocalDate.now()).setUsername("bjarne22").setCheckForMessages(true).build();
+    }
+
+    /**
+     * Tests if a message request with messages is the same after it is encoded and decoded.
+     */
+    @Test
+    @DisplayName("Tests if a message request with messages is the same after it is encoded and decoded.")
+    public void testIfMessageRequestIsTheSameAfterDecoding(){
+        try {
+            MessageRequest messageRequest = makeMessageRequest();
+            Object object = receiver.decode(sender.encode(new RequestEnvelope(7, messageRequest), false));
+            assertTrue(object instanceof RequestEnvelope);
+            RequestEnvelope requestEnvelope = (RequestEnvelope) object;
+            assertEquals(7, requestEnvelope.getRequestId());
+            MessageRequest decoded = (MessageRequest) requestEnvelope.getRequest();
+            assertEquals(messageRequest.getConversationNumber(), decoded.getConversationNumber());
+            assertEquals(messageRequest.getLastMessage(), decoded.getLastMessage());
+            assertEquals(messageRequest.getCheckMessageDate(), decoded.getCheckMessageDate());
+            assertEquals(messageRequest.getUsername(), decoded.getUsername());
+            assertTrue(decoded.isCheckForMessages());
+            assertEquals(2, decoded.getMessageTransportList().size());
+            for (int i = 0; i < 2; i++){
+                MessageTransport expected = messageRequest.getMessageTransportList().get(i);
+                MessageTransport actual = decoded.getMessageTransportList().get(i);
+                assertEquals(expected.isAddMessage(), actual.isAddMessage());
+                Message expectedMessage = expected.getMessage();
+                Message actualMessage = actual.getMessage();
+                assertTrue(((TextMessage) expectedMessage).checkIfMessageContentsAreEqual(actualMessage));
+                assertEquals(expectedMessage.getMessageNumber(), actualMessage.getMessageNumber());
+                assertEquals(expectedMessage.getMessageKey(), actualMessage.getMessageKey());
+                assertEquals(expectedMessage.getDate(), actualMessage.getDate());
+                assertEquals(expectedMessage.getTime(), actualMessage.getTime());
+            }
+        }catch (Exception exception){
+            fail("Expected the message request to be decoded since it was encoded by the same format, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if members, conversation and user requests are the same after they are encoded and decoded.
+     */
+    @Test
+    @DisplayName("Tests if members, conversation and user requests are the same after they are encoded and decoded.")
+    public void testIfOtherRequestsAreTheSameAfterDecoding(){
+        try {
+            List<MemberTransport> memberTransports = new ArrayList<>();
+            memberTransports.add(new MemberTransport(new ConversationMember("fjell", 2), true));
+            memberTransports.add(new MemberTransport(new ConversationMember("bass"), false));
+            MembersRequest membersRequest = new MembersRequestBuilder().addMemberTransports(memberTransports).addConversationNumber(2).addUsername("bjarne22").addLastMember(1).build();
+            MembersRequest decodedMembers = (MembersRequest) receiver.decode(sender.encode(membersRequest, false));
+            assertEquals(2, decodedMembers.getConversationNumber());
+            assertEquals(1, decodedMembers.getLastMember());
+            assertEquals("bjarne22", decodedMembers.getUsername());
+            assertEquals("fjell", decodedMembers.getMembers().get(0).getMember().getUsername());
+            assertEquals(2, decodedMembers.getMembers().get(0).getMember().getMemberNumber());
+            assertFalse(decodedMembers.getMembers().get(1).isAddMember());
+            assertEquals(-1, decodedMembers.getMembers().get(1).getMember().getMemberNumber());
+
+            Map<Long, String> names = new HashMap<>();
+            names.put(4L, "The darkside");
+            List<Member> members = new ArrayList<>();
+            members.add(new ConversationMember("bjarne22"));
+            ConversationRequest conversationRequest = new ConversationRequestBuilder().setCheckForConversationNames(true).addConversationNamesMap(names).addMembers(members).addUsername("bjarne22").build();
+            ConversationRequest decodedConversation = (ConversationRequest) receiver.decode(sender.encode(conversationRequest, false));
+            assertTrue(decodedConversation.isCheckForNewConversationNames());
+            assertFalse(decodedConversation.isNewConversation());
+            assertEquals(names, decodedConversation.getNewConversationNamesMap());
+            assertEquals("bjarne22", decodedConversation.getMemberList().get(0).getUsername());
+
+            UserRequest userRequest = new UserRequestBuilder().setLogin(true).setUsername("bjarne22").setPassword("passr").build();
+            UserRequest decodedUser = (UserRequest) receiver.decode(sender.encode(userRequest, false));
+            assertTrue(decodedUser.isLogin());
+            assertEquals("bjarne22", decodedUser.getUsername());
+            assertEquals("passr", decodedUser.getPassword());
+            assertTrue(decodedUser.getConversationCursors().isEmpty());
+
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+            conversationCursors.add(new ConversationCursorTransport(4, 12, 2, 1, "Pizza"));
+            UserRequest loginWithCursors = new UserRequestBuilder().setLogin(true).setUsername("bjarne22").setPassword("passr").addConversationCursors(conversationCursors).build();
+            ConversationCursorTransport decodedCursor = ((UserRequest) receiver.decode(sender.encode(loginWithCursors, false))).getConversationCursors().get(0);
+            assertEquals(4, decodedCursor.getConversationNumber());
+            assertEquals(12, decodedCursor.getLastMessage());
+            assertEquals("Pizza", decodedCursor.getConversationName());
+        }catch (Exception exception){
+            fail("Expected the requests to be decoded since they were encoded by the same format, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a sync request with cursors and changes is the same after it is encoded and decoded.
+     */
+    @Test
+    @DisplayName("Tests if a sync request with cursors and changes is the same after it is encoded and decoded.")
+    public void testIfSyncRequestIsTheSameAfterDecoding(){
+        try {
+            List<ConversationCursorTransport> conversationCursors = new ArrayList<>();
+            conversationCursors.add(new ConversationCursorTransport(2, 5, 3, 1, "The darkside"));
+            List<MemberTransport> memberTransports = new ArrayList<>();
+            memberTransports.add(new MemberTransport(new ConversationMember("bass", 4), true));
+            List<ConversationChangesTransport> conversationChanges = new ArrayList<>();
+            conversationChanges.add(new ConversationChangesTransport(2, makeMessageRequest().getMessageTransportList(), memberTransports, "Pizza"));
+            conversationChanges.add(new ConversationChangesTransport(3, new ArrayList<>(), memberTransports, "", 7, 70));
+            SyncRequest syncRequest = new SyncRequestBuilder().setUsername("bjarne22").addConversationCursors(conversationCursors).addConversationChanges(conversationChanges).build();
+            SyncRequest decoded = (SyncRequest) receiver.decode(sender.encode(syncRequest, false));
+            assertEquals("bjarne22", decoded.getUsername());
+            ConversationCursorTransport conversationCursor = decoded.getConversationCursors().get(0);
+            assertEquals(2, conversationCursor.getConversationNumber());
+            assertEquals(5, conversationCursor.getLastMessage());
+            assertEquals(3, conversationCursor.getLastMember());
+            assertEquals(1, conversationCursor.getLastDeletedMember());
+            assertEquals("The darkside", conversationCursor.getConversationName());
+            ConversationChangesTransport changes = decoded.getConversationChanges().get(0);
+            assertEquals(2, changes.getMessageTransportList().size());
+            assertEquals("bass", changes.getMemberTransportList().get(0).getMember().getUsername());
+            assertEquals("Pizza", changes.getNewConversationName());
+            assertFalse(changes.isAllMembers());
+            ConversationChangesTransport allMembers = decoded.getConversationChanges().get(1);
+            assertTrue(allMembers.isAllMembers());
+            assertEquals(7, allMembers.getLastMember());
+            assertEquals(70, allMembers.getLastDeletedMember());
+            assertEquals("bass", allMembers.getMemberTransportList().get(0).getMember().getUsername());
+            assertTrue(decoded.getNewConversations().isEmpty());
+        }catch (Exception exception){
+            fail("Expected the sync request to be decoded since it was encoded by the same format, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a history request with a page of messages is the same after it is encoded and decoded.
+     */
+    @Test
+    @DisplayName("Tests if a history request with a page of messages is the same after it is encoded and decoded.")
+    public void testIfHistoryRequestIsTheSameAfterDecoding(){
+        try {
+            List<Message> messages = makeMessageRequest().getMessageTransportList().stream().map(MessageTransport::getMessage).toList();
+            HistoryRequest historyRequest = new HistoryRequestBuilder().setUsername("bjarne22").addConversationNumber(3).addCursor(LocalDate.now().minusDays(2), 17).addLimit(50).addMessages(messages).setOlderMessages(true).build();
+            HistoryRequest decoded = (HistoryRequest) receiver.decode(sender.encode(historyRequest, false));
+            assertEquals("bjarne22", decoded.getUsername());
+            assertEquals(3, decoded.getConversationNumber());
+            assertEquals(historyRequest.getBeforeDate(), decoded.getBeforeDate());
+            assertEquals(17, decoded.getBeforeMessageNumber());
+            assertEquals(50, decoded.getLimit());
+            assertTrue(decoded.hasOlderMessages());
+            assertEquals(2, decoded.getMessages().size());
+            assertTrue(((TextMessage) messages.get(1)).checkIfMessageContentsAreEqual(decoded.getMessages().get(1)));
+        }catch (Exception exception){
+            fail("Expected the history request to be decoded since it was encoded by the same format, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a username is only written out once when it is sent many times over the same connection.
+     */
+    @Test
+    @DisplayName("Tests if a username is only written out once when it is sent many times over the same connection.")
+    public void testIfStringTableMakesLaterFramesSmaller(){
+        try {
+            byte[] first = sender.encode(makeMessageRequest(), false);
+            byte[] second = sender.encode(makeMessageRequest(), false);
+            assertTrue(second.length < first.length);
+            assertEquals(2, sender.getEncodeTableSize());
+            receiver.decode(first);
+            MessageRequest decoded = (MessageRequest) receiver.decode(second);
+            assertEquals("bjarne22", decoded.getUsername());
+            assertEquals("fjell", decoded.getMessageTransportList().get(1).getMessage().getFromUsername());
+        }catch (Exception exception){
+            fail("Expected the frames to be decoded in order, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a shared frame can be decoded by any connection and does not change the string table.
+     */
+    @Test
+    @DisplayName("Tests if a shared frame can be decoded by any connection and does not change the string table.")
+    public void testIfSharedFrameDoesNotUseTheStringTable(){
+        try {
+            byte[] shared = sender.encode(new ResponseEnvelope(ResponseEnvelope.PUSH_ID, makeMessageRequest()), true);
+            assertEquals(0, sender.getEncodeTableSize());
+            ResponseEnvelope responseEnvelope = (ResponseEnvelope) new BinaryCodec().decode(shared);
+            assertTrue(responseEnvelope.isPush());
+            byte[] next = sender.encode(makeMessageRequest(), false);
+            assertEquals("bjarne22", ((MessageRequest) receiver.decode(next)).getUsername());
+        }catch (Exception exception){
+            fail("Expected the shared frame to be decoded without the string table, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if the binary format is smaller than java serialization for a message request.
+     */
+    @Test
+    @DisplayName("Tests if the binary format is smaller than java serialization for a message request.")
+    public void testIfBinaryIsSmallerThanSerialization(){
+        try {
+            MessageRequest messageRequest = makeMessageRequest();
+            assertTrue(sender.encode(messageRequest, true).length * 4 < FrameCodec.encodeObject(messageRequest).length);
+        }catch (Exception exception){
+            fail("Expected the message request to be encoded in both formats, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if an object the format does not know is written with java serialization inside the payload.
+     */
+    @Test
+    @DisplayName("Tests if an object the format does not know is written with java serialization inside the payload.")
+    public void testIfUnknownObjectFallsBackToSerialization(){
+        try {
+            Object object = receiver.decode(sender.encode(new IllegalArgumentException("The username is taken."), false));
+            assertTrue(object instanceof IllegalArgumentException);
+            assertEquals("The username is taken.", ((IllegalArgumentException) object).getMessage());
+        }catch (Exception exception){
+            fail("Expected the exception to be sent with java serialization, but got " + exception.getClass());
+        }
+    }
+
+    /**
+     * Tests if a payload that ends too early is seen as invalid.
+     */
+    @Test
+    @DisplayName("Tests if a payload that ends too early is seen as invalid.")
+    public void testIfCutPayloadIsInvalid(){
+        try {
+            byte[] payload = sender.encode(makeMessageRequest(), true);
+            byte[] cut = new byte[payload.length / 2];
+            System.arraycopy(payload, 0, cut, 0, cut.length);
+            receiver.decode(cut);
+            fail("Expected to get an InvalidResponseException since the payload is cut.");
+        }catch (InvalidResponseException exception){
+            assertTrue(true);
+        }catch (IOException exception){
+            fail("Expected the message request to be encoded since it is valid.");
+        }
+    }
+}
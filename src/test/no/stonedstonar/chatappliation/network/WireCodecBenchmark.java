@@ -0,0 +1,109 @@
+package no.stonedstonar.chatappliation.network;
+
+import no.stonedstonar.chatapplication.model.message.TextMessage;
+import no.stonedstonar.chatapplication.network.frame.BinaryCodec;
+import no.stonedstonar.chatapplication.network.frame.FrameCodec;
+import no.stonedstonar.chatapplication.network.frame.RequestEnvelope;
+import no.stonedstonar.chatapplication.network.requests.MessageRequest;
+import no.stonedstonar.chatapplication.network.requests.builder.MessageRequestBuilder;
+import no.stonedstonar.chatapplication.network.transport.MessageTransport;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A benchmark that compares java serialization with the binary codec for the requests that are sent the most.
+ * Prints the bytes each message takes and the time it takes to encode and decode a request in both formats.
+ * Is run by hand with its main method and is not a part of the tests.
+ * @version 0.2
+ * @author Steinar Hjelle Midthus
+ */
+public class WireCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+
+    private static final int MEASURED_ROUNDS = 100_000;
+
+    /**
+     * Runs the benchmark.
+     * @param args not used.
+     * @throws Exception gets thrown if a request could not be encoded or decoded.
+     */
+    public static void main(String[] args) throws Exception {
+        MessageRequest poll = new MessageRequestBuilder().setCheckForMessages(true).addDate(LocalDate.now()).addLastMessage(41).addConversationNumber(3).setUsername("bjarne22").build();
+        System.out.println("Poll for new messages:");
+        compare(new RequestEnvelope(1, poll), 1);
+        System.out.println("Answer with 20 messages:");
+        compare(new RequestEnvelope(1, makeAnswer(20)), 20);
+    }
+
+    /**
+     * Makes the answer to a poll that holds an amount of messages.
+     * @param amountOfMessages the amount of messages.
+     * @return the answer.
+     */
+    private static MessageRequest makeAnswer(int amountOfMessages){
+        List<MessageTransport> messageTransports = new ArrayList<>();
+        for (int i = 0; i < amountOfMessages; i++){
+            TextMessage textMessage = new TextMessage("Message number " + i + " about the pizza on friday", i % 2 == 0 ? "bjarne22" : "fjell");
+            textMessage.setMessageNumber(i);
+            messageTransports.add(new MessageTransport(textMessage, true));
+        }
+        return new MessageRequestBuilder().addMessageTransportList(messageTransports).addConversationNumber(3).build();
+    }
+
+    /**
+     * Prints the size and the encode and decode time of an object in both formats.
+     * @param object the object to measure.
+     * @param amountOfMessages the amount of messages the object holds.
+     * @throws Exception gets thrown if the object could not be encoded or decoded.
+     */
+    private static void compare(Object object, int amountOfMessages) throws Exception {
+        byte[] serialized = FrameCodec.encodeObject(object);
+        BinaryCodec sizeCodec = new BinaryCodec();
+        byte[] firstBinary = sizeCodec.encode(object, false);
+        byte[] laterBinary = sizeCodec.encode(object, false);
+        System.out.printf("  serialization: %6d bytes, %6.1f bytes per message%n", serialized.length, serialized.length / (double) amountOfMessages);
+        System.out.printf("  binary first : %6d bytes, %6.1f bytes per message%n", firstBinary.length, firstBinary.length / (double) amountOfMessages);
+        System.out.printf("  binary later : %6d bytes, %6.1f bytes per message%n", laterBinary.length, laterBinary.length / (double) amountOfMessages);
+
+        measure(object, true, WARMUP_ROUNDS);
+        measure(object, false, WARMUP_ROUNDS);
+        long[] serializationTimes = measure(object, true, MEASURED_ROUNDS);
+        long[] binaryTimes = measure(object, false, MEASURED_ROUNDS);
+        System.out.printf("  serialization: encode %7d ns, decode %7d ns%n", serializationTimes[0], serializationTimes[1]);
+        System.out.printf("  binary       : encode %7d ns, decode %7d ns%n", binaryTimes[0], binaryTimes[1]);
+    }
+
+    /**
+     * Encodes and decodes an object many times.
+     * @param object the object.
+     * @param serialization <code>true</code> if java serialization should be used.
+     *                      <code>false</code> if the binary codec should be used.
+     * @param rounds the amount of times.
+     * @return the average encode time and the average decode time in nanoseconds.
+     * @throws Exception gets thrown if the object could not be encoded or decoded.
+     */
+    private static long[] measure(Object object, boolean serialization, int rounds) throws Exception {
+        BinaryCodec sender = new BinaryCodec();
+        BinaryCodec receiver = new BinaryCodec();
+        long encodeTime = 0;
+        long decodeTime = 0;
+        int check = 0;
+        for (int i = 0; i < rounds; i++){
+            long start = System.nanoTime();
+            byte[] payload = serialization ? FrameCodec.encodeObject(object) : sender.encode(object, false);
+            long middle = System.nanoTime();
+            Object decoded = serialization ? FrameCodec.decodeObject(payload) : receiver.decode(payload);
+            long end = System.nanoTime();
+            encodeTime += middle - start;
+            decodeTime += end - middle;
+            check += decoded.hashCode() & 1;
+        }
+        if (check < 0){
+            System.out.println(check);
+        }
+        return new long[]{encodeTime / rounds, decodeTime / rounds};
+    }
+}